@@ -1,6 +1,7 @@
 import com.falsepattern.fpgradle.dsl.*
 plugins {
     id("fpgradle-minecraft") version ("0.3.3")
+    id("me.champeau.jmh") version ("0.7.2")
 }
 
 group = "com.falsepattern"
@@ -67,3 +68,20 @@ dependencies {
 
     compileOnly(deobfCurse("journeymap-32274:4500658"))
 }
+
+jmh {
+    jmhVersion = "1.37"
+}
+
+// The benchmarks run the lighting engine outside of Minecraft, but still need its classes and lombok
+configurations {
+    "jmhCompileOnly" {
+        extendsFrom(compileOnly.get())
+    }
+    "jmhAnnotationProcessor" {
+        extendsFrom(annotationProcessor.get())
+    }
+    "jmhRuntimeOnly" {
+        extendsFrom(runtimeClasspath.get())
+    }
+}
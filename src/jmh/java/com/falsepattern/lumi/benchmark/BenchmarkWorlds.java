@@ -0,0 +1,156 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkChunk;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import com.falsepattern.lumi.internal.config.LumiConfig;
+import com.falsepattern.lumi.internal.lighting.oracle.LightingDiff;
+import com.falsepattern.lumi.internal.lighting.oracle.ReferenceRelighter;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+import net.minecraft.block.Block;
+
+import java.util.ArrayList;
+import java.util.StringJoiner;
+
+@UtilityClass
+public final class BenchmarkWorlds {
+    /**
+     * Top of the stone layer of the flat worlds, the first air block is at this height.
+     */
+    public static final int GROUND_HEIGHT = 64;
+
+    /**
+     * Creates a fully lit flat world of stone, spanning {@code [-chunkRadius, chunkRadius)} chunks on both axes.
+     */
+    public static BenchmarkWorld flatWorld(int chunkRadius) {
+        configure();
+
+        val world = new BenchmarkWorld();
+        val chunks = new ArrayList<BenchmarkChunk>();
+        for (var chunkPosX = -chunkRadius; chunkPosX < chunkRadius; chunkPosX++) {
+            for (var chunkPosZ = -chunkRadius; chunkPosZ < chunkRadius; chunkPosZ++) {
+                val chunk = world.createChunk(chunkPosX, chunkPosZ);
+                for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++)
+                    for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++)
+                        for (var posY = 0; posY < GROUND_HEIGHT; posY++)
+                            chunk.setBlock(subChunkPosX, posY, subChunkPosZ, BenchmarkBlock.STONE);
+                chunks.add(chunk);
+            }
+        }
+
+        val lightingEngine = world.lumi$lightingEngine();
+        for (val chunk : chunks)
+            lightingEngine.handleChunkInit(chunk);
+        for (val chunk : chunks)
+            lightingEngine.handleChunkLoad(chunk);
+        for (val chunk : chunks)
+            lightingEngine.isChunkFullyLit(chunk);
+        lightingEngine.processLightingUpdatesForAllTypes();
+        return world;
+    }
+
+    /**
+     * Fills a box without notifying the lighting engine, inclusive on both ends.
+     */
+    public static void fill(BenchmarkWorld world,
+                            int minPosX,
+                            int minPosY,
+                            int minPosZ,
+                            int maxPosX,
+                            int maxPosY,
+                            int maxPosZ,
+                            Block block) {
+        for (var posX = minPosX; posX <= maxPosX; posX++) {
+            for (var posZ = minPosZ; posZ <= maxPosZ; posZ++) {
+                val chunk = world.getChunk(posX >> 4, posZ >> 4);
+                if (chunk == null)
+                    continue;
+                for (var posY = minPosY; posY <= maxPosY; posY++)
+                    chunk.setBlock(posX & 15, posY, posZ & 15, block);
+            }
+        }
+    }
+
+    /**
+     * Relights every loaded chunk of the world from scratch and compares it with the light values computed by the engine.
+     */
+    public static LightingDiff diffLighting(BenchmarkWorld world) {
+        var minChunkPosX = Integer.MAX_VALUE;
+        var minChunkPosZ = Integer.MAX_VALUE;
+        var maxChunkPosX = Integer.MIN_VALUE;
+        var maxChunkPosZ = Integer.MIN_VALUE;
+        for (val chunk : world.chunks()) {
+            minChunkPosX = Math.min(minChunkPosX, chunk.lumi$chunkPosX());
+            minChunkPosZ = Math.min(minChunkPosZ, chunk.lumi$chunkPosZ());
+            maxChunkPosX = Math.max(maxChunkPosX, chunk.lumi$chunkPosX());
+            maxChunkPosZ = Math.max(maxChunkPosZ, chunk.lumi$chunkPosZ());
+        }
+        return ReferenceRelighter.diffBox(world,
+                                          minChunkPosX << 4,
+                                          0,
+                                          minChunkPosZ << 4,
+                                          (maxChunkPosX << 4) + 15,
+                                          255,
+                                          (maxChunkPosZ << 4) + 15,
+                                          null);
+    }
+
+    /**
+     * Fails the benchmark if the engine has left any light value which differs from a relight from scratch,
+     * so optimisations of the engine can not silently change its results.
+     */
+    public static void verifyLighting(BenchmarkWorld world) {
+        world.lumi$lightingEngine().processLightingUpdatesForAllTypes();
+        val diff = diffLighting(world);
+        if (diff.isExact())
+            return;
+
+        val message = new StringJoiner("\n", "Lighting differs from a relight from scratch\n", "");
+        message.add(diff.toString());
+        for (val mismatch : diff.sampledMismatches())
+            message.add("  " + mismatch);
+        throw new IllegalStateException(message.toString());
+    }
+
+    /**
+     * Single threaded engine with the default settings, so results do not depend on the local config file.
+     */
+    static void configure() {
+        LumiConfig.ENABLE_LOCKS = true;
+        LumiConfig.ENABLE_ILLEGAL_THREAD_ACCESS_WARNINGS = false;
+        LumiConfig.DO_RANDOM_LIGHT_UPDATES = false;
+        LumiConfig.ENABLE_LIGHTING_WORKER_THREAD = false;
+        LumiConfig.ENABLE_PARALLEL_LIGHTING_REGIONS = false;
+        LumiConfig.ENABLE_PARALLEL_LIGHT_TYPES = false;
+        LumiConfig.ENABLE_PARALLEL_CHUNK_INIT = false;
+        LumiConfig.ENABLE_BATCHED_CHUNK_LOADS = false;
+        LumiConfig.ENABLE_LIGHT_PROPERTY_CACHE = false;
+        LumiConfig.LIGHTING_TICK_BUDGET_MICROS = 0;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import lombok.val;
+import lombok.var;
+import net.minecraft.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.falsepattern.lumi.benchmark.BenchmarkWorlds.GROUND_HEIGHT;
+
+/**
+ * Pastes a stone building lit by glowstone on the surface and removes it again,
+ * once scheduling every changed block and once within a bulk edit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkEditBenchmark {
+    private static final int BUILDING_RADIUS = 32;
+    private static final int BUILDING_MIN_POS_Y = GROUND_HEIGHT;
+    private static final int BUILDING_MAX_POS_Y = GROUND_HEIGHT + 47;
+    private static final int FLOOR_SPACING = 6;
+    private static final int GLOWSTONE_SPACING = 8;
+
+    private BenchmarkWorld world;
+    private LumiLightingEngine lightingEngine;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.flatWorld(4);
+        lightingEngine = world.lumi$lightingEngine();
+    }
+
+    @TearDown
+    public void verifyLighting() {
+        BenchmarkWorlds.verifyLighting(world);
+    }
+
+    @Benchmark
+    public void pasteAndRemovePerBlock() {
+        paste(false);
+        remove(false);
+    }
+
+    @Benchmark
+    public void pasteAndRemoveInBulkEdit() {
+        lightingEngine.beginBulkEdit(-BUILDING_RADIUS,
+                                     BUILDING_MIN_POS_Y,
+                                     -BUILDING_RADIUS,
+                                     BUILDING_RADIUS - 1,
+                                     BUILDING_MAX_POS_Y,
+                                     BUILDING_RADIUS - 1);
+        try {
+            paste(true);
+        } finally {
+            lightingEngine.endBulkEdit();
+        }
+        lightingEngine.beginBulkEdit(-BUILDING_RADIUS,
+                                     BUILDING_MIN_POS_Y,
+                                     -BUILDING_RADIUS,
+                                     BUILDING_RADIUS - 1,
+                                     BUILDING_MAX_POS_Y,
+                                     BUILDING_RADIUS - 1);
+        try {
+            remove(true);
+        } finally {
+            lightingEngine.endBulkEdit();
+        }
+    }
+
+    private void paste(boolean isBulkEdit) {
+        for (var posY = BUILDING_MIN_POS_Y; posY <= BUILDING_MAX_POS_Y; posY++) {
+            val isFloor = (posY - BUILDING_MIN_POS_Y) % FLOOR_SPACING == 0;
+            for (var posZ = -BUILDING_RADIUS; posZ < BUILDING_RADIUS; posZ++) {
+                for (var posX = -BUILDING_RADIUS; posX < BUILDING_RADIUS; posX++)
+                    world.setBlock(posX, posY, posZ, buildingBlock(posX, posY, posZ, isFloor));
+            }
+        }
+        if (!isBulkEdit)
+            lightingEngine.processLightingUpdatesForAllTypes();
+    }
+
+    private void remove(boolean isBulkEdit) {
+        for (var posY = BUILDING_MIN_POS_Y; posY <= BUILDING_MAX_POS_Y; posY++) {
+            for (var posZ = -BUILDING_RADIUS; posZ < BUILDING_RADIUS; posZ++) {
+                for (var posX = -BUILDING_RADIUS; posX < BUILDING_RADIUS; posX++)
+                    world.setBlock(posX, posY, posZ, BenchmarkBlock.AIR);
+            }
+        }
+        if (!isBulkEdit)
+            lightingEngine.processLightingUpdatesForAllTypes();
+    }
+
+    private static Block buildingBlock(int posX, int posY, int posZ, boolean isFloor) {
+        val isWall = posX == -BUILDING_RADIUS || posX == BUILDING_RADIUS - 1 ||
+                     posZ == -BUILDING_RADIUS || posZ == BUILDING_RADIUS - 1;
+        if (isWall || isFloor)
+            return BenchmarkBlock.STONE;
+        val isLampPosition = (posY - BUILDING_MIN_POS_Y) % FLOOR_SPACING == FLOOR_SPACING - 1 &&
+                             posX % GLOWSTONE_SPACING == 0 &&
+                             posZ % GLOWSTONE_SPACING == 0;
+        return isLampPosition ? BenchmarkBlock.GLOWSTONE : BenchmarkBlock.AIR;
+    }
+}
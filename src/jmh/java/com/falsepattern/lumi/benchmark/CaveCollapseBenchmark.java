@@ -0,0 +1,123 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import lombok.val;
+import lombok.var;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a large cave lit by glowstone with stone at once, then digs it out again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaveCollapseBenchmark {
+    private static final int CAVE_RADIUS = 24;
+    private static final int CAVE_MIN_POS_Y = 24;
+    private static final int CAVE_MAX_POS_Y = 35;
+    private static final int GLOWSTONE_SPACING = 8;
+
+    private BenchmarkWorld world;
+    private LumiLightingEngine lightingEngine;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.flatWorld(4);
+        lightingEngine = world.lumi$lightingEngine();
+        digCave();
+    }
+
+    @TearDown
+    public void verifyLighting() {
+        BenchmarkWorlds.verifyLighting(world);
+    }
+
+    @Benchmark
+    public void collapseAndDigCave() {
+        BenchmarkWorlds.fill(world,
+                             -CAVE_RADIUS,
+                             CAVE_MIN_POS_Y,
+                             -CAVE_RADIUS,
+                             CAVE_RADIUS,
+                             CAVE_MAX_POS_Y,
+                             CAVE_RADIUS,
+                             BenchmarkBlock.STONE);
+        relightCave();
+        digCave();
+    }
+
+    private void digCave() {
+        BenchmarkWorlds.fill(world,
+                             -CAVE_RADIUS,
+                             CAVE_MIN_POS_Y,
+                             -CAVE_RADIUS,
+                             CAVE_RADIUS,
+                             CAVE_MAX_POS_Y,
+                             CAVE_RADIUS,
+                             BenchmarkBlock.AIR);
+        for (var posX = -CAVE_RADIUS; posX <= CAVE_RADIUS; posX += GLOWSTONE_SPACING) {
+            for (var posZ = -CAVE_RADIUS; posZ <= CAVE_RADIUS; posZ += GLOWSTONE_SPACING) {
+                val chunk = world.getChunk(posX >> 4, posZ >> 4);
+                if (chunk != null)
+                    chunk.setBlock(posX & 15, CAVE_MAX_POS_Y, posZ & 15, BenchmarkBlock.GLOWSTONE);
+            }
+        }
+        relightCave();
+    }
+
+    private void relightCave() {
+        // The end of the range is exclusive
+        for (val lightType : LightType.values()) {
+            lightingEngine.scheduleLightingUpdateForRange(lightType,
+                                                          -CAVE_RADIUS,
+                                                          CAVE_MIN_POS_Y,
+                                                          -CAVE_RADIUS,
+                                                          CAVE_RADIUS + 1,
+                                                          CAVE_MAX_POS_Y + 1,
+                                                          CAVE_RADIUS + 1);
+        }
+        lightingEngine.processLightingUpdatesForAllTypes();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkChunk;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a chunk whose boundaries were all left unchecked when it was saved, reconciling them with its loaded neighbours.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkBoundaryBenchmark {
+    private BenchmarkWorld world;
+    private LumiLightingEngine lightingEngine;
+    private BenchmarkChunk chunk;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.flatWorld(2);
+        lightingEngine = world.lumi$lightingEngine();
+        chunk = world.getChunk(0, 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void unloadChunk() {
+        world.unloadChunk(chunk);
+        Arrays.fill(chunk.phosphor$lightCheckFlags(), (short) 0xFFFF);
+    }
+
+    @Benchmark
+    public void loadChunk() {
+        world.loadChunk(chunk);
+        lightingEngine.processLightingUpdatesForAllTypes();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkChunk;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Initializes the lighting of a chunk in the middle of a loaded area, like after it has been generated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkInitBenchmark {
+    private LumiLightingEngine lightingEngine;
+    private BenchmarkChunk chunk;
+
+    @Setup
+    public void setup() {
+        val world = BenchmarkWorlds.flatWorld(2);
+        lightingEngine = world.lumi$lightingEngine();
+        chunk = world.getChunk(0, 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetChunk() {
+        chunk.resetLighting();
+    }
+
+    @Benchmark
+    public void handleChunkInit() {
+        lightingEngine.handleChunkInit(chunk);
+    }
+
+    /**
+     * Also runs the deferred part of the init, which lights the block light sources and fills in the sky light gaps.
+     */
+    @Benchmark
+    public boolean handleChunkInitAndLight() {
+        lightingEngine.handleChunkInit(chunk);
+        val isChunkFullyLit = lightingEngine.isChunkFullyLit(chunk);
+        lightingEngine.processLightingUpdatesForAllTypes();
+        return isChunkFullyLit;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import lombok.var;
+import net.minecraft.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.falsepattern.lumi.benchmark.BenchmarkWorlds.GROUND_HEIGHT;
+
+/**
+ * Builds a roof high above the ground and removes it again, moving the sky light height of every column below it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkyColumnBenchmark {
+    private static final int ROOF_RADIUS = 8;
+    private static final int ROOF_POS_Y = GROUND_HEIGHT + 32;
+
+    private BenchmarkWorld world;
+    private LumiLightingEngine lightingEngine;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.flatWorld(4);
+        lightingEngine = world.lumi$lightingEngine();
+    }
+
+    @TearDown
+    public void verifyLighting() {
+        BenchmarkWorlds.verifyLighting(world);
+    }
+
+    @Benchmark
+    public void singleColumn() {
+        world.setBlock(0, ROOF_POS_Y, 0, BenchmarkBlock.STONE);
+        lightingEngine.processLightingUpdatesForAllTypes();
+        world.setBlock(0, ROOF_POS_Y, 0, BenchmarkBlock.AIR);
+        lightingEngine.processLightingUpdatesForAllTypes();
+    }
+
+    @Benchmark
+    public void roof() {
+        setRoof(BenchmarkBlock.STONE);
+        lightingEngine.processLightingUpdatesForAllTypes();
+        setRoof(BenchmarkBlock.AIR);
+        lightingEngine.processLightingUpdatesForAllTypes();
+    }
+
+    @Benchmark
+    public void leafCanopy() {
+        setRoof(BenchmarkBlock.LEAVES);
+        lightingEngine.processLightingUpdatesForAllTypes();
+        setRoof(BenchmarkBlock.AIR);
+        lightingEngine.processLightingUpdatesForAllTypes();
+    }
+
+    private void setRoof(Block block) {
+        for (var posX = -ROOF_RADIUS; posX < ROOF_RADIUS; posX++)
+            for (var posZ = -ROOF_RADIUS; posZ < ROOF_RADIUS; posZ++)
+                world.setBlock(posX, ROOF_POS_Y, posZ, block);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.falsepattern.lumi.benchmark.BenchmarkWorlds.GROUND_HEIGHT;
+
+/**
+ * Places a torch and removes it again, once on the surface and once in a closed off cave.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TorchBenchmark {
+    private static final int CAVE_RADIUS = 15;
+    private static final int CAVE_MIN_POS_Y = 20;
+    private static final int CAVE_MAX_POS_Y = 27;
+
+    private BenchmarkWorld world;
+    private LumiLightingEngine lightingEngine;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.flatWorld(4);
+        BenchmarkWorlds.fill(world,
+                             -CAVE_RADIUS,
+                             CAVE_MIN_POS_Y,
+                             -CAVE_RADIUS,
+                             CAVE_RADIUS,
+                             CAVE_MAX_POS_Y,
+                             CAVE_RADIUS,
+                             BenchmarkBlock.AIR);
+        // The cave is closed off, so it is already correctly lit as pitch black
+        lightingEngine = world.lumi$lightingEngine();
+    }
+
+    @TearDown
+    public void verifyLighting() {
+        BenchmarkWorlds.verifyLighting(world);
+    }
+
+    @Benchmark
+    public void surfaceTorch() {
+        placeAndRemoveTorch(0, GROUND_HEIGHT, 0);
+    }
+
+    @Benchmark
+    public void caveTorch() {
+        placeAndRemoveTorch(0, CAVE_MIN_POS_Y, 0);
+    }
+
+    private void placeAndRemoveTorch(int posX, int posY, int posZ) {
+        world.setBlock(posX, posY, posZ, BenchmarkBlock.TORCH);
+        lightingEngine.processLightingUpdatesForAllTypes();
+        world.setBlock(posX, posY, posZ, BenchmarkBlock.AIR);
+        lightingEngine.processLightingUpdatesForAllTypes();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import lombok.val;
+import lombok.var;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static com.falsepattern.lumi.benchmark.BenchmarkWorlds.GROUND_HEIGHT;
+
+/**
+ * Replays a recorded lighting trace from start to end, including restoring the recorded chunks.
+ * <p>
+ * Pass a trace recorded with {@code /lumi trace} as {@code -p traceFile=<path>},
+ * otherwise a short session of digging and lighting a tunnel is recorded and replayed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraceReplayBenchmark {
+    private static final int TUNNEL_LENGTH = 48;
+    private static final int TUNNEL_POS_Y = GROUND_HEIGHT - 12;
+    private static final int TORCH_SPACING = 6;
+
+    @Param("")
+    public String traceFile;
+
+    private byte[] trace;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkWorlds.configure();
+        if (!traceFile.isEmpty()) {
+            trace = Files.readAllBytes(new File(traceFile).toPath());
+            return;
+        }
+
+        val file = File.createTempFile("lumi", ".lumitrace");
+        try {
+            recordTunnelSession(file);
+            trace = Files.readAllBytes(file.toPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public BenchmarkWorld replay() throws IOException {
+        return TraceReplayer.replay(trace);
+    }
+
+    /**
+     * Digs a tunnel one block at a time, placing torches along it and reading the light around the player every step,
+     * then opens a shaft to the surface at its end.
+     */
+    private static void recordTunnelSession(File file) throws IOException {
+        val world = BenchmarkWorlds.flatWorld(4);
+        val lightingEngine = world.traceLightingEngine();
+        lightingEngine.startRecording(file);
+
+        val startPosX = -TUNNEL_LENGTH / 2;
+        for (var step = 0; step < TUNNEL_LENGTH; step++) {
+            val posX = startPosX + step;
+            world.setBlock(posX, TUNNEL_POS_Y, 0, BenchmarkBlock.AIR);
+            world.setBlock(posX, TUNNEL_POS_Y + 1, 0, BenchmarkBlock.AIR);
+            if (step % TORCH_SPACING == 0)
+                world.setBlock(posX, TUNNEL_POS_Y, 0, BenchmarkBlock.TORCH);
+            lightingEngine.getCurrentLightValue(LightType.BLOCK_LIGHT_TYPE, posX, TUNNEL_POS_Y + 1, 0);
+            lightingEngine.getCurrentLightValue(LightType.SKY_LIGHT_TYPE, posX, TUNNEL_POS_Y + 1, 0);
+            lightingEngine.processLightingUpdatesForAllTypes();
+        }
+
+        val endPosX = startPosX + TUNNEL_LENGTH - 1;
+        for (var posY = TUNNEL_POS_Y + 2; posY < GROUND_HEIGHT; posY++)
+            world.setBlock(endPosX, posY, 0, BenchmarkBlock.AIR);
+        lightingEngine.processLightingUpdatesForAllTypes();
+
+        lightingEngine.stopRecording();
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.benchmark.world.BenchmarkBlock;
+import com.falsepattern.lumi.benchmark.world.BenchmarkWorld;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import com.falsepattern.lumi.internal.lighting.trace.LightingTraceChunkSnapshot;
+import com.falsepattern.lumi.internal.lighting.trace.LightingTraceHandler;
+import com.falsepattern.lumi.internal.lighting.trace.LightingTraceOp;
+import com.falsepattern.lumi.internal.lighting.trace.LightingTraceReader;
+import lombok.val;
+import lombok.var;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.enterCallerFlushTrigger;
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.exitCallerFlushTrigger;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingMetricsManager.lightingMetrics;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngineProvider.phosphorLightingEngineProvider;
+import static com.falsepattern.lumi.internal.lighting.starlight.StarlightLightingEngineProvider.starlightLightingEngineProvider;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.COLUMN_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_BLOCK_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.columnIndex;
+
+/**
+ * Replays a lighting trace recorded with {@code /lumi trace} on a fresh {@link BenchmarkWorld}, with the recorded lighting engine.
+ * <p>
+ * Blocks only keep their recorded light opacity and brightness, and chunks which were never part of a snapshot are unloaded.
+ * Running it directly with the path of a trace prints the time taken and the flushes of the replay.
+ */
+public final class TraceReplayer implements LightingTraceHandler {
+    private BenchmarkWorld world;
+    private LumiLightingEngine lightingEngine;
+    private boolean hasSky;
+    private long skippedRecordCount;
+
+    private TraceReplayer() {
+    }
+
+    public static BenchmarkWorld replay(byte[] trace) throws IOException {
+        return replay(new ByteArrayInputStream(trace));
+    }
+
+    public static BenchmarkWorld replay(InputStream traceStream) throws IOException {
+        val replayer = new TraceReplayer();
+        LightingTraceReader.readTrace(traceStream, replayer);
+        return replayer.world;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: TraceReplayer <trace file>");
+            System.exit(1);
+        }
+        BenchmarkWorlds.configure();
+
+        val replayer = new TraceReplayer();
+        val startNanos = System.nanoTime();
+        try (val traceStream = new FileInputStream(args[0])) {
+            LightingTraceReader.readTrace(traceStream, replayer);
+        }
+        val nanos = System.nanoTime() - startNanos;
+
+        System.out.printf("Replayed %s in %.1fms, %d records referred to missing chunks%n",
+                          args[0],
+                          nanos / 1_000_000D,
+                          replayer.skippedRecordCount);
+        val metrics = lightingMetrics(replayer.world);
+        if (metrics != null) {
+            for (val line : metrics.flushReport().summaryLines())
+                System.out.println("  " + line);
+        }
+
+        // Chunks are snapshotted at different points of the recording, so differences do not always mean a bug
+        System.out.println("Compared with a full relight:");
+        val diff = BenchmarkWorlds.diffLighting(replayer.world);
+        for (val line : diff.summaryLines())
+            System.out.println("  " + line);
+        for (val mismatch : diff.sampledMismatches())
+            System.out.println("    " + mismatch);
+    }
+
+    @Override
+    public void header(String lightingEngineID, String worldID, boolean hasSky) {
+        val lightingEngineProvider = "starlight".equals(lightingEngineID) ? starlightLightingEngineProvider()
+                                                                          : phosphorLightingEngineProvider();
+        this.world = new BenchmarkWorld(lightingEngineProvider, hasSky);
+        this.lightingEngine = world.lumi$lightingEngine();
+        this.hasSky = hasSky;
+    }
+
+    @Override
+    public void chunkSnapshot(LightingTraceChunkSnapshot snapshot) {
+        val chunk = world.createChunk(snapshot.chunkPosX(), snapshot.chunkPosZ());
+        for (var chunkPosY = 0; chunkPosY < SUB_CHUNK_COUNT; chunkPosY++) {
+            if (!snapshot.isSubChunkPrepared(chunkPosY))
+                continue;
+
+            val subChunk = chunk.restoreSubChunk(chunkPosY);
+            val basePosY = chunkPosY << 4;
+            for (var index = 0; index < SUB_CHUNK_BLOCK_COUNT; index++) {
+                val subChunkPosX = index & 15;
+                val subChunkPosZ = (index >> 4) & 15;
+                val subChunkPosY = index >> 8;
+                val block = BenchmarkBlock.withLightProperties(snapshot.blockOpacity(chunkPosY, index),
+                                                               snapshot.blockBrightness(chunkPosY, index));
+                chunk.setBlock(subChunkPosX, basePosY + subChunkPosY, subChunkPosZ, block);
+                subChunk.lumi$setBlockLightValue(subChunkPosX,
+                                                 subChunkPosY,
+                                                 subChunkPosZ,
+                                                 snapshot.blockLightValue(chunkPosY, index));
+                if (hasSky) {
+                    subChunk.lumi$setSkyLightValue(subChunkPosX,
+                                                   subChunkPosY,
+                                                   subChunkPosZ,
+                                                   snapshot.skyLightValue(chunkPosY, index));
+                }
+            }
+        }
+
+        System.arraycopy(snapshot.skyLightHeightMap(), 0, chunk.lumi$skyLightHeightMap(), 0, COLUMN_COUNT);
+        chunk.lumi$minSkyLightHeight(snapshot.minSkyLightHeight());
+        val outdatedHeightFlags = snapshot.outdatedHeightFlags();
+        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                chunk.lumi$isHeightOutdated(subChunkPosX,
+                                            subChunkPosZ,
+                                            outdatedHeightFlags[columnIndex(subChunkPosX, subChunkPosZ)]);
+            }
+        }
+        chunk.lumi$isLightingInitialized(snapshot.isLightingInitialized());
+
+        val lightCheckFlags = chunk.phosphor$lightCheckFlags();
+        val recordedLightCheckFlags = snapshot.lightCheckFlags();
+        System.arraycopy(recordedLightCheckFlags,
+                         0,
+                         lightCheckFlags,
+                         0,
+                         Math.min(recordedLightCheckFlags.length, lightCheckFlags.length));
+    }
+
+    @Override
+    public void block(int posX, int posY, int posZ, int blockOpacity, int blockBrightness) {
+        val chunk = world.getChunk(posX >> 4, posZ >> 4);
+        if (chunk == null || posY < 0 || posY > 255) {
+            skippedRecordCount++;
+            return;
+        }
+        chunk.setBlock(posX & 15, posY, posZ & 15, BenchmarkBlock.withLightProperties(blockOpacity, blockBrightness));
+    }
+
+    @Override
+    public void chunk(LightingTraceOp op, int chunkPosX, int chunkPosZ) {
+        val chunk = world.getChunk(chunkPosX, chunkPosZ);
+        if (chunk == null) {
+            skippedRecordCount++;
+            return;
+        }
+        switch (op) {
+            case CHUNK_INIT:
+                lightingEngine.handleChunkInit(chunk);
+                break;
+            case PREPARE_CHUNK_INIT:
+                lightingEngine.prepareChunkInit(chunk);
+                break;
+            case CLIENT_CHUNK_INIT:
+                lightingEngine.handleClientChunkInit(chunk);
+                break;
+            case CHUNK_LOAD:
+                lightingEngine.handleChunkLoad(chunk);
+                break;
+            case CHUNK_UNLOAD:
+                world.unloadChunk(chunk);
+                break;
+            case RANDOM_CHUNK_UPDATES:
+                lightingEngine.doRandomChunkLightingUpdates(chunk);
+                break;
+            case IS_CHUNK_FULLY_LIT:
+                lightingEngine.isChunkFullyLit(chunk);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void subChunkInit(int chunkPosX, int chunkPosZ, int chunkPosY) {
+        val chunk = world.getChunk(chunkPosX, chunkPosZ);
+        if (chunk == null) {
+            skippedRecordCount++;
+            return;
+        }
+        val subChunk = chunk.lumi$isSubChunkPrepared(chunkPosY) ? chunk.lumi$getSubChunk(chunkPosY)
+                                                                : chunk.restoreSubChunk(chunkPosY);
+        lightingEngine.handleSubChunkInit(chunk, subChunk);
+    }
+
+    @Override
+    public void updateForBlock(int posX, int posY, int posZ) {
+        lightingEngine.updateLightingForBlock(posX, posY, posZ);
+    }
+
+    @Override
+    public void scheduleRange(LightType lightType,
+                              int startPosX,
+                              int startPosY,
+                              int startPosZ,
+                              int endPosX,
+                              int endPosY,
+                              int endPosZ) {
+        lightingEngine.scheduleLightingUpdateForRange(lightType, startPosX, startPosY, startPosZ, endPosX, endPosY, endPosZ);
+    }
+
+    @Override
+    public void scheduleColumn(LightType lightType, int posX, int posZ) {
+        lightingEngine.scheduleLightingUpdateForColumn(lightType, posX, posZ);
+    }
+
+    @Override
+    public void scheduleColumnRange(LightType lightType, int posX, int posZ, int startPosY, int endPosY) {
+        lightingEngine.scheduleLightingUpdateForColumn(lightType, posX, posZ, startPosY, endPosY);
+    }
+
+    @Override
+    public void schedule(LightType lightType, int posX, int posY, int posZ) {
+        lightingEngine.scheduleLightingUpdate(lightType, posX, posY, posZ);
+    }
+
+    @Override
+    public void getLight(LightType lightType, int posX, int posY, int posZ) {
+        lightingEngine.getCurrentLightValue(lightType, posX, posY, posZ);
+    }
+
+    @Override
+    public void processType(LightType lightType, FlushTrigger trigger) {
+        val previousTrigger = enterCallerFlushTrigger(trigger);
+        try {
+            lightingEngine.processLightingUpdatesForType(lightType);
+        } finally {
+            exitCallerFlushTrigger(previousTrigger);
+        }
+    }
+
+    @Override
+    public void processAllTypes(FlushTrigger trigger) {
+        val previousTrigger = enterCallerFlushTrigger(trigger);
+        try {
+            lightingEngine.processLightingUpdatesForAllTypes();
+        } finally {
+            exitCallerFlushTrigger(previousTrigger);
+        }
+    }
+
+    @Override
+    public void processWithinBudget(long maxNanos) {
+        lightingEngine.processLightingUpdatesWithinBudget(maxNanos);
+    }
+
+    @Override
+    public void beginBulkEdit(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+        lightingEngine.beginBulkEdit(minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+    }
+
+    @Override
+    public void endBulkEdit() {
+        lightingEngine.endBulkEdit();
+    }
+
+    @Override
+    public void whenChunkLit(int chunkPosX, int chunkPosZ) {
+        lightingEngine.whenChunkLit(chunkPosX, chunkPosZ);
+    }
+
+    @Override
+    public void completeChunkLitFutures() {
+        lightingEngine.completeChunkLitFutures();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark.world;
+
+import lombok.val;
+import lombok.var;
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+
+/**
+ * Block with fixed light properties, only ever compared by identity.
+ */
+public final class BenchmarkBlock extends Block {
+    public static final BenchmarkBlock AIR = new BenchmarkBlock(0, 0);
+    public static final BenchmarkBlock STONE = new BenchmarkBlock(255, 0);
+    public static final BenchmarkBlock LEAVES = new BenchmarkBlock(1, 0);
+    public static final BenchmarkBlock TORCH = new BenchmarkBlock(0, 14);
+    public static final BenchmarkBlock GLOWSTONE = new BenchmarkBlock(255, 15);
+
+    /**
+     * Indexed by {@code opacity << 4 | brightness}, filled in as recorded blocks are restored.
+     */
+    private static final BenchmarkBlock[] BLOCKS_BY_LIGHT_PROPERTIES = new BenchmarkBlock[256 * 16];
+
+    private final int opacity;
+    private final int brightness;
+
+    private BenchmarkBlock(int opacity, int brightness) {
+        super(Material.rock);
+        this.opacity = opacity;
+        this.brightness = brightness;
+    }
+
+    /**
+     * @return a block with the given light properties, {@link #AIR} if it has none
+     */
+    public static synchronized BenchmarkBlock withLightProperties(int opacity, int brightness) {
+        opacity = Math.max(0, Math.min(255, opacity));
+        brightness &= 15;
+        if (opacity == 0 && brightness == 0)
+            return AIR;
+
+        val index = (opacity << 4) | brightness;
+        var block = BLOCKS_BY_LIGHT_PROPERTIES[index];
+        if (block == null) {
+            block = new BenchmarkBlock(opacity, brightness);
+            BLOCKS_BY_LIGHT_PROPERTIES[index] = block;
+        }
+        return block;
+    }
+
+    @Override
+    public int getLightOpacity() {
+        return opacity;
+    }
+
+    @Override
+    public int getLightValue() {
+        return brightness;
+    }
+}
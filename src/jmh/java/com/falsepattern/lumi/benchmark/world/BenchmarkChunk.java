@@ -0,0 +1,454 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark.world;
+
+import com.falsepattern.lumi.api.LumiChunkAPI;
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.chunk.LumiChunkRoot;
+import com.falsepattern.lumi.api.chunk.LumiSubChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.internal.lighting.phosphor.PhosphorChunk;
+import lombok.val;
+import lombok.var;
+import net.minecraft.block.Block;
+import net.minecraft.nbt.NBTTagCompound;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+
+/**
+ * In-memory chunk column, mirroring the behaviour of the vanilla chunk implementation.
+ * <p>
+ * Storage and networking are not part of the benchmarks and do nothing.
+ */
+public final class BenchmarkChunk implements PhosphorChunk, LumiChunkRoot {
+    private final BenchmarkWorld world;
+    private final int chunkPosX;
+    private final int chunkPosZ;
+
+    private final BenchmarkSubChunk[] subChunks;
+    private final int[] skyLightHeightMap;
+    private final boolean[] outdatedHeightFlags;
+    private final short[] lightCheckFlags;
+    private int minSkyLightHeight;
+    private int queuedRandomLightUpdates;
+    private boolean isLightingInitialized;
+    private boolean isDirty;
+
+    BenchmarkChunk(BenchmarkWorld world, int chunkPosX, int chunkPosZ) {
+        this.world = world;
+        this.chunkPosX = chunkPosX;
+        this.chunkPosZ = chunkPosZ;
+
+        this.subChunks = new BenchmarkSubChunk[SUB_CHUNK_ARRAY_SIZE];
+        this.skyLightHeightMap = new int[HEIGHT_MAP_ARRAY_SIZE];
+        this.outdatedHeightFlags = new boolean[UPDATE_SKYLIGHT_COLUMNS_ARRAY_SIZE];
+        this.lightCheckFlags = new short[LIGHT_CHECK_FLAGS_LENGTH];
+        lumi$resetSkyLightHeightMap();
+        lumi$resetOutdatedHeightFlags();
+        this.queuedRandomLightUpdates = 0;
+        this.isLightingInitialized = false;
+        this.isDirty = false;
+    }
+
+    /**
+     * Sets a block without scheduling any lighting updates, new subchunks are still initialized like in vanilla.
+     */
+    public void setBlock(int subChunkPosX, int posY, int subChunkPosZ, Block block) {
+        val chunkPosY = posY >> 4;
+        if (subChunks[chunkPosY] == null) {
+            if (block == BenchmarkBlock.AIR)
+                return;
+            lumi$prepareSubChunk(chunkPosY);
+        }
+        subChunks[chunkPosY].setBlock(subChunkPosX, posY & 15, subChunkPosZ, block);
+    }
+
+    /**
+     * Adds an empty subchunk without notifying the lighting engine, used when restoring a recorded chunk.
+     */
+    public BenchmarkSubChunk restoreSubChunk(int chunkPosY) {
+        chunkPosY &= 15;
+        val subChunk = new BenchmarkSubChunk(chunkPosY << 4);
+        subChunks[chunkPosY] = subChunk;
+        return subChunk;
+    }
+
+    /**
+     * Clears all light values and flags, leaving the chunk as if freshly generated.
+     */
+    public void resetLighting() {
+        for (var chunkPosY = 0; chunkPosY < SUB_CHUNK_ARRAY_SIZE; chunkPosY++) {
+            val subChunk = subChunks[chunkPosY];
+            if (subChunk != null)
+                subChunk.resetLighting();
+        }
+        lumi$resetSkyLightHeightMap();
+        lumi$resetOutdatedHeightFlags();
+        Arrays.fill(lightCheckFlags, (short) 0);
+        isLightingInitialized = false;
+    }
+
+    // region Chunk
+    @Override
+    public @NotNull LumiChunkRoot lumi$root() {
+        return this;
+    }
+
+    @Override
+    public @NotNull LumiWorld lumi$world() {
+        return world;
+    }
+
+    @Override
+    public @NotNull String lumi$chunkID() {
+        return "benchmark_chunk";
+    }
+
+    @Override
+    public void lumi$writeToNBT(@NotNull NBTTagCompound output) {
+    }
+
+    @Override
+    public void lumi$readFromNBT(@NotNull NBTTagCompound input) {
+    }
+
+    @Override
+    public void lumi$cloneFrom(@NotNull LumiChunk from) {
+    }
+
+    @Override
+    public void lumi$writeToPacket(@NotNull ByteBuffer output) {
+    }
+
+    @Override
+    public void lumi$readFromPacket(@NotNull ByteBuffer input) {
+    }
+
+    @Override
+    public @Nullable LumiSubChunk lumi$getSubChunkIfPrepared(int chunkPosY) {
+        return subChunks[chunkPosY];
+    }
+
+    @Override
+    public @NotNull LumiSubChunk lumi$getSubChunk(int chunkPosY) {
+        lumi$prepareSubChunk(chunkPosY);
+        return subChunks[chunkPosY & 15];
+    }
+
+    @Override
+    public int lumi$chunkPosX() {
+        return chunkPosX;
+    }
+
+    @Override
+    public int lumi$chunkPosZ() {
+        return chunkPosZ;
+    }
+
+    @Override
+    public void lumi$queuedRandomLightUpdates(int queuedRandomLightUpdates) {
+        this.queuedRandomLightUpdates = queuedRandomLightUpdates;
+    }
+
+    @Override
+    public int lumi$queuedRandomLightUpdates() {
+        return queuedRandomLightUpdates;
+    }
+
+    @Override
+    public void lumi$resetQueuedRandomLightUpdates() {
+        queuedRandomLightUpdates = 0;
+    }
+
+    @Override
+    public int lumi$getBrightness(@NotNull LightType lightType, int subChunkPosX, int posY, int subChunkPosZ) {
+        switch (lightType) {
+            case BLOCK_LIGHT_TYPE:
+                return lumi$getBrightness(subChunkPosX, posY, subChunkPosZ);
+            case SKY_LIGHT_TYPE:
+                return lumi$getSkyLightValue(subChunkPosX, posY, subChunkPosZ);
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public int lumi$getBrightness(int subChunkPosX, int posY, int subChunkPosZ) {
+        val blockBrightness = lumi$getBlockBrightness(subChunkPosX, posY, subChunkPosZ);
+        val blockLightValue = lumi$getBlockLightValue(subChunkPosX, posY, subChunkPosZ);
+        return Math.max(blockBrightness, blockLightValue);
+    }
+
+    @Override
+    public int lumi$getLightValue(int subChunkPosX, int posY, int subChunkPosZ) {
+        val blockLightValue = lumi$getBlockLightValue(subChunkPosX, posY, subChunkPosZ);
+        val skyLightValue = lumi$getSkyLightValue(subChunkPosX, posY, subChunkPosZ);
+        return Math.max(blockLightValue, skyLightValue);
+    }
+
+    @Override
+    public void lumi$setLightValue(@NotNull LightType lightType,
+                                   int subChunkPosX,
+                                   int posY,
+                                   int subChunkPosZ,
+                                   int lightValue) {
+        switch (lightType) {
+            case BLOCK_LIGHT_TYPE:
+                lumi$setBlockLightValue(subChunkPosX, posY, subChunkPosZ, lightValue);
+                break;
+            case SKY_LIGHT_TYPE:
+                lumi$setSkyLightValue(subChunkPosX, posY, subChunkPosZ, lightValue);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public int lumi$getLightValue(@NotNull LightType lightType, int subChunkPosX, int posY, int subChunkPosZ) {
+        switch (lightType) {
+            case BLOCK_LIGHT_TYPE:
+                return lumi$getBlockLightValue(subChunkPosX, posY, subChunkPosZ);
+            case SKY_LIGHT_TYPE:
+                return lumi$getSkyLightValue(subChunkPosX, posY, subChunkPosZ);
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public void lumi$setBlockLightValue(int subChunkPosX, int posY, int subChunkPosZ, int lightValue) {
+        val subChunk = lumi$getSubChunk((posY & 255) >> 4);
+        subChunk.lumi$setBlockLightValue(subChunkPosX & 15, posY & 15, subChunkPosZ & 15, lightValue);
+        lumi$markDirty();
+    }
+
+    @Override
+    public int lumi$getBlockLightValue(int subChunkPosX, int posY, int subChunkPosZ) {
+        val subChunk = subChunks[(posY & 255) >> 4];
+        if (subChunk == null)
+            return BLOCK_LIGHT_TYPE.defaultLightValue();
+        return subChunk.lumi$getBlockLightValue(subChunkPosX & 15, posY & 15, subChunkPosZ & 15);
+    }
+
+    @Override
+    public void lumi$setSkyLightValue(int subChunkPosX, int posY, int subChunkPosZ, int lightValue) {
+        val subChunk = lumi$getSubChunk((posY & 255) >> 4);
+        subChunk.lumi$setSkyLightValue(subChunkPosX & 15, posY & 15, subChunkPosZ & 15, lightValue);
+        lumi$markDirty();
+    }
+
+    @Override
+    public int lumi$getSkyLightValue(int subChunkPosX, int posY, int subChunkPosZ) {
+        subChunkPosX &= 15;
+        subChunkPosZ &= 15;
+
+        val subChunk = subChunks[(posY & 255) >> 4];
+        if (subChunk == null) {
+            if (lumi$canBlockSeeSky(subChunkPosX, posY, subChunkPosZ))
+                return SKY_LIGHT_TYPE.defaultLightValue();
+            return 0;
+        }
+        return subChunk.lumi$getSkyLightValue(subChunkPosX, posY & 15, subChunkPosZ);
+    }
+
+    @Override
+    public int lumi$getBlockBrightness(int subChunkPosX, int posY, int subChunkPosZ) {
+        val block = lumi$getBlock(subChunkPosX, posY, subChunkPosZ);
+        return block.getLightValue();
+    }
+
+    @Override
+    public int lumi$getBlockOpacity(int subChunkPosX, int posY, int subChunkPosZ) {
+        val block = lumi$getBlock(subChunkPosX, posY, subChunkPosZ);
+        return block.getLightOpacity();
+    }
+
+    @Override
+    public int lumi$getBlockBrightness(@NotNull Block block,
+                                       int blockMeta,
+                                       int subChunkPosX,
+                                       int posY,
+                                       int subChunkPosZ) {
+        return block.getLightValue();
+    }
+
+    @Override
+    public int lumi$getBlockOpacity(@NotNull Block block,
+                                    int blockMeta,
+                                    int subChunkPosX,
+                                    int posY,
+                                    int subChunkPosZ) {
+        return block.getLightOpacity();
+    }
+
+    @Override
+    public boolean lumi$canBlockSeeSky(int subChunkPosX, int posY, int subChunkPosZ) {
+        return skyLightHeightMap[columnIndex(subChunkPosX, subChunkPosZ)] <= posY;
+    }
+
+    @Override
+    public void lumi$skyLightHeight(int subChunkPosX, int subChunkPosZ, int skyLightHeight) {
+        skyLightHeightMap[columnIndex(subChunkPosX, subChunkPosZ)] = skyLightHeight;
+    }
+
+    @Override
+    public int lumi$skyLightHeight(int subChunkPosX, int subChunkPosZ) {
+        return skyLightHeightMap[columnIndex(subChunkPosX, subChunkPosZ)];
+    }
+
+    @Override
+    public void lumi$minSkyLightHeight(int minSkyLightHeight) {
+        this.minSkyLightHeight = minSkyLightHeight;
+    }
+
+    @Override
+    public int lumi$minSkyLightHeight() {
+        return minSkyLightHeight;
+    }
+
+    @Override
+    public void lumi$resetSkyLightHeightMap() {
+        LumiChunkAPI.resetHeightMapArray(skyLightHeightMap);
+        minSkyLightHeight = Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void lumi$isHeightOutdated(int subChunkPosX, int subChunkPosZ, boolean isHeightOutdated) {
+        outdatedHeightFlags[columnIndex(subChunkPosX, subChunkPosZ)] = isHeightOutdated;
+    }
+
+    @Override
+    public boolean lumi$isHeightOutdated(int subChunkPosX, int subChunkPosZ) {
+        return outdatedHeightFlags[columnIndex(subChunkPosX, subChunkPosZ)];
+    }
+
+    @Override
+    public void lumi$resetOutdatedHeightFlags() {
+        LumiChunkAPI.resetUpdateSkylightColumns(outdatedHeightFlags);
+    }
+
+    @Override
+    public void lumi$isLightingInitialized(boolean isLightingInitialized) {
+        this.isLightingInitialized = isLightingInitialized;
+    }
+
+    @Override
+    public boolean lumi$isLightingInitialized() {
+        return isLightingInitialized;
+    }
+
+    @Override
+    public void lumi$resetLighting() {
+        isLightingInitialized = false;
+        world.lumi$lightingEngine().handleChunkInit(this);
+    }
+
+    @Override
+    public int @NotNull [] lumi$skyLightHeightMap() {
+        return skyLightHeightMap;
+    }
+
+    @Override
+    public short[] phosphor$lightCheckFlags() {
+        return lightCheckFlags;
+    }
+    // endregion
+
+    // region Chunk Root
+    @Override
+    public @NotNull String lumi$chunkRootID() {
+        return "benchmark_chunk_root";
+    }
+
+    @Override
+    public boolean lumi$isUpdating() {
+        return true;
+    }
+
+    @Override
+    public void lumi$markDirty() {
+        isDirty = true;
+    }
+
+    @Override
+    public boolean lumi$isDirty() {
+        return isDirty;
+    }
+
+    @Override
+    public void lumi$prepareSubChunk(int chunkPosY) {
+        chunkPosY &= 15;
+        var subChunk = subChunks[chunkPosY];
+        if (subChunk == null) {
+            subChunk = new BenchmarkSubChunk(chunkPosY << 4);
+            subChunks[chunkPosY] = subChunk;
+            world.lumi$lightingEngine().handleSubChunkInit(this, subChunk);
+        }
+        lumi$markDirty();
+    }
+
+    @Override
+    public boolean lumi$isSubChunkPrepared(int chunkPosY) {
+        return subChunks[chunkPosY & 15] != null;
+    }
+
+    @Override
+    public int lumi$topPreparedSubChunkBasePosY() {
+        for (var chunkPosY = SUB_CHUNK_ARRAY_SIZE - 1; chunkPosY >= 0; chunkPosY--) {
+            val subChunk = subChunks[chunkPosY];
+            if (subChunk != null && !subChunk.isEmpty())
+                return subChunk.lumi$posY();
+        }
+        return 0;
+    }
+
+    @Override
+    public @NotNull Block lumi$getBlock(int subChunkPosX, int posY, int subChunkPosZ) {
+        if (posY < 0 || posY > 255)
+            return BenchmarkBlock.AIR;
+        val subChunk = subChunks[posY >> 4];
+        if (subChunk == null)
+            return BenchmarkBlock.AIR;
+        return subChunk.lumi$getBlock(subChunkPosX & 15, posY & 15, subChunkPosZ & 15);
+    }
+
+    @Override
+    public int lumi$getBlockMeta(int subChunkPosX, int posY, int subChunkPosZ) {
+        return 0;
+    }
+    // endregion
+
+    private static int columnIndex(int subChunkPosX, int subChunkPosZ) {
+        return (subChunkPosX & 15) + ((subChunkPosZ & 15) << 4);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark.world;
+
+import com.falsepattern.lumi.api.chunk.LumiSubChunk;
+import com.falsepattern.lumi.api.chunk.LumiSubChunkRoot;
+import com.falsepattern.lumi.api.lighting.LightType;
+import lombok.val;
+import net.minecraft.block.Block;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.chunk.NibbleArray;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.falsepattern.lumi.api.chunk.LumiChunkRoot.BLOCK_LIGHT_ARRAY_SIZE;
+import static com.falsepattern.lumi.api.chunk.LumiChunkRoot.SKY_LIGHT_ARRAY_SIZE;
+
+/**
+ * In-memory 16x16x16 section, storage and networking are not part of the benchmarks and do nothing.
+ */
+public final class BenchmarkSubChunk implements LumiSubChunk, LumiSubChunkRoot {
+    private final int posY;
+    private final Block[] blocks;
+    private final NibbleArray blockLightArray;
+    private final NibbleArray skyLightArray;
+    private int nonAirBlockCount;
+
+    BenchmarkSubChunk(int posY) {
+        this.posY = posY;
+        this.blocks = new Block[16 * 16 * 16];
+        Arrays.fill(blocks, BenchmarkBlock.AIR);
+        this.blockLightArray = new NibbleArray(BLOCK_LIGHT_ARRAY_SIZE, 4);
+        this.skyLightArray = new NibbleArray(SKY_LIGHT_ARRAY_SIZE, 4);
+        this.nonAirBlockCount = 0;
+    }
+
+    void setBlock(int subChunkPosX, int subChunkPosY, int subChunkPosZ, Block block) {
+        val index = blockIndex(subChunkPosX, subChunkPosY, subChunkPosZ);
+        val oldBlock = blocks[index];
+        if (oldBlock != BenchmarkBlock.AIR)
+            nonAirBlockCount--;
+        if (block != BenchmarkBlock.AIR)
+            nonAirBlockCount++;
+        blocks[index] = block;
+    }
+
+    boolean isEmpty() {
+        return nonAirBlockCount == 0;
+    }
+
+    void resetLighting() {
+        Arrays.fill(blockLightArray.data, (byte) 0);
+        Arrays.fill(skyLightArray.data, (byte) 0);
+    }
+
+    @Override
+    public @NotNull LumiSubChunkRoot lumi$root() {
+        return this;
+    }
+
+    @Override
+    public @NotNull String lumi$subChunkID() {
+        return "benchmark_sub_chunk";
+    }
+
+    @Override
+    public @NotNull String lumi$subChunkRootID() {
+        return "benchmark_sub_chunk_root";
+    }
+
+    @Override
+    public void lumi$writeToNBT(@NotNull NBTTagCompound output) {
+    }
+
+    @Override
+    public void lumi$readFromNBT(@NotNull NBTTagCompound input) {
+    }
+
+    @Override
+    public void lumi$cloneFrom(LumiSubChunk from) {
+    }
+
+    @Override
+    public void lumi$writeToPacket(@NotNull ByteBuffer output) {
+    }
+
+    @Override
+    public void lumi$readFromPacket(@NotNull ByteBuffer input) {
+    }
+
+    @Override
+    public void lumi$setLightValue(@NotNull LightType lightType,
+                                   int subChunkPosX,
+                                   int subChunkPosY,
+                                   int subChunkPosZ,
+                                   int lightValue) {
+        switch (lightType) {
+            case BLOCK_LIGHT_TYPE:
+                lumi$setBlockLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+                break;
+            case SKY_LIGHT_TYPE:
+                lumi$setSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public int lumi$getLightValue(@NotNull LightType lightType, int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        switch (lightType) {
+            case BLOCK_LIGHT_TYPE:
+                return lumi$getBlockLightValue(subChunkPosX, subChunkPosY, subChunkPosZ);
+            case SKY_LIGHT_TYPE:
+                return lumi$getSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ);
+            default:
+                return lightType.defaultLightValue();
+        }
+    }
+
+    @Override
+    public void lumi$setBlockLightValue(int subChunkPosX, int subChunkPosY, int subChunkPosZ, int lightValue) {
+        blockLightArray.set(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+    }
+
+    @Override
+    public int lumi$getBlockLightValue(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return blockLightArray.get(subChunkPosX, subChunkPosY, subChunkPosZ);
+    }
+
+    @Override
+    public void lumi$setSkyLightValue(int subChunkPosX, int subChunkPosY, int subChunkPosZ, int lightValue) {
+        skyLightArray.set(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+    }
+
+    @Override
+    public int lumi$getSkyLightValue(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return skyLightArray.get(subChunkPosX, subChunkPosY, subChunkPosZ);
+    }
+
+    @Override
+    public NibbleArray lumi$getBlockLightArray() {
+        return blockLightArray;
+    }
+
+    @Override
+    public NibbleArray lumi$getSkyLightArray() {
+        return skyLightArray;
+    }
+
+    @Override
+    public int lumi$posY() {
+        return posY;
+    }
+
+    @Override
+    public @NotNull Block lumi$getBlock(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return blocks[blockIndex(subChunkPosX, subChunkPosY, subChunkPosZ)];
+    }
+
+    @Override
+    public int lumi$getBlockMeta(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return 0;
+    }
+
+    private static int blockIndex(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return (subChunkPosY << 8) | (subChunkPosZ << 4) | subChunkPosX;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark.world;
+
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.chunk.LumiSubChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.api.lighting.LumiLightingEngineProvider;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.api.world.LumiWorldRoot;
+import com.falsepattern.lumi.internal.lighting.trace.TracingLightingEngine;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import lombok.val;
+import net.minecraft.block.Block;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngineProvider.phosphorLightingEngineProvider;
+
+/**
+ * Overworld-like world backed by a plain chunk map, running a {@code PhosphorLightingEngine} without Minecraft.
+ * <p>
+ * Chunks are loaded and unloaded by hand, the lighting engine is only notified through the same calls the vanilla hooks make.
+ */
+public final class BenchmarkWorld implements LumiWorld {
+    private final BenchmarkWorldRoot root;
+    private final Long2ObjectMap<BenchmarkChunk> chunks;
+    private LumiLightingEngine lightingEngine;
+
+    public BenchmarkWorld() {
+        this(phosphorLightingEngineProvider(), true);
+    }
+
+    public BenchmarkWorld(LumiLightingEngineProvider lightingEngineProvider, boolean hasSky) {
+        this.root = new BenchmarkWorldRoot(this, hasSky);
+        this.chunks = new Long2ObjectOpenHashMap<>();
+        this.lightingEngine = lightingEngineProvider.provideLightingEngine(this, new Profiler());
+    }
+
+    /**
+     * Wraps the lighting engine so its following calls can be recorded.
+     */
+    public TracingLightingEngine traceLightingEngine() {
+        if (!(lightingEngine instanceof TracingLightingEngine))
+            lightingEngine = new TracingLightingEngine(this, lightingEngine);
+        return (TracingLightingEngine) lightingEngine;
+    }
+
+    /**
+     * Adds an empty chunk to the world, without notifying the lighting engine.
+     */
+    public BenchmarkChunk createChunk(int chunkPosX, int chunkPosZ) {
+        val chunk = new BenchmarkChunk(this, chunkPosX, chunkPosZ);
+        chunks.put(chunkPosLong(chunkPosX, chunkPosZ), chunk);
+        return chunk;
+    }
+
+    /**
+     * Adds a previously unloaded chunk back to the world, as done when loading it from disk.
+     */
+    public void loadChunk(BenchmarkChunk chunk) {
+        chunks.put(chunkPosLong(chunk.lumi$chunkPosX(), chunk.lumi$chunkPosZ()), chunk);
+        lightingEngine.handleChunkLoad(chunk);
+    }
+
+    public void unloadChunk(BenchmarkChunk chunk) {
+        lightingEngine.handleChunkUnload(chunk);
+        chunks.remove(chunkPosLong(chunk.lumi$chunkPosX(), chunk.lumi$chunkPosZ()));
+    }
+
+    public @Nullable BenchmarkChunk getChunk(int chunkPosX, int chunkPosZ) {
+        return chunks.get(chunkPosLong(chunkPosX, chunkPosZ));
+    }
+
+    public Collection<BenchmarkChunk> chunks() {
+        return Collections.unmodifiableCollection(chunks.values());
+    }
+
+    /**
+     * Sets a block and schedules the lighting updates like {@code World.setBlock} does, without processing them.
+     */
+    public void setBlock(int posX, int posY, int posZ, Block block) {
+        val chunk = getChunk(posX >> 4, posZ >> 4);
+        if (chunk == null)
+            return;
+
+        chunk.setBlock(posX & 15, posY, posZ & 15, block);
+        lightingEngine.updateLightingForBlock(posX, posY, posZ);
+        root.lumi$scheduleLightingUpdate(posX, posY, posZ);
+    }
+
+    // region World
+    @Override
+    public @NotNull LumiWorldRoot lumi$root() {
+        return root;
+    }
+
+    @Override
+    public @NotNull String lumi$worldID() {
+        return "benchmark_world";
+    }
+
+    @Override
+    public @NotNull LumiChunk lumi$wrap(@NotNull Chunk chunkBase) {
+        throw new UnsupportedOperationException("The benchmark world has no vanilla chunks");
+    }
+
+    @Override
+    public @NotNull LumiSubChunk lumi$wrap(@NotNull ExtendedBlockStorage subChunkBase) {
+        throw new UnsupportedOperationException("The benchmark world has no vanilla chunks");
+    }
+
+    @Override
+    public @NotNull LumiLightingEngine lumi$lightingEngine() {
+        return lightingEngine;
+    }
+
+    @Override
+    public void lumi$setLightValue(@Nullable LumiChunk chunk,
+                                   @NotNull LightType lightType,
+                                   int posX,
+                                   int posY,
+                                   int posZ,
+                                   int lightValue) {
+        if (chunk != null)
+            chunk.lumi$setLightValue(lightType, posX & 15, posY, posZ & 15, lightValue);
+    }
+
+    @Override
+    public void lumi$setBlockLightValue(@Nullable LumiChunk chunk, int posX, int posY, int posZ, int lightValue) {
+        if (chunk != null)
+            chunk.lumi$setBlockLightValue(posX & 15, posY, posZ & 15, lightValue);
+    }
+
+    @Override
+    public void lumi$setSkyLightValue(@Nullable LumiChunk chunk, int posX, int posY, int posZ, int lightValue) {
+        if (chunk != null)
+            chunk.lumi$setSkyLightValue(posX & 15, posY, posZ & 15, lightValue);
+    }
+    // endregion
+
+    // region Block Storage
+    @Override
+    public @NotNull String lumi$blockStorageID() {
+        return "benchmark_world";
+    }
+
+    @Override
+    public @NotNull LumiWorld lumi$world() {
+        return this;
+    }
+
+    @Override
+    public int lumi$getBrightness(@Nullable LumiChunk chunk,
+                                  @NotNull LightType lightType,
+                                  int posX,
+                                  int posY,
+                                  int posZ) {
+        switch (lightType) {
+            case BLOCK_LIGHT_TYPE:
+                return lumi$getBrightness(chunk, posX, posY, posZ);
+            case SKY_LIGHT_TYPE:
+                return lumi$getSkyLightValue(chunk, posX, posY, posZ);
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public int lumi$getBrightness(@Nullable LumiChunk chunk, int posX, int posY, int posZ) {
+        if (chunk != null)
+            return chunk.lumi$getBrightness(posX & 15, posY, posZ & 15);
+        val blockBrightness = lumi$getBlockBrightness(posX, posY, posZ);
+        return Math.max(blockBrightness, BLOCK_LIGHT_TYPE.defaultLightValue());
+    }
+
+    @Override
+    public int lumi$getLightValue(@Nullable LumiChunk chunk, int posX, int posY, int posZ) {
+        if (chunk != null)
+            return chunk.lumi$getLightValue(posX & 15, posY, posZ & 15);
+        return LightType.maxBaseLightValue();
+    }
+
+    @Override
+    public int lumi$getLightValue(@Nullable LumiChunk chunk, LightType lightType, int posX, int posY, int posZ) {
+        if (chunk != null)
+            return chunk.lumi$getLightValue(lightType, posX & 15, posY, posZ & 15);
+        return lightType.defaultLightValue();
+    }
+
+    @Override
+    public int lumi$getBlockLightValue(@Nullable LumiChunk chunk, int posX, int posY, int posZ) {
+        if (chunk != null)
+            return chunk.lumi$getBlockLightValue(posX & 15, posY, posZ & 15);
+        return BLOCK_LIGHT_TYPE.defaultLightValue();
+    }
+
+    @Override
+    public int lumi$getSkyLightValue(@Nullable LumiChunk chunk, int posX, int posY, int posZ) {
+        if (chunk != null)
+            return chunk.lumi$getSkyLightValue(posX & 15, posY, posZ & 15);
+        return SKY_LIGHT_TYPE.defaultLightValue();
+    }
+
+    @Override
+    public int lumi$getBlockBrightness(int posX, int posY, int posZ) {
+        return root.lumi$getBlock(posX, posY, posZ).getLightValue();
+    }
+
+    @Override
+    public int lumi$getBlockOpacity(int posX, int posY, int posZ) {
+        return root.lumi$getBlock(posX, posY, posZ).getLightOpacity();
+    }
+
+    @Override
+    public int lumi$getBlockBrightness(@NotNull Block block, int blockMeta, int posX, int posY, int posZ) {
+        return block.getLightValue();
+    }
+
+    @Override
+    public int lumi$getBlockOpacity(@NotNull Block block, int blockMeta, int posX, int posY, int posZ) {
+        return block.getLightOpacity();
+    }
+
+    @Override
+    public @Nullable LumiChunk lumi$getChunkFromBlockPosIfExists(int posX, int posZ) {
+        return getChunk(posX >> 4, posZ >> 4);
+    }
+
+    @Override
+    public @Nullable LumiChunk lumi$getChunkFromChunkPosIfExists(int chunkPosX, int chunkPosZ) {
+        return getChunk(chunkPosX, chunkPosZ);
+    }
+    // endregion
+
+    private static long chunkPosLong(int chunkPosX, int chunkPosZ) {
+        return ((long) chunkPosX << 32) | (chunkPosZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.benchmark.world;
+
+import com.falsepattern.lumi.api.chunk.LumiChunkRoot;
+import com.falsepattern.lumi.api.world.LumiWorldRoot;
+import lombok.val;
+import net.minecraft.block.Block;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.chunk.IChunkProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+
+/**
+ * Kept separate from {@link BenchmarkWorld}, so the engine treats it like a world layered on top of a root.
+ */
+public final class BenchmarkWorldRoot implements LumiWorldRoot {
+    private final BenchmarkWorld world;
+    private final boolean hasSky;
+
+    BenchmarkWorldRoot(BenchmarkWorld world, boolean hasSky) {
+        this.world = world;
+        this.hasSky = hasSky;
+    }
+
+    @Override
+    public @NotNull String lumi$worldRootID() {
+        return "benchmark_world_root";
+    }
+
+    @Override
+    public void lumi$markBlockForRenderUpdate(int posX, int posY, int posZ) {
+    }
+
+    @Override
+    public void lumi$markSubChunkForRenderUpdate(int chunkPosX, int chunkPosY, int chunkPosZ) {
+    }
+
+    @Override
+    public void lumi$scheduleLightingUpdate(int posX, int posY, int posZ) {
+        val lightingEngine = world.lumi$lightingEngine();
+        lightingEngine.scheduleLightingUpdate(SKY_LIGHT_TYPE, posX, posY, posZ);
+        lightingEngine.scheduleLightingUpdate(BLOCK_LIGHT_TYPE, posX, posY, posZ);
+    }
+
+    /**
+     * There is no vanilla chunk provider behind the benchmark world.
+     */
+    @Override
+    public @NotNull IChunkProvider lumi$chunkProvider() {
+        return null;
+    }
+
+    @Override
+    public boolean lumi$doChunksExistInRange(int minPosX,
+                                             int minPosY,
+                                             int minPosZ,
+                                             int maxPosX,
+                                             int maxPosY,
+                                             int maxPosZ) {
+        if (maxPosY < 0 || minPosY > 255)
+            return false;
+
+        val minChunkPosX = minPosX >> 4;
+        val minChunkPosZ = minPosZ >> 4;
+        val maxChunkPosX = maxPosX >> 4;
+        val maxChunkPosZ = maxPosZ >> 4;
+        for (int chunkPosX = minChunkPosX; chunkPosX <= maxChunkPosX; chunkPosX++) {
+            for (int chunkPosZ = minChunkPosZ; chunkPosZ <= maxChunkPosZ; chunkPosZ++) {
+                if (world.getChunk(chunkPosX, chunkPosZ) == null)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean lumi$doChunksExistInRange(int centerPosX, int centerPosY, int centerPosZ, int blockRange) {
+        return lumi$doChunksExistInRange(centerPosX - blockRange,
+                                         centerPosY - blockRange,
+                                         centerPosZ - blockRange,
+                                         centerPosX + blockRange,
+                                         centerPosY + blockRange,
+                                         centerPosZ + blockRange);
+    }
+
+    @Override
+    public @NotNull String lumi$blockStorageRootID() {
+        return "benchmark_world_root";
+    }
+
+    @Override
+    public boolean lumi$isClientSide() {
+        return false;
+    }
+
+    @Override
+    public boolean lumi$hasSky() {
+        return hasSky;
+    }
+
+    @Override
+    public @NotNull Block lumi$getBlock(int posX, int posY, int posZ) {
+        val chunk = world.getChunk(posX >> 4, posZ >> 4);
+        if (chunk == null)
+            return BenchmarkBlock.AIR;
+        return chunk.lumi$getBlock(posX & 15, posY, posZ & 15);
+    }
+
+    @Override
+    public int lumi$getBlockMeta(int posX, int posY, int posZ) {
+        return 0;
+    }
+
+    @Override
+    public boolean lumi$isAirBlock(int posX, int posY, int posZ) {
+        return lumi$getBlock(posX, posY, posZ) == BenchmarkBlock.AIR;
+    }
+
+    @Override
+    public @Nullable TileEntity lumi$getTileEntity(int posX, int posY, int posZ) {
+        return null;
+    }
+
+    @Override
+    public @Nullable LumiChunkRoot lumi$getChunkRootFromBlockPosIfExists(int posX, int posZ) {
+        return world.getChunk(posX >> 4, posZ >> 4);
+    }
+
+    @Override
+    public @Nullable LumiChunkRoot lumi$getChunkRootFromChunkPosIfExists(int chunkPosX, int chunkPosZ) {
+        return world.getChunk(chunkPosX, chunkPosZ);
+    }
+}
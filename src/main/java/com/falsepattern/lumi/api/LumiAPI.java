@@ -29,10 +29,14 @@ import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
 import com.falsepattern.lumi.api.lighting.LumiLightingEngineProvider;
 import com.falsepattern.lumi.api.world.LumiWorld;
 import net.minecraft.profiler.Profiler;
+import net.minecraft.world.World;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.CompletableFuture;
+
 import static com.falsepattern.lumi.internal.Tags.*;
 import static com.falsepattern.lumi.internal.lighting.LightingEngineManager.lightingEngineManager;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
 
 @StableAPI(since = "1.0.0")
 public final class LumiAPI {
@@ -57,4 +61,39 @@ public final class LumiAPI {
     public static @NotNull LumiLightingEngineProvider lightingEngineProvider() {
         return lightingEngineManager();
     }
+
+    /**
+     * Starts a {@link LumiLightingEngine#beginBulkEdit(int, int, int, int, int, int) bulk edit} in every LUMI world
+     * on top of the given world. Must be followed by {@link #endBulkEdit(World)}, even if the edit fails.
+     */
+    @StableAPI.Expose(since = "__EXPERIMENTAL__")
+    public static void beginBulkEdit(@NotNull World worldBase,
+                                     int minPosX,
+                                     int minPosY,
+                                     int minPosZ,
+                                     int maxPosX,
+                                     int maxPosY,
+                                     int maxPosZ) {
+        for (LumiWorld world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase))
+            world.lumi$lightingEngine().beginBulkEdit(minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+    }
+
+    @StableAPI.Expose(since = "__EXPERIMENTAL__")
+    public static void endBulkEdit(@NotNull World worldBase) {
+        for (LumiWorld world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase))
+            world.lumi$lightingEngine().endBulkEdit();
+    }
+
+    /**
+     * Returns a future completed once the chunk at the given position is
+     * {@link LumiLightingEngine#whenChunkLit(int, int) lit} in every LUMI world on top of the given world.
+     */
+    @StableAPI.Expose(since = "__EXPERIMENTAL__")
+    public static @NotNull CompletableFuture<Void> whenChunkLit(@NotNull World worldBase, int chunkPosX, int chunkPosZ) {
+        LumiWorld[] worlds = worldProviderManager().lumiWorldsFromBaseWorld(worldBase);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[worlds.length];
+        for (int i = 0; i < worlds.length; i++)
+            futures[i] = worlds[i].lumi$lightingEngine().whenChunkLit(chunkPosX, chunkPosZ);
+        return CompletableFuture.allOf(futures);
+    }
 }
@@ -41,6 +41,10 @@ public interface LumiSubChunk {
     @Expose
     String SKY_LIGHT_NBT_TAG_NAME = "sky_light";
     @Expose
+    String BLOCK_LIGHT_UNIFORM_NBT_TAG_NAME = "block_light_uniform";
+    @Expose
+    String SKY_LIGHT_UNIFORM_NBT_TAG_NAME = "sky_light_uniform";
+    @Expose
     String BLOCK_LIGHT_NBT_TAG_NAME_VANILLA = "BlockLight";
     @Expose
     String SKY_LIGHT_NBT_TAG_NAME_VANILLA = "SkyLight";
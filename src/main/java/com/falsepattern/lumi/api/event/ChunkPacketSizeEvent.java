@@ -60,8 +60,8 @@ public final class ChunkPacketSizeEvent extends Event {
     public void lightingEngineMaxPacketSize(int lightingEngineMaxPacketSize) {
         if (lightingEngineMaxPacketSize <= 0)
             return;
-        ensureValidPacketSize(chunkMaxPacketSize, chunkMaxPacketSize, lightingEngineMaxPacketSize);
-        this.lightingEngineMaxPacketSize = Math.max(this.subChunkMaxPacketSize, lightingEngineMaxPacketSize);
+        ensureValidPacketSize(chunkMaxPacketSize, subChunkMaxPacketSize, lightingEngineMaxPacketSize);
+        this.lightingEngineMaxPacketSize = Math.max(this.lightingEngineMaxPacketSize, lightingEngineMaxPacketSize);
     }
 
     @StableAPI.Expose
@@ -34,6 +34,7 @@ import net.minecraft.world.chunk.Chunk;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 import static com.falsepattern.lib.StableAPI.Expose;
 import static cpw.mods.fml.relauncher.Side.CLIENT;
@@ -100,9 +101,48 @@ public interface LumiLightingEngine {
     @Expose
     boolean isChunkFullyLit(@NotNull LumiChunk chunk);
 
+    /**
+     * Returns a future completed once the chunk at the given position and its eight neighbours are loaded and lit,
+     * without any lighting updates pending near it.
+     * <p>
+     * Instead of polling {@link #isChunkFullyLit(LumiChunk)}, the engine checks the waiting chunks in batches after
+     * processing its updates, and completes their futures on the thread owning the engine.
+     * Cancelled futures are dropped from the batch.
+     * <p>
+     * Futures of chunks which are not loaded keep waiting until the chunks are loaded and lit,
+     * so callers which no longer need them should cancel them.
+     * Futures still waiting when the world is unloaded are cancelled.
+     * Engines without support complete the future exceptionally with an {@link UnsupportedOperationException}.
+     */
+    @Expose
+    default @NotNull CompletableFuture<Void> whenChunkLit(int chunkPosX, int chunkPosZ) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException(lightingEngineID() +
+                                                                       " does not support chunk lit futures"));
+        return future;
+    }
+
+    /**
+     * Called once per tick on the server, completes the futures of the chunks lit since the last batch.
+     */
+    @Expose
+    default void completeChunkLitFutures() {
+    }
+
+    /**
+     * Called on the server when the world is unloaded, cancels the futures still waiting for chunks to be lit.
+     */
+    @Expose
+    default void handleWorldUnload() {
+    }
+
     @Expose
     void handleChunkInit(@NotNull LumiChunk chunk);
 
+    @Expose
+    default void prepareChunkInit(@NotNull LumiChunk chunk) {
+    }
+
     @Expose
     @SideOnly(CLIENT)
     void handleClientChunkInit(@NotNull LumiChunk chunk);
@@ -113,6 +153,10 @@ public interface LumiLightingEngine {
     @Expose
     void handleChunkLoad(@NotNull LumiChunk chunk);
 
+    @Expose
+    default void handleChunkUnload(@NotNull LumiChunk chunk) {
+    }
+
     @Expose
     void doRandomChunkLightingUpdates(@NotNull LumiChunk chunk);
 
@@ -153,4 +197,34 @@ public interface LumiLightingEngine {
 
     @Expose
     void processLightingUpdatesForAllTypes();
+
+    @Expose
+    default void processLightingUpdatesWithinBudget(long maxNanos) {
+    }
+
+    /**
+     * Starts changing many blocks within the box between the given positions, inclusive on both ends.
+     * <p>
+     * Until the matching {@link #endBulkEdit()}, engines may drop the lighting updates scheduled within the box,
+     * and the light values within it may be out of date. Ending the edit relights the whole box at once instead.
+     * Bulk edits may be nested, the box then grows to cover all of them and is relit once the outermost edit ends.
+     * Engines may stop growing the box past a maximum volume, blocks changed outside of it are then relit as usual.
+     */
+    @Expose
+    default void beginBulkEdit(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+    }
+
+    @Expose
+    default void beginBulkEdit(@NotNull BlockPos minBlockPos, @NotNull BlockPos maxBlockPos) {
+        beginBulkEdit(minBlockPos.getX(),
+                      minBlockPos.getY(),
+                      minBlockPos.getZ(),
+                      maxBlockPos.getX(),
+                      maxBlockPos.getY(),
+                      maxBlockPos.getZ());
+    }
+
+    @Expose
+    default void endBulkEdit() {
+    }
 }
@@ -40,6 +40,9 @@ public interface LumiWorldRoot extends LumiBlockStorageRoot {
     @Expose
     void lumi$markBlockForRenderUpdate(int posX, int posY, int posZ);
 
+    @Expose
+    void lumi$markSubChunkForRenderUpdate(int chunkPosX, int chunkPosY, int chunkPosZ);
+
     @Expose
     void lumi$scheduleLightingUpdate(int posX, int posY, int posZ);
 
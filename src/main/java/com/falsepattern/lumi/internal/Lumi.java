@@ -26,11 +26,13 @@ package com.falsepattern.lumi.internal;
 
 import com.falsepattern.chunk.api.DataRegistry;
 import com.falsepattern.falsetweaks.api.ThreadedChunkUpdates;
+import com.falsepattern.lumi.internal.command.LumiCommand;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.Mod;
 import cpw.mods.fml.common.event.FMLInitializationEvent;
 import cpw.mods.fml.common.event.FMLPostInitializationEvent;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
+import cpw.mods.fml.common.event.FMLServerStartingEvent;
 import lombok.NoArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -38,6 +40,9 @@ import org.apache.logging.log4j.Logger;
 import static com.falsepattern.lumi.internal.Share.LOG;
 import static com.falsepattern.lumi.internal.Tags.*;
 import static com.falsepattern.lumi.internal.lighting.LightingEngineManager.lightingEngineManager;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingMetricsManager.lightingMetricsManager;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceManager.lightingTraceManager;
+import static com.falsepattern.lumi.internal.network.LumiNetworkManager.lumiNetworkManager;
 import static com.falsepattern.lumi.internal.storage.ChunkNBTManager.chunkNBTManager;
 import static com.falsepattern.lumi.internal.storage.ChunkPacketManager.chunkPacketManager;
 import static com.falsepattern.lumi.internal.storage.SubChunkNBTManager.subChunkNBTManager;
@@ -75,6 +80,9 @@ public final class Lumi {
         chunkNBTManager().registerDataManager();
         subChunkNBTManager().registerDataManager();
         chunkPacketManager().registerDataManager();
+        lumiNetworkManager().registerNetworkChannel();
+        lightingMetricsManager().registerMetricsHandler();
+        lightingTraceManager().registerTraceHandler();
     }
 
     @Mod.EventHandler
@@ -86,4 +94,9 @@ public final class Lumi {
         DataRegistry.disableDataManager("minecraft", "skylight");
         LOG.info("Disabled [minecraft:skylight] data manager");
     }
+
+    @Mod.EventHandler
+    public void serverStarting(FMLServerStartingEvent evt) {
+        evt.registerServerCommand(new LumiCommand());
+    }
 }
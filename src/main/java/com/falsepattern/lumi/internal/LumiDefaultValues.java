@@ -26,10 +26,12 @@ package com.falsepattern.lumi.internal;
 
 import com.falsepattern.lumi.api.lighting.LumiLightingEngineRegistry;
 import com.falsepattern.lumi.api.world.LumiWorldProviderRegistry;
+import com.falsepattern.lumi.internal.config.LumiConfig;
 import com.falsepattern.lumi.internal.world.DefaultWorldProvider;
 import lombok.experimental.UtilityClass;
 
 import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngineProvider.phosphorLightingEngineProvider;
+import static com.falsepattern.lumi.internal.lighting.starlight.StarlightLightingEngineProvider.starlightLightingEngineProvider;
 import static com.falsepattern.lumi.internal.world.DefaultWorldProvider.defaultWorldProvider;
 
 @UtilityClass
@@ -40,6 +42,14 @@ public final class LumiDefaultValues {
     }
 
     public static void registerDefaultLightingEngineProvider(LumiLightingEngineRegistry registry) {
-        registry.registerLightingEngineProvider(phosphorLightingEngineProvider(), false);
+        switch (LumiConfig.LIGHTING_ENGINE) {
+            default:
+            case PHOSPHOR:
+                registry.registerLightingEngineProvider(phosphorLightingEngineProvider(), false);
+                break;
+            case STARLIGHT:
+                registry.registerLightingEngineProvider(starlightLightingEngineProvider(), false);
+                break;
+        }
     }
 }
@@ -0,0 +1,277 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.command;
+
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.internal.config.LumiConfig;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushReport;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetrics;
+import com.falsepattern.lumi.internal.lighting.oracle.ReferenceRelighter;
+import com.falsepattern.lumi.internal.lighting.trace.LightingTraceRecorder;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import lombok.var;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.world.World;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingMetricsManager.lightingMetrics;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceManager.lightingTraceManager;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
+
+/**
+ * Server command for inspecting the lighting engines of the loaded worlds.
+ * <p>
+ * {@code /lumi metrics [reset]} prints or resets the {@link LightingMetrics} of every LUMI world.
+ * <p>
+ * {@code /lumi flushes} prints the summary of the {@link FlushReport} of every LUMI world,
+ * and writes the full report with the recent flushes and their sampled stacks to the log.
+ * <p>
+ * {@code /lumi trace <start|stop>} records the lighting engine calls of every LUMI world to a {@link LightingTraceRecorder}.
+ * <p>
+ * {@code /lumi verify [chunk radius]} compares the light around the sender with a {@link ReferenceRelighter relight from scratch}.
+ */
+@NoArgsConstructor
+public final class LumiCommand extends CommandBase {
+    private static final Logger LOG = createLogger("Command");
+
+    private static final String METRICS_SUBCOMMAND = "metrics";
+    private static final String FLUSHES_SUBCOMMAND = "flushes";
+    private static final String TRACE_SUBCOMMAND = "trace";
+    private static final String VERIFY_SUBCOMMAND = "verify";
+    private static final String RESET_ARGUMENT = "reset";
+    private static final String START_ARGUMENT = "start";
+    private static final String STOP_ARGUMENT = "stop";
+
+    private static final int DEFAULT_VERIFY_CHUNK_RADIUS = 1;
+    private static final int MAX_VERIFY_CHUNK_RADIUS = 8;
+
+    private static final FlushTrigger[] FLUSH_TRIGGERS = FlushTrigger.values();
+
+    @Override
+    public String getCommandName() {
+        return "lumi";
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender sender) {
+        return "commands.lumi.usage";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 2;
+    }
+
+    @Override
+    public void processCommand(ICommandSender sender, String[] args) {
+        if (args.length == 1 && METRICS_SUBCOMMAND.equals(args[0])) {
+            printMetrics(sender);
+        } else if (args.length == 2 && METRICS_SUBCOMMAND.equals(args[0]) && RESET_ARGUMENT.equals(args[1])) {
+            resetMetrics(sender);
+        } else if (args.length == 1 && FLUSHES_SUBCOMMAND.equals(args[0])) {
+            printFlushReports(sender);
+        } else if (args.length == 2 && TRACE_SUBCOMMAND.equals(args[0]) && START_ARGUMENT.equals(args[1])) {
+            startTraces(sender);
+        } else if (args.length == 2 && TRACE_SUBCOMMAND.equals(args[0]) && STOP_ARGUMENT.equals(args[1])) {
+            stopTraces(sender);
+        } else if (args.length == 1 && VERIFY_SUBCOMMAND.equals(args[0])) {
+            verifyLighting(sender, DEFAULT_VERIFY_CHUNK_RADIUS);
+        } else if (args.length == 2 && VERIFY_SUBCOMMAND.equals(args[0])) {
+            verifyLighting(sender, parseIntBounded(sender, args[1], 0, MAX_VERIFY_CHUNK_RADIUS));
+        } else {
+            throw new WrongUsageException(getCommandUsage(sender));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public List addTabCompletionOptions(ICommandSender sender, String[] args) {
+        if (args.length == 1)
+            return getListOfStringsMatchingLastWord(args,
+                                                    METRICS_SUBCOMMAND,
+                                                    FLUSHES_SUBCOMMAND,
+                                                    TRACE_SUBCOMMAND,
+                                                    VERIFY_SUBCOMMAND);
+        if (args.length == 2 && METRICS_SUBCOMMAND.equals(args[0]))
+            return getListOfStringsMatchingLastWord(args, RESET_ARGUMENT);
+        if (args.length == 2 && TRACE_SUBCOMMAND.equals(args[0]))
+            return getListOfStringsMatchingLastWord(args, START_ARGUMENT, STOP_ARGUMENT);
+        return null;
+    }
+
+    private static void printMetrics(ICommandSender sender) {
+        for (val worldBase : MinecraftServer.getServer().worldServers) {
+            for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+                val metrics = lightingMetrics(world);
+                if (metrics == null)
+                    continue;
+
+                val flushCount = metrics.getFlushCount();
+                val averageQueuedUpdates = flushCount == 0 ? 0 : metrics.getQueuedUpdatesAtFlushTotal() / flushCount;
+                sendMessage(sender, worldHeader(worldBase, world));
+                sendMessage(sender, String.format("  flushes: %d (%s), %.1fms total",
+                                                  flushCount,
+                                                  flushCountsByTrigger(metrics),
+                                                  nanosToMillis(metrics.getFlushNanos())));
+                sendMessage(sender, String.format("  queued at flush: avg %d, max %d, last %d",
+                                                  averageQueuedUpdates,
+                                                  metrics.getQueuedUpdatesAtFlushMax(),
+                                                  metrics.getQueuedUpdatesAtFlushLast()));
+                sendMessage(sender, String.format("  visited: %d, neighbour lookups: %d, duplicates: %d",
+                                                  metrics.getVisitedPositionCount(),
+                                                  metrics.getNeighbourLookupCount(),
+                                                  metrics.getDuplicateUpdateCount()));
+                sendMessage(sender, String.format("  checking: %.1fms, darkening: %.1fms, brightening: %.1fms",
+                                                  nanosToMillis(metrics.getCheckingNanos()),
+                                                  nanosToMillis(metrics.getDarkeningNanos()),
+                                                  nanosToMillis(metrics.getBrighteningNanos())));
+            }
+        }
+    }
+
+    private static void resetMetrics(ICommandSender sender) {
+        for (val worldBase : MinecraftServer.getServer().worldServers) {
+            for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+                val metrics = lightingMetrics(world);
+                if (metrics != null)
+                    metrics.reset();
+            }
+        }
+        sendMessage(sender, "Lighting metrics have been reset");
+    }
+
+    private static void printFlushReports(ICommandSender sender) {
+        for (val worldBase : MinecraftServer.getServer().worldServers) {
+            for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+                val metrics = lightingMetrics(world);
+                if (metrics == null)
+                    continue;
+
+                val header = worldHeader(worldBase, world);
+                val flushReport = metrics.flushReport();
+                sendMessage(sender, header);
+                for (val line : flushReport.summaryLines())
+                    sendMessage(sender, "  " + line);
+
+                val report = new StringJoiner("\n    ", "Lighting flush report of " + header + "\n    ", "");
+                for (val line : flushReport.reportLines())
+                    report.add(line);
+                LOG.info(report.toString());
+            }
+        }
+        sendMessage(sender, "The full flush reports have been written to the log");
+    }
+
+    private static void startTraces(ICommandSender sender) {
+        if (!LumiConfig.ENABLE_LIGHTING_TRACE_RECORDER) {
+            sendMessage(sender, "Lighting traces are disabled, " +
+                                "enable the lighting trace recorder in the config and restart the world");
+            return;
+        }
+
+        for (val worldBase : MinecraftServer.getServer().worldServers) {
+            for (val recorder : lightingTraceManager().startRecording(worldBase)) {
+                sendMessage(sender, String.format("[DIM%d] Recording lighting trace to %s",
+                                                  worldBase.provider.dimensionId,
+                                                  recorder.file()));
+            }
+        }
+    }
+
+    private static void stopTraces(ICommandSender sender) {
+        var stoppedCount = 0;
+        for (val worldBase : MinecraftServer.getServer().worldServers) {
+            for (val recorder : lightingTraceManager().stopRecording(worldBase)) {
+                sendMessage(sender, String.format("[DIM%d] Recorded %d lighting calls to %s",
+                                                  worldBase.provider.dimensionId,
+                                                  recorder.recordCount(),
+                                                  recorder.file()));
+                stoppedCount++;
+            }
+        }
+        if (stoppedCount == 0)
+            sendMessage(sender, "No lighting traces are being recorded");
+    }
+
+    private static void verifyLighting(ICommandSender sender, int chunkRadius) {
+        val worldBase = sender.getEntityWorld();
+        val coordinates = sender.getPlayerCoordinates();
+        val centerChunkPosX = coordinates.posX >> 4;
+        val centerChunkPosZ = coordinates.posZ >> 4;
+        for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+            world.lumi$lightingEngine().processLightingUpdatesForAllTypes();
+            val diff = ReferenceRelighter.diffChunks(world, centerChunkPosX, centerChunkPosZ, chunkRadius);
+
+            val header = worldHeader(worldBase, world);
+            sendMessage(sender, header);
+            for (val line : diff.summaryLines())
+                sendMessage(sender, "  " + line);
+
+            if (diff.isExact())
+                continue;
+            val report = new StringJoiner("\n    ", "Lighting differences of " + header + "\n    ", "");
+            for (val line : diff.summaryLines())
+                report.add(line);
+            for (val mismatch : diff.sampledMismatches())
+                report.add(mismatch.toString());
+            LOG.info(report.toString());
+        }
+    }
+
+    private static String worldHeader(World worldBase, LumiWorld world) {
+        return String.format("[DIM%d/%s] %s",
+                             worldBase.provider.dimensionId,
+                             world.lumi$worldID(),
+                             world.lumi$lightingEngine().lightingEngineID());
+    }
+
+    private static String flushCountsByTrigger(LightingMetrics metrics) {
+        val flushCounts = new StringJoiner(", ");
+        for (val trigger : FLUSH_TRIGGERS) {
+            val flushCount = metrics.flushCount(trigger);
+            if (flushCount != 0)
+                flushCounts.add(trigger.name().toLowerCase().replace('_', ' ') + " " + flushCount);
+        }
+        return flushCounts.toString();
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000D;
+    }
+
+    private static void sendMessage(ICommandSender sender, String message) {
+        sender.addChatMessage(new ChatComponentText(message));
+    }
+}
@@ -32,6 +32,14 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 @Config(modid = Tags.MOD_ID)
 public final class LumiConfig {
+    @Config.Comment("The lighting engine used by every world.\n" +
+                    "STARLIGHT only re-checks the changed blocks, lights new chunks in bulk and has no random light updates.\n" +
+                    "The worker thread, parallel processing, light property cache and tick budget options only apply to PHOSPHOR.")
+    @Config.LangKey("config.lumi.lightingEngine")
+    @Config.DefaultEnum("PHOSPHOR")
+    @Config.RequiresMcRestart
+    public static LightingEngineType LIGHTING_ENGINE;
+
     @Config.Comment("Use locks when accessing the lighting engine state." +
                     "This option may improve performance but will allow illegal access to the lighting engine from other threads.")
     @Config.LangKey("config.lumi.enableLocks")
@@ -49,6 +57,128 @@ public final class LumiConfig {
     @Config.DefaultBoolean(false)
     public static boolean DO_RANDOM_LIGHT_UPDATES;
 
+    @Config.Comment("Replace the server-side random light updates with a background auditor.\n" +
+                    "Each tick, a few subchunks of the ticking chunks are relit from scratch on a worker thread,\n" +
+                    "and lighting updates are only scheduled for the positions found to be wrong.\n" +
+                    "Takes precedence over random light updates on the server, clients still use those.")
+    @Config.LangKey("config.lumi.enableLightingAuditor")
+    @Config.DefaultBoolean(false)
+    public static boolean ENABLE_LIGHTING_AUDITOR;
+
+    @Config.Comment("Number of subchunks checked by the lighting auditor in each world, each tick.")
+    @Config.LangKey("config.lumi.lightingAuditorSubChunksPerTick")
+    @Config.DefaultInt(4)
+    @Config.RangeInt(min = 1, max = 256)
+    public static int LIGHTING_AUDITOR_SUB_CHUNKS_PER_TICK;
+
+    @Config.Comment("Maximum number of lighting updates scheduled by the lighting auditor in each world, each tick.\n" +
+                    "Positions beyond the budget are scheduled on the following ticks, and no new subchunks are checked until then.")
+    @Config.LangKey("config.lumi.lightingAuditorUpdatesPerTick")
+    @Config.DefaultInt(256)
+    @Config.RangeInt(min = 1, max = 65_536)
+    public static int LIGHTING_AUDITOR_UPDATES_PER_TICK;
+
+    @Config.Comment("Process server-side lighting updates on a dedicated worker thread for each world.\n" +
+                    "Scheduling only enqueues work, and light reads only wait for the worker when their own chunk has pending updates.\n" +
+                    "Experimental, mods which modify chunks from other threads may cause incorrect lighting with this option.")
+    @Config.LangKey("config.lumi.enableLightingWorkerThread")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_LIGHTING_WORKER_THREAD;
+
+    @Config.Comment("Split large server-side lighting updates into independent regions and process them in parallel.\n" +
+                    "Only helps when updates are spread far apart, such as edits at multiple player bases.\n" +
+                    "Experimental, the light value and opacity of blocks in different regions are looked up from several pool threads at once,\n" +
+                    "so mod blocks keeping shared state for those lookups may misbehave with this option.")
+    @Config.LangKey("config.lumi.enableParallelLightingRegions")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_PARALLEL_LIGHTING_REGIONS;
+
+    @Config.Comment("Process server-side block light and sky light updates at the same time on two threads.\n" +
+                    "Mostly helps with chunk generation, where both light types have a lot of updates.\n" +
+                    "Experimental, the opacity of the same block may be looked up by both passes at once,\n" +
+                    "so mod blocks whose opacity is not safe to compute concurrently may misbehave with this option.")
+    @Config.LangKey("config.lumi.enableParallelLightTypes")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_PARALLEL_LIGHT_TYPES;
+
+    @Config.Comment("Compute the height map and initial sky light of chunks without saved lighting on a worker pool,\n" +
+                    "while the chunk is still being loaded by the asynchronous chunk loader.\n" +
+                    "Experimental, block opacity is looked up before the chunk is added to the world,\n" +
+                    "so mod blocks which read their neighbours or tile entities for it may misbehave with this option.")
+    @Config.LangKey("config.lumi.enableParallelChunkInit")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_PARALLEL_CHUNK_INIT;
+
+    @Config.Comment("Collect the server-side boundary checks of loaded chunks, and schedule them in one batch\n" +
+                    "right before the lighting updates are next processed, checking the edges between chunks of the batch once.\n" +
+                    "Ignored if the lighting worker thread is enabled.")
+    @Config.LangKey("config.lumi.enableBatchedChunkLoads")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_BATCHED_CHUNK_LOADS;
+
+    @Config.Comment("Cache the light opacity and emission of each block within its subchunk.\n" +
+                    "Blocks with position dependent light values are never cached.\n" +
+                    "Experimental, mods which write to the block arrays of a subchunk directly may cause incorrect lighting with this option.")
+    @Config.LangKey("config.lumi.enableLightPropertyCache")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_LIGHT_PROPERTY_CACHE;
+
+    @Config.Comment("Maximum time spent on server-side lighting updates each tick, in microseconds. 0 disables the budget.\n" +
+                    "With a budget, large updates are spread across multiple ticks instead of stalling the tick that caused them,\n" +
+                    "while reading the light near a pending update still processes it right away. Ignored if the lighting worker thread is enabled.")
+    @Config.LangKey("config.lumi.lightingTickBudgetMicros")
+    @Config.DefaultInt(0)
+    @Config.RangeInt(min = 0, max = 50_000)
+    @Config.RequiresWorldRestart
+    public static int LIGHTING_TICK_BUDGET_MICROS;
+
+    @Config.Comment("Send the light values changed by the server-side lighting engine to the players watching the chunk,\n" +
+                    "as small per-position delta packets at the end of each tick. Keeps client lighting in sync with the server\n" +
+                    "without waiting for a chunk resend, and leaves the light out of the subchunks resent after many block changes.")
+    @Config.LangKey("config.lumi.enableLightDeltaPackets")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_LIGHT_DELTA_PACKETS;
+
+    @Config.Comment("Save the lighting data of every world provider in a chunk or subchunk as one packed byte array,\n" +
+                    "instead of a compound tag for each world provider and lighting engine.\n" +
+                    "Both formats are always readable, so this option can be toggled on existing worlds.")
+    @Config.LangKey("config.lumi.enablePackedNBTFormat")
+    @Config.DefaultBoolean(false)
+    public static boolean ENABLE_PACKED_NBT_FORMAT;
+
+    @Config.Comment("Also save the vanilla light arrays, height map and light populated flag next to the lighting data.\n" +
+                    "Only needed to keep the lighting of saves opened without this mod, disabling it shrinks region files.")
+    @Config.LangKey("config.lumi.writeVanillaLightData")
+    @Config.DefaultBoolean(true)
+    public static boolean WRITE_VANILLA_LIGHT_DATA;
+
+    @Config.Comment("Record the call stack of every lighting flush which takes at least this long, in microseconds. 0 disables stack sampling.\n" +
+                    "The sampled stacks are listed by `/lumi flushes`, to find the mod or mechanic which forces slow flushes.")
+    @Config.LangKey("config.lumi.flushStackSampleThresholdMicros")
+    @Config.DefaultInt(0)
+    @Config.RangeInt(min = 0, max = 10_000_000)
+    public static int FLUSH_STACK_SAMPLE_THRESHOLD_MICROS;
+
+    @Config.Comment("Allow recording the lighting engine calls of the server worlds with `/lumi trace start`.\n" +
+                    "The recorded traces can be replayed without Minecraft, to reproduce lighting bugs and as a benchmark.\n" +
+                    "Adds a small cost to every lighting call even while nothing is being recorded.")
+    @Config.LangKey("config.lumi.enableLightingTraceRecorder")
+    @Config.DefaultBoolean(false)
+    @Config.RequiresWorldRestart
+    public static boolean ENABLE_LIGHTING_TRACE_RECORDER;
+
+    public enum LightingEngineType {
+        PHOSPHOR,
+        STARLIGHT
+    }
+
     static {
         ConfigurationManager.selfInit();
     }
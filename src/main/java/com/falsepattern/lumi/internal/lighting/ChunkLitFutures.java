@@ -0,0 +1,184 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import lombok.val;
+import lombok.var;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Futures waiting for chunks to be lit, completed in batches by the thread owning a lighting engine.
+ * <p>
+ * Futures may be requested from any thread, the owner thread picks them up the next time it checks the batch.
+ * Once the world is unloaded, every future still waiting and every future requested afterwards is cancelled.
+ */
+public final class ChunkLitFutures {
+    private final ConcurrentLinkedQueue<Request> requests = new ConcurrentLinkedQueue<>();
+    /**
+     * Futures picked up by the owner thread, keyed by chunk position.
+     */
+    private final Long2ObjectOpenHashMap<ObjectList<CompletableFuture<Void>>> waitingFutures =
+            new Long2ObjectOpenHashMap<>();
+    /**
+     * Completed once the whole batch has been checked, as their dependent actions run right away on this thread.
+     */
+    private final ObjectList<CompletableFuture<Void>> litFutures = new ObjectArrayList<>();
+    /**
+     * Checking a chunk may process lighting updates, which checks the batch again.
+     */
+    private boolean isCompleting;
+    private volatile boolean isCancelled;
+
+    /**
+     * Only called on the owner thread.
+     */
+    @FunctionalInterface
+    public interface ChunkPredicate {
+        boolean test(int chunkPosX, int chunkPosZ);
+    }
+
+    public CompletableFuture<Void> request(int chunkPosX, int chunkPosZ) {
+        val future = new CompletableFuture<Void>();
+        if (isCancelled) {
+            future.cancel(false);
+            return future;
+        }
+        requests.add(new Request(chunkPosLong(chunkPosX, chunkPosZ), future));
+        // The owner thread may have cancelled the batch without picking up this request
+        if (isCancelled)
+            future.cancel(false);
+        return future;
+    }
+
+    /**
+     * Only accurate on the owner thread, requests from other threads may arrive at any time.
+     */
+    public boolean isEmpty() {
+        return requests.isEmpty() && waitingFutures.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if the predicate matches any chunk with futures waiting on it
+     */
+    public boolean anyWaiting(ChunkPredicate predicate) {
+        if (isCompleting)
+            return false;
+
+        takeRequests();
+        val iterator = waitingFutures.keySet().iterator();
+        while (iterator.hasNext()) {
+            val chunkPosLong = iterator.nextLong();
+            if (predicate.test(chunkPosX(chunkPosLong), chunkPosZ(chunkPosLong)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Completes the futures of every chunk lit according to the predicate, and drops the cancelled ones.
+     */
+    public void completeLitChunks(ChunkPredicate predicate) {
+        if (isCompleting || isEmpty())
+            return;
+
+        isCompleting = true;
+        try {
+            takeRequests();
+            val iterator = waitingFutures.long2ObjectEntrySet().fastIterator();
+            while (iterator.hasNext()) {
+                val entry = iterator.next();
+                val futures = entry.getValue();
+                futures.removeIf(CompletableFuture::isDone);
+                if (futures.isEmpty()) {
+                    iterator.remove();
+                    continue;
+                }
+
+                val chunkPosLong = entry.getLongKey();
+                if (!predicate.test(chunkPosX(chunkPosLong), chunkPosZ(chunkPosLong)))
+                    continue;
+                iterator.remove();
+                litFutures.addAll(futures);
+            }
+        } finally {
+            isCompleting = false;
+        }
+
+        for (var i = 0; i < litFutures.size(); i++)
+            litFutures.get(i).complete(null);
+        litFutures.clear();
+    }
+
+    /**
+     * Cancels every waiting future, and every future requested later on.
+     */
+    public void cancelAll() {
+        isCancelled = true;
+        takeRequests();
+        val iterator = waitingFutures.values().iterator();
+        while (iterator.hasNext()) {
+            val futures = iterator.next();
+            for (var i = 0; i < futures.size(); i++)
+                futures.get(i).cancel(false);
+        }
+        waitingFutures.clear();
+    }
+
+    private void takeRequests() {
+        var request = requests.poll();
+        while (request != null) {
+            waitingFutures.computeIfAbsent(request.chunkPosLong, chunkPosLong -> new ObjectArrayList<>())
+                          .add(request.future);
+            request = requests.poll();
+        }
+    }
+
+    private static long chunkPosLong(int chunkPosX, int chunkPosZ) {
+        return ((long) chunkPosX << 32) | (chunkPosZ & 0xFFFFFFFFL);
+    }
+
+    private static int chunkPosX(long chunkPosLong) {
+        return (int) (chunkPosLong >> 32);
+    }
+
+    private static int chunkPosZ(long chunkPosLong) {
+        return (int) chunkPosLong;
+    }
+
+    private static final class Request {
+        private final long chunkPosLong;
+        private final CompletableFuture<Void> future;
+
+        private Request(long chunkPosLong, CompletableFuture<Void> future) {
+            this.chunkPosLong = chunkPosLong;
+            this.future = future;
+        }
+    }
+}
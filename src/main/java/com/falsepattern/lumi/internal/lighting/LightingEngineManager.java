@@ -29,16 +29,22 @@ import com.falsepattern.lumi.api.lighting.LumiLightingEngineProvider;
 import com.falsepattern.lumi.api.lighting.LumiLightingEngineRegistry;
 import com.falsepattern.lumi.api.world.LumiWorld;
 import com.falsepattern.lumi.internal.LumiDefaultValues;
+import com.falsepattern.lumi.internal.config.LumiConfig;
 import com.falsepattern.lumi.internal.event.EventPoster;
+import com.falsepattern.lumi.internal.lighting.trace.TracingLightingEngine;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import lombok.NoArgsConstructor;
 import lombok.val;
 import net.minecraft.profiler.Profiler;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import static com.falsepattern.lumi.internal.Lumi.createLogger;
 import static com.falsepattern.lumi.internal.lighting.NullLightingEngine.nullLightingEngine;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
 import static lombok.AccessLevel.PRIVATE;
 
 @NoArgsConstructor(access = PRIVATE)
@@ -63,9 +69,20 @@ public final class LightingEngineManager implements LumiLightingEngineRegistry,
         if (delegate == null)
             LumiDefaultValues.registerDefaultLightingEngineProvider(this);
 
+        MinecraftForge.EVENT_BUS.register(this);
         isRegistered = true;
     }
 
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload evt) {
+        val worldBase = evt.world;
+        if (worldBase.isRemote)
+            return;
+
+        for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase))
+            world.lumi$lightingEngine().handleWorldUnload();
+    }
+
     @Override
     @SuppressWarnings("ConstantValue")
     public void registerLightingEngineProvider(@NotNull LumiLightingEngineProvider lightingEngineProvider,
@@ -116,8 +133,9 @@ public final class LightingEngineManager implements LumiLightingEngineRegistry,
 
     @Override
     public @NotNull LumiLightingEngine provideLightingEngine(@NotNull LumiWorld world, @NotNull Profiler profiler) {
-        if (delegate != null)
-            return delegate.provideLightingEngine(world, profiler);
-        return nullLightingEngine();
+        val lightingEngine = delegate != null ? delegate.provideLightingEngine(world, profiler) : nullLightingEngine();
+        if (LumiConfig.ENABLE_LIGHTING_TRACE_RECORDER)
+            return new TracingLightingEngine(world, lightingEngine);
+        return lightingEngine;
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.metrics;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lets the callers of {@code processLightingUpdatesForAllTypes} name the reason for the flush,
+ * as the lighting engine API itself does not take one.
+ * <p>
+ * Flushes requested outside a caller trigger are recorded as {@link FlushTrigger#EXPLICIT}.
+ */
+@UtilityClass
+public final class CallerFlushTrigger {
+    private static final ThreadLocal<FlushTrigger> CALLER_FLUSH_TRIGGER = new ThreadLocal<>();
+
+    /**
+     * @return the previous caller trigger, to be passed to {@link #exitCallerFlushTrigger(FlushTrigger)}
+     */
+    public static @Nullable FlushTrigger enterCallerFlushTrigger(FlushTrigger trigger) {
+        val previousTrigger = CALLER_FLUSH_TRIGGER.get();
+        CALLER_FLUSH_TRIGGER.set(trigger);
+        return previousTrigger;
+    }
+
+    public static void exitCallerFlushTrigger(@Nullable FlushTrigger previousTrigger) {
+        CALLER_FLUSH_TRIGGER.set(previousTrigger);
+    }
+
+    public static FlushTrigger callerFlushTrigger() {
+        val trigger = CALLER_FLUSH_TRIGGER.get();
+        return trigger == null ? FlushTrigger.EXPLICIT : trigger;
+    }
+}
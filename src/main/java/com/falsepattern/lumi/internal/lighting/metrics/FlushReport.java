@@ -0,0 +1,257 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.metrics;
+
+import com.falsepattern.lumi.internal.config.LumiConfig;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling report of what has caused the lighting updates of a single LUMI world to be processed, and what it cost.
+ * <p>
+ * Keeps the totals of every {@link FlushTrigger}, the most recent flushes, and the callers of the flushes which took at least
+ * {@link LumiConfig#FLUSH_STACK_SAMPLE_THRESHOLD_MICROS}. Flushes are at most recorded once per processing call,
+ * so a simple lock is cheap enough.
+ */
+public final class FlushReport {
+    private static final FlushTrigger[] FLUSH_TRIGGERS = FlushTrigger.values();
+
+    private static final int RECENT_FLUSH_COUNT = 128;
+    private static final int MAX_SAMPLED_CALLER_COUNT = 64;
+    private static final int MAX_SAMPLED_STACK_DEPTH = 32;
+    private static final int SUMMARY_SAMPLED_CALLER_COUNT = 5;
+
+    private final long[] flushCounts;
+    private final long[] flushNanos;
+    private final long[] maxFlushNanos;
+    private final long[] flushPositions;
+
+    private final FlushRecord[] recentFlushes;
+    private int nextRecentFlushIndex;
+
+    /**
+     * Keyed by the trigger and the first frame of the sampled stack outside of this mod.
+     */
+    private final Map<String, SampledCaller> sampledCallers;
+
+    FlushReport() {
+        this.flushCounts = new long[FLUSH_TRIGGERS.length];
+        this.flushNanos = new long[FLUSH_TRIGGERS.length];
+        this.maxFlushNanos = new long[FLUSH_TRIGGERS.length];
+        this.flushPositions = new long[FLUSH_TRIGGERS.length];
+        this.recentFlushes = new FlushRecord[RECENT_FLUSH_COUNT];
+        this.nextRecentFlushIndex = 0;
+        this.sampledCallers = new HashMap<>();
+    }
+
+    /**
+     * Must be called on the thread which has processed the updates, as the stack is sampled from the current thread.
+     */
+    synchronized void record(FlushTrigger trigger, int queuedUpdates, long positions, long nanos) {
+        val triggerIndex = trigger.ordinal();
+        flushCounts[triggerIndex]++;
+        flushNanos[triggerIndex] += nanos;
+        maxFlushNanos[triggerIndex] = Math.max(maxFlushNanos[triggerIndex], nanos);
+        flushPositions[triggerIndex] += positions;
+
+        val thresholdMicros = LumiConfig.FLUSH_STACK_SAMPLE_THRESHOLD_MICROS;
+        StackTraceElement[] stack = null;
+        if (thresholdMicros > 0 && nanos >= thresholdMicros * 1_000L) {
+            stack = sampleStack();
+            recordSampledCaller(stack, trigger, nanos);
+        }
+
+        recentFlushes[nextRecentFlushIndex] = new FlushRecord(System.currentTimeMillis(),
+                                                              trigger,
+                                                              queuedUpdates,
+                                                              positions,
+                                                              nanos,
+                                                              stack);
+        nextRecentFlushIndex = (nextRecentFlushIndex + 1) % RECENT_FLUSH_COUNT;
+    }
+
+    synchronized void reset() {
+        Arrays.fill(flushCounts, 0);
+        Arrays.fill(flushNanos, 0);
+        Arrays.fill(maxFlushNanos, 0);
+        Arrays.fill(flushPositions, 0);
+        Arrays.fill(recentFlushes, null);
+        nextRecentFlushIndex = 0;
+        sampledCallers.clear();
+    }
+
+    /**
+     * @return the totals of every trigger which has caused a flush, and the slowest sampled callers
+     */
+    public synchronized List<String> summaryLines() {
+        val lines = new ObjectArrayList<String>();
+        addTriggerLines(lines);
+        addSampledCallerLines(lines, SUMMARY_SAMPLED_CALLER_COUNT);
+        return lines;
+    }
+
+    /**
+     * @return the totals of every trigger, every sampled caller, and every recent flush with its sampled stack, oldest first
+     */
+    public synchronized List<String> reportLines() {
+        val lines = new ObjectArrayList<String>();
+        addTriggerLines(lines);
+        addSampledCallerLines(lines, MAX_SAMPLED_CALLER_COUNT);
+
+        val timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        for (var i = 0; i < RECENT_FLUSH_COUNT; i++) {
+            val flush = recentFlushes[(nextRecentFlushIndex + i) % RECENT_FLUSH_COUNT];
+            if (flush == null)
+                continue;
+            lines.add(String.format("%s %s: %d queued, %d positions, %.3fms",
+                                    timeFormat.format(new Date(flush.timestampMillis)),
+                                    triggerName(flush.trigger),
+                                    flush.queuedUpdates,
+                                    flush.positions,
+                                    nanosToMillis(flush.nanos)));
+            if (flush.stack != null) {
+                for (val frame : flush.stack)
+                    lines.add("    at " + frame);
+            }
+        }
+        return lines;
+    }
+
+    private void addTriggerLines(List<String> lines) {
+        for (val trigger : FLUSH_TRIGGERS) {
+            val triggerIndex = trigger.ordinal();
+            val flushCount = flushCounts[triggerIndex];
+            if (flushCount == 0)
+                continue;
+            lines.add(String.format("%s: %d flushes, %.1fms total, %.1fms max, %d positions",
+                                    triggerName(trigger),
+                                    flushCount,
+                                    nanosToMillis(flushNanos[triggerIndex]),
+                                    nanosToMillis(maxFlushNanos[triggerIndex]),
+                                    flushPositions[triggerIndex]));
+        }
+    }
+
+    /**
+     * Slowest callers first.
+     */
+    private void addSampledCallerLines(List<String> lines, int maxCallerCount) {
+        val callers = new ObjectArrayList<SampledCaller>(sampledCallers.values());
+        callers.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        for (var i = 0; i < Math.min(callers.size(), maxCallerCount); i++)
+            lines.add(callers.get(i).toString());
+    }
+
+    private void recordSampledCaller(StackTraceElement[] stack, FlushTrigger trigger, long nanos) {
+        val callerFrame = callerFrame(stack);
+        if (callerFrame == null)
+            return;
+        val key = trigger.name() + ' ' + callerFrame;
+        var caller = sampledCallers.get(key);
+        if (caller == null) {
+            // Callers past the limit are still listed with their flush, just not summed up
+            if (sampledCallers.size() >= MAX_SAMPLED_CALLER_COUNT)
+                return;
+            caller = new SampledCaller(callerFrame, trigger);
+            sampledCallers.put(key, caller);
+        }
+        caller.flushCount++;
+        caller.totalNanos += nanos;
+    }
+
+    private static StackTraceElement[] sampleStack() {
+        val stack = Thread.currentThread().getStackTrace();
+        // Drops the frames of the sampling and the lighting engine itself
+        var firstFrame = 0;
+        while (firstFrame < stack.length && isInternalFrame(stack[firstFrame]))
+            firstFrame++;
+        return Arrays.copyOfRange(stack, firstFrame, Math.min(stack.length, firstFrame + MAX_SAMPLED_STACK_DEPTH));
+    }
+
+    /**
+     * Methods merged into other classes by our mixins always contain a {@code $}, such as handlers and {@code lumi$} methods.
+     */
+    private static @Nullable String callerFrame(StackTraceElement[] stack) {
+        for (val frame : stack) {
+            if (frame.getClassName().startsWith("com.falsepattern.lumi."))
+                continue;
+            if (frame.getMethodName().contains("$"))
+                continue;
+            return frame.getClassName() + "." + frame.getMethodName();
+        }
+        return null;
+    }
+
+    private static boolean isInternalFrame(StackTraceElement frame) {
+        val className = frame.getClassName();
+        return className.equals(Thread.class.getName()) ||
+               className.startsWith("com.falsepattern.lumi.internal.lighting.");
+    }
+
+    private static String triggerName(FlushTrigger trigger) {
+        return trigger.name().toLowerCase().replace('_', ' ');
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000D;
+    }
+
+    @RequiredArgsConstructor
+    private static final class FlushRecord {
+        private final long timestampMillis;
+        private final FlushTrigger trigger;
+        private final int queuedUpdates;
+        private final long positions;
+        private final long nanos;
+        private final StackTraceElement @Nullable [] stack;
+    }
+
+    @RequiredArgsConstructor
+    private static final class SampledCaller {
+        private final String callerFrame;
+        private final FlushTrigger trigger;
+        private int flushCount;
+        private long totalNanos;
+
+        @Override
+        public String toString() {
+            return String.format("slow %s flushes from %s: %d, %.1fms total",
+                                 triggerName(trigger),
+                                 callerFrame,
+                                 flushCount,
+                                 nanosToMillis(totalNanos));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.metrics;
+
+/**
+ * What caused queued lighting updates to be processed.
+ */
+public enum FlushTrigger {
+    /**
+     * Processing was requested directly by a caller without a more specific trigger, usually another mod.
+     */
+    EXPLICIT,
+    /**
+     * The chunks of the world are being saved.
+     */
+    WORLD_SAVE,
+    /**
+     * A single chunk is being written to its region file.
+     */
+    CHUNK_SAVE,
+    /**
+     * Chunks queued for unloading are being unloaded.
+     */
+    CHUNK_UNLOAD,
+    /**
+     * A chunk packet is being built for a player.
+     */
+    CHUNK_PACKET,
+    /**
+     * Processed once per frame by the client.
+     */
+    CLIENT_TICK,
+    /**
+     * A light value was read near the queued updates.
+     */
+    LIGHT_READ,
+    /**
+     * The queue has reached its maximum size while scheduling another update.
+     */
+    QUEUE_FULL,
+    /**
+     * A chunk has been loaded, and its boundary checks needed to be processed.
+     */
+    CHUNK_LOAD,
+    /**
+     * Processed at the end of the tick within the lighting tick budget.
+     */
+    TICK_BUDGET,
+    /**
+     * Processed by the lighting worker thread.
+     */
+    WORKER,
+    /**
+     * A bulk edit has ended, and the box it covered has been relit.
+     */
+    BULK_EDIT,
+    /**
+     * Updates were pending near a chunk waited on through a chunk lit future at the end of the tick.
+     */
+    CHUNK_LIT_FUTURE
+}
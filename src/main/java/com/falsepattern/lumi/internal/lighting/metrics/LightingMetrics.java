@@ -0,0 +1,258 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.metrics;
+
+import lombok.val;
+import lombok.var;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.*;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.*;
+
+/**
+ * Always-on lighting counters of a single LUMI world.
+ * <p>
+ * Propagation may run on several threads at once, so the counters are only ever added to,
+ * and propagation contexts report their counts once per phase instead of once per position.
+ */
+public final class LightingMetrics implements LightingMetricsMXBean {
+    private static final FlushTrigger[] FLUSH_TRIGGERS = FlushTrigger.values();
+    private static final LightingPhase[] LIGHTING_PHASES = LightingPhase.values();
+
+    private final LongAdder[] flushCounts;
+    private final LongAdder flushNanos;
+    private final LongAdder queuedUpdatesAtFlushTotal;
+    private final LongAccumulator queuedUpdatesAtFlushMax;
+    private volatile long queuedUpdatesAtFlushLast;
+    private final LongAdder visitedPositionCount;
+    private final LongAdder neighbourLookupCount;
+    private final LongAdder duplicateUpdateCount;
+    private final LongAdder[] phaseNanos;
+    private final FlushReport flushReport;
+
+    public LightingMetrics() {
+        this.flushCounts = new LongAdder[FLUSH_TRIGGERS.length];
+        for (var i = 0; i < flushCounts.length; i++)
+            flushCounts[i] = new LongAdder();
+        this.flushNanos = new LongAdder();
+        this.queuedUpdatesAtFlushTotal = new LongAdder();
+        this.queuedUpdatesAtFlushMax = new LongAccumulator(Math::max, 0);
+        this.queuedUpdatesAtFlushLast = 0;
+        this.visitedPositionCount = new LongAdder();
+        this.neighbourLookupCount = new LongAdder();
+        this.duplicateUpdateCount = new LongAdder();
+        this.phaseNanos = new LongAdder[LIGHTING_PHASES.length];
+        for (var i = 0; i < phaseNanos.length; i++)
+            phaseNanos[i] = new LongAdder();
+        this.flushReport = new FlushReport();
+    }
+
+    /**
+     * Must be called on the thread which has processed the updates, once they have all been processed.
+     *
+     * @param queuedUpdates             amount of queued updates taken over by the flush, across all light types
+     * @param startNanos                {@link System#nanoTime()} right before the updates were processed
+     * @param startVisitedPositionCount {@link #getVisitedPositionCount()} right before the updates were processed
+     */
+    public void recordFlush(FlushTrigger trigger, int queuedUpdates, long startNanos, long startVisitedPositionCount) {
+        val nanos = System.nanoTime() - startNanos;
+        flushCounts[trigger.ordinal()].increment();
+        flushNanos.add(nanos);
+        queuedUpdatesAtFlushTotal.add(queuedUpdates);
+        queuedUpdatesAtFlushMax.accumulate(queuedUpdates);
+        queuedUpdatesAtFlushLast = queuedUpdates;
+        flushReport.record(trigger, queuedUpdates, getVisitedPositionCount() - startVisitedPositionCount, nanos);
+    }
+
+    public void addVisitedPositions(long count) {
+        if (count != 0)
+            visitedPositionCount.add(count);
+    }
+
+    public void addNeighbourLookups(long count) {
+        if (count != 0)
+            neighbourLookupCount.add(count);
+    }
+
+    public void addDuplicateUpdates(long count) {
+        if (count != 0)
+            duplicateUpdateCount.add(count);
+    }
+
+    public void addPhaseNanos(LightingPhase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    public long flushCount(FlushTrigger trigger) {
+        return flushCounts[trigger.ordinal()].sum();
+    }
+
+    public long phaseNanos(LightingPhase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    public FlushReport flushReport() {
+        return flushReport;
+    }
+
+    @Override
+    public long getFlushCount() {
+        var flushCount = 0L;
+        for (val trigger : FLUSH_TRIGGERS)
+            flushCount += flushCount(trigger);
+        return flushCount;
+    }
+
+    @Override
+    public long getExplicitFlushCount() {
+        return flushCount(EXPLICIT);
+    }
+
+    @Override
+    public long getWorldSaveFlushCount() {
+        return flushCount(WORLD_SAVE);
+    }
+
+    @Override
+    public long getChunkSaveFlushCount() {
+        return flushCount(CHUNK_SAVE);
+    }
+
+    @Override
+    public long getChunkUnloadFlushCount() {
+        return flushCount(CHUNK_UNLOAD);
+    }
+
+    @Override
+    public long getChunkPacketFlushCount() {
+        return flushCount(CHUNK_PACKET);
+    }
+
+    @Override
+    public long getLightReadFlushCount() {
+        return flushCount(LIGHT_READ);
+    }
+
+    @Override
+    public long getForcedFlushCount() {
+        return flushCount(QUEUE_FULL);
+    }
+
+    @Override
+    public long getChunkLoadFlushCount() {
+        return flushCount(CHUNK_LOAD);
+    }
+
+    @Override
+    public long getTickBudgetFlushCount() {
+        return flushCount(TICK_BUDGET);
+    }
+
+    @Override
+    public long getWorkerFlushCount() {
+        return flushCount(WORKER);
+    }
+
+    @Override
+    public long getBulkEditFlushCount() {
+        return flushCount(BULK_EDIT);
+    }
+
+    @Override
+    public long getChunkLitFutureFlushCount() {
+        return flushCount(CHUNK_LIT_FUTURE);
+    }
+
+    @Override
+    public long getFlushNanos() {
+        return flushNanos.sum();
+    }
+
+    @Override
+    public long getQueuedUpdatesAtFlushTotal() {
+        return queuedUpdatesAtFlushTotal.sum();
+    }
+
+    @Override
+    public long getQueuedUpdatesAtFlushMax() {
+        return queuedUpdatesAtFlushMax.get();
+    }
+
+    @Override
+    public long getQueuedUpdatesAtFlushLast() {
+        return queuedUpdatesAtFlushLast;
+    }
+
+    @Override
+    public long getVisitedPositionCount() {
+        return visitedPositionCount.sum();
+    }
+
+    @Override
+    public long getNeighbourLookupCount() {
+        return neighbourLookupCount.sum();
+    }
+
+    @Override
+    public long getDuplicateUpdateCount() {
+        return duplicateUpdateCount.sum();
+    }
+
+    @Override
+    public long getCheckingNanos() {
+        return phaseNanos(CHECKING);
+    }
+
+    @Override
+    public long getDarkeningNanos() {
+        return phaseNanos(DARKENING);
+    }
+
+    @Override
+    public long getBrighteningNanos() {
+        return phaseNanos(BRIGHTENING);
+    }
+
+    /**
+     * Counters updated concurrently with the reset may keep part of their previous value.
+     */
+    @Override
+    public void reset() {
+        for (val flushCount : flushCounts)
+            flushCount.reset();
+        flushNanos.reset();
+        queuedUpdatesAtFlushTotal.reset();
+        queuedUpdatesAtFlushMax.reset();
+        queuedUpdatesAtFlushLast = 0;
+        visitedPositionCount.reset();
+        neighbourLookupCount.reset();
+        duplicateUpdateCount.reset();
+        for (val nanos : phaseNanos)
+            nanos.reset();
+        flushReport.reset();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.metrics;
+
+/**
+ * Management interface of {@link LightingMetrics}, all counters are cumulative since the world was loaded or last reset.
+ */
+public interface LightingMetricsMXBean {
+    long getFlushCount();
+
+    long getExplicitFlushCount();
+
+    long getWorldSaveFlushCount();
+
+    long getChunkSaveFlushCount();
+
+    long getChunkUnloadFlushCount();
+
+    long getChunkPacketFlushCount();
+
+    long getLightReadFlushCount();
+
+    /**
+     * Flushes forced by the queue reaching its maximum size.
+     */
+    long getForcedFlushCount();
+
+    long getChunkLoadFlushCount();
+
+    long getTickBudgetFlushCount();
+
+    long getWorkerFlushCount();
+
+    long getBulkEditFlushCount();
+
+    long getChunkLitFutureFlushCount();
+
+    /**
+     * Time spent processing the updates of every flush.
+     */
+    long getFlushNanos();
+
+    long getQueuedUpdatesAtFlushTotal();
+
+    long getQueuedUpdatesAtFlushMax();
+
+    long getQueuedUpdatesAtFlushLast();
+
+    long getVisitedPositionCount();
+
+    long getNeighbourLookupCount();
+
+    long getDuplicateUpdateCount();
+
+    long getCheckingNanos();
+
+    long getDarkeningNanos();
+
+    long getBrighteningNanos();
+
+    void reset();
+}
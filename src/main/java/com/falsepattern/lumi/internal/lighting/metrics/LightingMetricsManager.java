@@ -0,0 +1,141 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.metrics;
+
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.internal.lighting.trace.TracingLightingEngine;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import lombok.var;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Publishes the {@link LightingMetrics} of every LUMI world on top of a loaded server world as an MBean.
+ * <p>
+ * Object names follow {@code com.falsepattern.lumi:type=LightingMetrics,dimension=<id>,world=<lumi world id>}.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class LightingMetricsManager {
+    private static final Logger LOG = createLogger("Lighting Metrics Manager");
+
+    private static final LightingMetricsManager INSTANCE = new LightingMetricsManager();
+
+    private static final String OBJECT_NAME_DOMAIN = "com.falsepattern.lumi";
+
+    private boolean isRegistered = false;
+
+    public static LightingMetricsManager lightingMetricsManager() {
+        return INSTANCE;
+    }
+
+    public void registerMetricsHandler() {
+        if (isRegistered)
+            return;
+
+        MinecraftForge.EVENT_BUS.register(this);
+        isRegistered = true;
+        LOG.info("Registered lighting metrics handler");
+    }
+
+    public static @Nullable LightingMetrics lightingMetrics(LumiWorld world) {
+        var lightingEngine = world.lumi$lightingEngine();
+        if (lightingEngine instanceof TracingLightingEngine)
+            lightingEngine = ((TracingLightingEngine) lightingEngine).delegate();
+        if (lightingEngine instanceof LightingMetricsSource)
+            return ((LightingMetricsSource) lightingEngine).lightingMetrics();
+        return null;
+    }
+
+    @SubscribeEvent
+    public void onWorldLoad(WorldEvent.Load evt) {
+        val worldBase = evt.world;
+        if (worldBase.isRemote)
+            return;
+
+        val server = ManagementFactory.getPlatformMBeanServer();
+        for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+            val metrics = lightingMetrics(world);
+            if (metrics == null)
+                continue;
+            try {
+                val objectName = objectName(worldBase, world);
+                // A dimension may be loaded again before the previous instance has been unloaded
+                unregisterMBean(server, objectName);
+                server.registerMBean(metrics, objectName);
+            } catch (JMException e) {
+                LOG.error("Failed to register lighting metrics of world [{}] in dimension [{}]",
+                          world.lumi$worldID(),
+                          worldBase.provider.dimensionId,
+                          e);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload evt) {
+        val worldBase = evt.world;
+        if (worldBase.isRemote)
+            return;
+
+        val server = ManagementFactory.getPlatformMBeanServer();
+        for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+            if (lightingMetrics(world) == null)
+                continue;
+            try {
+                unregisterMBean(server, objectName(worldBase, world));
+            } catch (JMException e) {
+                LOG.error("Failed to unregister lighting metrics of world [{}] in dimension [{}]",
+                          world.lumi$worldID(),
+                          worldBase.provider.dimensionId,
+                          e);
+            }
+        }
+    }
+
+    private static void unregisterMBean(MBeanServer server, ObjectName objectName) throws JMException {
+        if (server.isRegistered(objectName))
+            server.unregisterMBean(objectName);
+    }
+
+    private static ObjectName objectName(World worldBase, LumiWorld world) throws JMException {
+        return new ObjectName(OBJECT_NAME_DOMAIN + ":type=LightingMetrics" +
+                              ",dimension=" + worldBase.provider.dimensionId +
+                              ",world=" + ObjectName.quote(world.lumi$worldID()));
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.oracle;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.internal.config.LumiConfig;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import lombok.val;
+import lombok.var;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
+
+/**
+ * Replaces the random light updates of a server world by relighting a few subchunks of the ticking chunks each tick
+ * with the {@link ReferenceRelighter}, and scheduling lighting updates only for the positions where the stored light is wrong.
+ * <p>
+ * Chunks are offered when they are ticked, and audited round robin one subchunk at a time.
+ * The subchunks are captured on the server thread at the end of the tick and relit on a shared background thread,
+ * the updates for the wrong positions are then scheduled on the following ticks within
+ * {@link LumiConfig#LIGHTING_AUDITOR_UPDATES_PER_TICK}. Only one batch of subchunks is audited at a time.
+ * <p>
+ * Each subchunk is relit with the light around it taken as correct, so light which is wrong in the same way on both sides
+ * of a subchunk boundary is not found. Positions which still have pending lighting updates may be reported as well,
+ * scheduling those again is harmless.
+ */
+public final class LightingAuditor {
+    private static final Logger LOG = createLogger("Lighting Auditor");
+
+    private static final int MIN_CHUNK_POS_Y = 0;
+    private static final int MAX_CHUNK_POS_Y = 15;
+
+    private final LongArrayFIFOQueue queuedChunkPositions = new LongArrayFIFOQueue();
+    /**
+     * The next subchunk to audit of each queued chunk, in the same order.
+     */
+    private final IntArrayFIFOQueue queuedChunkPosYs = new IntArrayFIFOQueue();
+    private final LongOpenHashSet queuedChunks = new LongOpenHashSet();
+
+    private final ConcurrentLinkedQueue<List<SubChunkAudit>> completedBatches = new ConcurrentLinkedQueue<>();
+    private boolean isBatchInFlight = false;
+
+    private final ArrayDeque<SubChunkAudit> pendingCorrections = new ArrayDeque<>();
+    private int nextCorrectionIndex = 0;
+
+    public void offerChunk(Chunk chunkBase) {
+        val chunkPosLong = ChunkCoordIntPair.chunkXZ2Int(chunkBase.xPosition, chunkBase.zPosition);
+        if (!queuedChunks.add(chunkPosLong))
+            return;
+        queuedChunkPositions.enqueue(chunkPosLong);
+        queuedChunkPosYs.enqueue(MIN_CHUNK_POS_Y);
+    }
+
+    public void tick(WorldServer worldBase) {
+        collectCompletedBatches();
+        scheduleCorrections();
+        if (isBatchInFlight || !pendingCorrections.isEmpty())
+            return;
+
+        val batch = captureBatch(worldBase);
+        if (batch.isEmpty())
+            return;
+        isBatchInFlight = true;
+        auditExecutor().execute(() -> relightBatch(batch));
+    }
+
+    private void collectCompletedBatches() {
+        List<SubChunkAudit> batch;
+        while ((batch = completedBatches.poll()) != null) {
+            isBatchInFlight = false;
+            for (val audit : batch) {
+                if (audit.wrongPositions.isEmpty())
+                    continue;
+                LOG.debug("Found {} wrong {} values in subchunk [{}, {}, {}] of world [{}]",
+                          audit.wrongPositions.size(),
+                          audit.lightType,
+                          audit.minPosX >> 4,
+                          audit.minPosY >> 4,
+                          audit.minPosZ >> 4,
+                          audit.world.lumi$worldID());
+                pendingCorrections.add(audit);
+            }
+        }
+    }
+
+    private void scheduleCorrections() {
+        var remainingUpdates = LumiConfig.LIGHTING_AUDITOR_UPDATES_PER_TICK;
+        while (remainingUpdates > 0 && !pendingCorrections.isEmpty()) {
+            val audit = pendingCorrections.peek();
+            val wrongPositions = audit.wrongPositions;
+            val lightingEngine = audit.world.lumi$lightingEngine();
+            while (remainingUpdates > 0 && nextCorrectionIndex < wrongPositions.size()) {
+                val index = wrongPositions.getInt(nextCorrectionIndex++);
+                lightingEngine.scheduleLightingUpdate(audit.lightType,
+                                                      audit.minPosX + (index & 15),
+                                                      audit.minPosY + (index >> 8),
+                                                      audit.minPosZ + ((index >> 4) & 15));
+                remainingUpdates--;
+            }
+            if (nextCorrectionIndex == wrongPositions.size()) {
+                pendingCorrections.poll();
+                nextCorrectionIndex = 0;
+            }
+        }
+    }
+
+    private List<SubChunkAudit> captureBatch(WorldServer worldBase) {
+        val batch = new ArrayList<SubChunkAudit>();
+        val worlds = worldProviderManager().lumiWorldsFromBaseWorld(worldBase);
+        val chunkProvider = worldBase.getChunkProvider();
+
+        var remainingSubChunks = LumiConfig.LIGHTING_AUDITOR_SUB_CHUNKS_PER_TICK;
+        while (remainingSubChunks > 0 && !queuedChunkPositions.isEmpty()) {
+            val chunkPosLong = queuedChunkPositions.dequeueLong();
+            var chunkPosY = queuedChunkPosYs.dequeueInt();
+            val chunkPosX = (int) chunkPosLong;
+            val chunkPosZ = (int) (chunkPosLong >>> 32);
+            if (!chunkProvider.chunkExists(chunkPosX, chunkPosZ)) {
+                queuedChunks.remove(chunkPosLong);
+                continue;
+            }
+
+            val chunkBase = worldBase.getChunkFromChunkCoords(chunkPosX, chunkPosZ);
+            while (chunkPosY <= MAX_CHUNK_POS_Y && !captureSubChunk(worlds, chunkBase, chunkPosY, batch))
+                chunkPosY++;
+            if (chunkPosY <= MAX_CHUNK_POS_Y)
+                remainingSubChunks--;
+
+            if (chunkPosY < MAX_CHUNK_POS_Y) {
+                queuedChunkPositions.enqueue(chunkPosLong);
+                queuedChunkPosYs.enqueue(chunkPosY + 1);
+            } else {
+                // Offered again the next time it is ticked
+                queuedChunks.remove(chunkPosLong);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @return false if no world has any light stored in the subchunk
+     */
+    private static boolean captureSubChunk(LumiWorld[] worlds, Chunk chunkBase, int chunkPosY, List<SubChunkAudit> batch) {
+        val minPosX = chunkBase.xPosition << 4;
+        val minPosY = chunkPosY << 4;
+        val minPosZ = chunkBase.zPosition << 4;
+
+        var isCaptured = false;
+        for (val world : worlds) {
+            val chunk = world.lumi$wrap(chunkBase);
+            if (chunk.lumi$getSubChunkIfPrepared(chunkPosY) == null)
+                continue;
+
+            batch.add(new SubChunkAudit(world, BLOCK_LIGHT_TYPE, minPosX, minPosY, minPosZ));
+            if (world.lumi$root().lumi$hasSky())
+                batch.add(new SubChunkAudit(world, SKY_LIGHT_TYPE, minPosX, minPosY, minPosZ));
+            isCaptured = true;
+        }
+        return isCaptured;
+    }
+
+    private void relightBatch(List<SubChunkAudit> batch) {
+        try {
+            for (val audit : batch)
+                audit.relight();
+        } catch (Throwable t) {
+            LOG.error("Failed to audit lighting", t);
+        } finally {
+            completedBatches.add(batch);
+        }
+    }
+
+    private static ExecutorService auditExecutor() {
+        return AuditExecutorHolder.EXECUTOR;
+    }
+
+    private static ExecutorService createAuditExecutor() {
+        return Executors.newSingleThreadExecutor(task -> {
+            // Never touches the world, so it does not need the relight marker of the lighting threads
+            val thread = new Thread(task, "Lumi Lighting Auditor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    private static final class AuditExecutorHolder {
+        private static final ExecutorService EXECUTOR = createAuditExecutor();
+    }
+
+    private static final class SubChunkAudit {
+        final LumiWorld world;
+        final LightType lightType;
+        final int minPosX;
+        final int minPosY;
+        final int minPosZ;
+        /**
+         * Indexed as {@code subChunkPosY << 8 | subChunkPosZ << 4 | subChunkPosX}, filled in by the audit thread.
+         */
+        final IntArrayList wrongPositions = new IntArrayList();
+
+        ReferenceRelighter relighter;
+
+        SubChunkAudit(LumiWorld world, LightType lightType, int minPosX, int minPosY, int minPosZ) {
+            this.world = world;
+            this.lightType = lightType;
+            this.minPosX = minPosX;
+            this.minPosY = minPosY;
+            this.minPosZ = minPosZ;
+            this.relighter = ReferenceRelighter.captureBox(world,
+                                                           lightType,
+                                                           minPosX,
+                                                           minPosY,
+                                                           minPosZ,
+                                                           minPosX + 15,
+                                                           minPosY + 15,
+                                                           minPosZ + 15);
+        }
+
+        void relight() {
+            relighter.relight((mismatchLightType, posX, posY, posZ, expectedLightValue, storedLightValue) -> {
+                wrongPositions.add((posY & 15) << 8 | (posZ & 15) << 4 | (posX & 15));
+            });
+            relighter = null;
+        }
+    }
+}
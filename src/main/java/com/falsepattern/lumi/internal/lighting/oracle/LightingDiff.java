@@ -0,0 +1,192 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.oracle;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Differences between the stored light values of a box and a {@link ReferenceRelighter from-scratch relight} of it.
+ */
+@Accessors(fluent = true, chain = false)
+public final class LightingDiff implements LightingMismatchListener {
+    private static final LightType[] LIGHT_TYPES = LightType.values();
+
+    private static final int MAX_SAMPLED_MISMATCH_COUNT = 16;
+
+    @Getter
+    private final int minPosX;
+    @Getter
+    private final int minPosY;
+    @Getter
+    private final int minPosZ;
+    @Getter
+    private final int maxPosX;
+    @Getter
+    private final int maxPosY;
+    @Getter
+    private final int maxPosZ;
+
+    private final long[] checkedCounts;
+    private final long[] mismatchCounts;
+    private final long[] tooBrightCounts;
+    private final int[] maxDeltas;
+    private final List<Mismatch> sampledMismatches;
+
+    LightingDiff(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+        this.minPosX = minPosX;
+        this.minPosY = minPosY;
+        this.minPosZ = minPosZ;
+        this.maxPosX = maxPosX;
+        this.maxPosY = maxPosY;
+        this.maxPosZ = maxPosZ;
+
+        this.checkedCounts = new long[LIGHT_TYPES.length];
+        this.mismatchCounts = new long[LIGHT_TYPES.length];
+        this.tooBrightCounts = new long[LIGHT_TYPES.length];
+        this.maxDeltas = new int[LIGHT_TYPES.length];
+        this.sampledMismatches = new ArrayList<>();
+    }
+
+    void addCheckedCount(LightType lightType, long checkedCount) {
+        checkedCounts[lightType.ordinal()] += checkedCount;
+    }
+
+    @Override
+    public void onMismatch(LightType lightType,
+                           int posX,
+                           int posY,
+                           int posZ,
+                           int expectedLightValue,
+                           int storedLightValue) {
+        val index = lightType.ordinal();
+        mismatchCounts[index]++;
+        if (storedLightValue > expectedLightValue)
+            tooBrightCounts[index]++;
+        maxDeltas[index] = Math.max(maxDeltas[index], Math.abs(storedLightValue - expectedLightValue));
+        if (sampledMismatches.size() < MAX_SAMPLED_MISMATCH_COUNT)
+            sampledMismatches.add(new Mismatch(lightType, posX, posY, posZ, expectedLightValue, storedLightValue));
+    }
+
+    /**
+     * @return {@code true} if every checked position matches the relight bit for bit
+     */
+    public boolean isExact() {
+        for (val mismatchCount : mismatchCounts)
+            if (mismatchCount != 0)
+                return false;
+        return true;
+    }
+
+    public long checkedCount(LightType lightType) {
+        return checkedCounts[lightType.ordinal()];
+    }
+
+    public long mismatchCount(LightType lightType) {
+        return mismatchCounts[lightType.ordinal()];
+    }
+
+    /**
+     * @return the mismatches where the stored value is brighter than expected, the rest are darker
+     */
+    public long tooBrightCount(LightType lightType) {
+        return tooBrightCounts[lightType.ordinal()];
+    }
+
+    public int maxDelta(LightType lightType) {
+        return maxDeltas[lightType.ordinal()];
+    }
+
+    /**
+     * @return the first mismatches found, in no particular order
+     */
+    public List<Mismatch> sampledMismatches() {
+        return Collections.unmodifiableList(sampledMismatches);
+    }
+
+    public List<String> summaryLines() {
+        val lines = new ArrayList<String>();
+        lines.add(String.format("box %d,%d,%d to %d,%d,%d: %s",
+                                minPosX,
+                                minPosY,
+                                minPosZ,
+                                maxPosX,
+                                maxPosY,
+                                maxPosZ,
+                                isExact() ? "exact" : "mismatched"));
+        for (val lightType : LIGHT_TYPES) {
+            val index = lightType.ordinal();
+            if (checkedCounts[index] == 0)
+                continue;
+            lines.add(String.format("%s: %d of %d positions differ, %d too bright, %d too dark, max delta %d",
+                                    lightTypeName(lightType),
+                                    mismatchCounts[index],
+                                    checkedCounts[index],
+                                    tooBrightCounts[index],
+                                    mismatchCounts[index] - tooBrightCounts[index],
+                                    maxDeltas[index]));
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return String.join("\n", summaryLines());
+    }
+
+    private static String lightTypeName(LightType lightType) {
+        return lightType.isBlock() ? "block light" : "sky light";
+    }
+
+    @Getter
+    @Accessors(fluent = true, chain = false)
+    @RequiredArgsConstructor
+    public static final class Mismatch {
+        private final LightType lightType;
+        private final int posX;
+        private final int posY;
+        private final int posZ;
+        private final int expectedLightValue;
+        private final int storedLightValue;
+
+        @Override
+        public String toString() {
+            return String.format("%s at %d,%d,%d: expected %d, stored %d",
+                                 lightTypeName(lightType),
+                                 posX,
+                                 posY,
+                                 posZ,
+                                 expectedLightValue,
+                                 storedLightValue);
+        }
+    }
+}
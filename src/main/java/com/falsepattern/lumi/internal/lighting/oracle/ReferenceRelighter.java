@@ -0,0 +1,377 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.oracle;
+
+import com.falsepattern.lib.util.MathUtil;
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+
+/**
+ * Relights a box from scratch and compares the result with the light values stored in its chunks.
+ * <p>
+ * Only uses the opacity and brightness of each block and the sky light height map of each chunk, so it does not share any
+ * code with the incremental lighting engines it checks. The light of a position is the brightest of its own brightness
+ * (15 for sky light if it can see the sky) and the light of each neighbour minus the opacity of the position,
+ * clamped to at least 1. The relight finds the darkest values which satisfy this everywhere in the box,
+ * which is what the engines converge to once all of their updates have been processed.
+ * <p>
+ * Positions in unloaded chunks or subchunks which were never prepared take no part in lighting, as in the engines.
+ * Light entering from outside of the box is taken from the stored values there, so boxes should be a chunk or more
+ * away from positions which are suspected to be wrong, or cover them entirely.
+ * <p>
+ * Reads the chunks without any locking, pending lighting updates should be processed first.
+ * Everything is read from the world while {@link #captureBox capturing}, so the relight itself may run on another thread.
+ */
+public final class ReferenceRelighter {
+    private static final int MAX_LIGHT_VALUE = 15;
+    private static final int MIN_BLOCK_LIGHT_OPACITY = 1;
+    private static final int MAX_BLOCK_LIGHT_OPACITY = 15;
+
+    private static final int INVALID_LIGHT_VALUE = -1;
+
+    private static final int MIN_POS_Y = 0;
+    private static final int MAX_POS_Y = 255;
+
+    private final LumiWorld world;
+    private final LightType lightType;
+
+    private final int minPosX;
+    private final int minPosY;
+    private final int minPosZ;
+    private final int maxPosX;
+    private final int maxPosY;
+    private final int maxPosZ;
+
+    private final int sizeX;
+    private final int sizeZ;
+    private final int sizeXZ;
+    private final int volume;
+
+    /**
+     * Clamped opacity of every position, or {@link #INVALID_LIGHT_VALUE} where no light is stored.
+     */
+    private final byte[] opacities;
+    private final byte[] brightnesses;
+    private final byte[] lightValues;
+    /**
+     * Light value stored in the chunks at every position, or {@link #INVALID_LIGHT_VALUE} where no light is stored.
+     */
+    private final byte[] storedLightValues;
+    private final IntArrayList[] queues;
+
+    private ReferenceRelighter(LumiWorld world,
+                               LightType lightType,
+                               int minPosX,
+                               int minPosY,
+                               int minPosZ,
+                               int maxPosX,
+                               int maxPosY,
+                               int maxPosZ) {
+        this.world = world;
+        this.lightType = lightType;
+
+        this.minPosX = minPosX;
+        this.minPosY = minPosY;
+        this.minPosZ = minPosZ;
+        this.maxPosX = maxPosX;
+        this.maxPosY = maxPosY;
+        this.maxPosZ = maxPosZ;
+
+        this.sizeX = maxPosX - minPosX + 1;
+        this.sizeZ = maxPosZ - minPosZ + 1;
+        this.sizeXZ = sizeX * sizeZ;
+        this.volume = sizeXZ * (maxPosY - minPosY + 1);
+
+        this.opacities = new byte[volume];
+        this.brightnesses = new byte[volume];
+        this.lightValues = new byte[volume];
+        this.storedLightValues = new byte[volume];
+        this.queues = new IntArrayList[MAX_LIGHT_VALUE + 1];
+        for (var lightValue = 0; lightValue <= MAX_LIGHT_VALUE; lightValue++)
+            queues[lightValue] = new IntArrayList();
+    }
+
+    /**
+     * Relights all loaded chunks within {@code chunkRadius} of the given chunk, over the full height of the world.
+     */
+    public static LightingDiff diffChunks(LumiWorld world, int centerChunkPosX, int centerChunkPosZ, int chunkRadius) {
+        return diffBox(world,
+                       (centerChunkPosX - chunkRadius) << 4,
+                       MIN_POS_Y,
+                       (centerChunkPosZ - chunkRadius) << 4,
+                       ((centerChunkPosX + chunkRadius) << 4) + 15,
+                       MAX_POS_Y,
+                       ((centerChunkPosZ + chunkRadius) << 4) + 15,
+                       null);
+    }
+
+    /**
+     * Relights the box between the given positions, inclusive on both ends.
+     *
+     * @param listener also receives every mismatch, in addition to the returned diff
+     */
+    public static LightingDiff diffBox(LumiWorld world,
+                                       int minPosX,
+                                       int minPosY,
+                                       int minPosZ,
+                                       int maxPosX,
+                                       int maxPosY,
+                                       int maxPosZ,
+                                       @Nullable LightingMismatchListener listener) {
+        minPosY = Math.max(MIN_POS_Y, minPosY);
+        maxPosY = Math.min(MAX_POS_Y, maxPosY);
+        val diff = new LightingDiff(minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+        if (minPosX > maxPosX || minPosY > maxPosY || minPosZ > maxPosZ)
+            return diff;
+
+        diff(world, BLOCK_LIGHT_TYPE, minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ, diff, listener);
+        if (world.lumi$root().lumi$hasSky())
+            diff(world, SKY_LIGHT_TYPE, minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ, diff, listener);
+        return diff;
+    }
+
+    private static void diff(LumiWorld world,
+                             LightType lightType,
+                             int minPosX,
+                             int minPosY,
+                             int minPosZ,
+                             int maxPosX,
+                             int maxPosY,
+                             int maxPosZ,
+                             LightingDiff diff,
+                             @Nullable LightingMismatchListener listener) {
+        val relighter = captureBox(world, lightType, minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+        final long checkedCount;
+        if (listener == null) {
+            checkedCount = relighter.relight(diff);
+        } else {
+            checkedCount = relighter.relight((mismatchLightType, posX, posY, posZ, expectedLightValue, storedLightValue) -> {
+                diff.onMismatch(mismatchLightType, posX, posY, posZ, expectedLightValue, storedLightValue);
+                listener.onMismatch(mismatchLightType, posX, posY, posZ, expectedLightValue, storedLightValue);
+            });
+        }
+        diff.addCheckedCount(lightType, checkedCount);
+    }
+
+    /**
+     * Reads everything needed to relight a box for one light type, must be called by the thread owning the world.
+     * The box must be within the height of the world, and not empty.
+     */
+    static ReferenceRelighter captureBox(LumiWorld world,
+                                         LightType lightType,
+                                         int minPosX,
+                                         int minPosY,
+                                         int minPosZ,
+                                         int maxPosX,
+                                         int maxPosY,
+                                         int maxPosZ) {
+        val relighter = new ReferenceRelighter(world, lightType, minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+        relighter.readBlocks();
+        relighter.seedFromSources();
+        relighter.seedFromOutside();
+        return relighter;
+    }
+
+    /**
+     * Relights the captured box without touching the world, so it may be called by any thread, but only once.
+     *
+     * @return the number of compared positions
+     */
+    long relight(LightingMismatchListener listener) {
+        propagate();
+
+        var checkedCount = 0L;
+        for (var index = 0; index < volume; index++) {
+            val expectedLightValue = lightValues[index];
+            if (expectedLightValue == INVALID_LIGHT_VALUE)
+                continue;
+
+            checkedCount++;
+            val storedLightValue = storedLightValues[index];
+            if (storedLightValue == expectedLightValue)
+                continue;
+            val posX = minPosX + index % sizeX;
+            val posZ = minPosZ + (index / sizeX) % sizeZ;
+            val posY = minPosY + index / sizeXZ;
+            listener.onMismatch(lightType, posX, posY, posZ, expectedLightValue, storedLightValue);
+        }
+        return checkedCount;
+    }
+
+    private void readBlocks() {
+        for (var posX = minPosX; posX <= maxPosX; posX++) {
+            for (var posZ = minPosZ; posZ <= maxPosZ; posZ++) {
+                val chunk = world.lumi$getChunkFromBlockPosIfExists(posX, posZ);
+                val subChunkPosX = posX & 15;
+                val subChunkPosZ = posZ & 15;
+                for (var posY = minPosY; posY <= maxPosY; posY++) {
+                    val index = index(posX, posY, posZ);
+                    if (chunk == null || chunk.lumi$getSubChunkIfPrepared(posY >> 4) == null) {
+                        opacities[index] = INVALID_LIGHT_VALUE;
+                        brightnesses[index] = 0;
+                        storedLightValues[index] = INVALID_LIGHT_VALUE;
+                        continue;
+                    }
+
+                    storedLightValues[index] = (byte) storedLightValue(chunk, lightType, posX, posY, posZ);
+
+                    val opacity = chunk.lumi$getBlockOpacity(subChunkPosX, posY, subChunkPosZ);
+                    opacities[index] = (byte) MathUtil.clamp(opacity, MIN_BLOCK_LIGHT_OPACITY, MAX_BLOCK_LIGHT_OPACITY);
+                    if (lightType.isBlock()) {
+                        val brightness = chunk.lumi$getBlockBrightness(subChunkPosX, posY, subChunkPosZ);
+                        brightnesses[index] = (byte) MathUtil.clamp(brightness, 0, MAX_LIGHT_VALUE);
+                    } else {
+                        val canSeeSky = chunk.lumi$canBlockSeeSky(subChunkPosX, posY, subChunkPosZ);
+                        brightnesses[index] = (byte) (canSeeSky ? MAX_LIGHT_VALUE : 0);
+                    }
+                }
+            }
+        }
+    }
+
+    private void seedFromSources() {
+        for (var index = 0; index < volume; index++) {
+            if (opacities[index] == INVALID_LIGHT_VALUE) {
+                lightValues[index] = INVALID_LIGHT_VALUE;
+                continue;
+            }
+            val brightness = brightnesses[index];
+            lightValues[index] = brightness;
+            if (brightness > 0)
+                queues[brightness].add(index);
+        }
+    }
+
+    /**
+     * Treats the stored light values just outside of each face of the box as fixed sources.
+     */
+    private void seedFromOutside() {
+        for (var posX = minPosX; posX <= maxPosX; posX++) {
+            for (var posZ = minPosZ; posZ <= maxPosZ; posZ++) {
+                seedFromOutside(posX, minPosY, posZ, posX, minPosY - 1, posZ);
+                seedFromOutside(posX, maxPosY, posZ, posX, maxPosY + 1, posZ);
+            }
+        }
+        for (var posY = minPosY; posY <= maxPosY; posY++) {
+            for (var posX = minPosX; posX <= maxPosX; posX++) {
+                seedFromOutside(posX, posY, minPosZ, posX, posY, minPosZ - 1);
+                seedFromOutside(posX, posY, maxPosZ, posX, posY, maxPosZ + 1);
+            }
+            for (var posZ = minPosZ; posZ <= maxPosZ; posZ++) {
+                seedFromOutside(minPosX, posY, posZ, minPosX - 1, posY, posZ);
+                seedFromOutside(maxPosX, posY, posZ, maxPosX + 1, posY, posZ);
+            }
+        }
+    }
+
+    private void seedFromOutside(int posX,
+                                 int posY,
+                                 int posZ,
+                                 int outsidePosX,
+                                 int outsidePosY,
+                                 int outsidePosZ) {
+        val index = index(posX, posY, posZ);
+        if (opacities[index] == INVALID_LIGHT_VALUE)
+            return;
+        if (outsidePosY < MIN_POS_Y || outsidePosY > MAX_POS_Y)
+            return;
+        val outsideChunk = world.lumi$getChunkFromBlockPosIfExists(outsidePosX, outsidePosZ);
+        if (outsideChunk == null)
+            return;
+
+        val outsideLightValue = storedLightValue(outsideChunk, lightType, outsidePosX, outsidePosY, outsidePosZ);
+        if (outsideLightValue == INVALID_LIGHT_VALUE)
+            return;
+        val lightValue = outsideLightValue - opacities[index];
+        if (lightValue > lightValues[index]) {
+            lightValues[index] = (byte) lightValue;
+            queues[lightValue].add(index);
+        }
+    }
+
+    /**
+     * Spreads the light from the brightest positions down, so every position is final once its level is reached.
+     */
+    private void propagate() {
+        for (var lightValue = MAX_LIGHT_VALUE; lightValue > 1; lightValue--) {
+            val queue = queues[lightValue];
+            for (var i = 0; i < queue.size(); i++) {
+                val index = queue.getInt(i);
+                if (lightValues[index] != lightValue)
+                    continue;
+
+                val offsetX = index % sizeX;
+                val offsetZ = (index / sizeX) % sizeZ;
+                if (offsetX > 0)
+                    spreadLight(index - 1, lightValue);
+                if (offsetX < sizeX - 1)
+                    spreadLight(index + 1, lightValue);
+                if (offsetZ > 0)
+                    spreadLight(index - sizeX, lightValue);
+                if (offsetZ < sizeZ - 1)
+                    spreadLight(index + sizeX, lightValue);
+                if (index >= sizeXZ)
+                    spreadLight(index - sizeXZ, lightValue);
+                if (index + sizeXZ < volume)
+                    spreadLight(index + sizeXZ, lightValue);
+            }
+            queue.clear();
+        }
+        queues[1].clear();
+        queues[0].clear();
+    }
+
+    private void spreadLight(int neighbourIndex, int lightValue) {
+        val opacity = opacities[neighbourIndex];
+        if (opacity == INVALID_LIGHT_VALUE)
+            return;
+        val neighbourLightValue = lightValue - opacity;
+        if (neighbourLightValue > lightValues[neighbourIndex]) {
+            lightValues[neighbourIndex] = (byte) neighbourLightValue;
+            queues[neighbourLightValue].add(neighbourIndex);
+        }
+    }
+
+    private int index(int posX, int posY, int posZ) {
+        return ((posY - minPosY) * sizeZ + (posZ - minPosZ)) * sizeX + (posX - minPosX);
+    }
+
+    private static int storedLightValue(LumiChunk chunk, LightType lightType, int posX, int posY, int posZ) {
+        val subChunk = chunk.lumi$getSubChunkIfPrepared(posY >> 4);
+        if (subChunk == null)
+            return INVALID_LIGHT_VALUE;
+        if (lightType.isBlock())
+            return subChunk.lumi$getBlockLightValue(posX & 15, posY & 15, posZ & 15);
+        return subChunk.lumi$getSkyLightValue(posX & 15, posY & 15, posZ & 15);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package com.falsepattern.lumi.internal.lighting.phosphor;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import net.minecraft.block.Block;
+import net.minecraft.world.IBlockAccess;
+
+/**
+ * Packing of the block light properties stored in {@link com.falsepattern.lumi.internal.mixin.interfaces.LumiLightPropertyCache}.
+ * <p>
+ * Layout of the packed value: [brightness(4)] [opacity(4)]
+ * <p>
+ * The clamped opacity is never zero, so a packed value of zero always means that nothing was cached.
+ */
+@UtilityClass
+final class PhosphorLightProperties {
+    static final int UNCACHED_LIGHT_PROPERTIES = 0;
+
+    private static final ClassValue<Boolean> IS_CACHEABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> blockClass) {
+            return !overridesBlockMethod(blockClass, "getLightValue") &&
+                   !overridesBlockMethod(blockClass, "getLightOpacity");
+        }
+    };
+
+    static int packLightProperties(int brightnessValue, int opacityValue) {
+        return brightnessValue << 4 | opacityValue;
+    }
+
+    static int unpackBrightnessValue(int lightProperties) {
+        return lightProperties >> 4 & 15;
+    }
+
+    static int unpackOpacityValue(int lightProperties) {
+        return lightProperties & 15;
+    }
+
+    /**
+     * Blocks overriding the positional light value or opacity may depend on their surroundings or tile entity,
+     * and can not be cached per block.
+     */
+    static boolean isCacheable(Block block) {
+        return IS_CACHEABLE.get(block.getClass());
+    }
+
+    private static boolean overridesBlockMethod(Class<?> blockClass, String methodName) {
+        try {
+            val method = blockClass.getMethod(methodName, IBlockAccess.class, int.class, int.class, int.class);
+            return method.getDeclaringClass() != Block.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+}
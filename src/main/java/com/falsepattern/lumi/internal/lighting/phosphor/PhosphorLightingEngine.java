@@ -27,18 +27,22 @@ package com.falsepattern.lumi.internal.lighting.phosphor;
 import com.falsepattern.lib.compat.BlockPos;
 import com.falsepattern.lumi.api.chunk.LumiChunk;
 import com.falsepattern.lumi.api.chunk.LumiSubChunk;
-import com.falsepattern.lumi.api.chunk.LumiSubChunkRoot;
 import com.falsepattern.lumi.api.lighting.LightType;
 import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
 import com.falsepattern.lumi.api.world.LumiWorld;
 import com.falsepattern.lumi.api.world.LumiWorldRoot;
 import com.falsepattern.lumi.internal.config.LumiConfig;
+import com.falsepattern.lumi.internal.lighting.ChunkLitFutures;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetrics;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetricsSource;
 import cpw.mods.fml.relauncher.SideOnly;
-import it.unimi.dsi.fastutil.longs.LongArrayList;
-import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
 import lombok.val;
 import lombok.var;
-import net.minecraft.block.Block;
 import net.minecraft.client.Minecraft;
 import net.minecraft.init.Blocks;
 import net.minecraft.nbt.NBTTagCompound;
@@ -50,6 +54,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -57,14 +68,16 @@ import static com.falsepattern.lumi.api.chunk.LumiChunk.MAX_QUEUED_RANDOM_LIGHT_
 import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
 import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
 import static com.falsepattern.lumi.internal.Lumi.createLogger;
-import static com.falsepattern.lumi.internal.lighting.phosphor.Direction.VALID_DIRECTIONS;
-import static com.falsepattern.lumi.internal.lighting.phosphor.Direction.VALID_DIRECTIONS_SIZE;
+import static com.falsepattern.lumi.internal.lighting.LightingThreads.isThreadAllowedToRelight;
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.callerFlushTrigger;
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.*;
 import static com.falsepattern.lumi.internal.lighting.phosphor.DummyLock.getDummyLock;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorThreadPool.lightingRegionPool;
 import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorUtil.*;
 import static cpw.mods.fml.relauncher.Side.CLIENT;
 
 
-public final class PhosphorLightingEngine implements LumiLightingEngine {
+public final class PhosphorLightingEngine implements LumiLightingEngine, LightingMetricsSource {
     private static final Logger LOG = createLogger("Phosphor");
 
     /**
@@ -75,58 +88,77 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
     private static final int MAX_SCHEDULED_BLOCK_LIGHT_UPDATES_CLIENT = 1 << 10;
     private static final int MAX_SCHEDULED_SKY_LIGHT_UPDATES_CLIENT = 1 << 10;
 
+    /**
+     * Minimum scheduled lighting updates before splitting them into regions is attempted.
+     */
+    private static final int MIN_PARALLEL_REGION_UPDATES = 1 << 9;
+
+    static final int MIN_POS_Y = 0;
+    static final int MAX_POS_Y = 255;
+    /**
+     * Boxes of bulk edits stop growing past 8 by 8 chunks at full height,
+     * blocks changed outside of the box are relit through the regular updates instead.
+     */
+    private static final long MAX_BULK_EDIT_VOLUME = 128L * 256L * 128L;
+
+    /**
+     * Batched chunk loads are processed row by row, so neighbouring chunks are close together.
+     */
+    private static final Comparator<LumiChunk> LOADED_CHUNK_ORDER =
+            Comparator.comparingInt(LumiChunk::lumi$chunkPosX).thenComparingInt(LumiChunk::lumi$chunkPosZ);
+
     /**
      * Bit length of the Z coordinate in a pos long.
      */
-    private static final int POS_Z_BIT_LENGTH = 26;
+    static final int POS_Z_BIT_LENGTH = 26;
     /**
      * Bit length of the X coordinate in a pos long.
      */
-    private static final int POS_X_BIT_LENGTH = 26;
+    static final int POS_X_BIT_LENGTH = 26;
     /**
      * Bit length of the Y coordinate in a pos long.
      */
-    private static final int POS_Y_BIT_LENGTH = 8;
+    static final int POS_Y_BIT_LENGTH = 8;
     /**
      * Bit length of the light value in a pos long.
      */
-    private static final int LIGHT_VALUE_BIT_LENGTH = 4;
+    static final int LIGHT_VALUE_BIT_LENGTH = 4;
     /**
      * Bit shift for the Z coordinate in a pos long.
      */
-    private static final int POS_Z_BIT_SHIFT = 0;
+    static final int POS_Z_BIT_SHIFT = 0;
     /**
      * Bit shift the X coordinate in a pos long.
      */
-    private static final int POS_X_BIT_SHIFT = POS_Z_BIT_SHIFT + POS_Z_BIT_LENGTH;
+    static final int POS_X_BIT_SHIFT = POS_Z_BIT_SHIFT + POS_Z_BIT_LENGTH;
     /**
      * Bit shift the Y coordinate in a pos long.
      */
-    private static final int POS_Y_BIT_SHIFT = POS_X_BIT_SHIFT + POS_X_BIT_LENGTH;
+    static final int POS_Y_BIT_SHIFT = POS_X_BIT_SHIFT + POS_X_BIT_LENGTH;
     /**
      * Bit shift for the light value in a pos long.
      */
-    private static final int LIGHT_VALUE_BIT_SHIFT = POS_Y_BIT_SHIFT + POS_Y_BIT_LENGTH;
+    static final int LIGHT_VALUE_BIT_SHIFT = POS_Y_BIT_SHIFT + POS_Y_BIT_LENGTH;
     /**
      * Bit mask of the Z coordinate in a pos long.
      */
-    private static final long POS_Z_BIT_MASK = (1L << POS_Z_BIT_LENGTH) - 1;
+    static final long POS_Z_BIT_MASK = (1L << POS_Z_BIT_LENGTH) - 1;
     /**
      * Bit mask of the X coordinate in a pos long.
      */
-    private static final long POS_X_BIT_MASK = (1L << POS_X_BIT_LENGTH) - 1;
+    static final long POS_X_BIT_MASK = (1L << POS_X_BIT_LENGTH) - 1;
     /**
      * Bit mask of the Y coordinate in a pos long.
      */
-    private static final long POS_Y_BIT_MASK = (1L << POS_Y_BIT_LENGTH) - 1;
+    static final long POS_Y_BIT_MASK = (1L << POS_Y_BIT_LENGTH) - 1;
     /**
      * Bit mask of the light value in a pos long.
      */
-    private static final long LIGHT_VALUE_BIT_MASK = (1L << LIGHT_VALUE_BIT_LENGTH) - 1;
+    static final long LIGHT_VALUE_BIT_MASK = (1L << LIGHT_VALUE_BIT_LENGTH) - 1;
     /**
      * Composite bit mask for the XYZ coordinates in a pos long.
      */
-    private static final long BLOCK_POS_BIT_MASK = (POS_Z_BIT_MASK << POS_Z_BIT_SHIFT) |
+    static final long BLOCK_POS_BIT_MASK = (POS_Z_BIT_MASK << POS_Z_BIT_SHIFT) |
                                                    (POS_X_BIT_MASK << POS_X_BIT_SHIFT) |
                                                    (POS_Y_BIT_MASK << POS_Y_BIT_SHIFT);
     /**
@@ -134,29 +166,30 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
      * <p>
      * Used for comparing if two given pos longs are in the same chunk.
      */
-    private static final long BLOCK_POS_CHUNK_BIT_MASK = ((POS_Z_BIT_MASK >> 4) << (4 + POS_Z_BIT_SHIFT)) |
+    static final long BLOCK_POS_CHUNK_BIT_MASK = ((POS_Z_BIT_MASK >> 4) << (4 + POS_Z_BIT_SHIFT)) |
                                                          ((POS_X_BIT_MASK >> 4) << (4 + POS_X_BIT_SHIFT));
+    /**
+     * Bit mask zeroing out the light value in a pos long, alongside the lower 4 bits in X, Y and Z.
+     * <p>
+     * Used for comparing if two given pos longs are in the same subchunk.
+     */
+    static final long BLOCK_POS_SUB_CHUNK_BIT_MASK = BLOCK_POS_CHUNK_BIT_MASK |
+                                                             ((POS_Y_BIT_MASK >> 4) << (4 + POS_Y_BIT_SHIFT));
+    /**
+     * Difference between the pos longs of two chunks next to each other along the X axis.
+     */
+    static final long CHUNK_POS_X_STEP = 1L << (POS_X_BIT_SHIFT + 4);
+    /**
+     * Difference between the pos longs of two chunks next to each other along the Z axis.
+     */
+    static final long CHUNK_POS_Z_STEP = 1L << (POS_Z_BIT_SHIFT + 4);
     /**
      * Pos long overflow check bit mask.
      * <p>
      * Used for checking if a pos long has overflowed into the light value range,
      * which is expected when dealing with cursor data, but not when dealing with a simple pos long.
      */
-    private static final long POS_OVERFLOW_CHECK_BIT_MASK = 1L << (POS_Y_BIT_SHIFT + POS_Y_BIT_LENGTH);
-
-    private static final int NEIGHBOUR_COUNT = VALID_DIRECTIONS_SIZE;
-
-    private static final long[] BLOCK_SIDE_BIT_OFFSET;
-
-    static {
-        BLOCK_SIDE_BIT_OFFSET = new long[NEIGHBOUR_COUNT];
-        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
-            val direction = VALID_DIRECTIONS[i];
-            BLOCK_SIDE_BIT_OFFSET[i] = ((long) direction.xOffset << POS_X_BIT_SHIFT) |
-                                       ((long) direction.yOffset << POS_Y_BIT_SHIFT) |
-                                       ((long) direction.zOffset << POS_Z_BIT_SHIFT);
-        }
-    }
+    static final long POS_OVERFLOW_CHECK_BIT_MASK = 1L << (POS_Y_BIT_SHIFT + POS_Y_BIT_LENGTH);
 
     private final Thread updateThread = Thread.currentThread();
     private final Lock lock;
@@ -165,79 +198,176 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
     private final LumiWorldRoot worldRoot;
     private final boolean isClientSide;
     private final Profiler profiler;
+    /**
+     * Profiler used while propagating light, the world profiler is not safe to use from the worker thread.
+     */
+    private final Profiler lightingProfiler;
+    private final LightingMetrics metrics;
+
+    /**
+     * Only present if {@link LumiConfig#ENABLE_LIGHTING_WORKER_THREAD} is enabled on the server side.
+     */
+    private final @Nullable PhosphorLightingWorker worker;
+    /**
+     * Signalled by the worker every time it finishes a pass, guarded by {@link #lock}.
+     */
+    private final @Nullable Condition workerPassFinished;
+    /**
+     * Chunks which have updates waiting for the worker, guarded by {@link #lock}.
+     * <p>
+     * Layout of longs: [padding(12)] [x(22)] [padding(4)] [z(22)] [padding(4)]
+     */
+    private LongSet pendingChunks;
+    /**
+     * Chunks which have updates currently being processed by the worker, guarded by {@link #lock}.
+     * <p>
+     * Layout of longs: [padding(12)] [x(22)] [padding(4)] [z(22)] [padding(4)]
+     */
+    private LongSet inFlightChunks;
+    private long lastPendingChunkPosLong;
+    /**
+     * Updates taken over by the worker, only accessed from the worker thread.
+     */
+    private final @Nullable PhosphorUpdateQueue workerBlockLightUpdateQueue;
+    private final @Nullable PhosphorUpdateQueue workerSkyLightUpdateQueue;
 
     private final int maxBlockLightUpdates;
     private final int maxSkyLightUpdates;
 
+    private final PhosphorUpdateQueue blockLightUpdateQueue;
+    private final PhosphorUpdateQueue skyLightUpdateQueue;
+
     /**
-     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     * Propagation state used by whichever thread is currently flushing the queues.
      */
-    private final LongList blockLightUpdateQueue;
-    private final LongList skyLightUpdateQueue;
+    private final PhosphorPropagationContext context;
     /**
-     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     * Only present if {@link LumiConfig#ENABLE_PARALLEL_LIGHTING_REGIONS} is enabled on the server side of the root world.
      */
-    private final LongList[] brighteningQueues;
+    private final @Nullable PhosphorRegionPartitioner regionPartitioner;
     /**
-     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     * Additional propagation contexts handed out to the region tasks, grown on demand.
      */
-    private final LongList[] darkeningQueues;
+    private final ObjectList<PhosphorPropagationContext> regionContexts;
     /**
-     * Layout of longs: [newLight(4)] [y(8)] [x(26)] [z(26)]
+     * Only present if {@link LumiConfig#ENABLE_PARALLEL_LIGHT_TYPES} is enabled on the server side of the root world,
+     * used for the sky light pass while {@link #context} runs the block light pass.
      */
-    private final LongList initialBrighteningQueue;
+    private final @Nullable PhosphorPropagationContext skyLightContext;
     /**
-     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     * Only enabled for the default world without a worker, as the cache is shared by every world on top of the same root,
+     * and the worker may read blocks while the main thread is changing them.
      */
-    private final LongList initialDarkeningQueue;
-
-    private @Nullable LightType currentLightType;
-    private @Nullable LongList currentQueue;
-    private int currentQueueSize;
-    private int currentQueueIndex;
+    private final boolean useLightPropertyCache;
+    /**
+     * Only enabled if {@link LumiConfig#LIGHTING_TICK_BUDGET_MICROS} is set on the server side without a worker.
+     * <p>
+     * Queued updates are then processed once per tick within the budget,
+     * reads still finish the passes suspended near the read position and the updates queued near it.
+     */
+    private final boolean isTickBudgeted;
+    /**
+     * Only present if {@link LumiConfig#ENABLE_PARALLEL_CHUNK_INIT} is enabled for the default world on the server side.
+     * <p>
+     * Column walks started by {@link #prepareChunkInit(LumiChunk)} while the chunk is being read, which are joined
+     * by {@link #handleChunkInit(LumiChunk)} once the chunk is loaded on the owner thread,
+     * or dropped by {@link #handleChunkUnload(LumiChunk)} if that never happens.
+     */
+    private final @Nullable Map<LumiChunk, ForkJoinTask<?>> pendingChunkInits;
+    /**
+     * Only present if {@link LumiConfig#ENABLE_BATCHED_CHUNK_LOADS} is enabled on the server side without a worker.
+     * <p>
+     * Chunks loaded since the last time the updates were processed, their boundary checks are scheduled in one batch
+     * right before processing the updates.
+     */
+    private final @Nullable ObjectList<LumiChunk> pendingLoadedChunks;
+    private final @Nullable ObjectList<LumiChunk> batchedLoadedChunks;
+    private final @Nullable LongSet batchedChunkPosLongs;
 
-    private final BlockReference cursor;
+    /**
+     * Number of bulk edits in progress, updates scheduled within their combined box are dropped until the last one ends.
+     * <p>
+     * The box is empty while its minimum is above its maximum, only accessed from the owner thread.
+     */
+    private int bulkEditDepth;
+    private int bulkEditMinPosX;
+    private int bulkEditMinPosY;
+    private int bulkEditMinPosZ;
+    private int bulkEditMaxPosX;
+    private int bulkEditMaxPosY;
+    private int bulkEditMaxPosZ;
 
-    private final BlockReference[] neighbors;
-    private boolean areNeighboursBlocksValid;
+    /**
+     * Futures waiting for chunks to be lit, checked after processing all updates and once per tick.
+     */
+    private final ChunkLitFutures chunkLitFutures;
 
     PhosphorLightingEngine(LumiWorld world, Profiler profiler) {
-        this.lock = LumiConfig.ENABLE_LOCKS ? new ReentrantLock() : getDummyLock();
-
         this.world = world;
         this.worldRoot = world.lumi$root();
         this.isClientSide = worldRoot.lumi$isClientSide();
         this.profiler = profiler;
+        this.metrics = new LightingMetrics();
+        this.chunkLitFutures = new ChunkLitFutures();
+
+        val useWorker = LumiConfig.ENABLE_LIGHTING_WORKER_THREAD && !isClientSide;
+        // The worker always needs a real lock, as the queues are shared between two threads
+        this.lock = LumiConfig.ENABLE_LOCKS || useWorker ? new ReentrantLock() : getDummyLock();
 
         this.maxBlockLightUpdates = isClientSide ? MAX_SCHEDULED_BLOCK_LIGHT_UPDATES_CLIENT : MAX_SCHEDULED_BLOCK_LIGHT_UPDATES_SERVER;
         this.maxSkyLightUpdates = isClientSide ? MAX_SCHEDULED_SKY_LIGHT_UPDATES_CLIENT : MAX_SCHEDULED_SKY_LIGHT_UPDATES_SERVER;
 
-        this.blockLightUpdateQueue = new LongArrayList(maxBlockLightUpdates);
-        this.skyLightUpdateQueue = new LongArrayList(maxSkyLightUpdates);
-
-        this.brighteningQueues = new LongArrayList[LIGHT_VALUE_RANGE];
-        for (var i = 0; i < LIGHT_VALUE_RANGE; i++)
-            this.brighteningQueues[i] = new LongArrayList();
-        this.darkeningQueues = new LongArrayList[LIGHT_VALUE_RANGE];
-        for (var i = 0; i < LIGHT_VALUE_RANGE; i++)
-            this.darkeningQueues[i] = new LongArrayList();
-        this.initialBrighteningQueue = new LongArrayList();
-        this.initialDarkeningQueue = new LongArrayList();
-
-        this.neighbors = new BlockReference[NEIGHBOUR_COUNT];
-        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
-            val neighbor = new BlockReference();
-            neighbor.neighbourBlockSideBitOffset = BLOCK_SIDE_BIT_OFFSET[i];
-            neighbors[i] = neighbor;
+        this.blockLightUpdateQueue = new PhosphorUpdateQueue();
+        this.skyLightUpdateQueue = new PhosphorUpdateQueue();
+
+        this.pendingChunks = new LongOpenHashSet();
+        this.inFlightChunks = new LongOpenHashSet();
+        this.lastPendingChunkPosLong = -1;
+        if (useWorker) {
+            this.lightingProfiler = new Profiler();
+            this.workerPassFinished = lock.newCondition();
+            this.workerBlockLightUpdateQueue = new PhosphorUpdateQueue();
+            this.workerSkyLightUpdateQueue = new PhosphorUpdateQueue();
+            this.worker = new PhosphorLightingWorker(this);
+            worker.start();
+        } else {
+            this.lightingProfiler = profiler;
+            this.workerPassFinished = null;
+            this.workerBlockLightUpdateQueue = null;
+            this.workerSkyLightUpdateQueue = null;
+            this.worker = null;
         }
-        this.areNeighboursBlocksValid = false;
-
-        this.cursor = new BlockReference();
 
-        this.currentLightType = null;
-        this.currentQueue = null;
-        this.currentQueueSize = 0;
-        this.currentQueueIndex = 0;
+        // Other worlds on top of the same root may compute block opacity from state which is not safe to read concurrently
+        val isRootWorld = world == worldRoot;
+        this.useLightPropertyCache = LumiConfig.ENABLE_LIGHT_PROPERTY_CACHE && !useWorker && isRootWorld;
+        this.isTickBudgeted = LumiConfig.LIGHTING_TICK_BUDGET_MICROS > 0 && !useWorker && !isClientSide;
+        this.context = new PhosphorPropagationContext(world, lightingProfiler, metrics, useLightPropertyCache);
+        if (LumiConfig.ENABLE_PARALLEL_LIGHTING_REGIONS && !isClientSide && isRootWorld) {
+            this.regionPartitioner = new PhosphorRegionPartitioner();
+        } else {
+            this.regionPartitioner = null;
+        }
+        this.regionContexts = new ObjectArrayList<>();
+        if (LumiConfig.ENABLE_PARALLEL_LIGHT_TYPES && !isClientSide && isRootWorld) {
+            this.skyLightContext = new PhosphorPropagationContext(world, new Profiler(), metrics, useLightPropertyCache);
+        } else {
+            this.skyLightContext = null;
+        }
+        if (LumiConfig.ENABLE_PARALLEL_CHUNK_INIT && !isClientSide && isRootWorld) {
+            this.pendingChunkInits = new ConcurrentHashMap<>();
+        } else {
+            this.pendingChunkInits = null;
+        }
+        if (LumiConfig.ENABLE_BATCHED_CHUNK_LOADS && !useWorker && !isClientSide) {
+            this.pendingLoadedChunks = new ObjectArrayList<>();
+            this.batchedLoadedChunks = new ObjectArrayList<>();
+            this.batchedChunkPosLongs = new LongOpenHashSet();
+        } else {
+            this.pendingLoadedChunks = null;
+            this.batchedLoadedChunks = null;
+            this.batchedChunkPosLongs = null;
+        }
     }
 
     @Override
@@ -245,6 +375,11 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
         return "phosphor";
     }
 
+    @Override
+    public @NotNull LightingMetrics lightingMetrics() {
+        return metrics;
+    }
+
     // region Data
     @Override
     public void writeChunkToNBT(@NotNull LumiChunk chunk, @NotNull NBTTagCompound output) {
@@ -306,31 +441,30 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
         return getCurrentLightValue(lightType, blockPos.getX(), blockPos.getY(), blockPos.getZ());
     }
 
-    private static final String MARKER = "$LUMI_NO_RELIGHT";
-
-    private static final ThreadLocal<Boolean> THREAD_ALLOWED_TO_RELIGHT = ThreadLocal.withInitial(() -> {
-        val t = Thread.currentThread();
-        val name = t.getName();
-        boolean allow = true;
-        if (name.startsWith(MARKER)) {
-            allow = false;
-            t.setName(name.substring(MARKER.length()));
-        }
-        return allow;
-    });
-
     @Override
     public int getCurrentLightValue(@NotNull LightType lightType, int posX, int posY, int posZ) {
-        if (THREAD_ALLOWED_TO_RELIGHT.get()) {
-            processLightingUpdatesForType(lightType);
+        if (isThreadAllowedToRelight()) {
+            if (worker != null) {
+                awaitWorkerNear(posLongFromPosXYZ(posX, 0, posZ) & BLOCK_POS_CHUNK_BIT_MASK);
+            } else {
+                if (isTickBudgeted)
+                    finishSuspendedLightingAt(posX >> 4, posZ >> 4);
+                processLightingUpdatesNear(lightType, posLongFromPosXYZ(posX, 0, posZ) & BLOCK_POS_CHUNK_BIT_MASK);
+            }
         }
         return clampLightValue(world.lumi$getLightValue(lightType, posX, posY, posZ));
     }
 
     @Override
     public int getCurrentLightValueChunk(@NotNull Chunk chunk, @NotNull LightType lightType, int chunkPosX, int posY, int chunkPosZ) {
-        if (THREAD_ALLOWED_TO_RELIGHT.get()) {
-            processLightingUpdatesForType(lightType);
+        if (isThreadAllowedToRelight()) {
+            if (worker != null) {
+                awaitWorkerNear(posLongFromPosXYZ(chunk.xPosition << 4, 0, chunk.zPosition << 4) & BLOCK_POS_CHUNK_BIT_MASK);
+            } else {
+                if (isTickBudgeted)
+                    finishSuspendedLightingAt(chunk.xPosition, chunk.zPosition);
+                processLightingUpdatesNear(lightType, posLongFromPosXYZ(chunk.xPosition << 4, 0, chunk.zPosition << 4) & BLOCK_POS_CHUNK_BIT_MASK);
+            }
         }
         return clampLightValue(world.lumi$getLightValue(world.lumi$wrap(chunk), lightType, chunkPosX, posY, chunkPosZ));
     }
@@ -340,8 +474,123 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
         return PhosphorUtil.isChunkFullyLit(world, chunk, profiler);
     }
 
+    @Override
+    public @NotNull CompletableFuture<Void> whenChunkLit(int chunkPosX, int chunkPosZ) {
+        return chunkLitFutures.request(chunkPosX, chunkPosZ);
+    }
+
+    @Override
+    public void completeChunkLitFutures() {
+        if (chunkLitFutures.isEmpty())
+            return;
+
+        // Without a budget or a worker, updates are only processed once something reads the light near them
+        scheduleRelightChecksForLoadedChunks();
+        if (!isTickBudgeted && worker == null && bulkEditDepth == 0 && chunkLitFutures.anyWaiting(this::hasUpdatesNear))
+            processLightingUpdatesForAllTypes(CHUNK_LIT_FUTURE);
+        completeLitChunks();
+    }
+
+    @Override
+    public void handleWorldUnload() {
+        chunkLitFutures.cancelAll();
+    }
+
+    /**
+     * Completes the futures of the waiting chunks which are lit now, only done on the owner thread.
+     */
+    private void completeLitChunks() {
+        if (Thread.currentThread() != updateThread || bulkEditDepth > 0)
+            return;
+        chunkLitFutures.completeLitChunks(this::isChunkLit);
+    }
+
+    /**
+     * Initializes the lighting of the chunk and its neighbours where possible, nothing else polls them in the meantime.
+     * <p>
+     * Initializing schedules the updates checked right after, which are processed in a later batch.
+     */
+    private boolean isChunkLit(int chunkPosX, int chunkPosZ) {
+        for (var zOffset = -1; zOffset <= 1; zOffset++) {
+            for (var xOffset = -1; xOffset <= 1; xOffset++) {
+                val chunk = getLoadedChunk(world, chunkPosX + xOffset, chunkPosZ + zOffset);
+                if (chunk == null)
+                    return false;
+                if (!chunk.lumi$isLightingInitialized() && !initChunkLighting(world, chunk, profiler))
+                    return false;
+            }
+        }
+        return !hasUpdatesNear(chunkPosX, chunkPosZ);
+    }
+
+    /**
+     * Checks for updates which may change light within the given chunk.
+     */
+    private boolean hasUpdatesNear(int chunkPosX, int chunkPosZ) {
+        val chunkPosLong = posLongFromPosXYZ(chunkPosX << 4, 0, chunkPosZ << 4) & BLOCK_POS_CHUNK_BIT_MASK;
+        if (blockLightUpdateQueue.hasUpdatesNear(chunkPosLong) || skyLightUpdateQueue.hasUpdatesNear(chunkPosLong))
+            return true;
+        for (var zOffset = -1; zOffset <= 1; zOffset++) {
+            for (var xOffset = -1; xOffset <= 1; xOffset++) {
+                if (context.isSuspendedAt(chunkPosX + xOffset, chunkPosZ + zOffset))
+                    return true;
+            }
+        }
+        return worker != null && hasWorkerUpdatesNear(chunkPosLong);
+    }
+
+    private boolean hasWorkerUpdatesNear(long chunkPosLong) {
+        lock.lock();
+        try {
+            return isWorkerBusyNear(chunkPosLong);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void prepareChunkInit(@NotNull LumiChunk chunk) {
+        if (pendingChunkInits == null || chunk.lumi$isLightingInitialized())
+            return;
+        // The chunk is not published yet, so nothing else reads or writes it until it is loaded
+        pendingChunkInits.put(chunk, lightingRegionPool().submit(() -> initChunkColumns(chunk)));
+    }
+
     @Override
     public void handleChunkInit(@NotNull LumiChunk chunk) {
+        val pendingChunkInit = pendingChunkInits == null ? null : pendingChunkInits.remove(chunk);
+        if (pendingChunkInit != null) {
+            try {
+                pendingChunkInit.join();
+            } catch (RuntimeException e) {
+                LOG.error("Parallel chunk lighting init failed, retrying on the current thread (chunk coordinates: {} {})",
+                          chunk.lumi$chunkPosX(),
+                          chunk.lumi$chunkPosZ(),
+                          e);
+                initLoadedChunkColumns(chunk);
+            }
+        } else {
+            initLoadedChunkColumns(chunk);
+        }
+        chunk.lumi$root().lumi$markDirty();
+    }
+
+    /**
+     * The chunk may already be loaded, and within reach of a worker pass.
+     */
+    private void initLoadedChunkColumns(LumiChunk chunk) {
+        acquireLockForLightWrites(chunk.lumi$chunkPosX(), chunk.lumi$chunkPosZ());
+        try {
+            initChunkColumns(chunk);
+        } finally {
+            releaseLock();
+        }
+    }
+
+    /**
+     * Computes the height map and the initial sky light of every column, only touching the given chunk.
+     */
+    private void initChunkColumns(LumiChunk chunk) {
         chunk.lumi$isLightingInitialized(false);
 
         val hasSky = worldRoot.lumi$hasSky();
@@ -416,7 +665,6 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
         }
 
         chunk.lumi$minSkyLightHeight(minSkyLightHeight);
-        chunkRoot.lumi$markDirty();
     }
 
     @Override
@@ -474,22 +722,61 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
 
         val maxPosY = subChunk.lumi$root().lumi$posY() + 15;
         val lightValue = SKY_LIGHT_TYPE.defaultLightValue();
-        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
-            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
-                if (chunk.lumi$canBlockSeeSky(subChunkPosX, maxPosY, subChunkPosZ)) {
-                    for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
-                        subChunk.lumi$setSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+        acquireLockForLightWrites(chunk.lumi$chunkPosX(), chunk.lumi$chunkPosZ());
+        try {
+            for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+                for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                    if (chunk.lumi$canBlockSeeSky(subChunkPosX, maxPosY, subChunkPosZ)) {
+                        for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
+                            subChunk.lumi$setSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+                        }
                     }
                 }
             }
+        } finally {
+            releaseLock();
         }
+        // The light of subchunks created by block changes is not sent to the watching players otherwise
+        worldRoot.lumi$markSubChunkForRenderUpdate(chunk.lumi$chunkPosX(), maxPosY >> 4, chunk.lumi$chunkPosZ());
         chunk.lumi$root().lumi$markDirty();
     }
 
     @Override
     public void handleChunkLoad(@NotNull LumiChunk chunk) {
-        if (scheduleRelightChecksForChunkBoundaries(world, chunk))
-            processLightingUpdatesForType(SKY_LIGHT_TYPE);
+        if (pendingLoadedChunks != null) {
+            pendingLoadedChunks.add(chunk);
+            return;
+        }
+        // The worker will pick up the scheduled updates on its own
+        if (scheduleRelightChecksForChunkBoundaries(world, chunk) && worker == null)
+            processLightingUpdatesForType(SKY_LIGHT_TYPE, CHUNK_LOAD);
+    }
+
+    @Override
+    public void handleChunkUnload(@NotNull LumiChunk chunk) {
+        // The chunk may be unloaded before its init ever ran, its column walk is not needed anymore then
+        if (pendingChunkInits != null) {
+            val pendingChunkInit = pendingChunkInits.remove(chunk);
+            if (pendingChunkInit != null)
+                pendingChunkInit.cancel(false);
+        }
+
+        // The worker drops its cached chunks after every pass instead, as it may run during the unload
+        if (worker != null)
+            return;
+
+        val chunkPosX = chunk.lumi$chunkPosX();
+        val chunkPosZ = chunk.lumi$chunkPosZ();
+        acquireLock();
+        try {
+            context.invalidateChunk(chunkPosX, chunkPosZ);
+            if (skyLightContext != null)
+                skyLightContext.invalidateChunk(chunkPosX, chunkPosZ);
+            for (var i = 0; i < regionContexts.size(); i++)
+                regionContexts.get(i).invalidateChunk(chunkPosX, chunkPosZ);
+        } finally {
+            releaseLock();
+        }
     }
 
     @Override
@@ -533,7 +820,8 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
                 continue;
 
             try {
-                acquireLock();
+                // Clearing the block light below writes to the chunk directly
+                acquireLockForLightWrites(chunkPosX, chunkPosZ);
                 for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
                     val posY = minPosY + subChunkPosY;
 
@@ -734,536 +1022,630 @@ public final class PhosphorLightingEngine implements LumiLightingEngine {
 
     @Override
     public void processLightingUpdatesForType(@NotNull LightType lightType) {
+        processLightingUpdatesForType(lightType, callerFlushTrigger());
+    }
+
+    private void processLightingUpdatesForType(LightType lightType, FlushTrigger trigger) {
         // We only want to perform updates if we're being called from a tick event on the client
         // There are many locations in the client code which will end up making calls to this method, usually from
         // other threads.
         if (isClientSide && !isCallingFromClientThread())
             return;
 
+        if (worker != null) {
+            awaitWorker();
+            return;
+        }
+        scheduleRelightChecksForLoadedChunks();
+
         // Quickly check if the queue is empty before we acquire a more expensive lock.
         val queue = lightType.isBlock() ? blockLightUpdateQueue : skyLightUpdateQueue;
-        if (queue.isEmpty())
+        if (queue.isEmpty() && !context.isSuspended())
             return;
 
         acquireLock();
+        val queuedUpdates = queue.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
         try {
-            updateLighting(lightType);
+            finishSuspendedLighting();
+            if (!queue.isEmpty())
+                updateLighting(lightType, queue);
             resetBlockReferences();
         } finally {
+            metrics.recordFlush(trigger, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
             releaseLock();
         }
     }
 
     @Override
     public void processLightingUpdatesForAllTypes() {
+        processLightingUpdatesForAllTypes(callerFlushTrigger());
+        completeLitChunks();
+    }
+
+    private void processLightingUpdatesForAllTypes(FlushTrigger trigger) {
         // We only want to perform updates if we're being called from a tick event on the client
         // There are many locations in the client code which will end up making calls to this method, usually from
         // other threads.
         if (isClientSide && !isCallingFromClientThread())
             return;
 
+        if (worker != null) {
+            awaitWorker();
+            return;
+        }
+        scheduleRelightChecksForLoadedChunks();
+
         val hasBlockLightUpdates = !blockLightUpdateQueue.isEmpty();
         val hasSkyLightUpdates = !skyLightUpdateQueue.isEmpty();
 
         // Quickly check if the queue is empty before we acquire a more expensive lock.
-        if (!(hasBlockLightUpdates || hasSkyLightUpdates))
+        if (!(hasBlockLightUpdates || hasSkyLightUpdates || context.isSuspended()))
             return;
 
         acquireLock();
+        val queuedUpdates = blockLightUpdateQueue.size() + skyLightUpdateQueue.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
         try {
-            if (hasBlockLightUpdates)
-                updateLighting(BLOCK_LIGHT_TYPE);
-            if (hasSkyLightUpdates)
-                updateLighting(SKY_LIGHT_TYPE);
+            finishSuspendedLighting();
+            if (hasBlockLightUpdates && hasSkyLightUpdates && skyLightContext != null) {
+                updateLightingForAllTypesInParallel(skyLightContext);
+            } else {
+                if (hasBlockLightUpdates)
+                    updateLighting(BLOCK_LIGHT_TYPE, blockLightUpdateQueue);
+                if (hasSkyLightUpdates)
+                    updateLighting(SKY_LIGHT_TYPE, skyLightUpdateQueue);
+            }
             resetBlockReferences();
         } finally {
+            metrics.recordFlush(trigger, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
             releaseLock();
         }
     }
 
-    private void resetBlockReferences() {
-        cursor.reset();
-        for (var i = 0; i < NEIGHBOUR_COUNT; i++)
-            neighbors[i].reset();
-    }
+    @Override
+    public void processLightingUpdatesWithinBudget(long maxNanos) {
+        // Without a budget, updates are processed lazily when read instead
+        if (!isTickBudgeted)
+            return;
+        scheduleRelightChecksForLoadedChunks();
+        if (blockLightUpdateQueue.isEmpty() && skyLightUpdateQueue.isEmpty() && !context.isSuspended())
+            return;
 
-    private void scheduleLightingUpdate(LightType lightType, long posLong) {
+        val deadlineNanos = System.nanoTime() + maxNanos;
         acquireLock();
+        val queuedUpdates = blockLightUpdateQueue.size() + skyLightUpdateQueue.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
         try {
-            scheduleLightingUpdatePostLock(lightType, posLong);
+            if (context.isSuspended() && !context.resumeLighting(deadlineNanos))
+                return;
+            if (!blockLightUpdateQueue.isEmpty() &&
+                !context.updateLighting(BLOCK_LIGHT_TYPE, blockLightUpdateQueue, deadlineNanos))
+                return;
+            if (!skyLightUpdateQueue.isEmpty())
+                context.updateLighting(SKY_LIGHT_TYPE, skyLightUpdateQueue, deadlineNanos);
         } finally {
+            // Blocks may change before the pass is resumed
+            resetBlockReferences();
+            metrics.recordFlush(TICK_BUDGET, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
             releaseLock();
         }
     }
 
-    public void scheduleLightingUpdatePostLock(@NotNull LightType lightType, int posX, int posY, int posZ) {
-        scheduleLightingUpdatePostLock(lightType, posLongFromPosXYZ(posX, posY, posZ));
-    }
-
-    private void scheduleLightingUpdatePostLock(LightType lightType, long posLong) {
-        final int maxLightUpdates;
-        final LongList queue;
-        if (lightType.isBlock()) {
-            maxLightUpdates = maxBlockLightUpdates;
-            queue = blockLightUpdateQueue;
-        } else {
-            maxLightUpdates = maxSkyLightUpdates;
-            queue = skyLightUpdateQueue;
+    @Override
+    public void beginBulkEdit(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+        if (bulkEditDepth == 0) {
+            bulkEditMinPosX = Integer.MAX_VALUE;
+            bulkEditMinPosY = Integer.MAX_VALUE;
+            bulkEditMinPosZ = Integer.MAX_VALUE;
+            bulkEditMaxPosX = Integer.MIN_VALUE;
+            bulkEditMaxPosY = Integer.MIN_VALUE;
+            bulkEditMaxPosZ = Integer.MIN_VALUE;
         }
+        bulkEditDepth++;
 
-        if (queue.size() >= maxLightUpdates)
-            processLightingUpdatesForType(lightType);
-
-        queue.add(posLong);
-    }
+        minPosY = Math.max(minPosY, MIN_POS_Y);
+        maxPosY = Math.min(maxPosY, MAX_POS_Y);
+        if (maxPosX < minPosX || maxPosY < minPosY || maxPosZ < minPosZ)
+            return;
 
-    @SideOnly(CLIENT)
-    private boolean isCallingFromClientThread() {
-        return Minecraft.getMinecraft().func_152345_ab();
+        minPosX = Math.min(bulkEditMinPosX, minPosX);
+        minPosY = Math.min(bulkEditMinPosY, minPosY);
+        minPosZ = Math.min(bulkEditMinPosZ, minPosZ);
+        maxPosX = Math.max(bulkEditMaxPosX, maxPosX);
+        maxPosY = Math.max(bulkEditMaxPosY, maxPosY);
+        maxPosZ = Math.max(bulkEditMaxPosZ, maxPosZ);
+        val volume = ((long) maxPosX - minPosX + 1L) * ((long) maxPosY - minPosY + 1L) * ((long) maxPosZ - minPosZ + 1L);
+        if (volume > MAX_BULK_EDIT_VOLUME) {
+            LOG.warn("Bulk edit box from [{}, {}, {}] to [{}, {}, {}] exceeds the maximum volume of {} blocks, " +
+                     "blocks changed outside of the current box are relit through regular updates",
+                     minPosX,
+                     minPosY,
+                     minPosZ,
+                     maxPosX,
+                     maxPosY,
+                     maxPosZ,
+                     MAX_BULK_EDIT_VOLUME);
+            return;
+        }
+        bulkEditMinPosX = minPosX;
+        bulkEditMinPosY = minPosY;
+        bulkEditMinPosZ = minPosZ;
+        bulkEditMaxPosX = maxPosX;
+        bulkEditMaxPosY = maxPosY;
+        bulkEditMaxPosZ = maxPosZ;
     }
 
-    private void acquireLock() {
-        if (lock.tryLock())
+    /**
+     * Relights the box in a single pass, together with the updates queued outside of it.
+     * <p>
+     * The light within the box is seeded from its border and from the light sources within it, skipping the queue
+     * and the forced flushes of a full queue for the changed blocks.
+     */
+    @Override
+    public void endBulkEdit() {
+        if (bulkEditDepth == 0) {
+            LOG.error("Bulk edit ended without being started", new IllegalStateException());
+            return;
+        }
+        bulkEditDepth--;
+        if (bulkEditDepth > 0)
+            return;
+        if (bulkEditMaxPosX < bulkEditMinPosX)
             return;
 
-        // If we cannot lock, something has gone wrong... Only one thread should ever acquire the lock.
-        // Validate that we're on the right thread immediately so we can gather information.
-        // It is NEVER valid to call World methods from a thread other than the owning thread of the world instance.
-        // Users can safely disable this warning, however it will not resolve the issue.
-        if (LumiConfig.ENABLE_ILLEGAL_THREAD_ACCESS_WARNINGS) {
-            val currentThread = Thread.currentThread();
-
-            if (currentThread != updateThread) {
-                val e = new IllegalAccessException(String.format("World is owned by '%s' (ID: %s)," +
-                                                                 " but was accessed from thread '%s' (ID: %s)",
-                                                                 updateThread.getName(),
-                                                                 updateThread.getId(),
-                                                                 currentThread.getName(),
-                                                                 currentThread.getId()));
-
-                LOG.error("Something (likely another mod) has attempted to modify the world's state from the wrong thread!\n" +
-                          "This is *bad practice* and can cause severe issues in your game.\n" +
-                          "Phosphor has done as best as it can to mitigate this violation, but it may negatively impact performance or introduce stalls.\n" +
-                          "You should report this issue to our issue tracker with the following stacktrace information.\n" +
-                          "(If you are aware you have misbehaving mods and cannot resolve this issue, you can safely disable this warning by setting" +
-                          " `enable_illegal_thread_access_warnings` to `false` in LUMIS's configuration file for the time being.)", e);
+        if (worker != null)
+            awaitWorker();
+        scheduleRelightChecksForLoadedChunks();
 
+        acquireLock();
+        val queuedUpdates = blockLightUpdateQueue.size() + skyLightUpdateQueue.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
+        try {
+            finishSuspendedLighting();
+            context.updateLightingForBox(BLOCK_LIGHT_TYPE,
+                                         blockLightUpdateQueue,
+                                         bulkEditMinPosX,
+                                         bulkEditMinPosY,
+                                         bulkEditMinPosZ,
+                                         bulkEditMaxPosX,
+                                         bulkEditMaxPosY,
+                                         bulkEditMaxPosZ);
+            if (worldRoot.lumi$hasSky()) {
+                context.updateLightingForBox(SKY_LIGHT_TYPE,
+                                             skyLightUpdateQueue,
+                                             bulkEditMinPosX,
+                                             bulkEditMinPosY,
+                                             bulkEditMinPosZ,
+                                             bulkEditMaxPosX,
+                                             bulkEditMaxPosY,
+                                             bulkEditMaxPosZ);
+            } else if (!skyLightUpdateQueue.isEmpty()) {
+                context.updateLighting(SKY_LIGHT_TYPE, skyLightUpdateQueue);
             }
-
+            resetBlockReferences();
+        } finally {
+            metrics.recordFlush(BULK_EDIT, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
+            releaseLock();
         }
-
-        // Wait for the lock to be released. This will likely introduce unwanted stalls, but will mitigate the issue.
-        lock.lock();
+        completeLitChunks();
     }
 
-    private void releaseLock() {
-        lock.unlock();
+    /**
+     * Updates within the box of a bulk edit are checked once it ends.
+     */
+    private boolean isWithinBulkEdit(long posLong) {
+        if (bulkEditDepth == 0)
+            return false;
+        val posX = (int) ((posLong >> POS_X_BIT_SHIFT & POS_X_BIT_MASK) - (1L << POS_X_BIT_LENGTH - 1L));
+        val posY = (int) (posLong >> POS_Y_BIT_SHIFT & POS_Y_BIT_MASK);
+        val posZ = (int) ((posLong >> POS_Z_BIT_SHIFT & POS_Z_BIT_MASK) - (1L << POS_Z_BIT_LENGTH - 1L));
+        return posX >= bulkEditMinPosX && posX <= bulkEditMaxPosX &&
+               posY >= bulkEditMinPosY && posY <= bulkEditMaxPosY &&
+               posZ >= bulkEditMinPosZ && posZ <= bulkEditMaxPosZ;
     }
 
-    private void updateLighting(LightType lightType) {
-        currentLightType = lightType;
-
-        profiler.startSection("lighting");
+    /**
+     * Only flushes the queue if it may change light within the given chunk, otherwise the stored values are up-to-date.
+     */
+    private void processLightingUpdatesNear(LightType lightType, long chunkPosLong) {
+        scheduleRelightChecksForLoadedChunks();
+        val queue = lightType.isBlock() ? blockLightUpdateQueue : skyLightUpdateQueue;
+        if (queue.hasUpdatesNear(chunkPosLong))
+            processLightingUpdatesForType(lightType, LIGHT_READ);
+    }
 
-        profiler.startSection("checking");
-        processUpdateQueue();
-        processInitialDarkening();
-        processInitialBrightening();
-        profiler.endSection();
+    /**
+     * Schedules the boundary checks of every chunk loaded since the last call, nearby chunks first.
+     * <p>
+     * Each edge shared by two chunks of the batch is only checked once, the second check would find no flags left.
+     */
+    private void scheduleRelightChecksForLoadedChunks() {
+        if (pendingLoadedChunks == null || pendingLoadedChunks.isEmpty())
+            return;
+        assert batchedLoadedChunks != null && batchedChunkPosLongs != null;
 
-        // Iterate through enqueued updates (brightening and darkening in parallel)
-        // from brightest to darkest so that we only need to iterate once
-        for (var queueIndex = MAX_LIGHT_VALUE; queueIndex >= 0; queueIndex--) {
-            profiler.startSection("darkening");
-            processDarkeningQueue(queueIndex);
-            profiler.endStartSection("brightening");
-            processBrighteningQueue(queueIndex);
-            profiler.endSection();
-        }
+        // Taken out first, as scheduling may process the updates and call this again
+        batchedLoadedChunks.addAll(pendingLoadedChunks);
+        pendingLoadedChunks.clear();
+        batchedLoadedChunks.sort(LOADED_CHUNK_ORDER);
 
-        cursor.isValid = false;
-        profiler.endSection();
-    }
-
-    private void processUpdateQueue() {
-        assert currentLightType != null;
-
-        // Process the queued updates and enqueue them for further processing
-        val updateQueue = currentLightType.isBlock() ? blockLightUpdateQueue : skyLightUpdateQueue;
-        setQueue(updateQueue);
-        while (nextItem()) {
-            val cursorUpdatedLightValue = getCursorUpdatedLightValue();
-            if (cursor.lightValue < cursorUpdatedLightValue) {
-                // Don't enqueue directly for brightening in order to avoid duplicate scheduling
-                val newData = ((long) cursorUpdatedLightValue << LIGHT_VALUE_BIT_SHIFT) | cursor.data;
-                initialBrighteningQueue.add(newData);
-            } else if (cursor.lightValue > cursorUpdatedLightValue) {
-                // Don't enqueue directly for darkening in order to avoid duplicate scheduling
-                initialDarkeningQueue.add(cursor.data);
+        acquireLock();
+        try {
+            for (val chunk : batchedLoadedChunks) {
+                val chunkPosX = chunk.lumi$chunkPosX();
+                val chunkPosZ = chunk.lumi$chunkPosZ();
+                // Unloaded again before the batch, or replaced by another chunk
+                if (getLoadedChunk(world, chunkPosX, chunkPosZ) != chunk)
+                    continue;
+                scheduleRelightChecksForChunkBoundaries(world, chunk, batchedChunkPosLongs);
+                batchedChunkPosLongs.add(chunkPosLong(chunkPosX, chunkPosZ));
             }
+        } finally {
+            batchedLoadedChunks.clear();
+            batchedChunkPosLongs.clear();
+            releaseLock();
         }
     }
 
-    private void processInitialDarkening() {
-        setQueue(initialBrighteningQueue);
-        while (nextItem()) {
-            // Sets the light to newLight to only schedule once. Clear leading bits of curData for later
-            val cursorDataLightValue = (int) (cursor.data >> LIGHT_VALUE_BIT_SHIFT & LIGHT_VALUE_BIT_MASK);
-            if (cursorDataLightValue > cursor.lightValue) {
-                val posLong = cursor.data & BLOCK_POS_BIT_MASK;
-                enqueueBrightening(cursor.blockPos, posLong, cursorDataLightValue, cursor.chunk);
-                cursor.setLightValue(cursorDataLightValue);
-            }
-        }
-    }
+    /**
+     * Finishes the suspended pass if it may have touched the given chunk.
+     */
+    private void finishSuspendedLightingAt(int chunkPosX, int chunkPosZ) {
+        if (!context.isSuspendedAt(chunkPosX, chunkPosZ))
+            return;
 
-    private void processInitialBrightening() {
-        setQueue(initialDarkeningQueue);
-        while (nextItem()) {
-            // Sets the light to 0 to only schedule once
-            if (cursor.lightValue != MIN_LIGHT_VALUE) {
-                enqueueDarkening(cursor.blockPos, cursor.data, cursor.lightValue, cursor.chunk);
-                cursor.setLightValue(MIN_LIGHT_VALUE);
-            }
+        acquireLock();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
+        try {
+            finishSuspendedLighting();
+            resetBlockReferences();
+        } finally {
+            // The suspended updates have already been counted by the flush which started the pass
+            metrics.recordFlush(LIGHT_READ, 0, flushStartNanos, flushStartVisitedPositionCount);
+            releaseLock();
         }
     }
 
-    private void processDarkeningQueue(int queueIndex) {
-        setQueue(darkeningQueues[queueIndex]);
-        while (nextItem()) {
-            // Don't darken if we got brighter due to some other change
-            if (cursor.lightValue >= queueIndex)
-                continue;
-
-            // If luminosity is high enough, opacity is irrelevant
-            final int cursorBlockOpacity;
-            if (cursor.brightnessValue >= MAX_LIGHT_VALUE - 1) {
-                cursorBlockOpacity = MIN_BLOCK_LIGHT_OPACITY;
-            } else {
-                cursorBlockOpacity = cursor.opacityValue;
-            }
+    /**
+     * The bucket queues are shared by every pass, so a suspended pass must be finished before starting another one.
+     */
+    private void finishSuspendedLighting() {
+        if (context.isSuspended())
+            context.finishLighting();
+    }
 
-            // Only darken neighbors if we indeed became darker
-            // If we didn't become darker, so we need to re-set our initial light value (was set to 0) and notify neighbors
-            if (getCursorUpdatedLightValue(cursor.brightnessValue, cursorBlockOpacity) >= queueIndex) {
-                // Do not spread to neighbors immediately to avoid scheduling multiple times
-                enqueueBrighteningFromCursor(queueIndex);
-                continue;
-            }
+    /**
+     * Runs a single pass of the lighting worker, taking over all currently queued updates.
+     *
+     * @return {@code false} if there was nothing to process
+     */
+    boolean runWorkerPass() {
+        assert workerBlockLightUpdateQueue != null && workerSkyLightUpdateQueue != null && workerPassFinished != null;
 
-            // Need to calculate new light value from neighbors IGNORING neighbors which are scheduled for darkening
-            var newLightValue = cursor.brightnessValue;
-            updateNeighborBlocks();
-            for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
-                val neighbor = neighbors[i];
-                if (!neighbor.isValid)
-                    continue;
-                if (neighbor.lightValue == MIN_LIGHT_VALUE)
-                    continue;
+        lock.lock();
+        try {
+            if (pendingChunks.isEmpty())
+                return false;
+
+            // The worker queues are always empty between passes
+            blockLightUpdateQueue.swap(workerBlockLightUpdateQueue);
+            skyLightUpdateQueue.swap(workerSkyLightUpdateQueue);
+
+            // The in-flight set is always empty between passes
+            val chunks = inFlightChunks;
+            inFlightChunks = pendingChunks;
+            pendingChunks = chunks;
+            lastPendingChunkPosLong = -1;
+        } finally {
+            lock.unlock();
+        }
+        val queuedUpdates = workerBlockLightUpdateQueue.size() + workerSkyLightUpdateQueue.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
+        try {
+            if (!workerBlockLightUpdateQueue.isEmpty())
+                updateLighting(BLOCK_LIGHT_TYPE, workerBlockLightUpdateQueue);
+            if (!workerSkyLightUpdateQueue.isEmpty())
+                updateLighting(SKY_LIGHT_TYPE, workerSkyLightUpdateQueue);
+        } finally {
+            // Leftovers are only possible if the pass has failed, and retrying it would most likely fail again
+            workerBlockLightUpdateQueue.clear();
+            workerSkyLightUpdateQueue.clear();
+            resetBlockReferences();
+            clearChunkCaches();
+            metrics.recordFlush(WORKER, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
 
-                // If we can't darken the neighbor, no one else can (because of processing order) -> safe to let us be illuminated by it
-                if (queueIndex - neighbor.opacityValue >= neighbor.lightValue) {
-                    // Schedule neighbor for darkening if we possibly light it
-                    enqueueDarkening(neighbor.blockPos, neighbor.data, neighbor.lightValue, neighbor.chunk);
-                } else {
-                    // Only use for new light calculation if not
-                    newLightValue = Math.max(newLightValue, neighbor.lightValue - cursorBlockOpacity);
-                }
+            lock.lock();
+            try {
+                inFlightChunks.clear();
+                workerPassFinished.signalAll();
+            } finally {
+                lock.unlock();
             }
-
-            // Schedule brightening since light level was set to 0
-            enqueueBrighteningFromCursor(newLightValue);
         }
+        return true;
     }
 
-    private void processBrighteningQueue(int queueIndex) {
-        setQueue(brighteningQueues[queueIndex]);
-        while (nextItem()) {
-            // Only process this if nothing else has happened at this position since scheduling
-            if (cursor.lightValue == queueIndex) {
-                worldRoot.lumi$markBlockForRenderUpdate(cursor.posX, cursor.posY, cursor.posZ);
-                if (queueIndex > 1)
-                    spreadLightFromCursor(queueIndex);
+    /**
+     * Blocks until the worker has processed every queued update.
+     */
+    private void awaitWorker() {
+        assert worker != null && workerPassFinished != null;
+
+        lock.lock();
+        try {
+            while (!pendingChunks.isEmpty() || !inFlightChunks.isEmpty()) {
+                worker.wake();
+                workerPassFinished.awaitUninterruptibly();
             }
+        } finally {
+            lock.unlock();
         }
     }
 
-    private void updateNeighborBlocks() {
-        if (areNeighboursBlocksValid)
-            return;
+    /**
+     * Blocks until the worker has processed every queued update which may change light within the given chunk.
+     */
+    private void awaitWorkerNear(long chunkPosLong) {
+        assert worker != null && workerPassFinished != null;
 
-        for (var i = 0; i < NEIGHBOUR_COUNT; i++)
-            neighbors[i].updateNeighbour();
-        areNeighboursBlocksValid = true;
+        lock.lock();
+        try {
+            while (isWorkerBusyNear(chunkPosLong)) {
+                worker.wake();
+                workerPassFinished.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
-    private int getCursorUpdatedLightValue() {
-        val cursorBrightnessValue = cursor.brightnessValue;
-        if (cursorBrightnessValue >= MAX_LIGHT_VALUE)
-            return cursorBrightnessValue;
-
-        final int cursorBlockOpacity;
-        if (cursor.brightnessValue >= (MAX_LIGHT_VALUE - MIN_BLOCK_LIGHT_OPACITY)) {
-            cursorBlockOpacity = MIN_BLOCK_LIGHT_OPACITY;
-        } else {
-            cursorBlockOpacity = cursor.opacityValue;
+    /**
+     * Only checks the updates currently being processed, guarded by {@link #lock}.
+     */
+    private boolean isWorkerInFlightNear(long chunkPosLong) {
+        for (var zOffset = -1; zOffset <= 1; zOffset++) {
+            for (var xOffset = -1; xOffset <= 1; xOffset++) {
+                if (inFlightChunks.contains(chunkPosLong + xOffset * CHUNK_POS_X_STEP + zOffset * CHUNK_POS_Z_STEP))
+                    return true;
+            }
         }
-        return getCursorUpdatedLightValue(cursor.brightnessValue, cursorBlockOpacity);
+        return false;
     }
 
-    private int getCursorUpdatedLightValue(int cursorBlockLightValue, int cursorBlockOpacity) {
-        if (cursorBlockLightValue >= MAX_LIGHT_VALUE - cursorBlockOpacity)
-            return cursorBlockLightValue;
-
-        updateNeighborBlocks();
-        var newCursorLightValue = cursorBlockLightValue;
-        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
-            val neighbor = neighbors[i];
-            if (!neighbor.isValid)
-                continue;
-            val providedLightValue = neighbor.lightValue - cursorBlockOpacity;
-            newCursorLightValue = Math.max(providedLightValue, newCursorLightValue);
+    /**
+     * Light spreads up to 15 blocks, so updates within the neighbouring chunks may change light within the given chunk.
+     * <p>
+     * Guarded by {@link #lock}.
+     */
+    private boolean isWorkerBusyNear(long chunkPosLong) {
+        for (var zOffset = -1; zOffset <= 1; zOffset++) {
+            for (var xOffset = -1; xOffset <= 1; xOffset++) {
+                val neighbourPosLong = chunkPosLong + xOffset * CHUNK_POS_X_STEP + zOffset * CHUNK_POS_Z_STEP;
+                if (pendingChunks.contains(neighbourPosLong) || inFlightChunks.contains(neighbourPosLong))
+                    return true;
+            }
         }
-        return newCursorLightValue;
+        return false;
     }
 
-    private void spreadLightFromCursor(int cursorLightValue) {
-        updateNeighborBlocks();
-
-        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
-            val neighbor = neighbors[i];
-            if (!neighbor.isValid)
-                continue;
+    private void resetBlockReferences() {
+        context.resetBlockReferences();
+    }
 
-            val newLightValue = cursorLightValue - neighbor.opacityValue;
-            if (newLightValue > neighbor.lightValue)
-                enqueueBrightening(neighbor.blockPos, neighbor.data, newLightValue, neighbor.chunk);
-        }
+    private void clearChunkCaches() {
+        context.clearChunkCache();
+        if (skyLightContext != null)
+            skyLightContext.clearChunkCache();
+        for (var i = 0; i < regionContexts.size(); i++)
+            regionContexts.get(i).clearChunkCache();
     }
 
-    private void enqueueBrighteningFromCursor(int lightValue) {
-        if (cursor.isValid) {
-            enqueueBrightening(cursor.blockPos, cursor.data, lightValue, cursor.chunk);
-            cursor.setLightValue(lightValue);
+    private void scheduleLightingUpdate(LightType lightType, long posLong) {
+        acquireLock();
+        try {
+            scheduleLightingUpdatePostLock(lightType, posLong);
+        } finally {
+            releaseLock();
         }
     }
 
-    private void enqueueBrightening(BlockPos blockPos, long posLong, int lightValue, LumiChunk chunk) {
-        assert currentLightType != null;
-
-        val posX = blockPos.getX();
-        val posY = blockPos.getY();
-        val posZ = blockPos.getZ();
-
-        val subChunkPosX = posX & 15;
-        val subChunkPosZ = posZ & 15;
-
-        brighteningQueues[lightValue].add(posLong);
-        chunk.lumi$setLightValue(currentLightType, subChunkPosX, posY, subChunkPosZ, lightValue);
-        chunk.lumi$root().lumi$markDirty();
+    public void scheduleLightingUpdatePostLock(@NotNull LightType lightType, int posX, int posY, int posZ) {
+        scheduleLightingUpdatePostLock(lightType, posLongFromPosXYZ(posX, posY, posZ));
     }
 
-    private void enqueueDarkening(BlockPos blockPos, long posLong, int oldLightValue, LumiChunk chunk) {
-        assert currentLightType != null;
-
-        val posX = blockPos.getX();
-        val posY = blockPos.getY();
-        val posZ = blockPos.getZ();
-
-        val subChunkPosX = posX & 15;
-        val subChunkPosZ = posZ & 15;
+    private void scheduleLightingUpdatePostLock(LightType lightType, long posLong) {
+        if (isWithinBulkEdit(posLong))
+            return;
 
-        darkeningQueues[oldLightValue].add(posLong);
-        chunk.lumi$setLightValue(currentLightType, subChunkPosX, posY, subChunkPosZ, MIN_LIGHT_VALUE);
-        chunk.lumi$root().lumi$markDirty();
-    }
+        final int maxLightUpdates;
+        final PhosphorUpdateQueue queue;
+        if (lightType.isBlock()) {
+            maxLightUpdates = maxBlockLightUpdates;
+            queue = blockLightUpdateQueue;
+        } else {
+            maxLightUpdates = maxSkyLightUpdates;
+            queue = skyLightUpdateQueue;
+        }
 
-    private void setQueue(LongList queue) {
-        currentQueue = queue;
-        currentQueueSize = currentQueue.size();
-        currentQueueIndex = 0;
-    }
+        if (worker != null) {
+            queue.add(posLong);
 
-    private boolean nextItem() {
-        areNeighboursBlocksValid = false;
+            val chunkPosLong = posLong & BLOCK_POS_CHUNK_BIT_MASK;
+            if (chunkPosLong == lastPendingChunkPosLong)
+                return;
+            lastPendingChunkPosLong = chunkPosLong;
 
-        assert currentQueue != null;
-        while (currentQueueIndex < currentQueueSize) {
-            val isValid = cursor.updateCursor(currentQueue.getLong(currentQueueIndex));
-            currentQueueIndex++;
-            if (isValid)
-                return true;
+            val wasIdle = pendingChunks.isEmpty();
+            pendingChunks.add(chunkPosLong);
+            if (wasIdle || queue.size() >= maxLightUpdates)
+                worker.wake();
+            return;
         }
 
-        currentQueue.clear();
-        return false;
-    }
+        // With a tick budget, flushing here would defeat the purpose of the budget
+        if (!isTickBudgeted && queue.size() >= maxLightUpdates)
+            processLightingUpdatesForType(lightType, QUEUE_FULL);
 
-    private static long posLongFromBlockPos(BlockPos blockPos) {
-        return posLongFromPosXYZ(blockPos.getX(), blockPos.getY(), blockPos.getZ());
+        queue.add(posLong);
     }
 
-    // region BlockReference
-    class BlockReference {
-        long neighbourBlockSideBitOffset = 0;
-
-        boolean isValid = false;
-
-        long data = 0;
-        long chunkLongPos = -1;
+    @SideOnly(CLIENT)
+    private boolean isCallingFromClientThread() {
+        return Minecraft.getMinecraft().func_152345_ab();
+    }
 
-        final BlockPos.MutableBlockPos blockPos = new BlockPos.MutableBlockPos();
-        int posX = 0;
-        int posY = 0;
-        int posZ = 0;
+    private void acquireLock() {
+        if (lock.tryLock())
+            return;
 
-        int chunkPosY = -1;
+        // If we cannot lock, something has gone wrong... Only one thread should ever acquire the lock.
+        // Validate that we're on the right thread immediately so we can gather information.
+        // It is NEVER valid to call World methods from a thread other than the owning thread of the world instance.
+        // Users can safely disable this warning, however it will not resolve the issue.
+        if (LumiConfig.ENABLE_ILLEGAL_THREAD_ACCESS_WARNINGS) {
+            val currentThread = Thread.currentThread();
 
-        int subChunkPosX = 0;
-        int subChunkPosY = 0;
-        int subChunkPosZ = 0;
+            if (currentThread != updateThread && (worker == null || !worker.isWorkerThread(currentThread))) {
+                val e = new IllegalAccessException(String.format("World is owned by '%s' (ID: %s)," +
+                                                                 " but was accessed from thread '%s' (ID: %s)",
+                                                                 updateThread.getName(),
+                                                                 updateThread.getId(),
+                                                                 currentThread.getName(),
+                                                                 currentThread.getId()));
 
-        LumiChunk chunk = null;
-        LumiSubChunk subChunk = null;
+                LOG.error("Something (likely another mod) has attempted to modify the world's state from the wrong thread!\n" +
+                          "This is *bad practice* and can cause severe issues in your game.\n" +
+                          "Phosphor has done as best as it can to mitigate this violation, but it may negatively impact performance or introduce stalls.\n" +
+                          "You should report this issue to our issue tracker with the following stacktrace information.\n" +
+                          "(If you are aware you have misbehaving mods and cannot resolve this issue, you can safely disable this warning by setting" +
+                          " `enable_illegal_thread_access_warnings` to `false` in LUMIS's configuration file for the time being.)", e);
 
-        LumiSubChunkRoot subChunkRoot = null;
+            }
 
-        Block block;
-        int blockMeta;
+        }
 
-        int brightnessValue = 0;
-        int opacityValue = 0;
-        int lightValue = 0;
+        // Wait for the lock to be released. This will likely introduce unwanted stalls, but will mitigate the issue.
+        lock.lock();
+    }
 
-        boolean updateCursor(long data) {
-            if (this.isValid && this.data == data)
-                return true;
+    /**
+     * Acquires the lock once no worker pass in flight may write light within the given chunk.
+     * <p>
+     * The worker propagates without holding the lock, and only takes over new updates while holding it,
+     * so the chunk can be written directly until the lock is released.
+     */
+    private void acquireLockForLightWrites(int chunkPosX, int chunkPosZ) {
+        acquireLock();
+        if (worker == null)
+            return;
+        assert workerPassFinished != null;
 
-            this.data = data;
-            updatePos();
-            this.isValid = updateChunk() && updateSubChunk() && updateBlock();
-            return isValid;
-        }
+        val chunkPosLong = posLongFromPosXYZ(chunkPosX << 4, 0, chunkPosZ << 4) & BLOCK_POS_CHUNK_BIT_MASK;
+        while (isWorkerInFlightNear(chunkPosLong))
+            workerPassFinished.awaitUninterruptibly();
+    }
 
-        void prepareNeighbor() {
-            this.chunkLongPos = cursor.chunkLongPos;
-            this.chunkPosY = cursor.chunkPosY;
-            this.subChunkPosX = cursor.subChunkPosX;
-            this.subChunkPosY = cursor.subChunkPosY;
-            this.subChunkPosZ = cursor.subChunkPosZ;
-            this.chunk = cursor.chunk;
-            this.subChunk = cursor.subChunk;
-            this.subChunkRoot = cursor.subChunkRoot;
-        }
+    private void releaseLock() {
+        lock.unlock();
+    }
 
-        void updateNeighbour() {
-            this.data = cursor.data + neighbourBlockSideBitOffset;
-            if ((data & POS_OVERFLOW_CHECK_BIT_MASK) != 0) {
-                this.isValid = false;
+    private void updateLighting(LightType lightType, PhosphorUpdateQueue updateQueue) {
+        if (regionPartitioner != null && updateQueue.size() >= MIN_PARALLEL_REGION_UPDATES) {
+            val regions = regionPartitioner.partition(updateQueue, lightingRegionPool().getParallelism() + 1);
+            if (regions != null) {
+                updateLightingForRegions(lightType, regions);
                 return;
             }
-            prepareNeighbor();
-
-            updatePos();
-            this.isValid = updateChunk() && updateSubChunk() && updateBlock();
         }
+        context.updateLighting(lightType, updateQueue);
+    }
 
-        void updatePos() {
-            this.posX = (int) ((data >> POS_X_BIT_SHIFT & POS_X_BIT_MASK) - (1L << POS_X_BIT_LENGTH - 1L));
-            this.posY = (int) (data >> POS_Y_BIT_SHIFT & POS_Y_BIT_MASK);
-            this.posZ = (int) ((data >> POS_Z_BIT_SHIFT & POS_Z_BIT_MASK) - (1L << POS_Z_BIT_LENGTH - 1L));
-
-            this.blockPos.setPos(posX, posY, posZ);
+    private void updateLightingForRegions(LightType lightType, List<PhosphorUpdateQueue> regions) {
+        val regionCount = regions.size();
+        while (regionContexts.size() < regionCount - 1)
+            regionContexts.add(new PhosphorPropagationContext(world, new Profiler(), metrics, useLightPropertyCache));
+
+        val pool = lightingRegionPool();
+        val tasks = new ForkJoinTask<?>[regionCount - 1];
+        for (var i = 1; i < regionCount; i++) {
+            val regionContext = regionContexts.get(i - 1);
+            val region = regions.get(i);
+            tasks[i - 1] = pool.submit(() -> {
+                try {
+                    regionContext.updateLighting(lightType, region);
+                } finally {
+                    regionContext.resetBlockReferences();
+                }
+            });
         }
 
-        boolean updateChunk() {
-            val chunkPosLong = data & BLOCK_POS_CHUNK_BIT_MASK;
-            if (chunk == null || this.chunkLongPos != chunkPosLong) {
-                val chunkPosX = posX >> 4;
-                val chunkPosZ = posZ >> 4;
-                this.chunk = world.lumi$getChunkFromChunkPosIfExists(chunkPosX, chunkPosZ);
-                if (chunk == null)
-                    return false;
-                this.subChunk = null;
-                this.subChunkRoot = null;
-            }
-
-            this.chunkLongPos = chunkPosLong;
-            return true;
+        // The current thread takes care of the first region instead of idling
+        RuntimeException failure = null;
+        try {
+            context.updateLighting(lightType, regions.get(0));
+        } catch (RuntimeException e) {
+            failure = e;
         }
+        joinAll(tasks, failure);
+    }
 
-        boolean updateSubChunk() {
-            // We can only re-use the subchunk, if we are re-using the chunk itself.
-            val chunkPosY = posY >> 4;
-            if (!(this.chunkPosY == chunkPosY && subChunk != null)) {
-                this.subChunk = chunk.lumi$getSubChunkIfPrepared(chunkPosY);
-                if (subChunk == null)
-                    return false;
-                this.subChunkRoot = subChunk.lumi$root();
+    /**
+     * The two light types are stored in separate nibble arrays and never read each other,
+     * so the sky light pass can run on the pool while the current thread runs the block light pass.
+     * <p>
+     * Chunk lookups only read the loaded chunk map, which is not modified while the current thread is busy.
+     * Render updates are recorded into the light delta tracker, which only locks the chunk being recorded,
+     * so the passes only contend when they change light in the same chunk.
+     */
+    private void updateLightingForAllTypesInParallel(PhosphorPropagationContext skyLightContext) {
+        val skyLightTask = lightingRegionPool().submit(() -> {
+            try {
+                skyLightContext.updateLighting(SKY_LIGHT_TYPE, skyLightUpdateQueue);
+            } finally {
+                skyLightContext.resetBlockReferences();
             }
-            this.chunkPosY = chunkPosY;
+        });
 
-            this.subChunkPosX = posX & 15;
-            this.subChunkPosY = posY & 15;
-            this.subChunkPosZ = posZ & 15;
-            return true;
+        RuntimeException failure = null;
+        try {
+            updateLighting(BLOCK_LIGHT_TYPE, blockLightUpdateQueue);
+        } catch (RuntimeException e) {
+            failure = e;
         }
+        joinAll(new ForkJoinTask<?>[]{skyLightTask}, failure);
+    }
 
-        boolean updateBlock() {
-            this.block = subChunkRoot.lumi$getBlock(subChunkPosX, subChunkPosY, subChunkPosZ);
-            this.blockMeta = subChunkRoot.lumi$getBlockMeta(subChunkPosX, subChunkPosY, subChunkPosZ);
-            if (currentLightType.isBlock()) {
-                this.brightnessValue = clampLightValue(chunk.lumi$getBlockBrightness(block, blockMeta, subChunkPosX, posY, subChunkPosZ));
-                this.lightValue = subChunk.lumi$getBlockLightValue(subChunkPosX, subChunkPosY, subChunkPosZ);
-            } else {
-                if (chunk.lumi$canBlockSeeSky(subChunkPosX, posY, subChunkPosZ)) {
-                    this.brightnessValue = MAX_LIGHT_VALUE;
+    /**
+     * Every task must be finished before returning, even if one of them or the current thread has failed.
+     */
+    private static void joinAll(ForkJoinTask<?>[] tasks, @Nullable RuntimeException failure) {
+        for (val task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
                 } else {
-                    this.brightnessValue = MIN_LIGHT_VALUE;
+                    failure.addSuppressed(e);
                 }
-                this.lightValue = subChunk.lumi$getSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ);
             }
-
-            this.opacityValue = clampBlockLightOpacity(chunk.lumi$getBlockOpacity(block, blockMeta, subChunkPosX, posY, subChunkPosZ));
-            return true;
-        }
-
-        void reset() {
-            isValid = false;
-
-            data = 0;
-            chunkLongPos = -1;
-
-            posX = 0;
-            posY = 0;
-            posZ = 0;
-
-            chunkPosY = -1;
-
-            subChunkPosX = 0;
-            subChunkPosY = 0;
-            subChunkPosZ = 0;
-
-            chunk = null;
-
-            subChunk = null;
-            subChunkRoot = null;
-
-            block = null;
-            blockMeta = 0;
-
-            brightnessValue = 0;
-            opacityValue = 0;
-            lightValue = 0;
         }
+        if (failure != null)
+            throw failure;
+    }
 
-        void setLightValue(int lightValue) {
-            this.lightValue = lightValue;
-        }
+    private static long posLongFromBlockPos(BlockPos blockPos) {
+        return posLongFromPosXYZ(blockPos.getX(), blockPos.getY(), blockPos.getZ());
     }
-    // endregion
 
-    private static long posLongFromPosXYZ(int posX, int posY, int posZ) {
+    static long posLongFromPosXYZ(int posX, int posY, int posZ) {
         // The additional logic is needed as the X and Z may be negative, and this preserves the sign value.
         return ((long) posX + (1L << POS_X_BIT_LENGTH - 1L) << POS_X_BIT_SHIFT) |
                ((long) posY << POS_Y_BIT_SHIFT) |
@@ -0,0 +1,117 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.phosphor;
+
+import lombok.val;
+import lombok.var;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.lighting.LightingThreads.MARKER;
+
+/**
+ * Dedicated lighting thread owned by a single {@link PhosphorLightingEngine}.
+ * <p>
+ * Only holds a weak reference to the engine, so the thread will exit on its own once the world is unloaded.
+ */
+final class PhosphorLightingWorker implements Runnable {
+    private static final Logger LOG = createLogger("Phosphor Worker");
+
+    /**
+     * Maximum time spent parked between checks, also bounds how long the thread outlives its engine.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    /**
+     * Upper bound of the time spent parked after passes which keep failing, doubled from {@link #IDLE_PARK_NANOS}.
+     */
+    private static final long MAX_FAILURE_PARK_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final int PASS_IDLE = 0;
+    private static final int PASS_WORKED = 1;
+    private static final int PASS_ENGINE_COLLECTED = 2;
+
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+
+    private final WeakReference<PhosphorLightingEngine> engine;
+    private final Thread thread;
+
+    PhosphorLightingWorker(PhosphorLightingEngine engine) {
+        this.engine = new WeakReference<>(engine);
+        // The marker prevents light reads from within block callbacks on this thread from recursing into the engine
+        this.thread = new Thread(this, MARKER + "Lumi Lighting Worker #" + WORKER_COUNT.incrementAndGet());
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void wake() {
+        LockSupport.unpark(thread);
+    }
+
+    boolean isWorkerThread(Thread thread) {
+        return this.thread == thread;
+    }
+
+    @Override
+    public void run() {
+        var failureParkNanos = IDLE_PARK_NANOS;
+        while (true) {
+            final int result;
+            try {
+                result = runPass();
+            } catch (Throwable t) {
+                LOG.error("Lighting worker pass failed, retrying in {} ms",
+                          TimeUnit.NANOSECONDS.toMillis(failureParkNanos),
+                          t);
+                // Waking the worker to wait for it still retries right away
+                LockSupport.parkNanos(this, failureParkNanos);
+                failureParkNanos = Math.min(failureParkNanos * 2, MAX_FAILURE_PARK_NANOS);
+                continue;
+            }
+            failureParkNanos = IDLE_PARK_NANOS;
+            if (result == PASS_ENGINE_COLLECTED)
+                return;
+            if (result == PASS_IDLE)
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Kept separate from {@link #run()} so that no strong reference to the engine is held while parked.
+     */
+    private int runPass() {
+        val engine = this.engine.get();
+        if (engine == null)
+            return PASS_ENGINE_COLLECTED;
+        return engine.runWorkerPass() ? PASS_WORKED : PASS_IDLE;
+    }
+}
@@ -0,0 +1,1155 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.phosphor;
+
+import com.falsepattern.lib.compat.BlockPos;
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.chunk.LumiSubChunk;
+import com.falsepattern.lumi.api.chunk.LumiSubChunkRoot;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.api.world.LumiWorldRoot;
+import com.falsepattern.lumi.internal.collection.PosHashSet;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetrics;
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightPropertyCache;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import lombok.val;
+import lombok.var;
+import net.minecraft.block.Block;
+import net.minecraft.profiler.Profiler;
+
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.BRIGHTENING;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.CHECKING;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.DARKENING;
+import static com.falsepattern.lumi.internal.lighting.phosphor.Direction.VALID_DIRECTIONS;
+import static com.falsepattern.lumi.internal.lighting.phosphor.Direction.VALID_DIRECTIONS_SIZE;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightProperties.*;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngine.*;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorUtil.*;
+
+/**
+ * Holds the state of a single light propagation pass: the cursor, its neighbours and the bucket queues.
+ * <p>
+ * Each context may only be used by one thread at a time, but independent contexts may run in parallel
+ * as long as the updates they are given cannot interact with each other.
+ */
+final class PhosphorPropagationContext {
+    private static final Logger LOG = createLogger("Phosphor");
+
+    /**
+     * Bucket size at which duplicate positions start being filtered out, smaller buckets are not worth hashing.
+     */
+    private static final int MIN_DEDUPLICATED_BUCKET_SIZE = 1 << 12;
+
+    /**
+     * Amount of bucket entries processed between deadline checks, must be a power of two.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 1 << 6;
+
+    private static final int NEIGHBOUR_COUNT = VALID_DIRECTIONS_SIZE;
+
+    /**
+     * Slots of the chunk cache, laid out as an 8x8 grid of chunk positions so neighbouring chunks never collide.
+     */
+    private static final int CHUNK_CACHE_SIZE = 64;
+    private static final int CHUNK_CACHE_AXIS_MASK = 7;
+    private static final int CHUNK_CACHE_Z_SHIFT = 3;
+
+    private static final long[] BLOCK_SIDE_BIT_OFFSET;
+    /**
+     * Offset of each neighbour within the nibble arrays, only valid if the neighbour is in the same subchunk.
+     */
+    private static final int[] BLOCK_SIDE_NIBBLE_INDEX_OFFSET;
+
+    static {
+        BLOCK_SIDE_BIT_OFFSET = new long[NEIGHBOUR_COUNT];
+        BLOCK_SIDE_NIBBLE_INDEX_OFFSET = new int[NEIGHBOUR_COUNT];
+        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
+            val direction = VALID_DIRECTIONS[i];
+            BLOCK_SIDE_BIT_OFFSET[i] = ((long) direction.xOffset << POS_X_BIT_SHIFT) |
+                                       ((long) direction.yOffset << POS_Y_BIT_SHIFT) |
+                                       ((long) direction.zOffset << POS_Z_BIT_SHIFT);
+            BLOCK_SIDE_NIBBLE_INDEX_OFFSET[i] = nibbleIndex(direction.xOffset, direction.yOffset, direction.zOffset);
+        }
+    }
+
+    private final LumiWorld world;
+    private final LumiWorldRoot worldRoot;
+    private final Profiler profiler;
+    private final LightingMetrics metrics;
+    /**
+     * Read the block opacity and brightness from the per-subchunk cache, see {@link PhosphorLightProperties}.
+     */
+    private final boolean useLightPropertyCache;
+
+    /**
+     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     */
+    private final LongList[] brighteningQueues;
+    /**
+     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     */
+    private final LongList[] darkeningQueues;
+    /**
+     * Positions currently waiting in the matching bucket, only filled once the bucket has grown large enough.
+     * <p>
+     * A position waiting twice in the same bucket would be processed twice with the exact same result,
+     * so the second entry is dropped instead.
+     */
+    private final PosHashSet[] brighteningDedupSets;
+    private final PosHashSet[] darkeningDedupSets;
+    private long duplicateUpdateCount;
+    private long passInitialDuplicateUpdateCount;
+    /**
+     * Counted locally and added to {@link #metrics} once per phase, see {@link #reportMetrics()}.
+     */
+    private long visitedPositionCount;
+    private long neighbourLookupCount;
+    private long reportedDuplicateUpdateCount;
+    /**
+     * Layout of longs: [newLight(4)] [y(8)] [x(26)] [z(26)]
+     */
+    private final LongList initialBrighteningQueue;
+    /**
+     * Layout of longs: [padding(4)] [y(8)] [x(26)] [z(26)]
+     */
+    private final LongList initialDarkeningQueue;
+
+    private @Nullable LightType currentLightType;
+    private @Nullable LongList currentQueue;
+    private int currentQueueSize;
+    private int currentQueueIndex;
+
+    private boolean hasDeadline;
+    private long deadlineNanos;
+    /**
+     * Set by {@link #nextItem()} when the deadline has passed, the current queue is kept as is to be resumed later.
+     */
+    private boolean isCurrentQueueSuspended;
+    /**
+     * Bucket of the suspended pass to continue from, or {@code -1} if no pass is suspended.
+     */
+    private int suspendedQueueIndex;
+    private boolean isSuspendedInBrightening;
+    /**
+     * Chunks which may hold partially propagated light while a pass is suspended.
+     */
+    private int suspendedMinChunkPosX;
+    private int suspendedMinChunkPosZ;
+    private int suspendedMaxChunkPosX;
+    private int suspendedMaxChunkPosZ;
+
+    /**
+     * Direct-mapped cache of the chunks looked up while propagating, see {@link #getChunk(long, int, int)}.
+     * <p>
+     * Entries are dropped by {@link #invalidateChunk(int, int)} once the chunk unloads,
+     * or all at once by {@link #clearChunkCache()}.
+     */
+    private final long[] cachedChunkPosLongs;
+    private final LumiChunk[] cachedChunks;
+
+    private final BlockReference cursor;
+
+    private final BlockReference[] neighbors;
+    private boolean areNeighboursBlocksValid;
+
+    PhosphorPropagationContext(LumiWorld world,
+                               Profiler profiler,
+                               LightingMetrics metrics,
+                               boolean useLightPropertyCache) {
+        this.world = world;
+        this.worldRoot = world.lumi$root();
+        this.profiler = profiler;
+        this.metrics = metrics;
+        this.useLightPropertyCache = useLightPropertyCache;
+
+        this.brighteningQueues = new LongArrayList[LIGHT_VALUE_RANGE];
+        for (var i = 0; i < LIGHT_VALUE_RANGE; i++)
+            this.brighteningQueues[i] = new LongArrayList();
+        this.darkeningQueues = new LongArrayList[LIGHT_VALUE_RANGE];
+        for (var i = 0; i < LIGHT_VALUE_RANGE; i++)
+            this.darkeningQueues[i] = new LongArrayList();
+        this.brighteningDedupSets = new PosHashSet[LIGHT_VALUE_RANGE];
+        this.darkeningDedupSets = new PosHashSet[LIGHT_VALUE_RANGE];
+        this.duplicateUpdateCount = 0;
+        this.visitedPositionCount = 0;
+        this.neighbourLookupCount = 0;
+        this.reportedDuplicateUpdateCount = 0;
+        this.initialBrighteningQueue = new LongArrayList();
+        this.initialDarkeningQueue = new LongArrayList();
+
+        this.cachedChunkPosLongs = new long[CHUNK_CACHE_SIZE];
+        this.cachedChunks = new LumiChunk[CHUNK_CACHE_SIZE];
+
+        this.neighbors = new BlockReference[NEIGHBOUR_COUNT];
+        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
+            val direction = VALID_DIRECTIONS[i];
+            val neighbor = new BlockReference();
+            neighbor.neighbourBlockSideBitOffset = BLOCK_SIDE_BIT_OFFSET[i];
+            neighbor.neighbourNibbleIndexOffset = BLOCK_SIDE_NIBBLE_INDEX_OFFSET[i];
+            neighbor.neighbourOffsetX = direction.xOffset;
+            neighbor.neighbourOffsetY = direction.yOffset;
+            neighbor.neighbourOffsetZ = direction.zOffset;
+            neighbors[i] = neighbor;
+        }
+        this.areNeighboursBlocksValid = false;
+
+        this.cursor = new BlockReference();
+
+        this.currentLightType = null;
+        this.currentQueue = null;
+        this.currentQueueSize = 0;
+        this.currentQueueIndex = 0;
+
+        this.hasDeadline = false;
+        this.deadlineNanos = 0;
+        this.isCurrentQueueSuspended = false;
+        this.suspendedQueueIndex = -1;
+        this.isSuspendedInBrightening = false;
+    }
+
+    void resetBlockReferences() {
+        cursor.reset();
+        for (var i = 0; i < NEIGHBOUR_COUNT; i++)
+            neighbors[i].reset();
+    }
+
+    /**
+     * Drops the cached chunk at the given position, must be called before the chunk is unloaded.
+     */
+    void invalidateChunk(int chunkPosX, int chunkPosZ) {
+        val slot = chunkCacheSlot(chunkPosX, chunkPosZ);
+        val cachedChunk = cachedChunks[slot];
+        if (cachedChunk == null)
+            return;
+        if (cachedChunk.lumi$chunkPosX() != chunkPosX || cachedChunk.lumi$chunkPosZ() != chunkPosZ)
+            return;
+        cachedChunks[slot] = null;
+        resetBlockReferences();
+    }
+
+    void clearChunkCache() {
+        Arrays.fill(cachedChunks, null);
+        resetBlockReferences();
+    }
+
+    /**
+     * @param chunkPosLong chunk bits of a position, as given by {@link PhosphorLightingEngine#BLOCK_POS_CHUNK_BIT_MASK}
+     *
+     * @return the loaded chunk, or {@code null} if not loaded
+     */
+    private @Nullable LumiChunk getChunk(long chunkPosLong, int chunkPosX, int chunkPosZ) {
+        val slot = chunkCacheSlot(chunkPosX, chunkPosZ);
+        var chunk = cachedChunks[slot];
+        if (chunk != null && cachedChunkPosLongs[slot] == chunkPosLong)
+            return chunk;
+
+        // Missing chunks are not cached, as nothing would invalidate them once they load
+        chunk = world.lumi$getChunkFromChunkPosIfExists(chunkPosX, chunkPosZ);
+        if (chunk != null) {
+            cachedChunkPosLongs[slot] = chunkPosLong;
+            cachedChunks[slot] = chunk;
+        }
+        return chunk;
+    }
+
+    private static int chunkCacheSlot(int chunkPosX, int chunkPosZ) {
+        return (chunkPosX & CHUNK_CACHE_AXIS_MASK) | ((chunkPosZ & CHUNK_CACHE_AXIS_MASK) << CHUNK_CACHE_Z_SHIFT);
+    }
+
+    /**
+     * @return total amount of duplicate bucket entries dropped by this context
+     */
+    long duplicateUpdateCount() {
+        return duplicateUpdateCount;
+    }
+
+    void updateLighting(LightType lightType, PhosphorUpdateQueue updateQueue) {
+        beginLighting(lightType, updateQueue);
+        continueLighting(MAX_LIGHT_VALUE, false);
+    }
+
+    /**
+     * Same as {@link #updateLighting(LightType, PhosphorUpdateQueue)}, but also relights the box between the given
+     * positions from scratch, see {@link #processBox(int, int, int, int, int, int)}.
+     * <p>
+     * The box must be within the height of the world.
+     */
+    void updateLightingForBox(LightType lightType,
+                              PhosphorUpdateQueue updateQueue,
+                              int minPosX,
+                              int minPosY,
+                              int minPosZ,
+                              int maxPosX,
+                              int maxPosY,
+                              int maxPosZ) {
+        beginLighting(lightType, updateQueue, minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+        continueLighting(MAX_LIGHT_VALUE, false);
+    }
+
+    /**
+     * Same as {@link #updateLighting(LightType, PhosphorUpdateQueue)}, but stops propagating once the deadline has passed.
+     * <p>
+     * A stopped pass must be finished with {@link #resumeLighting(long)} or {@link #finishLighting()}
+     * before starting another one.
+     *
+     * @return {@code false} if the pass has been suspended
+     */
+    boolean updateLighting(LightType lightType, PhosphorUpdateQueue updateQueue, long deadlineNanos) {
+        trackSuspendableRegion(updateQueue);
+        beginLighting(lightType, updateQueue);
+        return continueLighting(MAX_LIGHT_VALUE, false, deadlineNanos);
+    }
+
+    /**
+     * @return {@code false} if the pass has been suspended again
+     */
+    boolean resumeLighting(long deadlineNanos) {
+        assert isSuspended();
+        return continueLighting(suspendedQueueIndex, isSuspendedInBrightening, deadlineNanos);
+    }
+
+    void finishLighting() {
+        assert isSuspended();
+        continueLighting(suspendedQueueIndex, isSuspendedInBrightening);
+    }
+
+    boolean isSuspended() {
+        return suspendedQueueIndex != -1;
+    }
+
+    /**
+     * @return {@code true} if the chunk may hold partially propagated light from the suspended pass
+     */
+    boolean isSuspendedAt(int chunkPosX, int chunkPosZ) {
+        return isSuspended() &&
+               chunkPosX >= suspendedMinChunkPosX && chunkPosX <= suspendedMaxChunkPosX &&
+               chunkPosZ >= suspendedMinChunkPosZ && chunkPosZ <= suspendedMaxChunkPosZ;
+    }
+
+    private void beginLighting(LightType lightType, PhosphorUpdateQueue updateQueue) {
+        // Empty box, as the minimum is above the maximum
+        beginLighting(lightType, updateQueue, 0, 0, 0, -1, -1, -1);
+    }
+
+    private void beginLighting(LightType lightType,
+                               PhosphorUpdateQueue updateQueue,
+                               int minPosX,
+                               int minPosY,
+                               int minPosZ,
+                               int maxPosX,
+                               int maxPosY,
+                               int maxPosZ) {
+        assert !isSuspended();
+        currentLightType = lightType;
+        passInitialDuplicateUpdateCount = duplicateUpdateCount;
+
+        val startNanos = System.nanoTime();
+        profiler.startSection("lighting");
+        profiler.startSection("checking");
+        try {
+            // The box goes first, so the queued updates are checked against the cleared light within it
+            processBox(minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+            processUpdateQueue(updateQueue);
+            processInitialDarkening();
+            processInitialBrightening();
+        } finally {
+            profiler.endSection();
+            profiler.endSection();
+            metrics.addPhaseNanos(CHECKING, System.nanoTime() - startNanos);
+            reportMetrics();
+        }
+    }
+
+    private void continueLighting(int startQueueIndex, boolean startInBrightening) {
+        hasDeadline = false;
+        propagateLight(startQueueIndex, startInBrightening);
+    }
+
+    private boolean continueLighting(int startQueueIndex, boolean startInBrightening, long deadlineNanos) {
+        hasDeadline = true;
+        this.deadlineNanos = deadlineNanos;
+        try {
+            return propagateLight(startQueueIndex, startInBrightening);
+        } finally {
+            hasDeadline = false;
+        }
+    }
+
+    private boolean propagateLight(int startQueueIndex, boolean startInBrightening) {
+        assert currentLightType != null;
+
+        var darkeningNanos = 0L;
+        var brighteningNanos = 0L;
+        profiler.startSection("lighting");
+        try {
+            // Iterate through enqueued updates (brightening and darkening in parallel)
+            // from brightest to darkest so that we only need to iterate once
+            for (var queueIndex = startQueueIndex; queueIndex >= 0; queueIndex--) {
+                if (!startInBrightening || queueIndex != startQueueIndex) {
+                    val startNanos = System.nanoTime();
+                    profiler.startSection("darkening");
+                    processDarkeningQueue(queueIndex);
+                    profiler.endSection();
+                    darkeningNanos += System.nanoTime() - startNanos;
+                    if (isCurrentQueueSuspended) {
+                        suspend(queueIndex, false);
+                        return false;
+                    }
+                }
+
+                val startNanos = System.nanoTime();
+                profiler.startSection("brightening");
+                processBrighteningQueue(queueIndex);
+                profiler.endSection();
+                brighteningNanos += System.nanoTime() - startNanos;
+                if (isCurrentQueueSuspended) {
+                    suspend(queueIndex, true);
+                    return false;
+                }
+            }
+        } finally {
+            cursor.isValid = false;
+            profiler.endSection();
+            metrics.addPhaseNanos(DARKENING, darkeningNanos);
+            metrics.addPhaseNanos(BRIGHTENING, brighteningNanos);
+            reportMetrics();
+        }
+
+        suspendedQueueIndex = -1;
+        if (LOG.isDebugEnabled() && duplicateUpdateCount != passInitialDuplicateUpdateCount) {
+            LOG.debug("Dropped {} duplicate {} updates, {} in total",
+                      duplicateUpdateCount - passInitialDuplicateUpdateCount,
+                      currentLightType,
+                      duplicateUpdateCount);
+        }
+        return true;
+    }
+
+    private void reportMetrics() {
+        metrics.addVisitedPositions(visitedPositionCount);
+        metrics.addNeighbourLookups(neighbourLookupCount);
+        metrics.addDuplicateUpdates(duplicateUpdateCount - reportedDuplicateUpdateCount);
+        visitedPositionCount = 0;
+        neighbourLookupCount = 0;
+        reportedDuplicateUpdateCount = duplicateUpdateCount;
+    }
+
+    private void suspend(int queueIndex, boolean inBrightening) {
+        suspendedQueueIndex = queueIndex;
+        isSuspendedInBrightening = inBrightening;
+    }
+
+    /**
+     * Light may spread at most 15 blocks away from each update, so the neighbouring chunks are included as well.
+     */
+    private void trackSuspendableRegion(PhosphorUpdateQueue updateQueue) {
+        var minChunkPosX = Integer.MAX_VALUE;
+        var minChunkPosZ = Integer.MAX_VALUE;
+        var maxChunkPosX = Integer.MIN_VALUE;
+        var maxChunkPosZ = Integer.MIN_VALUE;
+
+        val iterator = updateQueue.bitmaps().keySet().iterator();
+        while (iterator.hasNext()) {
+            val posLong = iterator.nextLong();
+            val chunkPosX = (int) ((posLong >> POS_X_BIT_SHIFT & POS_X_BIT_MASK) - (1L << POS_X_BIT_LENGTH - 1L)) >> 4;
+            val chunkPosZ = (int) ((posLong >> POS_Z_BIT_SHIFT & POS_Z_BIT_MASK) - (1L << POS_Z_BIT_LENGTH - 1L)) >> 4;
+            minChunkPosX = Math.min(minChunkPosX, chunkPosX);
+            minChunkPosZ = Math.min(minChunkPosZ, chunkPosZ);
+            maxChunkPosX = Math.max(maxChunkPosX, chunkPosX);
+            maxChunkPosZ = Math.max(maxChunkPosZ, chunkPosZ);
+        }
+
+        suspendedMinChunkPosX = minChunkPosX - 1;
+        suspendedMinChunkPosZ = minChunkPosZ - 1;
+        suspendedMaxChunkPosX = maxChunkPosX + 1;
+        suspendedMaxChunkPosZ = maxChunkPosZ + 1;
+    }
+
+    private void processUpdateQueue(PhosphorUpdateQueue updateQueue) {
+        assert currentLightType != null;
+
+        // Process the queued updates and enqueue them for further processing
+        updateQueue.beginIteration();
+        for (var posLong = updateQueue.next(); posLong != -1; posLong = updateQueue.next())
+            checkPosition(posLong);
+        updateQueue.clear();
+    }
+
+    /**
+     * Clears the light within the box and seeds it again from the light sources within it and from the light around it,
+     * leaving the interior to the propagation instead of checking the neighbours of every position.
+     * <p>
+     * The light on the faces of the box is darkened rather than cleared, so the light which spread out of the box
+     * is darkened as well. The box is walked one chunk column at a time, skipping the columns of chunks which are not loaded.
+     */
+    private void processBox(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+        val minChunkPosX = minPosX >> 4;
+        val minChunkPosZ = minPosZ >> 4;
+        val maxChunkPosX = maxPosX >> 4;
+        val maxChunkPosZ = maxPosZ >> 4;
+        for (var chunkPosZ = minChunkPosZ; chunkPosZ <= maxChunkPosZ; chunkPosZ++) {
+            for (var chunkPosX = minChunkPosX; chunkPosX <= maxChunkPosX; chunkPosX++) {
+                val chunkPosLong = posLongFromPosXYZ(chunkPosX << 4, 0, chunkPosZ << 4) & BLOCK_POS_CHUNK_BIT_MASK;
+                if (getChunk(chunkPosLong, chunkPosX, chunkPosZ) == null)
+                    continue;
+
+                val columnMinPosX = Math.max(minPosX, chunkPosX << 4);
+                val columnMinPosZ = Math.max(minPosZ, chunkPosZ << 4);
+                val columnMaxPosX = Math.min(maxPosX, (chunkPosX << 4) + 15);
+                val columnMaxPosZ = Math.min(maxPosZ, (chunkPosZ << 4) + 15);
+                for (var posY = minPosY; posY <= maxPosY; posY++) {
+                    val isOnFaceY = posY == minPosY || posY == maxPosY;
+                    for (var posZ = columnMinPosZ; posZ <= columnMaxPosZ; posZ++) {
+                        val isOnFaceYZ = isOnFaceY || posZ == minPosZ || posZ == maxPosZ;
+                        for (var posX = columnMinPosX; posX <= columnMaxPosX; posX++) {
+                            val isOnFace = isOnFaceYZ || posX == minPosX || posX == maxPosX;
+                            resetBoxPosition(posLongFromPosXYZ(posX, posY, posZ), isOnFace);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (var posY = minPosY; posY <= maxPosY; posY++) {
+            for (var posZ = minPosZ; posZ <= maxPosZ; posZ++) {
+                seedFromBoxBorder(minPosX - 1, posY, posZ);
+                seedFromBoxBorder(maxPosX + 1, posY, posZ);
+            }
+            for (var posX = minPosX; posX <= maxPosX; posX++) {
+                seedFromBoxBorder(posX, posY, minPosZ - 1);
+                seedFromBoxBorder(posX, posY, maxPosZ + 1);
+            }
+        }
+        for (var posZ = minPosZ; posZ <= maxPosZ; posZ++) {
+            for (var posX = minPosX; posX <= maxPosX; posX++) {
+                seedFromBoxBorder(posX, minPosY - 1, posZ);
+                seedFromBoxBorder(posX, maxPosY + 1, posZ);
+            }
+        }
+    }
+
+    private void resetBoxPosition(long posLong, boolean isOnFace) {
+        assert currentLightType != null;
+
+        areNeighboursBlocksValid = false;
+        if (!cursor.updateCursor(posLong))
+            return;
+        visitedPositionCount++;
+
+        val cursorBrightnessValue = cursor.brightnessValue;
+        if (cursorBrightnessValue == MAX_LIGHT_VALUE && cursor.lightValue == MAX_LIGHT_VALUE) {
+            // Nothing can be brighter, only spread it if a neighbour may be cleared
+            if (currentLightType.isBlock() || isBesideShadedPosition())
+                enqueueBrighteningFromCursor(MAX_LIGHT_VALUE);
+            return;
+        }
+
+        if (cursor.lightValue > cursorBrightnessValue) {
+            if (isOnFace) {
+                enqueueDarkening(cursor.blockPos, cursor.data, cursor.lightValue, cursor.chunk);
+            } else {
+                cursor.chunk.lumi$setLightValue(currentLightType, cursor.subChunkPosX, cursor.posY, cursor.subChunkPosZ, MIN_LIGHT_VALUE);
+                cursor.chunk.lumi$root().lumi$markDirty();
+                worldRoot.lumi$markBlockForRenderUpdate(cursor.posX, cursor.posY, cursor.posZ);
+            }
+            cursor.setLightValue(MIN_LIGHT_VALUE);
+        }
+        if (cursorBrightnessValue > MIN_LIGHT_VALUE)
+            enqueueBrighteningFromCursor(cursorBrightnessValue);
+    }
+
+    /**
+     * @return {@code true} if the sky light of the position below or beside the cursor is not at the maximum already
+     */
+    private boolean isBesideShadedPosition() {
+        val posX = cursor.posX;
+        val posY = cursor.posY;
+        val posZ = cursor.posZ;
+        if (posY > MIN_POS_Y && !cursor.chunk.lumi$canBlockSeeSky(cursor.subChunkPosX, posY - 1, cursor.subChunkPosZ))
+            return true;
+        return !canBlockSeeSky(posX - 1, posY, posZ) ||
+               !canBlockSeeSky(posX + 1, posY, posZ) ||
+               !canBlockSeeSky(posX, posY, posZ - 1) ||
+               !canBlockSeeSky(posX, posY, posZ + 1);
+    }
+
+    private boolean canBlockSeeSky(int posX, int posY, int posZ) {
+        val chunkPosX = posX >> 4;
+        val chunkPosZ = posZ >> 4;
+        val chunkPosLong = posLongFromPosXYZ(chunkPosX << 4, 0, chunkPosZ << 4) & BLOCK_POS_CHUNK_BIT_MASK;
+        val chunk = getChunk(chunkPosLong, chunkPosX, chunkPosZ);
+        // Light never spreads into chunks which are not loaded
+        return chunk == null || chunk.lumi$canBlockSeeSky(posX & 15, posY, posZ & 15);
+    }
+
+    /**
+     * Spreads the light of a position next to a face of the box into the box again.
+     */
+    private void seedFromBoxBorder(int posX, int posY, int posZ) {
+        if (posY < MIN_POS_Y || posY > MAX_POS_Y)
+            return;
+
+        areNeighboursBlocksValid = false;
+        if (!cursor.updateCursor(posLongFromPosXYZ(posX, posY, posZ)))
+            return;
+        visitedPositionCount++;
+
+        // Light values of 1 don't spread
+        if (cursor.lightValue > MIN_LIGHT_VALUE + 1)
+            enqueueBrighteningFromCursor(cursor.lightValue);
+    }
+
+    private void checkPosition(long posLong) {
+        areNeighboursBlocksValid = false;
+        if (!cursor.updateCursor(posLong))
+            return;
+        visitedPositionCount++;
+
+        val cursorUpdatedLightValue = getCursorUpdatedLightValue();
+        if (cursor.lightValue < cursorUpdatedLightValue) {
+            // Don't enqueue directly for brightening in order to avoid duplicate scheduling
+            val newData = ((long) cursorUpdatedLightValue << LIGHT_VALUE_BIT_SHIFT) | cursor.data;
+            initialBrighteningQueue.add(newData);
+        } else if (cursor.lightValue > cursorUpdatedLightValue) {
+            // Don't enqueue directly for darkening in order to avoid duplicate scheduling
+            initialDarkeningQueue.add(cursor.data);
+        }
+    }
+
+    private void processInitialDarkening() {
+        setQueue(initialBrighteningQueue);
+        while (nextItem()) {
+            // Sets the light to newLight to only schedule once. Clear leading bits of curData for later
+            val cursorDataLightValue = (int) (cursor.data >> LIGHT_VALUE_BIT_SHIFT & LIGHT_VALUE_BIT_MASK);
+            if (cursorDataLightValue > cursor.lightValue) {
+                val posLong = cursor.data & BLOCK_POS_BIT_MASK;
+                enqueueBrightening(cursor.blockPos, posLong, cursorDataLightValue, cursor.chunk);
+                cursor.setLightValue(cursorDataLightValue);
+            }
+        }
+    }
+
+    private void processInitialBrightening() {
+        setQueue(initialDarkeningQueue);
+        while (nextItem()) {
+            // Sets the light to 0 to only schedule once
+            if (cursor.lightValue != MIN_LIGHT_VALUE) {
+                enqueueDarkening(cursor.blockPos, cursor.data, cursor.lightValue, cursor.chunk);
+                cursor.setLightValue(MIN_LIGHT_VALUE);
+            }
+        }
+    }
+
+    private void processDarkeningQueue(int queueIndex) {
+        resumeOrSetQueue(darkeningQueues[queueIndex]);
+        while (nextItem()) {
+            // Don't darken if we got brighter due to some other change
+            if (cursor.lightValue >= queueIndex)
+                continue;
+
+            // If luminosity is high enough, opacity is irrelevant
+            final int cursorBlockOpacity;
+            if (cursor.brightnessValue >= MAX_LIGHT_VALUE - 1) {
+                cursorBlockOpacity = MIN_BLOCK_LIGHT_OPACITY;
+            } else {
+                cursorBlockOpacity = cursor.opacityValue;
+            }
+
+            // Only darken neighbors if we indeed became darker
+            // If we didn't become darker, so we need to re-set our initial light value (was set to 0) and notify neighbors
+            if (getCursorUpdatedLightValue(cursor.brightnessValue, cursorBlockOpacity) >= queueIndex) {
+                // Do not spread to neighbors immediately to avoid scheduling multiple times
+                enqueueBrighteningFromCursor(queueIndex);
+                continue;
+            }
+
+            // Need to calculate new light value from neighbors IGNORING neighbors which are scheduled for darkening
+            var newLightValue = cursor.brightnessValue;
+            updateNeighborBlocks();
+            for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
+                val neighbor = neighbors[i];
+                if (!neighbor.isValid)
+                    continue;
+                if (neighbor.lightValue == MIN_LIGHT_VALUE)
+                    continue;
+
+                // If we can't darken the neighbor, no one else can (because of processing order) -> safe to let us be illuminated by it
+                if (queueIndex - neighbor.opacityValue >= neighbor.lightValue) {
+                    // Schedule neighbor for darkening if we possibly light it
+                    enqueueDarkening(neighbor.blockPos, neighbor.data, neighbor.lightValue, neighbor.chunk);
+                } else {
+                    // Only use for new light calculation if not
+                    newLightValue = Math.max(newLightValue, neighbor.lightValue - cursorBlockOpacity);
+                }
+            }
+
+            // Schedule brightening since light level was set to 0
+            enqueueBrighteningFromCursor(newLightValue);
+        }
+        if (!isCurrentQueueSuspended)
+            resetDedupSet(darkeningDedupSets, queueIndex);
+    }
+
+    private void processBrighteningQueue(int queueIndex) {
+        resumeOrSetQueue(brighteningQueues[queueIndex]);
+        while (nextItem()) {
+            // Only process this if nothing else has happened at this position since scheduling
+            if (cursor.lightValue == queueIndex) {
+                worldRoot.lumi$markBlockForRenderUpdate(cursor.posX, cursor.posY, cursor.posZ);
+                if (queueIndex > 1)
+                    spreadLightFromCursor(queueIndex);
+            }
+        }
+        if (!isCurrentQueueSuspended)
+            resetDedupSet(brighteningDedupSets, queueIndex);
+    }
+
+    private void updateNeighborBlocks() {
+        if (areNeighboursBlocksValid)
+            return;
+
+        neighbourLookupCount += NEIGHBOUR_COUNT;
+        if (cursor.isInterior()) {
+            // All neighbours share the subchunk of the cursor, so the chunk and subchunk lookups can be skipped
+            assert currentLightType != null;
+            val lightArray = currentLightType.isBlock() ? cursor.subChunk.lumi$getBlockLightArray()
+                                                        : cursor.subChunk.lumi$getSkyLightArray();
+            val lightData = lightArray == null ? null : lightArray.data;
+            val cursorNibbleIndex = nibbleIndex(cursor.subChunkPosX, cursor.subChunkPosY, cursor.subChunkPosZ);
+            for (var i = 0; i < NEIGHBOUR_COUNT; i++)
+                neighbors[i].updateInteriorNeighbour(lightData, cursorNibbleIndex);
+        } else {
+            for (var i = 0; i < NEIGHBOUR_COUNT; i++)
+                neighbors[i].updateNeighbour();
+        }
+        areNeighboursBlocksValid = true;
+    }
+
+    private static int nibbleIndex(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return subChunkPosY << 8 | subChunkPosZ << 4 | subChunkPosX;
+    }
+
+    private static int getNibble(byte @Nullable [] data, int nibbleIndex) {
+        if (data == null)
+            return MIN_LIGHT_VALUE;
+        return data[nibbleIndex >> 1] >> ((nibbleIndex & 1) << 2) & 15;
+    }
+
+    private int getCursorUpdatedLightValue() {
+        val cursorBrightnessValue = cursor.brightnessValue;
+        if (cursorBrightnessValue >= MAX_LIGHT_VALUE)
+            return cursorBrightnessValue;
+
+        final int cursorBlockOpacity;
+        if (cursor.brightnessValue >= (MAX_LIGHT_VALUE - MIN_BLOCK_LIGHT_OPACITY)) {
+            cursorBlockOpacity = MIN_BLOCK_LIGHT_OPACITY;
+        } else {
+            cursorBlockOpacity = cursor.opacityValue;
+        }
+        return getCursorUpdatedLightValue(cursor.brightnessValue, cursorBlockOpacity);
+    }
+
+    private int getCursorUpdatedLightValue(int cursorBlockLightValue, int cursorBlockOpacity) {
+        if (cursorBlockLightValue >= MAX_LIGHT_VALUE - cursorBlockOpacity)
+            return cursorBlockLightValue;
+
+        updateNeighborBlocks();
+        var newCursorLightValue = cursorBlockLightValue;
+        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
+            val neighbor = neighbors[i];
+            if (!neighbor.isValid)
+                continue;
+            val providedLightValue = neighbor.lightValue - cursorBlockOpacity;
+            newCursorLightValue = Math.max(providedLightValue, newCursorLightValue);
+        }
+        return newCursorLightValue;
+    }
+
+    private void spreadLightFromCursor(int cursorLightValue) {
+        updateNeighborBlocks();
+
+        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
+            val neighbor = neighbors[i];
+            if (!neighbor.isValid)
+                continue;
+
+            val newLightValue = cursorLightValue - neighbor.opacityValue;
+            if (newLightValue > neighbor.lightValue)
+                enqueueBrightening(neighbor.blockPos, neighbor.data, newLightValue, neighbor.chunk);
+        }
+    }
+
+    private void enqueueBrighteningFromCursor(int lightValue) {
+        if (cursor.isValid) {
+            enqueueBrightening(cursor.blockPos, cursor.data, lightValue, cursor.chunk);
+            cursor.setLightValue(lightValue);
+        }
+    }
+
+    private void enqueueBrightening(BlockPos blockPos, long posLong, int lightValue, LumiChunk chunk) {
+        assert currentLightType != null;
+
+        val posX = blockPos.getX();
+        val posY = blockPos.getY();
+        val posZ = blockPos.getZ();
+
+        val subChunkPosX = posX & 15;
+        val subChunkPosZ = posZ & 15;
+
+        enqueue(brighteningQueues, brighteningDedupSets, lightValue, posLong);
+        chunk.lumi$setLightValue(currentLightType, subChunkPosX, posY, subChunkPosZ, lightValue);
+        chunk.lumi$root().lumi$markDirty();
+    }
+
+    private void enqueueDarkening(BlockPos blockPos, long posLong, int oldLightValue, LumiChunk chunk) {
+        assert currentLightType != null;
+
+        val posX = blockPos.getX();
+        val posY = blockPos.getY();
+        val posZ = blockPos.getZ();
+
+        val subChunkPosX = posX & 15;
+        val subChunkPosZ = posZ & 15;
+
+        enqueue(darkeningQueues, darkeningDedupSets, oldLightValue, posLong);
+        chunk.lumi$setLightValue(currentLightType, subChunkPosX, posY, subChunkPosZ, MIN_LIGHT_VALUE);
+        chunk.lumi$root().lumi$markDirty();
+    }
+
+    private void enqueue(LongList[] queues, PosHashSet[] dedupSets, int queueIndex, long posLong) {
+        val queue = queues[queueIndex];
+        val queueSize = queue.size();
+        if (queueSize < MIN_DEDUPLICATED_BUCKET_SIZE) {
+            queue.add(posLong);
+            return;
+        }
+
+        var dedupSet = dedupSets[queueIndex];
+        if (dedupSet == null) {
+            dedupSet = new PosHashSet(MIN_DEDUPLICATED_BUCKET_SIZE << 1, 0.5F);
+            dedupSets[queueIndex] = dedupSet;
+        }
+        if (dedupSet.isEmpty()) {
+            // Bucket just crossed the threshold, catch up on the entries which bypassed the set
+            for (var i = 0; i < queueSize; i++)
+                dedupSet.add(queue.getLong(i));
+        }
+
+        if (dedupSet.add(posLong)) {
+            queue.add(posLong);
+        } else {
+            duplicateUpdateCount++;
+        }
+    }
+
+    /**
+     * Must be called whenever the matching bucket has been emptied.
+     */
+    private static void resetDedupSet(PosHashSet[] dedupSets, int queueIndex) {
+        val dedupSet = dedupSets[queueIndex];
+        if (dedupSet != null && !dedupSet.isEmpty())
+            dedupSet.resetQuick();
+    }
+
+    private void setQueue(LongList queue) {
+        currentQueue = queue;
+        currentQueueSize = currentQueue.size();
+        currentQueueIndex = 0;
+    }
+
+    private void resumeOrSetQueue(LongList queue) {
+        if (isCurrentQueueSuspended) {
+            assert currentQueue == queue;
+            isCurrentQueueSuspended = false;
+            return;
+        }
+        setQueue(queue);
+    }
+
+    private boolean nextItem() {
+        areNeighboursBlocksValid = false;
+
+        assert currentQueue != null;
+        while (currentQueueIndex < currentQueueSize) {
+            if (hasDeadline && (currentQueueIndex & (DEADLINE_CHECK_INTERVAL - 1)) == 0 &&
+                System.nanoTime() - deadlineNanos >= 0) {
+                isCurrentQueueSuspended = true;
+                return false;
+            }
+            val isValid = cursor.updateCursor(currentQueue.getLong(currentQueueIndex));
+            currentQueueIndex++;
+            if (isValid) {
+                visitedPositionCount++;
+                return true;
+            }
+        }
+
+        currentQueue.clear();
+        return false;
+    }
+
+    // region BlockReference
+    class BlockReference {
+        long neighbourBlockSideBitOffset = 0;
+        int neighbourNibbleIndexOffset = 0;
+        int neighbourOffsetX = 0;
+        int neighbourOffsetY = 0;
+        int neighbourOffsetZ = 0;
+
+        boolean isValid = false;
+
+        long data = 0;
+        long chunkLongPos = -1;
+
+        final BlockPos.MutableBlockPos blockPos = new BlockPos.MutableBlockPos();
+        int posX = 0;
+        int posY = 0;
+        int posZ = 0;
+
+        int chunkPosY = -1;
+
+        int subChunkPosX = 0;
+        int subChunkPosY = 0;
+        int subChunkPosZ = 0;
+
+        LumiChunk chunk = null;
+        LumiSubChunk subChunk = null;
+
+        LumiSubChunkRoot subChunkRoot = null;
+
+        Block block;
+        int blockMeta;
+
+        int brightnessValue = 0;
+        int opacityValue = 0;
+        int lightValue = 0;
+
+        boolean updateCursor(long data) {
+            if (this.isValid && this.data == data)
+                return true;
+
+            this.data = data;
+            updatePos();
+            this.isValid = updateChunk() && updateSubChunk() && updateBlock();
+            return isValid;
+        }
+
+        void prepareNeighbor() {
+            this.chunkLongPos = cursor.chunkLongPos;
+            this.chunkPosY = cursor.chunkPosY;
+            this.subChunkPosX = cursor.subChunkPosX;
+            this.subChunkPosY = cursor.subChunkPosY;
+            this.subChunkPosZ = cursor.subChunkPosZ;
+            this.chunk = cursor.chunk;
+            this.subChunk = cursor.subChunk;
+            this.subChunkRoot = cursor.subChunkRoot;
+        }
+
+        void updateNeighbour() {
+            this.data = cursor.data + neighbourBlockSideBitOffset;
+            if ((data & POS_OVERFLOW_CHECK_BIT_MASK) != 0) {
+                this.isValid = false;
+                return;
+            }
+            prepareNeighbor();
+
+            updatePos();
+            this.isValid = updateChunk() && updateSubChunk() && updateBlock();
+        }
+
+        /**
+         * Fast path of {@link #updateNeighbour()}, only valid if the cursor is {@link #isInterior() interior}.
+         */
+        void updateInteriorNeighbour(byte @Nullable [] lightData, int cursorNibbleIndex) {
+            this.data = cursor.data + neighbourBlockSideBitOffset;
+            prepareNeighbor();
+
+            this.posX = cursor.posX + neighbourOffsetX;
+            this.posY = cursor.posY + neighbourOffsetY;
+            this.posZ = cursor.posZ + neighbourOffsetZ;
+            this.blockPos.setPos(posX, posY, posZ);
+
+            this.subChunkPosX += neighbourOffsetX;
+            this.subChunkPosY += neighbourOffsetY;
+            this.subChunkPosZ += neighbourOffsetZ;
+
+            updateBlockProperties();
+            this.lightValue = getNibble(lightData, cursorNibbleIndex + neighbourNibbleIndexOffset);
+            this.isValid = true;
+        }
+
+        /**
+         * @return {@code true} if all neighbours are within the same subchunk
+         */
+        boolean isInterior() {
+            return subChunkPosX >= 1 && subChunkPosX <= 14 &&
+                   subChunkPosY >= 1 && subChunkPosY <= 14 &&
+                   subChunkPosZ >= 1 && subChunkPosZ <= 14;
+        }
+
+        void updatePos() {
+            this.posX = (int) ((data >> POS_X_BIT_SHIFT & POS_X_BIT_MASK) - (1L << POS_X_BIT_LENGTH - 1L));
+            this.posY = (int) (data >> POS_Y_BIT_SHIFT & POS_Y_BIT_MASK);
+            this.posZ = (int) ((data >> POS_Z_BIT_SHIFT & POS_Z_BIT_MASK) - (1L << POS_Z_BIT_LENGTH - 1L));
+
+            this.blockPos.setPos(posX, posY, posZ);
+        }
+
+        boolean updateChunk() {
+            val chunkPosLong = data & BLOCK_POS_CHUNK_BIT_MASK;
+            if (chunk == null || this.chunkLongPos != chunkPosLong) {
+                val chunkPosX = posX >> 4;
+                val chunkPosZ = posZ >> 4;
+                this.chunk = getChunk(chunkPosLong, chunkPosX, chunkPosZ);
+                if (chunk == null)
+                    return false;
+                this.subChunk = null;
+                this.subChunkRoot = null;
+            }
+
+            this.chunkLongPos = chunkPosLong;
+            return true;
+        }
+
+        boolean updateSubChunk() {
+            // We can only re-use the subchunk, if we are re-using the chunk itself.
+            val chunkPosY = posY >> 4;
+            if (!(this.chunkPosY == chunkPosY && subChunk != null)) {
+                this.subChunk = chunk.lumi$getSubChunkIfPrepared(chunkPosY);
+                if (subChunk == null)
+                    return false;
+                this.subChunkRoot = subChunk.lumi$root();
+            }
+            this.chunkPosY = chunkPosY;
+
+            this.subChunkPosX = posX & 15;
+            this.subChunkPosY = posY & 15;
+            this.subChunkPosZ = posZ & 15;
+            return true;
+        }
+
+        boolean updateBlock() {
+            updateBlockProperties();
+            if (currentLightType.isBlock()) {
+                this.lightValue = subChunk.lumi$getBlockLightValue(subChunkPosX, subChunkPosY, subChunkPosZ);
+            } else {
+                this.lightValue = subChunk.lumi$getSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ);
+            }
+            return true;
+        }
+
+        void updateBlockProperties() {
+            if (useLightPropertyCache && updateBlockPropertiesFromCache())
+                return;
+
+            this.block = subChunkRoot.lumi$getBlock(subChunkPosX, subChunkPosY, subChunkPosZ);
+            this.blockMeta = subChunkRoot.lumi$getBlockMeta(subChunkPosX, subChunkPosY, subChunkPosZ);
+            if (currentLightType.isBlock()) {
+                this.brightnessValue = clampLightValue(chunk.lumi$getBlockBrightness(block, blockMeta, subChunkPosX, posY, subChunkPosZ));
+            } else {
+                if (chunk.lumi$canBlockSeeSky(subChunkPosX, posY, subChunkPosZ)) {
+                    this.brightnessValue = MAX_LIGHT_VALUE;
+                } else {
+                    this.brightnessValue = MIN_LIGHT_VALUE;
+                }
+            }
+
+            this.opacityValue = clampBlockLightOpacity(chunk.lumi$getBlockOpacity(block, blockMeta, subChunkPosX, posY, subChunkPosZ));
+        }
+
+        /**
+         * @return {@code false} if the block can not be cached
+         */
+        boolean updateBlockPropertiesFromCache() {
+            val cache = (LumiLightPropertyCache) subChunkRoot;
+            var lightProperties = cache.lumi$getLightProperties(subChunkPosX, subChunkPosY, subChunkPosZ);
+            if (lightProperties == UNCACHED_LIGHT_PROPERTIES) {
+                this.block = subChunkRoot.lumi$getBlock(subChunkPosX, subChunkPosY, subChunkPosZ);
+                if (!isCacheable(block))
+                    return false;
+                this.blockMeta = subChunkRoot.lumi$getBlockMeta(subChunkPosX, subChunkPosY, subChunkPosZ);
+
+                val blockBrightness = clampLightValue(chunk.lumi$getBlockBrightness(block, blockMeta, subChunkPosX, posY, subChunkPosZ));
+                val blockOpacity = clampBlockLightOpacity(chunk.lumi$getBlockOpacity(block, blockMeta, subChunkPosX, posY, subChunkPosZ));
+                lightProperties = packLightProperties(blockBrightness, blockOpacity);
+                cache.lumi$setLightProperties(subChunkPosX, subChunkPosY, subChunkPosZ, lightProperties);
+            }
+
+            if (currentLightType.isBlock()) {
+                this.brightnessValue = unpackBrightnessValue(lightProperties);
+            } else {
+                if (chunk.lumi$canBlockSeeSky(subChunkPosX, posY, subChunkPosZ)) {
+                    this.brightnessValue = MAX_LIGHT_VALUE;
+                } else {
+                    this.brightnessValue = MIN_LIGHT_VALUE;
+                }
+            }
+            this.opacityValue = unpackOpacityValue(lightProperties);
+            return true;
+        }
+
+        void reset() {
+            isValid = false;
+
+            data = 0;
+            chunkLongPos = -1;
+
+            posX = 0;
+            posY = 0;
+            posZ = 0;
+
+            chunkPosY = -1;
+
+            subChunkPosX = 0;
+            subChunkPosY = 0;
+            subChunkPosZ = 0;
+
+            chunk = null;
+
+            subChunk = null;
+            subChunkRoot = null;
+
+            block = null;
+            blockMeta = 0;
+
+            brightnessValue = 0;
+            opacityValue = 0;
+            lightValue = 0;
+        }
+
+        void setLightValue(int lightValue) {
+            this.lightValue = lightValue;
+        }
+    }
+    // endregion
+}
@@ -0,0 +1,216 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.phosphor;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngine.BLOCK_POS_CHUNK_BIT_MASK;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngine.CHUNK_POS_X_STEP;
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngine.CHUNK_POS_Z_STEP;
+
+/**
+ * Splits scheduled updates into groups of chunks whose light can not interact with each other.
+ * <p>
+ * A single update may change light at most 15 blocks away, and that light is read by neighbours one block further.
+ * Updates in chunks which are at least 3 chunks (33 blocks) apart are therefore independent,
+ * and will never touch the same chunk.
+ */
+final class PhosphorRegionPartitioner {
+    /**
+     * Chunks within this Chebyshev distance of each other end up in the same region.
+     */
+    private static final int REGION_CHUNK_RADIUS = 2;
+
+    /**
+     * Layout of keys: [padding(12)] [x(22)] [padding(4)] [z(22)] [padding(4)]
+     */
+    private final Long2IntOpenHashMap chunkIndices;
+    private final LongArrayList chunkPosLongs;
+    private final ObjectArrayList<PhosphorUpdateQueue> buckets;
+
+    private int[] chunkParents;
+    private int[] chunkRegions;
+    private int[] regionSizes;
+    private int[] regionOrder;
+    private int[] regionBuckets;
+    private int[] bucketSizes;
+
+    PhosphorRegionPartitioner() {
+        this.chunkIndices = new Long2IntOpenHashMap();
+        this.chunkIndices.defaultReturnValue(-1);
+        this.chunkPosLongs = new LongArrayList();
+        this.buckets = new ObjectArrayList<>();
+
+        this.chunkParents = new int[0];
+        this.chunkRegions = new int[0];
+        this.regionSizes = new int[0];
+        this.regionOrder = new int[0];
+        this.regionBuckets = new int[0];
+        this.bucketSizes = new int[0];
+    }
+
+    /**
+     * Splits the updates into independent regions, balanced across at most {@code maxBucketCount} buckets.
+     * <p>
+     * The scheduled subchunks are moved into the returned queues, leaving the given queue empty.
+     * The returned queues are reused by subsequent calls.
+     *
+     * @return {@code null} if all updates belong to a single region, in which case the given queue is left untouched
+     */
+    @Nullable List<PhosphorUpdateQueue> partition(PhosphorUpdateQueue updateQueue, int maxBucketCount) {
+        val chunkCount = indexChunks(updateQueue);
+        if (chunkCount < 2)
+            return null;
+
+        val regionCount = findRegions(chunkCount);
+        if (regionCount < 2)
+            return null;
+
+        val bucketCount = Math.min(regionCount, maxBucketCount);
+        assignBuckets(updateQueue, regionCount, bucketCount);
+        return buckets.subList(0, bucketCount);
+    }
+
+    private int indexChunks(PhosphorUpdateQueue updateQueue) {
+        chunkIndices.clear();
+        chunkPosLongs.clear();
+
+        val iterator = updateQueue.bitmaps().keySet().iterator();
+        while (iterator.hasNext()) {
+            val chunkPosLong = iterator.nextLong() & BLOCK_POS_CHUNK_BIT_MASK;
+            if (chunkIndices.putIfAbsent(chunkPosLong, chunkPosLongs.size()) == -1)
+                chunkPosLongs.add(chunkPosLong);
+        }
+        return chunkPosLongs.size();
+    }
+
+    private int findRegions(int chunkCount) {
+        if (chunkParents.length < chunkCount) {
+            chunkParents = new int[chunkCount];
+            chunkRegions = new int[chunkCount];
+        }
+        for (var i = 0; i < chunkCount; i++)
+            chunkParents[i] = i;
+
+        for (var i = 0; i < chunkCount; i++) {
+            val chunkPosLong = chunkPosLongs.getLong(i);
+            for (var xOffset = -REGION_CHUNK_RADIUS; xOffset <= REGION_CHUNK_RADIUS; xOffset++) {
+                for (var zOffset = -REGION_CHUNK_RADIUS; zOffset <= REGION_CHUNK_RADIUS; zOffset++) {
+                    if (xOffset == 0 && zOffset == 0)
+                        continue;
+                    val neighbourPosLong = chunkPosLong + xOffset * CHUNK_POS_X_STEP + zOffset * CHUNK_POS_Z_STEP;
+                    val neighbourIndex = chunkIndices.get(neighbourPosLong);
+                    if (neighbourIndex != -1)
+                        union(i, neighbourIndex);
+                }
+            }
+        }
+
+        var regionCount = 0;
+        for (var i = 0; i < chunkCount; i++)
+            chunkRegions[i] = -1;
+        for (var i = 0; i < chunkCount; i++) {
+            val root = find(i);
+            if (chunkRegions[root] == -1)
+                chunkRegions[root] = regionCount++;
+            chunkRegions[i] = chunkRegions[root];
+        }
+        return regionCount;
+    }
+
+    private void assignBuckets(PhosphorUpdateQueue updateQueue, int regionCount, int bucketCount) {
+        if (regionSizes.length < regionCount) {
+            regionSizes = new int[regionCount];
+            regionOrder = new int[regionCount];
+            regionBuckets = new int[regionCount];
+        }
+        if (bucketSizes.length < bucketCount)
+            bucketSizes = new int[bucketCount];
+        while (buckets.size() < bucketCount)
+            buckets.add(new PhosphorUpdateQueue());
+
+        for (var i = 0; i < regionCount; i++) {
+            regionSizes[i] = 0;
+            regionOrder[i] = i;
+        }
+        for (var i = 0; i < bucketCount; i++) {
+            bucketSizes[i] = 0;
+            buckets.get(i).clear();
+        }
+
+        val bitmaps = updateQueue.bitmaps();
+        for (val entry : bitmaps.long2ObjectEntrySet())
+            regionSizes[regionOf(entry.getLongKey())] += PhosphorUpdateQueue.bitCount(entry.getValue());
+
+        // Largest regions first, each into the currently smallest bucket
+        val sizes = regionSizes;
+        IntArrays.quickSort(regionOrder, 0, regionCount, (a, b) -> Integer.compare(sizes[b], sizes[a]));
+        for (var i = 0; i < regionCount; i++) {
+            val region = regionOrder[i];
+            var smallestBucket = 0;
+            for (var bucket = 1; bucket < bucketCount; bucket++) {
+                if (bucketSizes[bucket] < bucketSizes[smallestBucket])
+                    smallestBucket = bucket;
+            }
+            regionBuckets[region] = smallestBucket;
+            bucketSizes[smallestBucket] += regionSizes[region];
+        }
+
+        for (val entry : bitmaps.long2ObjectEntrySet()) {
+            val subChunkPosLong = entry.getLongKey();
+            val bitmap = entry.getValue();
+            buckets.get(regionBuckets[regionOf(subChunkPosLong)])
+                   .putBitmap(subChunkPosLong, bitmap, PhosphorUpdateQueue.bitCount(bitmap));
+        }
+        updateQueue.forgetBitmaps();
+    }
+
+    private int regionOf(long posLong) {
+        return chunkRegions[chunkIndices.get(posLong & BLOCK_POS_CHUNK_BIT_MASK)];
+    }
+
+    private int find(int index) {
+        while (chunkParents[index] != index) {
+            chunkParents[index] = chunkParents[chunkParents[index]];
+            index = chunkParents[index];
+        }
+        return index;
+    }
+
+    private void union(int a, int b) {
+        val rootA = find(a);
+        val rootB = find(b);
+        if (rootA != rootB)
+            chunkParents[rootA] = rootB;
+    }
+}
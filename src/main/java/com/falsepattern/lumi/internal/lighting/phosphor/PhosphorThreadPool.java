@@ -0,0 +1,58 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.phosphor;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static com.falsepattern.lumi.internal.lighting.LightingThreads.MARKER;
+
+@UtilityClass
+final class PhosphorThreadPool {
+    /**
+     * Shared between all engines, created on first use.
+     */
+    static ForkJoinPool lightingRegionPool() {
+        return RegionPoolHolder.POOL;
+    }
+
+    private static ForkJoinPool createRegionPool() {
+        // The thread requesting the work always processes one of the regions itself
+        val parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new ForkJoinPool(parallelism, pool -> {
+            val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            // The marker prevents light reads from within block callbacks on this thread from recursing into the engine
+            thread.setName(MARKER + "Lumi Lighting Region Worker #" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    private static final class RegionPoolHolder {
+        private static final ForkJoinPool POOL = createRegionPool();
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.phosphor;
+
+import com.falsepattern.lumi.internal.util.UnsafeUtil;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import lombok.val;
+import lombok.var;
+
+import static com.falsepattern.lumi.internal.lighting.phosphor.PhosphorLightingEngine.*;
+
+/**
+ * Set of scheduled lighting updates, stored as one 4096 bit bitmap per touched subchunk.
+ * <p>
+ * Scheduling the same position multiple times only sets the same bit again, so the size is bounded by the number of
+ * touched subchunks instead of the number of schedule calls. Positions are visited subchunk by subchunk,
+ * in the same order as the nibble arrays store them.
+ */
+final class PhosphorUpdateQueue {
+    /**
+     * Amount of longs needed to hold one bit per block in a subchunk.
+     */
+    static final int BITMAP_LENGTH = (16 * 16 * 16) / Long.SIZE;
+
+    /**
+     * Cleared bitmaps kept around for reuse, anything above this is left to the GC.
+     */
+    private static final int MAX_POOLED_BITMAPS = 1 << 8;
+
+    /**
+     * Layout of keys: [padding(4)] [y(4)] [padding(4)] [x(22)] [padding(4)] [z(22)] [padding(4)]
+     * <p>
+     * Bits within a bitmap are indexed by: [y(4)] [z(4)] [x(4)]
+     */
+    private Long2ObjectOpenHashMap<long[]> bitmaps;
+    /**
+     * Chunks with at least one scheduled subchunk.
+     * <p>
+     * Layout of longs: [padding(12)] [x(22)] [padding(4)] [z(22)] [padding(4)]
+     */
+    private LongOpenHashSet chunkPosLongs;
+    private final ObjectArrayList<long[]> bitmapPool;
+
+    private long lastSubChunkPosLong;
+    private long[] lastBitmap;
+    private int size;
+
+    private ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator;
+    private long iteratorSubChunkPosLong;
+    private long[] iteratorBitmap;
+    private int iteratorWordIndex;
+    private long iteratorWord;
+
+    PhosphorUpdateQueue() {
+        this.bitmaps = new Long2ObjectOpenHashMap<>();
+        this.chunkPosLongs = new LongOpenHashSet();
+        this.bitmapPool = new ObjectArrayList<>();
+
+        this.lastSubChunkPosLong = -1;
+        this.lastBitmap = null;
+        this.size = 0;
+    }
+
+    /**
+     * @return {@code false} if the position was already scheduled
+     */
+    boolean add(long posLong) {
+        val subChunkPosLong = posLong & BLOCK_POS_SUB_CHUNK_BIT_MASK;
+        var bitmap = lastBitmap;
+        if (subChunkPosLong != lastSubChunkPosLong) {
+            bitmap = bitmaps.get(subChunkPosLong);
+            if (bitmap == null) {
+                bitmap = newBitmap();
+                bitmaps.put(subChunkPosLong, bitmap);
+                chunkPosLongs.add(posLong & BLOCK_POS_CHUNK_BIT_MASK);
+            }
+            lastSubChunkPosLong = subChunkPosLong;
+            lastBitmap = bitmap;
+        }
+
+        val index = bitIndexFromPosLong(posLong);
+        val wordIndex = index >>> 6;
+        val bit = 1L << index;
+        val word = bitmap[wordIndex];
+        if ((word & bit) != 0)
+            return false;
+        bitmap[wordIndex] = word | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return the amount of distinct scheduled positions
+     */
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for (val bitmap : bitmaps.values()) {
+            if (bitmapPool.size() >= MAX_POOLED_BITMAPS)
+                break;
+            UnsafeUtil.clearArray(bitmap);
+            bitmapPool.add(bitmap);
+        }
+        bitmaps.clear();
+        chunkPosLongs.clear();
+        forgetLastBitmap();
+        size = 0;
+    }
+
+    /**
+     * @return {@code true} if any updates are scheduled within the chunk or the chunks directly around it
+     */
+    boolean hasUpdatesNear(long chunkPosLong) {
+        if (size == 0)
+            return false;
+        for (var xOffset = -1; xOffset <= 1; xOffset++) {
+            for (var zOffset = -1; zOffset <= 1; zOffset++) {
+                if (chunkPosLongs.contains(chunkPosLong + xOffset * CHUNK_POS_X_STEP + zOffset * CHUNK_POS_Z_STEP))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Swaps the contents of both queues, used to hand over all scheduled updates without copying them.
+     */
+    void swap(PhosphorUpdateQueue other) {
+        val otherBitmaps = other.bitmaps;
+        other.bitmaps = bitmaps;
+        bitmaps = otherBitmaps;
+
+        val otherChunkPosLongs = other.chunkPosLongs;
+        other.chunkPosLongs = chunkPosLongs;
+        chunkPosLongs = otherChunkPosLongs;
+
+        val otherSize = other.size;
+        other.size = size;
+        size = otherSize;
+
+        forgetLastBitmap();
+        other.forgetLastBitmap();
+    }
+
+    /**
+     * Direct view of the bitmaps, keyed by the subchunk pos long.
+     */
+    Long2ObjectMap<long[]> bitmaps() {
+        return bitmaps;
+    }
+
+    /**
+     * Takes ownership of a bitmap removed from another queue.
+     */
+    void putBitmap(long subChunkPosLong, long[] bitmap, int bitCount) {
+        bitmaps.put(subChunkPosLong, bitmap);
+        chunkPosLongs.add(subChunkPosLong & BLOCK_POS_CHUNK_BIT_MASK);
+        size += bitCount;
+    }
+
+    /**
+     * Empties the queue after all of its bitmaps have been given to other queues.
+     */
+    void forgetBitmaps() {
+        bitmaps.clear();
+        chunkPosLongs.clear();
+        forgetLastBitmap();
+        size = 0;
+    }
+
+    void beginIteration() {
+        iterator = bitmaps.long2ObjectEntrySet().fastIterator();
+        iteratorBitmap = null;
+        iteratorWordIndex = BITMAP_LENGTH;
+        iteratorWord = 0;
+    }
+
+    /**
+     * @return the next scheduled pos long, or {@code -1} once every position has been visited
+     */
+    long next() {
+        while (iteratorWord == 0) {
+            if (++iteratorWordIndex >= BITMAP_LENGTH) {
+                if (!iterator.hasNext()) {
+                    iterator = null;
+                    iteratorBitmap = null;
+                    return -1;
+                }
+                val entry = iterator.next();
+                iteratorSubChunkPosLong = entry.getLongKey();
+                iteratorBitmap = entry.getValue();
+                iteratorWordIndex = 0;
+            }
+            iteratorWord = iteratorBitmap[iteratorWordIndex];
+        }
+
+        val bit = Long.numberOfTrailingZeros(iteratorWord);
+        iteratorWord &= iteratorWord - 1;
+        return iteratorSubChunkPosLong | posLongOffsetFromBitIndex((iteratorWordIndex << 6) | bit);
+    }
+
+    static int bitCount(long[] bitmap) {
+        var count = 0;
+        for (var i = 0; i < BITMAP_LENGTH; i++)
+            count += Long.bitCount(bitmap[i]);
+        return count;
+    }
+
+    private long[] newBitmap() {
+        if (bitmapPool.isEmpty())
+            return new long[BITMAP_LENGTH];
+        return bitmapPool.pop();
+    }
+
+    private void forgetLastBitmap() {
+        lastSubChunkPosLong = -1;
+        lastBitmap = null;
+    }
+
+    private static int bitIndexFromPosLong(long posLong) {
+        val subChunkPosX = (int) (posLong >> POS_X_BIT_SHIFT) & 15;
+        val subChunkPosY = (int) (posLong >> POS_Y_BIT_SHIFT) & 15;
+        val subChunkPosZ = (int) (posLong >> POS_Z_BIT_SHIFT) & 15;
+        return subChunkPosY << 8 | subChunkPosZ << 4 | subChunkPosX;
+    }
+
+    private static long posLongOffsetFromBitIndex(int index) {
+        return ((long) (index & 15) << POS_X_BIT_SHIFT) |
+               ((long) (index >> 8) << POS_Y_BIT_SHIFT) |
+               ((long) ((index >> 4) & 15) << POS_Z_BIT_SHIFT);
+    }
+}
@@ -30,6 +30,7 @@ import com.falsepattern.lumi.api.chunk.LumiChunk;
 import com.falsepattern.lumi.api.lighting.LightType;
 import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
 import com.falsepattern.lumi.api.world.LumiWorld;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import lombok.experimental.UtilityClass;
 import lombok.val;
 import lombok.var;
@@ -74,6 +75,16 @@ final class PhosphorUtil {
     }
 
     static boolean scheduleRelightChecksForChunkBoundaries(LumiWorld world, LumiChunk chunk) {
+        return scheduleRelightChecksForChunkBoundaries(world, chunk, null);
+    }
+
+    /**
+     * @param processedChunks chunks whose boundaries have already been processed in the same batch,
+     *                        the edges shared with them are skipped as the checks would find nothing to do
+     */
+    static boolean scheduleRelightChecksForChunkBoundaries(LumiWorld world,
+                                                           LumiChunk chunk,
+                                                           @Nullable LongSet processedChunks) {
         val chunkBasePosX = chunk.lumi$chunkPosX();
         val chunkBasePosZ = chunk.lumi$chunkPosZ();
 
@@ -90,33 +101,42 @@ final class PhosphorUtil {
             if (neighbourChunk == null)
                 continue;
 
+            val isEdgeProcessed = processedChunks != null &&
+                                  processedChunks.contains(chunkPosLong(neighbourChunkPosX, neighbourChunkPosZ));
             for (val lightType : LightType.values()) {
                 for (val directionSign : DirectionSign.values()) { // -1, +1
-                    // Merge flags upon loading of a chunk. This ensures that all flags are always already on the IN boundary below
-                    mergeFlags(lightType, chunk, neighbourChunk, direction, directionSign);
-                    mergeFlags(lightType, neighbourChunk, chunk, direction.opposite(), directionSign);
+                    if (!isEdgeProcessed) {
+                        // Merge flags upon loading of a chunk. This ensures that all flags are always already on the IN boundary below
+                        mergeFlags(lightType, chunk, neighbourChunk, direction, directionSign);
+                        mergeFlags(lightType, neighbourChunk, chunk, direction.opposite(), directionSign);
+                    }
 
                     // Check everything that might have been canceled due to this chunk not being loaded.
                     // Also, pass in chunks if already known
-                    // The boundary to the neighbor chunk (both ways)
-                    scheduledSkyLightUpdates =
-                            scheduleRelightChecksForBoundary(world, chunk, neighbourChunk, null, lightType, xOffset, zOffset, directionSign) ||
-                            scheduleRelightChecksForBoundary(world, neighbourChunk, chunk, null, lightType, -xOffset, -zOffset, directionSign) ||
-                            // The boundary to the diagonal neighbor (since the checks in that chunk were aborted if this chunk wasn't loaded, see scheduleRelightChecksForBoundary)
-                            scheduleRelightChecksForBoundary(world,
-                                                             neighbourChunk,
-                                                             null,
-                                                             chunk,
-                                                             lightType,
-                                                             zOffset != 0 ? directionSign.sign() : 0,
-                                                             xOffset != 0 ? directionSign.sign() : 0,
-                                                             DirectionSign.of(direction.opposite()));
+                    // The boundary to the neighbor chunk (both ways), each direction is checked even if the other one scheduled updates
+                    if (!isEdgeProcessed) {
+                        scheduledSkyLightUpdates |= scheduleRelightChecksForBoundary(world, chunk, neighbourChunk, null, lightType, xOffset, zOffset, directionSign);
+                        scheduledSkyLightUpdates |= scheduleRelightChecksForBoundary(world, neighbourChunk, chunk, null, lightType, -xOffset, -zOffset, directionSign);
+                    }
+                    // The boundary to the diagonal neighbor (since the checks in that chunk were aborted if this chunk wasn't loaded, see scheduleRelightChecksForBoundary)
+                    scheduledSkyLightUpdates |= scheduleRelightChecksForBoundary(world,
+                                                                                 neighbourChunk,
+                                                                                 null,
+                                                                                 chunk,
+                                                                                 lightType,
+                                                                                 zOffset != 0 ? directionSign.sign() : 0,
+                                                                                 xOffset != 0 ? directionSign.sign() : 0,
+                                                                                 DirectionSign.of(direction.opposite()));
                 }
             }
         }
         return scheduledSkyLightUpdates;
     }
 
+    static long chunkPosLong(int chunkPosX, int chunkPosZ) {
+        return ((long) chunkPosX << 32) | (chunkPosZ & 0xFFFFFFFFL);
+    }
+
     static boolean isChunkFullyLit(LumiWorld world, LumiChunk chunk, Profiler profiler) {
         if (!chunk.lumi$isLightingInitialized())
             if (!initChunkLighting(world, chunk, profiler))
@@ -524,7 +544,7 @@ final class PhosphorUtil {
                boundaryFacingBits;
     }
 
-    private static boolean initChunkLighting(LumiWorld world, LumiChunk chunk, Profiler profiler) {
+    static boolean initChunkLighting(LumiWorld world, LumiChunk chunk, Profiler profiler) {
         val chunkPosX = chunk.lumi$chunkPosX();
         val chunkPosZ = chunk.lumi$chunkPosZ();
 
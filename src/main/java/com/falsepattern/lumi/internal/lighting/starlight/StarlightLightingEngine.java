@@ -0,0 +1,631 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.starlight;
+
+import com.falsepattern.lib.compat.BlockPos;
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.chunk.LumiSubChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.api.world.LumiWorldRoot;
+import com.falsepattern.lumi.internal.collection.PosHashSet;
+import com.falsepattern.lumi.internal.config.LumiConfig;
+import com.falsepattern.lumi.internal.lighting.ChunkLitFutures;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetrics;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetricsSource;
+import cpw.mods.fml.relauncher.SideOnly;
+import lombok.val;
+import lombok.var;
+import net.minecraft.client.Minecraft;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.world.chunk.Chunk;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.lighting.LightingThreads.isThreadAllowedToRelight;
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.callerFlushTrigger;
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.*;
+import static com.falsepattern.lumi.internal.lighting.phosphor.DummyLock.getDummyLock;
+import static com.falsepattern.lumi.internal.lighting.starlight.StarlightPropagator.MAX_LIGHT_VALUE;
+import static com.falsepattern.lumi.internal.lighting.starlight.StarlightPropagator.clampLightValue;
+import static com.falsepattern.lumi.internal.lighting.starlight.StarlightPropagator.posLongFromPosXYZ;
+import static cpw.mods.fml.relauncher.Side.CLIENT;
+
+/**
+ * Alternative to the Phosphor engine, selected with {@link LumiConfig#LIGHTING_ENGINE}.
+ * <p>
+ * Scheduled updates are only re-checked and propagated, without tracking boundary checks for unloaded neighbours.
+ * Instead, light is spread across the edges of a chunk whenever it is loaded, and new chunks are lit in bulk
+ * by {@link StarlightPropagator#lightChunk(LumiChunk)} once their neighbours are loaded.
+ */
+public final class StarlightLightingEngine implements LumiLightingEngine, LightingMetricsSource {
+    private static final Logger LOG = createLogger("Starlight");
+
+    /**
+     * Maximum scheduled lighting updates before processing the updates is forced.
+     */
+    private static final int MAX_SCHEDULED_LIGHT_UPDATES_SERVER = 1 << 14;
+    private static final int MAX_SCHEDULED_LIGHT_UPDATES_CLIENT = 1 << 10;
+
+    /**
+     * Version of the lighting stored in the chunks, chunks lit by an older version are lit again when loaded.
+     */
+    private static final int LIGHT_VERSION = 1;
+    private static final String LIGHT_VERSION_NBT_TAG_NAME = "light_version";
+
+    private final Thread updateThread = Thread.currentThread();
+    private final Lock lock;
+
+    private final LumiWorld world;
+    private final LumiWorldRoot worldRoot;
+    private final boolean isClientSide;
+    private final Profiler profiler;
+    private final LightingMetrics metrics;
+
+    private final int maxLightUpdates;
+    private final PosHashSet blockLightUpdates;
+    private final PosHashSet skyLightUpdates;
+
+    private final StarlightPropagator propagator;
+    /**
+     * Guards against blocks reading light values while their light is being propagated.
+     */
+    private boolean isUpdating;
+    /**
+     * Futures waiting for chunks to be lit, checked after processing all updates and once per tick.
+     */
+    private final ChunkLitFutures chunkLitFutures;
+
+    StarlightLightingEngine(LumiWorld world, Profiler profiler) {
+        this.world = world;
+        this.worldRoot = world.lumi$root();
+        this.isClientSide = worldRoot.lumi$isClientSide();
+        this.profiler = profiler;
+        this.metrics = new LightingMetrics();
+        this.lock = LumiConfig.ENABLE_LOCKS ? new ReentrantLock() : getDummyLock();
+
+        this.maxLightUpdates = isClientSide ? MAX_SCHEDULED_LIGHT_UPDATES_CLIENT : MAX_SCHEDULED_LIGHT_UPDATES_SERVER;
+        this.blockLightUpdates = new PosHashSet();
+        this.skyLightUpdates = new PosHashSet();
+
+        this.propagator = new StarlightPropagator(world, metrics);
+        this.chunkLitFutures = new ChunkLitFutures();
+    }
+
+    @Override
+    public @NotNull String lightingEngineID() {
+        return "starlight";
+    }
+
+    @Override
+    public @NotNull LightingMetrics lightingMetrics() {
+        return metrics;
+    }
+
+    // region Data
+    @Override
+    public void writeChunkToNBT(@NotNull LumiChunk chunk, @NotNull NBTTagCompound output) {
+        output.setInteger(LIGHT_VERSION_NBT_TAG_NAME, LIGHT_VERSION);
+    }
+
+    @Override
+    public void readChunkFromNBT(@NotNull LumiChunk chunk, @NotNull NBTTagCompound input) {
+        // Chunks saved by another engine have no version, but the stored light is still valid
+        if (!input.hasKey(LIGHT_VERSION_NBT_TAG_NAME, 3))
+            return;
+
+        val lightVersion = input.getInteger(LIGHT_VERSION_NBT_TAG_NAME);
+        if (lightVersion == LIGHT_VERSION)
+            return;
+
+        LOG.debug("Chunk has outdated light version {}, lighting it again (chunk coordinates: {} {})",
+                  lightVersion,
+                  chunk.lumi$chunkPosX(),
+                  chunk.lumi$chunkPosZ());
+        chunk.lumi$isLightingInitialized(false);
+    }
+
+    @Override
+    public void cloneChunk(@NotNull LumiChunk from, @NotNull LumiChunk to) {
+    }
+
+    @Override
+    public void writeSubChunkToNBT(@NotNull LumiChunk chunk,
+                                   @NotNull LumiSubChunk subChunk,
+                                   @NotNull NBTTagCompound output) {
+    }
+
+    @Override
+    public void readSubChunkFromNBT(@NotNull LumiChunk chunk,
+                                    @NotNull LumiSubChunk subChunk,
+                                    @NotNull NBTTagCompound input) {
+    }
+
+    @Override
+    public void cloneSubChunk(@NotNull LumiChunk fromChunk, @NotNull LumiSubChunk from, @NotNull LumiSubChunk to) {
+    }
+
+    // The light arrays are sent by the subchunks themselves, and the client keeps no state of its own
+    @Override
+    public void writeChunkToPacket(@NotNull LumiChunk chunk,
+                                   @NotNull ByteBuffer output) {
+    }
+
+    @Override
+    public void readChunkFromPacket(@NotNull LumiChunk chunk,
+                                    @NotNull ByteBuffer input) {
+    }
+
+    @Override
+    public void writeSubChunkToPacket(@NotNull LumiChunk chunk,
+                                      @NotNull LumiSubChunk subChunk,
+                                      @NotNull ByteBuffer input) {
+    }
+
+    @Override
+    public void readSubChunkFromPacket(@NotNull LumiChunk chunk,
+                                       @NotNull LumiSubChunk subChunk,
+                                       @NotNull ByteBuffer output) {
+    }
+    // endregion
+
+    @Override
+    public int getCurrentLightValue(@NotNull LightType lightType, @NotNull BlockPos blockPos) {
+        return getCurrentLightValue(lightType, blockPos.getX(), blockPos.getY(), blockPos.getZ());
+    }
+
+    @Override
+    public int getCurrentLightValue(@NotNull LightType lightType, int posX, int posY, int posZ) {
+        if (isThreadAllowedToRelight())
+            processLightingUpdatesForType(lightType, LIGHT_READ);
+        return clampLightValue(world.lumi$getLightValue(lightType, posX, posY, posZ));
+    }
+
+    @Override
+    public int getCurrentLightValueChunk(@NotNull Chunk chunk, @NotNull LightType lightType, int chunkPosX, int posY, int chunkPosZ) {
+        if (isThreadAllowedToRelight())
+            processLightingUpdatesForType(lightType, LIGHT_READ);
+        return clampLightValue(world.lumi$getLightValue(world.lumi$wrap(chunk), lightType, chunkPosX, posY, chunkPosZ));
+    }
+
+    @Override
+    public boolean isChunkFullyLit(@NotNull LumiChunk chunk) {
+        val chunkPosX = chunk.lumi$chunkPosX();
+        val chunkPosZ = chunk.lumi$chunkPosZ();
+        if (!chunk.lumi$isLightingInitialized()) {
+            if (!areNeighboursLoaded(chunkPosX, chunkPosZ))
+                return false;
+
+            if (isUpdating)
+                return false;
+
+            isUpdating = true;
+            profiler.startSection("lightChunk");
+            acquireLock();
+            try {
+                propagator.lightChunk(chunk);
+            } finally {
+                releaseLock();
+                isUpdating = false;
+                profiler.endSection();
+            }
+        }
+
+        for (var offsetZ = -1; offsetZ <= 1; offsetZ++) {
+            for (var offsetX = -1; offsetX <= 1; offsetX++) {
+                if (offsetX == 0 && offsetZ == 0)
+                    continue;
+
+                val neighbourChunk = world.lumi$getChunkFromChunkPosIfExists(chunkPosX + offsetX, chunkPosZ + offsetZ);
+                if (neighbourChunk == null || !neighbourChunk.lumi$isLightingInitialized())
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> whenChunkLit(int chunkPosX, int chunkPosZ) {
+        return chunkLitFutures.request(chunkPosX, chunkPosZ);
+    }
+
+    @Override
+    public void completeChunkLitFutures() {
+        if (chunkLitFutures.isEmpty())
+            return;
+
+        // The updates are not tracked per chunk, so any of them may keep the waiting chunks from being lit
+        if (!(blockLightUpdates.isEmpty() && skyLightUpdates.isEmpty()))
+            processLightingUpdatesForAllTypes(CHUNK_LIT_FUTURE);
+        completeLitChunks();
+    }
+
+    @Override
+    public void handleWorldUnload() {
+        chunkLitFutures.cancelAll();
+    }
+
+    /**
+     * Completes the futures of the waiting chunks which are lit now, only done on the owner thread.
+     */
+    private void completeLitChunks() {
+        if (Thread.currentThread() != updateThread)
+            return;
+        chunkLitFutures.completeLitChunks(this::isChunkLit);
+    }
+
+    /**
+     * Lights the chunk and its neighbours where possible, nothing else polls them in the meantime.
+     */
+    private boolean isChunkLit(int chunkPosX, int chunkPosZ) {
+        for (var offsetZ = -1; offsetZ <= 1; offsetZ++) {
+            for (var offsetX = -1; offsetX <= 1; offsetX++) {
+                val chunk = world.lumi$getChunkFromChunkPosIfExists(chunkPosX + offsetX, chunkPosZ + offsetZ);
+                if (chunk == null)
+                    return false;
+                if (chunk.lumi$isLightingInitialized())
+                    continue;
+                // Lights the chunk if its own neighbours are loaded, propagating fully without scheduling any updates
+                isChunkFullyLit(chunk);
+                if (!chunk.lumi$isLightingInitialized())
+                    return false;
+            }
+        }
+        return blockLightUpdates.isEmpty() && skyLightUpdates.isEmpty();
+    }
+
+    @Override
+    public void handleChunkInit(@NotNull LumiChunk chunk) {
+        // The light itself is only computed once the neighbours are loaded, see isChunkFullyLit
+        chunk.lumi$isLightingInitialized(false);
+        initSkyLightHeightMap(chunk);
+        chunk.lumi$root().lumi$markDirty();
+    }
+
+    @Override
+    @SideOnly(CLIENT)
+    public void handleClientChunkInit(@NotNull LumiChunk chunk) {
+        initSkyLightHeightMap(chunk);
+        chunk.lumi$isLightingInitialized(true);
+    }
+
+    @Override
+    public void handleSubChunkInit(@NotNull LumiChunk chunk, @NotNull LumiSubChunk subChunk) {
+        if (!worldRoot.lumi$hasSky())
+            return;
+
+        val basePosY = subChunk.lumi$root().lumi$posY();
+        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
+                    if (chunk.lumi$canBlockSeeSky(subChunkPosX, basePosY + subChunkPosY, subChunkPosZ))
+                        subChunk.lumi$setSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, MAX_LIGHT_VALUE);
+                }
+            }
+        }
+        // The light of subchunks created by block changes is not sent to the watching players otherwise
+        worldRoot.lumi$markSubChunkForRenderUpdate(chunk.lumi$chunkPosX(), basePosY >> 4, chunk.lumi$chunkPosZ());
+        chunk.lumi$root().lumi$markDirty();
+    }
+
+    @Override
+    public void handleChunkLoad(@NotNull LumiChunk chunk) {
+        // Not lit yet, the edges are pulled in once it is
+        if (!chunk.lumi$isLightingInitialized())
+            return;
+
+        if (isUpdating)
+            return;
+
+        isUpdating = true;
+        acquireLock();
+        try {
+            propagator.propagateChunkEdges(chunk);
+        } finally {
+            releaseLock();
+            isUpdating = false;
+        }
+    }
+
+    @Override
+    public void doRandomChunkLightingUpdates(@NotNull LumiChunk chunk) {
+        // Light is always propagated fully, so there is nothing for random updates to correct
+    }
+
+    @Override
+    public void updateLightingForBlock(@NotNull BlockPos blockPos) {
+        updateLightingForBlock(blockPos.getX(), blockPos.getY(), blockPos.getZ());
+    }
+
+    @Override
+    public void updateLightingForBlock(int posX, int posY, int posZ) {
+        val chunk = world.lumi$getChunkFromChunkPosIfExists(posX >> 4, posZ >> 4);
+        if (chunk == null)
+            return;
+
+        val subChunkPosX = posX & 15;
+        val subChunkPosZ = posZ & 15;
+
+        val oldSkyLightHeight = chunk.lumi$skyLightHeight(subChunkPosX, subChunkPosZ) & 255;
+        var skyLightHeight = Math.max((posY + 1) & 255, oldSkyLightHeight);
+        if (!chunk.lumi$canBlockSeeSky(subChunkPosX, skyLightHeight, subChunkPosZ))
+            return;
+
+        val chunkRoot = chunk.lumi$root();
+        while (skyLightHeight > 0) {
+            val block = chunkRoot.lumi$getBlock(subChunkPosX, skyLightHeight - 1, subChunkPosZ);
+            val blockMeta = chunkRoot.lumi$getBlockMeta(subChunkPosX, skyLightHeight - 1, subChunkPosZ);
+            if (world.lumi$getBlockOpacity(block, blockMeta, posX, skyLightHeight - 1, posZ) != 0)
+                break;
+            skyLightHeight--;
+        }
+
+        if (skyLightHeight == oldSkyLightHeight)
+            return;
+
+        chunk.lumi$skyLightHeight(subChunkPosX, subChunkPosZ, skyLightHeight);
+        if (skyLightHeight < chunk.lumi$minSkyLightHeight())
+            chunk.lumi$minSkyLightHeight(skyLightHeight);
+
+        // Only the blocks which have started or stopped seeing the sky change, the propagation handles the rest
+        if (worldRoot.lumi$hasSky()) {
+            val minPosY = Math.min(skyLightHeight, oldSkyLightHeight);
+            val maxPosY = Math.max(skyLightHeight, oldSkyLightHeight);
+            scheduleLightingUpdateForColumn(SKY_LIGHT_TYPE, posX, posZ, minPosY, maxPosY);
+        }
+
+        chunkRoot.lumi$markDirty();
+    }
+
+    @Override
+    public void scheduleLightingUpdateForRange(@NotNull LightType lightType, @NotNull BlockPos minBlockPos, @NotNull BlockPos maxBlockPos) {
+        scheduleLightingUpdateForRange(lightType,
+                                       minBlockPos.getX(),
+                                       minBlockPos.getY(),
+                                       minBlockPos.getZ(),
+                                       maxBlockPos.getX(),
+                                       maxBlockPos.getY(),
+                                       maxBlockPos.getZ());
+    }
+
+    @Override
+    public void scheduleLightingUpdateForRange(@NotNull LightType lightType,
+                                               int minPosX,
+                                               int minPosY,
+                                               int minPosZ,
+                                               int maxPosX,
+                                               int maxPosY,
+                                               int maxPosZ) {
+        if (maxPosX < minPosX)
+            return;
+        if (maxPosY < minPosY)
+            return;
+        if (maxPosZ < minPosZ)
+            return;
+
+        acquireLock();
+        try {
+            for (var posY = minPosY; posY < maxPosY; posY++) {
+                for (var posZ = minPosZ; posZ < maxPosZ; posZ++) {
+                    for (var posX = minPosX; posX < maxPosX; posX++) {
+                        scheduleLightingUpdatePostLock(lightType, posX, posY, posZ);
+                    }
+                }
+            }
+        } finally {
+            releaseLock();
+        }
+    }
+
+    @Override
+    public void scheduleLightingUpdateForColumn(@NotNull LightType lightType, int posX, int posZ) {
+        scheduleLightingUpdateForColumn(lightType, posX, posZ, 0, 255);
+    }
+
+    @Override
+    public void scheduleLightingUpdateForColumn(@NotNull LightType lightType, int posX, int posZ, int minPosY, int maxPosY) {
+        if (maxPosY < minPosY)
+            return;
+        acquireLock();
+        try {
+            for (var posY = minPosY; posY < maxPosY; posY++)
+                scheduleLightingUpdatePostLock(lightType, posX, posY, posZ);
+        } finally {
+            releaseLock();
+        }
+    }
+
+    @Override
+    public void scheduleLightingUpdate(@NotNull LightType lightType, @NotNull BlockPos blockPos) {
+        scheduleLightingUpdate(lightType, blockPos.getX(), blockPos.getY(), blockPos.getZ());
+    }
+
+    @Override
+    public void scheduleLightingUpdate(@NotNull LightType lightType, int posX, int posY, int posZ) {
+        acquireLock();
+        try {
+            scheduleLightingUpdatePostLock(lightType, posX, posY, posZ);
+        } finally {
+            releaseLock();
+        }
+    }
+
+    @Override
+    public void processLightingUpdatesForType(@NotNull LightType lightType) {
+        processLightingUpdatesForType(lightType, callerFlushTrigger());
+    }
+
+    private void processLightingUpdatesForType(LightType lightType, FlushTrigger trigger) {
+        // We only want to perform updates if we're being called from a tick event on the client
+        if (isClientSide && !isCallingFromClientThread())
+            return;
+
+        // Quickly check if the queue is empty before we acquire a more expensive lock.
+        val updates = lightType.isBlock() ? blockLightUpdates : skyLightUpdates;
+        if (updates.isEmpty())
+            return;
+
+        acquireLock();
+        val queuedUpdates = updates.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
+        try {
+            updateLighting(lightType, updates);
+        } finally {
+            metrics.recordFlush(trigger, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
+            releaseLock();
+        }
+    }
+
+    @Override
+    public void processLightingUpdatesForAllTypes() {
+        processLightingUpdatesForAllTypes(callerFlushTrigger());
+        completeLitChunks();
+    }
+
+    private void processLightingUpdatesForAllTypes(FlushTrigger trigger) {
+        if (isClientSide && !isCallingFromClientThread())
+            return;
+
+        if (blockLightUpdates.isEmpty() && skyLightUpdates.isEmpty())
+            return;
+
+        acquireLock();
+        val queuedUpdates = blockLightUpdates.size() + skyLightUpdates.size();
+        val flushStartNanos = System.nanoTime();
+        val flushStartVisitedPositionCount = metrics.getVisitedPositionCount();
+        try {
+            updateLighting(BLOCK_LIGHT_TYPE, blockLightUpdates);
+            updateLighting(SKY_LIGHT_TYPE, skyLightUpdates);
+        } finally {
+            metrics.recordFlush(trigger, queuedUpdates, flushStartNanos, flushStartVisitedPositionCount);
+            releaseLock();
+        }
+    }
+
+    private void updateLighting(LightType lightType, PosHashSet updates) {
+        if (updates.isEmpty() || isUpdating)
+            return;
+
+        isUpdating = true;
+        profiler.startSection("lighting");
+        try {
+            propagator.checkBlocks(lightType, updates);
+        } finally {
+            updates.resetQuick();
+            isUpdating = false;
+            profiler.endSection();
+        }
+    }
+
+    private void scheduleLightingUpdatePostLock(LightType lightType, int posX, int posY, int posZ) {
+        if (lightType.isSky() && !worldRoot.lumi$hasSky())
+            return;
+
+        val updates = lightType.isBlock() ? blockLightUpdates : skyLightUpdates;
+        if (updates.size() >= maxLightUpdates)
+            processLightingUpdatesForType(lightType, QUEUE_FULL);
+        updates.add(posLongFromPosXYZ(posX, posY, posZ));
+    }
+
+    private boolean areNeighboursLoaded(int chunkPosX, int chunkPosZ) {
+        for (var offsetZ = -1; offsetZ <= 1; offsetZ++) {
+            for (var offsetX = -1; offsetX <= 1; offsetX++) {
+                if (world.lumi$getChunkFromChunkPosIfExists(chunkPosX + offsetX, chunkPosZ + offsetZ) == null)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static void initSkyLightHeightMap(LumiChunk chunk) {
+        val chunkRoot = chunk.lumi$root();
+        val maxPosY = chunkRoot.lumi$topPreparedSubChunkBasePosY() + 16;
+
+        var minSkyLightHeight = Integer.MAX_VALUE;
+        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                var skyLightHeight = maxPosY;
+                while (skyLightHeight > 0) {
+                    val posY = skyLightHeight - 1;
+                    val block = chunkRoot.lumi$getBlock(subChunkPosX, posY, subChunkPosZ);
+                    if (block != Blocks.air) {
+                        val blockMeta = chunkRoot.lumi$getBlockMeta(subChunkPosX, posY, subChunkPosZ);
+                        if (chunk.lumi$getBlockOpacity(block, blockMeta, subChunkPosX, posY, subChunkPosZ) > 0)
+                            break;
+                    }
+                    skyLightHeight--;
+                }
+                chunk.lumi$skyLightHeight(subChunkPosX, subChunkPosZ, skyLightHeight);
+                minSkyLightHeight = Math.min(minSkyLightHeight, skyLightHeight);
+            }
+        }
+        chunk.lumi$minSkyLightHeight(minSkyLightHeight);
+    }
+
+    @SideOnly(CLIENT)
+    private boolean isCallingFromClientThread() {
+        return Minecraft.getMinecraft().func_152345_ab();
+    }
+
+    private void acquireLock() {
+        if (lock.tryLock())
+            return;
+
+        if (LumiConfig.ENABLE_ILLEGAL_THREAD_ACCESS_WARNINGS) {
+            val currentThread = Thread.currentThread();
+            if (currentThread != updateThread) {
+                val e = new IllegalAccessException(String.format("World is owned by '%s' (ID: %s)," +
+                                                                 " but was accessed from thread '%s' (ID: %s)",
+                                                                 updateThread.getName(),
+                                                                 updateThread.getId(),
+                                                                 currentThread.getName(),
+                                                                 currentThread.getId()));
+                LOG.error("Something (likely another mod) has attempted to modify the world's state from the wrong thread!\n" +
+                          "You can disable this warning by setting `enable_illegal_thread_access_warnings` to `false`" +
+                          " in LUMI's configuration file.", e);
+            }
+        }
+
+        // Wait for the lock to be released. This will likely introduce unwanted stalls, but will mitigate the issue.
+        lock.lock();
+    }
+
+    private void releaseLock() {
+        lock.unlock();
+    }
+}
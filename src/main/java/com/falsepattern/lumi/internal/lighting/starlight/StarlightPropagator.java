@@ -0,0 +1,593 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.starlight;
+
+import com.falsepattern.lib.util.MathUtil;
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.api.world.LumiWorldRoot;
+import com.falsepattern.lumi.internal.collection.PosHashSet;
+import com.falsepattern.lumi.internal.lighting.metrics.LightingMetrics;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.BRIGHTENING;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.CHECKING;
+import static com.falsepattern.lumi.internal.lighting.metrics.LightingPhase.DARKENING;
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.isUniformNibbleArray;
+
+/**
+ * Propagates light with a plain increase queue and decrease queue, in the style of Starlight.
+ * <p>
+ * Light is read and written straight from the nibble arrays of each subchunk, and only chunks with initialized lighting
+ * are ever touched. Chunks which are not yet initialized are lit in bulk once their neighbours are loaded,
+ * pulling in the light at the edges of their initialized neighbours.
+ */
+final class StarlightPropagator {
+    static final int MIN_LIGHT_VALUE = 0;
+    static final int MAX_LIGHT_VALUE = 15;
+
+    private static final int MIN_BLOCK_LIGHT_OPACITY = 1;
+    private static final int MAX_BLOCK_LIGHT_OPACITY = 15;
+
+    private static final int MIN_POS_Y = 0;
+    private static final int MAX_POS_Y = 255;
+
+    /**
+     * Layout of queue entries: [level(4)] [y(8)] [x(26)] [z(26)]
+     */
+    private static final int POS_Z_BIT_LENGTH = 26;
+    private static final int POS_X_BIT_LENGTH = 26;
+    private static final int POS_Y_BIT_LENGTH = 8;
+    private static final int POS_Z_BIT_SHIFT = 0;
+    private static final int POS_X_BIT_SHIFT = POS_Z_BIT_SHIFT + POS_Z_BIT_LENGTH;
+    private static final int POS_Y_BIT_SHIFT = POS_X_BIT_SHIFT + POS_X_BIT_LENGTH;
+    private static final int LIGHT_VALUE_BIT_SHIFT = POS_Y_BIT_SHIFT + POS_Y_BIT_LENGTH;
+    private static final long POS_Z_BIT_MASK = (1L << POS_Z_BIT_LENGTH) - 1;
+    private static final long POS_X_BIT_MASK = (1L << POS_X_BIT_LENGTH) - 1;
+    private static final long POS_Y_BIT_MASK = (1L << POS_Y_BIT_LENGTH) - 1;
+    private static final long POS_X_OFFSET = 1L << (POS_X_BIT_LENGTH - 1);
+    private static final long POS_Z_OFFSET = 1L << (POS_Z_BIT_LENGTH - 1);
+
+    private static final int INITIAL_QUEUE_SIZE = 1 << 12;
+
+    /**
+     * Neighbour offsets, in the order: down, up, north, south, west, east.
+     */
+    private static final int[] NEIGHBOUR_OFFSETS_X = {0, 0, 0, 0, -1, 1};
+    private static final int[] NEIGHBOUR_OFFSETS_Y = {-1, 1, 0, 0, 0, 0};
+    private static final int[] NEIGHBOUR_OFFSETS_Z = {0, 0, -1, 1, 0, 0};
+    private static final int NEIGHBOUR_COUNT = 6;
+    private static final int HORIZONTAL_NEIGHBOUR_START = 2;
+
+    private static final int CHUNK_CACHE_SIZE = 16;
+    private static final int CHUNK_CACHE_MASK = CHUNK_CACHE_SIZE - 1;
+
+    private final LumiWorld world;
+    private final LumiWorldRoot worldRoot;
+    private final LightingMetrics metrics;
+
+    private long[] increaseQueue = new long[INITIAL_QUEUE_SIZE];
+    private int increaseQueueSize;
+    private long[] decreaseQueue = new long[INITIAL_QUEUE_SIZE];
+    private int decreaseQueueSize;
+
+    private LightType lightType = BLOCK_LIGHT_TYPE;
+
+    /**
+     * Direct mapped chunk cache, only valid for the duration of a single pass.
+     */
+    private final long[] cachedChunkPosLongs = new long[CHUNK_CACHE_SIZE];
+    private final @Nullable LumiChunk[] cachedChunks = new LumiChunk[CHUNK_CACHE_SIZE];
+
+    StarlightPropagator(LumiWorld world, LightingMetrics metrics) {
+        this.world = world;
+        this.worldRoot = world.lumi$root();
+        this.metrics = metrics;
+        resetChunkCache();
+    }
+
+    // region Passes
+
+    /**
+     * Re-evaluates the light at every given position and propagates the changes.
+     *
+     * @param positions pos longs, as created by {@link #posLongFromPosXYZ(int, int, int)}
+     */
+    void checkBlocks(LightType lightType, PosHashSet positions) {
+        beginPass(lightType);
+        val checkingStartNanos = System.nanoTime();
+        val iterator = positions.iterator();
+        while (iterator.hasNext())
+            checkBlock(iterator.next());
+
+        // Every processed entry looks up all of its neighbours
+        val darkeningStartNanos = System.nanoTime();
+        var visitedPositionCount = (long) propagateDecrease();
+        val brighteningStartNanos = System.nanoTime();
+        visitedPositionCount += propagateIncrease();
+        val endNanos = System.nanoTime();
+        endPass();
+
+        metrics.addPhaseNanos(CHECKING, darkeningStartNanos - checkingStartNanos);
+        metrics.addPhaseNanos(DARKENING, brighteningStartNanos - darkeningStartNanos);
+        metrics.addPhaseNanos(BRIGHTENING, endNanos - brighteningStartNanos);
+        metrics.addVisitedPositions(visitedPositionCount);
+        metrics.addNeighbourLookups(visitedPositionCount * NEIGHBOUR_COUNT);
+    }
+
+    /**
+     * Lights a chunk from scratch, one subchunk at a time, without going through the scheduled updates.
+     */
+    void lightChunk(LumiChunk chunk) {
+        // Marked first, as the propagation never enters chunks which are not initialized
+        chunk.lumi$isLightingInitialized(true);
+
+        beginPass(BLOCK_LIGHT_TYPE);
+        seedBlockLightSources(chunk);
+        seedChunkEdges(chunk, false);
+        propagateIncrease();
+        endPass();
+
+        if (worldRoot.lumi$hasSky()) {
+            beginPass(SKY_LIGHT_TYPE);
+            seedSkyLightSources(chunk);
+            seedChunkEdges(chunk, false);
+            propagateIncrease();
+            endPass();
+        }
+
+        // The seeded light is written straight into the subchunks
+        for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+            if (chunk.lumi$getSubChunkIfPrepared(chunkPosY) != null)
+                worldRoot.lumi$markSubChunkForRenderUpdate(chunk.lumi$chunkPosX(), chunkPosY, chunk.lumi$chunkPosZ());
+        }
+        chunk.lumi$root().lumi$markDirty();
+    }
+
+    /**
+     * Spreads light across the edges between a loaded chunk and its neighbours, in both directions.
+     * <p>
+     * Light removed on one side while the other side was not loaded is removed from the other side first.
+     */
+    void propagateChunkEdges(LumiChunk chunk) {
+        beginPass(BLOCK_LIGHT_TYPE);
+        seedUnsupportedChunkEdges(chunk);
+        propagateDecrease();
+        seedChunkEdges(chunk, true);
+        propagateIncrease();
+        endPass();
+
+        if (worldRoot.lumi$hasSky()) {
+            beginPass(SKY_LIGHT_TYPE);
+            seedUnsupportedChunkEdges(chunk);
+            propagateDecrease();
+            seedChunkEdges(chunk, true);
+            propagateIncrease();
+            endPass();
+        }
+    }
+
+    private void beginPass(LightType lightType) {
+        this.lightType = lightType;
+        increaseQueueSize = 0;
+        decreaseQueueSize = 0;
+    }
+
+    private void endPass() {
+        increaseQueueSize = 0;
+        decreaseQueueSize = 0;
+        // Chunks may be unloaded before the next pass
+        resetChunkCache();
+    }
+    // endregion
+
+    // region Seeding
+    private void checkBlock(long posLong) {
+        val posX = posXFromPosLong(posLong);
+        val posY = posYFromPosLong(posLong);
+        val posZ = posZFromPosLong(posLong);
+        val chunk = getChunk(posX >> 4, posZ >> 4);
+        if (chunk == null)
+            return;
+
+        val lightValue = getLightValue(chunk, posX, posY, posZ);
+        val emittedLightValue = getEmittedLightValue(chunk, posX, posY, posZ);
+        if (lightValue != emittedLightValue)
+            setLightValue(chunk, posX, posY, posZ, emittedLightValue);
+        if (emittedLightValue > MIN_LIGHT_VALUE)
+            enqueueIncrease(posLong, emittedLightValue);
+        // Also pulls the light back in from the neighbours if the block became more transparent
+        enqueueDecrease(posLong, lightValue);
+    }
+
+    private void seedBlockLightSources(LumiChunk chunk) {
+        val basePosX = chunk.lumi$chunkPosX() << 4;
+        val basePosZ = chunk.lumi$chunkPosZ() << 4;
+        for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+            val subChunk = chunk.lumi$getSubChunkIfPrepared(chunkPosY);
+            if (subChunk == null)
+                continue;
+            // Shared uniform arrays are read-only, so those get cleared through the setter instead
+            val blockLightArray = subChunk.lumi$getBlockLightArray();
+            val clearThroughSetter = isUniformNibbleArray(blockLightArray);
+            if (blockLightArray != null && !clearThroughSetter)
+                Arrays.fill(blockLightArray.data, (byte) 0);
+
+            val basePosY = chunkPosY << 4;
+            for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
+                val posY = basePosY + subChunkPosY;
+                for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+                    for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                        val brightness = clampLightValue(chunk.lumi$getBlockBrightness(subChunkPosX, posY, subChunkPosZ));
+                        if (brightness == MIN_LIGHT_VALUE && !clearThroughSetter)
+                            continue;
+                        subChunk.lumi$setBlockLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, brightness);
+                        if (brightness == MIN_LIGHT_VALUE)
+                            continue;
+                        enqueueIncrease(posLongFromPosXYZ(basePosX + subChunkPosX, posY, basePosZ + subChunkPosZ), brightness);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills everything above the height map with full sky light,
+     * then seeds the parts of each column which are next to a darker column.
+     */
+    private void seedSkyLightSources(LumiChunk chunk) {
+        val basePosX = chunk.lumi$chunkPosX() << 4;
+        val basePosZ = chunk.lumi$chunkPosZ() << 4;
+        for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+            val subChunk = chunk.lumi$getSubChunkIfPrepared(chunkPosY);
+            if (subChunk == null)
+                continue;
+
+            val basePosY = chunkPosY << 4;
+            for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
+                val posY = basePosY + subChunkPosY;
+                for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+                    for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                        val lightValue = chunk.lumi$canBlockSeeSky(subChunkPosX, posY, subChunkPosZ) ? MAX_LIGHT_VALUE : MIN_LIGHT_VALUE;
+                        subChunk.lumi$setSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+                    }
+                }
+            }
+        }
+
+        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                val posX = basePosX + subChunkPosX;
+                val posZ = basePosZ + subChunkPosZ;
+                val minPosY = Math.max(chunk.lumi$skyLightHeight(subChunkPosX, subChunkPosZ), MIN_POS_Y);
+                var maxPosY = minPosY;
+                for (var i = HORIZONTAL_NEIGHBOUR_START; i < NEIGHBOUR_COUNT; i++)
+                    maxPosY = Math.max(maxPosY, getSkyLightHeight(posX + NEIGHBOUR_OFFSETS_X[i], posZ + NEIGHBOUR_OFFSETS_Z[i]));
+                // The lowest block which can see the sky always lights the block below it
+                maxPosY = Math.min(Math.max(maxPosY, minPosY + 1), MAX_POS_Y + 1);
+                for (var posY = minPosY; posY < maxPosY; posY++)
+                    enqueueIncrease(posLongFromPosXYZ(posX, posY, posZ), MAX_LIGHT_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Seeds the blocks at the edges of the initialized neighbours, so their light spreads into the given chunk.
+     *
+     * @param bothWays also seed the edges of the given chunk, so its light spreads into the neighbours
+     */
+    private void seedChunkEdges(LumiChunk chunk, boolean bothWays) {
+        val chunkPosX = chunk.lumi$chunkPosX();
+        val chunkPosZ = chunk.lumi$chunkPosZ();
+        for (var i = HORIZONTAL_NEIGHBOUR_START; i < NEIGHBOUR_COUNT; i++) {
+            val offsetX = NEIGHBOUR_OFFSETS_X[i];
+            val offsetZ = NEIGHBOUR_OFFSETS_Z[i];
+            val neighbourChunk = getChunk(chunkPosX + offsetX, chunkPosZ + offsetZ);
+            if (neighbourChunk == null)
+                continue;
+
+            // Position of the edge column of the chunk facing the neighbour, walking along the edge
+            val edgePosX = (chunkPosX << 4) + (offsetX < 0 ? 0 : offsetX > 0 ? 15 : 0);
+            val edgePosZ = (chunkPosZ << 4) + (offsetZ < 0 ? 0 : offsetZ > 0 ? 15 : 0);
+            val stepX = offsetX == 0 ? 1 : 0;
+            val stepZ = offsetZ == 0 ? 1 : 0;
+            for (var j = 0; j < 16; j++) {
+                val posX = edgePosX + stepX * j;
+                val posZ = edgePosZ + stepZ * j;
+                val neighbourPosX = posX + offsetX;
+                val neighbourPosZ = posZ + offsetZ;
+                for (var posY = MIN_POS_Y; posY <= MAX_POS_Y; posY++) {
+                    val lightValue = getLightValue(chunk, posX, posY, posZ);
+                    val neighbourLightValue = getLightValue(neighbourChunk, neighbourPosX, posY, neighbourPosZ);
+                    if (neighbourLightValue - 1 > lightValue) {
+                        enqueueIncrease(posLongFromPosXYZ(neighbourPosX, posY, neighbourPosZ), neighbourLightValue);
+                    } else if (bothWays && lightValue - 1 > neighbourLightValue) {
+                        enqueueIncrease(posLongFromPosXYZ(posX, posY, posZ), lightValue);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Darkens the blocks on both sides of the edges which are brighter than their neighbours and their own light can support.
+     * <p>
+     * Light only ever spreads to darker blocks, so light left behind by a removed source always peaks at such a block,
+     * and darkening it removes the rest.
+     */
+    private void seedUnsupportedChunkEdges(LumiChunk chunk) {
+        val chunkPosX = chunk.lumi$chunkPosX();
+        val chunkPosZ = chunk.lumi$chunkPosZ();
+        for (var i = HORIZONTAL_NEIGHBOUR_START; i < NEIGHBOUR_COUNT; i++) {
+            val offsetX = NEIGHBOUR_OFFSETS_X[i];
+            val offsetZ = NEIGHBOUR_OFFSETS_Z[i];
+            val neighbourChunk = getChunk(chunkPosX + offsetX, chunkPosZ + offsetZ);
+            if (neighbourChunk == null)
+                continue;
+
+            val edgePosX = (chunkPosX << 4) + (offsetX < 0 ? 0 : offsetX > 0 ? 15 : 0);
+            val edgePosZ = (chunkPosZ << 4) + (offsetZ < 0 ? 0 : offsetZ > 0 ? 15 : 0);
+            val stepX = offsetX == 0 ? 1 : 0;
+            val stepZ = offsetZ == 0 ? 1 : 0;
+            for (var j = 0; j < 16; j++) {
+                val posX = edgePosX + stepX * j;
+                val posZ = edgePosZ + stepZ * j;
+                val neighbourPosX = posX + offsetX;
+                val neighbourPosZ = posZ + offsetZ;
+                for (var posY = MIN_POS_Y; posY <= MAX_POS_Y; posY++) {
+                    darkenIfUnsupported(chunk, posX, posY, posZ);
+                    darkenIfUnsupported(neighbourChunk, neighbourPosX, posY, neighbourPosZ);
+                }
+            }
+        }
+    }
+
+    private void darkenIfUnsupported(LumiChunk chunk, int posX, int posY, int posZ) {
+        val lightValue = getLightValue(chunk, posX, posY, posZ);
+        if (lightValue == MIN_LIGHT_VALUE)
+            return;
+        val emittedLightValue = getEmittedLightValue(chunk, posX, posY, posZ);
+        if (emittedLightValue >= lightValue)
+            return;
+
+        val opacity = getOpacity(chunk, posX, posY, posZ);
+        for (var i = 0; i < NEIGHBOUR_COUNT; i++) {
+            val neighbourPosY = posY + NEIGHBOUR_OFFSETS_Y[i];
+            if (neighbourPosY < MIN_POS_Y || neighbourPosY > MAX_POS_Y)
+                continue;
+            val neighbourPosX = posX + NEIGHBOUR_OFFSETS_X[i];
+            val neighbourPosZ = posZ + NEIGHBOUR_OFFSETS_Z[i];
+            val neighbourChunk = getChunk(neighbourPosX >> 4, neighbourPosZ >> 4);
+            // The light may come from a chunk which is not loaded
+            if (neighbourChunk == null)
+                return;
+            if (getLightValue(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ) - opacity >= lightValue)
+                return;
+        }
+
+        setLightValue(chunk, posX, posY, posZ, emittedLightValue);
+        if (emittedLightValue > MIN_LIGHT_VALUE)
+            enqueueIncrease(posLongFromPosXYZ(posX, posY, posZ), emittedLightValue);
+        enqueueDecrease(posLongFromPosXYZ(posX, posY, posZ), lightValue);
+    }
+    // endregion
+
+    // region Propagation
+    /**
+     * @return amount of processed entries
+     */
+    private int propagateDecrease() {
+        for (var i = 0; i < decreaseQueueSize; i++) {
+            val entry = decreaseQueue[i];
+            val lightValue = lightValueFromEntry(entry);
+            val posX = posXFromPosLong(entry);
+            val posY = posYFromPosLong(entry);
+            val posZ = posZFromPosLong(entry);
+
+            for (var j = 0; j < NEIGHBOUR_COUNT; j++) {
+                val neighbourPosY = posY + NEIGHBOUR_OFFSETS_Y[j];
+                if (neighbourPosY < MIN_POS_Y || neighbourPosY > MAX_POS_Y)
+                    continue;
+                val neighbourPosX = posX + NEIGHBOUR_OFFSETS_X[j];
+                val neighbourPosZ = posZ + NEIGHBOUR_OFFSETS_Z[j];
+                val neighbourChunk = getChunk(neighbourPosX >> 4, neighbourPosZ >> 4);
+                if (neighbourChunk == null)
+                    continue;
+
+                val neighbourLightValue = getLightValue(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ);
+                if (neighbourLightValue == MIN_LIGHT_VALUE)
+                    continue;
+
+                val neighbourPosLong = posLongFromPosXYZ(neighbourPosX, neighbourPosY, neighbourPosZ);
+                val propagatedLightValue = lightValue - getOpacity(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ);
+                if (neighbourLightValue > propagatedLightValue) {
+                    // Lit by something else, which has to spread back into the darkened area
+                    enqueueIncrease(neighbourPosLong, neighbourLightValue);
+                    continue;
+                }
+
+                val emittedLightValue = getEmittedLightValue(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ);
+                setLightValue(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ, emittedLightValue);
+                if (emittedLightValue > MIN_LIGHT_VALUE)
+                    enqueueIncrease(neighbourPosLong, emittedLightValue);
+                enqueueDecrease(neighbourPosLong, neighbourLightValue);
+            }
+        }
+        val processedEntryCount = decreaseQueueSize;
+        decreaseQueueSize = 0;
+        return processedEntryCount;
+    }
+
+    /**
+     * @return amount of processed entries
+     */
+    private int propagateIncrease() {
+        for (var i = 0; i < increaseQueueSize; i++) {
+            val entry = increaseQueue[i];
+            val lightValue = lightValueFromEntry(entry);
+            val posX = posXFromPosLong(entry);
+            val posY = posYFromPosLong(entry);
+            val posZ = posZFromPosLong(entry);
+
+            val chunk = getChunk(posX >> 4, posZ >> 4);
+            if (chunk == null)
+                continue;
+            // Stale, the block has been darkened or brightened by another entry since it was queued
+            if (getLightValue(chunk, posX, posY, posZ) != lightValue)
+                continue;
+
+            for (var j = 0; j < NEIGHBOUR_COUNT; j++) {
+                val neighbourPosY = posY + NEIGHBOUR_OFFSETS_Y[j];
+                if (neighbourPosY < MIN_POS_Y || neighbourPosY > MAX_POS_Y)
+                    continue;
+                val neighbourPosX = posX + NEIGHBOUR_OFFSETS_X[j];
+                val neighbourPosZ = posZ + NEIGHBOUR_OFFSETS_Z[j];
+                val neighbourChunk = getChunk(neighbourPosX >> 4, neighbourPosZ >> 4);
+                if (neighbourChunk == null)
+                    continue;
+
+                val neighbourLightValue = getLightValue(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ);
+                // Quick reject before looking up the block
+                if (neighbourLightValue >= lightValue - MIN_BLOCK_LIGHT_OPACITY)
+                    continue;
+                val propagatedLightValue = lightValue - getOpacity(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ);
+                if (propagatedLightValue <= neighbourLightValue)
+                    continue;
+
+                setLightValue(neighbourChunk, neighbourPosX, neighbourPosY, neighbourPosZ, propagatedLightValue);
+                if (propagatedLightValue > MIN_BLOCK_LIGHT_OPACITY)
+                    enqueueIncrease(posLongFromPosXYZ(neighbourPosX, neighbourPosY, neighbourPosZ), propagatedLightValue);
+            }
+        }
+        val processedEntryCount = increaseQueueSize;
+        increaseQueueSize = 0;
+        return processedEntryCount;
+    }
+
+    private void enqueueIncrease(long posLong, int lightValue) {
+        if (increaseQueueSize == increaseQueue.length)
+            increaseQueue = Arrays.copyOf(increaseQueue, increaseQueue.length << 1);
+        increaseQueue[increaseQueueSize++] = entryFromPosLong(posLong, lightValue);
+    }
+
+    private void enqueueDecrease(long posLong, int lightValue) {
+        if (decreaseQueueSize == decreaseQueue.length)
+            decreaseQueue = Arrays.copyOf(decreaseQueue, decreaseQueue.length << 1);
+        decreaseQueue[decreaseQueueSize++] = entryFromPosLong(posLong, lightValue);
+    }
+    // endregion
+
+    // region World Access
+    /**
+     * @return the chunk, or {@code null} if it is not loaded or its lighting is not yet initialized
+     */
+    private @Nullable LumiChunk getChunk(int chunkPosX, int chunkPosZ) {
+        val chunkPosLong = ((long) chunkPosX << 32) | (chunkPosZ & 0xFFFFFFFFL);
+        val cacheIndex = (chunkPosX * 31 + chunkPosZ) & CHUNK_CACHE_MASK;
+        if (cachedChunkPosLongs[cacheIndex] == chunkPosLong)
+            return cachedChunks[cacheIndex];
+
+        var chunk = world.lumi$getChunkFromChunkPosIfExists(chunkPosX, chunkPosZ);
+        if (chunk != null && !chunk.lumi$isLightingInitialized())
+            chunk = null;
+        cachedChunkPosLongs[cacheIndex] = chunkPosLong;
+        cachedChunks[cacheIndex] = chunk;
+        return chunk;
+    }
+
+    private void resetChunkCache() {
+        // Chunk positions never reach this value, as they are limited to 22 bits
+        Arrays.fill(cachedChunkPosLongs, Long.MIN_VALUE);
+        Arrays.fill(cachedChunks, null);
+    }
+
+    private int getSkyLightHeight(int posX, int posZ) {
+        val chunk = getChunk(posX >> 4, posZ >> 4);
+        if (chunk == null)
+            return MIN_POS_Y;
+        return chunk.lumi$skyLightHeight(posX & 15, posZ & 15);
+    }
+
+    private int getLightValue(LumiChunk chunk, int posX, int posY, int posZ) {
+        return chunk.lumi$getLightValue(lightType, posX & 15, posY, posZ & 15);
+    }
+
+    private void setLightValue(LumiChunk chunk, int posX, int posY, int posZ, int lightValue) {
+        chunk.lumi$setLightValue(lightType, posX & 15, posY, posZ & 15, lightValue);
+        // Also records the change for light delta packets on the server
+        worldRoot.lumi$markBlockForRenderUpdate(posX, posY, posZ);
+    }
+
+    private int getEmittedLightValue(LumiChunk chunk, int posX, int posY, int posZ) {
+        if (lightType.isBlock())
+            return clampLightValue(chunk.lumi$getBlockBrightness(posX & 15, posY, posZ & 15));
+        return chunk.lumi$canBlockSeeSky(posX & 15, posY, posZ & 15) ? MAX_LIGHT_VALUE : MIN_LIGHT_VALUE;
+    }
+
+    private int getOpacity(LumiChunk chunk, int posX, int posY, int posZ) {
+        val opacity = chunk.lumi$getBlockOpacity(posX & 15, posY, posZ & 15);
+        return MathUtil.clamp(opacity, MIN_BLOCK_LIGHT_OPACITY, MAX_BLOCK_LIGHT_OPACITY);
+    }
+    // endregion
+
+    // region Pos Longs
+    static long posLongFromPosXYZ(int posX, int posY, int posZ) {
+        return (((long) posX + POS_X_OFFSET) & POS_X_BIT_MASK) << POS_X_BIT_SHIFT |
+               ((long) posY & POS_Y_BIT_MASK) << POS_Y_BIT_SHIFT |
+               (((long) posZ + POS_Z_OFFSET) & POS_Z_BIT_MASK) << POS_Z_BIT_SHIFT;
+    }
+
+    private static int posXFromPosLong(long posLong) {
+        return (int) (((posLong >>> POS_X_BIT_SHIFT) & POS_X_BIT_MASK) - POS_X_OFFSET);
+    }
+
+    private static int posYFromPosLong(long posLong) {
+        return (int) ((posLong >>> POS_Y_BIT_SHIFT) & POS_Y_BIT_MASK);
+    }
+
+    private static int posZFromPosLong(long posLong) {
+        return (int) (((posLong >>> POS_Z_BIT_SHIFT) & POS_Z_BIT_MASK) - POS_Z_OFFSET);
+    }
+
+    private static long entryFromPosLong(long posLong, int lightValue) {
+        return posLong | ((long) lightValue << LIGHT_VALUE_BIT_SHIFT);
+    }
+
+    private static int lightValueFromEntry(long entry) {
+        return (int) (entry >>> LIGHT_VALUE_BIT_SHIFT);
+    }
+
+    static int clampLightValue(int lightValue) {
+        return MathUtil.clamp(lightValue, MIN_LIGHT_VALUE, MAX_LIGHT_VALUE);
+    }
+    // endregion
+}
@@ -0,0 +1,84 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+import static lombok.AccessLevel.PACKAGE;
+
+/**
+ * Chunk state read from a {@link LightingTraceOp#CHUNK_SNAPSHOT} record.
+ * <p>
+ * The per-subchunk arrays are indexed by {@code chunkPosY} and {@code null} for subchunks which were not prepared.
+ * Block positions within a subchunk use {@link LightingTraceFormat#subChunkBlockIndex(int, int, int)}, with two positions
+ * per byte in the nibble arrays like in a {@link net.minecraft.world.chunk.NibbleArray}.
+ */
+@Getter
+@Accessors(fluent = true, chain = false)
+@RequiredArgsConstructor(access = PACKAGE)
+public final class LightingTraceChunkSnapshot {
+    private final int chunkPosX;
+    private final int chunkPosZ;
+
+    private final byte[][] blockOpacities;
+    private final byte[][] blockBrightnessNibbles;
+    private final byte[][] blockLightNibbles;
+    private final byte[][] skyLightNibbles;
+
+    private final int[] skyLightHeightMap;
+    private final int minSkyLightHeight;
+    private final boolean[] outdatedHeightFlags;
+    private final boolean isLightingInitialized;
+    /**
+     * Empty if the recorded lighting engine does not keep any.
+     */
+    private final short[] lightCheckFlags;
+
+    public boolean isSubChunkPrepared(int chunkPosY) {
+        return blockOpacities[chunkPosY] != null;
+    }
+
+    public int blockOpacity(int chunkPosY, int index) {
+        return blockOpacities[chunkPosY][index] & 0xFF;
+    }
+
+    public int blockBrightness(int chunkPosY, int index) {
+        return nibble(blockBrightnessNibbles[chunkPosY], index);
+    }
+
+    public int blockLightValue(int chunkPosY, int index) {
+        return nibble(blockLightNibbles[chunkPosY], index);
+    }
+
+    public int skyLightValue(int chunkPosY, int index) {
+        return nibble(skyLightNibbles[chunkPosY], index);
+    }
+
+    private static int nibble(byte[] nibbles, int index) {
+        return (nibbles[index >> 1] >> ((index & 1) << 2)) & 15;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Layout shared by the {@link LightingTraceRecorder} and {@link LightingTraceReader}.
+ * <p>
+ * A trace is a gzip stream starting with {@link #TRACE_MAGIC}, {@link #TRACE_VERSION}, the lighting engine id, the world id
+ * and whether the world has sky light, followed by {@link LightingTraceOp} records up to {@link LightingTraceOp#END}.
+ * Integers are written as zigzag encoded variable length integers, as most of them are small or close to zero.
+ */
+@UtilityClass
+public final class LightingTraceFormat {
+    public static final int TRACE_MAGIC = 0x4C554D54;
+    public static final int TRACE_VERSION = 1;
+
+    public static final String TRACE_FILE_EXTENSION = ".lumitrace";
+
+    public static final int SUB_CHUNK_COUNT = 16;
+    public static final int SUB_CHUNK_BLOCK_COUNT = 16 * 16 * 16;
+    public static final int SUB_CHUNK_NIBBLE_COUNT = SUB_CHUNK_BLOCK_COUNT / 2;
+    public static final int COLUMN_COUNT = 16 * 16;
+
+    public static void writeVarInt(DataOutput output, int value) throws IOException {
+        var encoded = (value << 1) ^ (value >> 31);
+        while ((encoded & ~0x7F) != 0) {
+            output.writeByte((encoded & 0x7F) | 0x80);
+            encoded >>>= 7;
+        }
+        output.writeByte(encoded);
+    }
+
+    public static int readVarInt(DataInput input) throws IOException {
+        var encoded = 0;
+        for (var shift = 0; shift < 35; shift += 7) {
+            val part = input.readUnsignedByte();
+            encoded |= (part & 0x7F) << shift;
+            if ((part & 0x80) == 0)
+                return (encoded >>> 1) ^ -(encoded & 1);
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    public static void writeVarLong(DataOutput output, long value) throws IOException {
+        var encoded = (value << 1) ^ (value >> 63);
+        while ((encoded & ~0x7FL) != 0) {
+            output.writeByte((int) ((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+        output.writeByte((int) encoded);
+    }
+
+    public static long readVarLong(DataInput input) throws IOException {
+        var encoded = 0L;
+        for (var shift = 0; shift < 70; shift += 7) {
+            val part = input.readUnsignedByte();
+            encoded |= (long) (part & 0x7F) << shift;
+            if ((part & 0x80) == 0)
+                return (encoded >>> 1) ^ -(encoded & 1);
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Same layout as the {@link net.minecraft.world.chunk.NibbleArray} of a subchunk.
+     */
+    public static int subChunkBlockIndex(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return (subChunkPosY << 8) | (subChunkPosZ << 4) | subChunkPosX;
+    }
+
+    public static int columnIndex(int subChunkPosX, int subChunkPosZ) {
+        return subChunkPosX | (subChunkPosZ << 4);
+    }
+}
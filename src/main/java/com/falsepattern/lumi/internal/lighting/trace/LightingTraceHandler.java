@@ -0,0 +1,78 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+
+/**
+ * Receives the records of a lighting trace in the order they were recorded, see {@link LightingTraceReader}.
+ */
+public interface LightingTraceHandler {
+    void header(String lightingEngineID, String worldID, boolean hasSky);
+
+    void chunkSnapshot(LightingTraceChunkSnapshot snapshot);
+
+    void block(int posX, int posY, int posZ, int blockOpacity, int blockBrightness);
+
+    /**
+     * Records with only a chunk position as their operands.
+     */
+    void chunk(LightingTraceOp op, int chunkPosX, int chunkPosZ);
+
+    void subChunkInit(int chunkPosX, int chunkPosZ, int chunkPosY);
+
+    void updateForBlock(int posX, int posY, int posZ);
+
+    void scheduleRange(LightType lightType,
+                       int startPosX,
+                       int startPosY,
+                       int startPosZ,
+                       int endPosX,
+                       int endPosY,
+                       int endPosZ);
+
+    void scheduleColumn(LightType lightType, int posX, int posZ);
+
+    void scheduleColumnRange(LightType lightType, int posX, int posZ, int startPosY, int endPosY);
+
+    void schedule(LightType lightType, int posX, int posY, int posZ);
+
+    void getLight(LightType lightType, int posX, int posY, int posZ);
+
+    void processType(LightType lightType, FlushTrigger trigger);
+
+    void processAllTypes(FlushTrigger trigger);
+
+    void processWithinBudget(long maxNanos);
+
+    void beginBulkEdit(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ);
+
+    void endBulkEdit();
+
+    void whenChunkLit(int chunkPosX, int chunkPosZ);
+
+    void completeChunkLitFutures();
+}
@@ -0,0 +1,127 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.TRACE_FILE_EXTENSION;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Starts and stops the {@link LightingTraceRecorder} of every LUMI world on top of a server world.
+ * <p>
+ * Traces are written to {@code lumi/traces} in the working directory of the server,
+ * recordings still running when their world is unloaded are stopped.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class LightingTraceManager {
+    private static final Logger LOG = createLogger("Lighting Trace Manager");
+
+    private static final LightingTraceManager INSTANCE = new LightingTraceManager();
+
+    private static final File TRACE_DIRECTORY = new File("lumi", "traces");
+
+    private boolean isRegistered = false;
+
+    public static LightingTraceManager lightingTraceManager() {
+        return INSTANCE;
+    }
+
+    public void registerTraceHandler() {
+        if (isRegistered)
+            return;
+
+        MinecraftForge.EVENT_BUS.register(this);
+        isRegistered = true;
+        LOG.info("Registered lighting trace handler");
+    }
+
+    /**
+     * @return the started recorders, empty if the lighting engines of the world are not traced
+     */
+    public List<LightingTraceRecorder> startRecording(World worldBase) {
+        val timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        val recorders = new ArrayList<LightingTraceRecorder>();
+        for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+            val lightingEngine = world.lumi$lightingEngine();
+            if (!(lightingEngine instanceof TracingLightingEngine))
+                continue;
+
+            val fileName = String.format("%s-DIM%d-%s%s",
+                                         timestamp,
+                                         worldBase.provider.dimensionId,
+                                         world.lumi$worldID(),
+                                         TRACE_FILE_EXTENSION);
+            val file = new File(TRACE_DIRECTORY, fileName);
+            try {
+                recorders.add(((TracingLightingEngine) lightingEngine).startRecording(file));
+            } catch (IOException e) {
+                LOG.error("Failed to start recording lighting trace of world [{}] in dimension [{}] to [{}]",
+                          world.lumi$worldID(),
+                          worldBase.provider.dimensionId,
+                          file,
+                          e);
+            }
+        }
+        return recorders;
+    }
+
+    /**
+     * @return the stopped recorders
+     */
+    public List<LightingTraceRecorder> stopRecording(World worldBase) {
+        val recorders = new ArrayList<LightingTraceRecorder>();
+        for (val world : worldProviderManager().lumiWorldsFromBaseWorld(worldBase)) {
+            val lightingEngine = world.lumi$lightingEngine();
+            if (!(lightingEngine instanceof TracingLightingEngine))
+                continue;
+
+            val recorder = ((TracingLightingEngine) lightingEngine).stopRecording();
+            if (recorder != null)
+                recorders.add(recorder);
+        }
+        return recorders;
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload evt) {
+        stopRecording(evt.world);
+    }
+}
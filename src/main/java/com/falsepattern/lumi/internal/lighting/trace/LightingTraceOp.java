@@ -0,0 +1,139 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records of a lighting trace, written as their ordinal followed by the operands listed on each constant.
+ * <p>
+ * Positions and light types are written as variable length integers, see {@link LightingTraceFormat}.
+ */
+public enum LightingTraceOp {
+    /**
+     * End of the trace.
+     */
+    END,
+    /**
+     * Blocks, light values and height map of a chunk, written before the first record touching it or its neighbours.
+     */
+    CHUNK_SNAPSHOT,
+    /**
+     * Light opacity and brightness of the block at {@code posX, posY, posZ}.
+     */
+    BLOCK,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    CHUNK_INIT,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    PREPARE_CHUNK_INIT,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    CLIENT_CHUNK_INIT,
+    /**
+     * {@code chunkPosX, chunkPosZ, chunkPosY}
+     */
+    SUB_CHUNK_INIT,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    CHUNK_LOAD,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    CHUNK_UNLOAD,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    RANDOM_CHUNK_UPDATES,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    IS_CHUNK_FULLY_LIT,
+    /**
+     * {@code posX, posY, posZ}
+     */
+    UPDATE_FOR_BLOCK,
+    /**
+     * {@code lightType, startPosX, startPosY, startPosZ, endPosX, endPosY, endPosZ}
+     */
+    SCHEDULE_RANGE,
+    /**
+     * {@code lightType, posX, posZ}
+     */
+    SCHEDULE_COLUMN,
+    /**
+     * {@code lightType, posX, posZ, startPosY, endPosY}
+     */
+    SCHEDULE_COLUMN_RANGE,
+    /**
+     * {@code lightType, posX, posY, posZ}
+     */
+    SCHEDULE,
+    /**
+     * {@code lightType, posX, posY, posZ}, reads through a chunk are recorded with their world position.
+     */
+    GET_LIGHT,
+    /**
+     * {@code lightType, flushTrigger}
+     */
+    PROCESS_TYPE,
+    /**
+     * {@code flushTrigger}
+     */
+    PROCESS_ALL_TYPES,
+    /**
+     * {@code maxNanos}
+     */
+    PROCESS_WITHIN_BUDGET,
+    /**
+     * {@code minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ}
+     */
+    BEGIN_BULK_EDIT,
+    /**
+     * End of the innermost bulk edit.
+     */
+    END_BULK_EDIT,
+    /**
+     * {@code chunkPosX, chunkPosZ}
+     */
+    WHEN_CHUNK_LIT,
+    /**
+     * Completion of the chunk lit futures of the chunks lit by then.
+     */
+    COMPLETE_CHUNK_LIT_FUTURES;
+
+    private static final LightingTraceOp[] VALUES = values();
+
+    public static @Nullable LightingTraceOp fromOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length)
+            return null;
+        return VALUES[ordinal];
+    }
+}
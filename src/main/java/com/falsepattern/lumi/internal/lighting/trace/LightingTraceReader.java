@@ -0,0 +1,237 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import lombok.val;
+import lombok.var;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.COLUMN_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_BLOCK_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_NIBBLE_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.TRACE_MAGIC;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.TRACE_VERSION;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.columnIndex;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.readVarInt;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.readVarLong;
+
+/**
+ * Reads a trace written by the {@link LightingTraceRecorder}, passing every record to a {@link LightingTraceHandler}.
+ */
+public final class LightingTraceReader {
+    private static final LightType[] LIGHT_TYPES = LightType.values();
+    private static final FlushTrigger[] FLUSH_TRIGGERS = FlushTrigger.values();
+
+    private final DataInput input;
+    private boolean hasSky;
+
+    private LightingTraceReader(DataInput input) {
+        this.input = input;
+    }
+
+    /**
+     * Reads the whole trace, the stream is not closed.
+     */
+    public static void readTrace(InputStream traceStream, LightingTraceHandler handler) throws IOException {
+        val input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(traceStream)));
+        new LightingTraceReader(input).read(handler);
+    }
+
+    private void read(LightingTraceHandler handler) throws IOException {
+        if (input.readInt() != TRACE_MAGIC)
+            throw new IOException("Not a lighting trace");
+        val version = input.readUnsignedShort();
+        if (version != TRACE_VERSION)
+            throw new IOException("Unsupported lighting trace version " + version);
+        val lightingEngineID = input.readUTF();
+        val worldID = input.readUTF();
+        hasSky = input.readBoolean();
+        handler.header(lightingEngineID, worldID, hasSky);
+
+        while (true) {
+            val opOrdinal = input.readUnsignedByte();
+            val op = LightingTraceOp.fromOrdinal(opOrdinal);
+            if (op == null)
+                throw new IOException("Unknown lighting trace record " + opOrdinal);
+            switch (op) {
+                case END:
+                    return;
+                case CHUNK_SNAPSHOT:
+                    handler.chunkSnapshot(readChunkSnapshot());
+                    break;
+                case BLOCK:
+                    handler.block(readVarInt(input),
+                                  readVarInt(input),
+                                  readVarInt(input),
+                                  readVarInt(input),
+                                  readVarInt(input));
+                    break;
+                case CHUNK_INIT:
+                case PREPARE_CHUNK_INIT:
+                case CLIENT_CHUNK_INIT:
+                case CHUNK_LOAD:
+                case CHUNK_UNLOAD:
+                case RANDOM_CHUNK_UPDATES:
+                case IS_CHUNK_FULLY_LIT:
+                    handler.chunk(op, readVarInt(input), readVarInt(input));
+                    break;
+                case SUB_CHUNK_INIT:
+                    handler.subChunkInit(readVarInt(input), readVarInt(input), readVarInt(input));
+                    break;
+                case UPDATE_FOR_BLOCK:
+                    handler.updateForBlock(readVarInt(input), readVarInt(input), readVarInt(input));
+                    break;
+                case SCHEDULE_RANGE:
+                    handler.scheduleRange(readLightType(),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input));
+                    break;
+                case SCHEDULE_COLUMN:
+                    handler.scheduleColumn(readLightType(), readVarInt(input), readVarInt(input));
+                    break;
+                case SCHEDULE_COLUMN_RANGE:
+                    handler.scheduleColumnRange(readLightType(),
+                                                readVarInt(input),
+                                                readVarInt(input),
+                                                readVarInt(input),
+                                                readVarInt(input));
+                    break;
+                case SCHEDULE:
+                    handler.schedule(readLightType(), readVarInt(input), readVarInt(input), readVarInt(input));
+                    break;
+                case GET_LIGHT:
+                    handler.getLight(readLightType(), readVarInt(input), readVarInt(input), readVarInt(input));
+                    break;
+                case PROCESS_TYPE:
+                    handler.processType(readLightType(), readFlushTrigger());
+                    break;
+                case PROCESS_ALL_TYPES:
+                    handler.processAllTypes(readFlushTrigger());
+                    break;
+                case PROCESS_WITHIN_BUDGET:
+                    handler.processWithinBudget(readVarLong(input));
+                    break;
+                case BEGIN_BULK_EDIT:
+                    handler.beginBulkEdit(readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input),
+                                          readVarInt(input));
+                    break;
+                case END_BULK_EDIT:
+                    handler.endBulkEdit();
+                    break;
+                case WHEN_CHUNK_LIT:
+                    handler.whenChunkLit(readVarInt(input), readVarInt(input));
+                    break;
+                case COMPLETE_CHUNK_LIT_FUTURES:
+                    handler.completeChunkLitFutures();
+                    break;
+            }
+        }
+    }
+
+    private LightingTraceChunkSnapshot readChunkSnapshot() throws IOException {
+        val chunkPosX = readVarInt(input);
+        val chunkPosZ = readVarInt(input);
+
+        val preparedSubChunkMask = input.readUnsignedShort();
+        val blockOpacities = new byte[SUB_CHUNK_COUNT][];
+        val blockBrightnessNibbles = new byte[SUB_CHUNK_COUNT][];
+        val blockLightNibbles = new byte[SUB_CHUNK_COUNT][];
+        val skyLightNibbles = new byte[SUB_CHUNK_COUNT][];
+        for (var chunkPosY = 0; chunkPosY < SUB_CHUNK_COUNT; chunkPosY++) {
+            if ((preparedSubChunkMask & (1 << chunkPosY)) == 0)
+                continue;
+            blockOpacities[chunkPosY] = readBytes(SUB_CHUNK_BLOCK_COUNT);
+            blockBrightnessNibbles[chunkPosY] = readBytes(SUB_CHUNK_NIBBLE_COUNT);
+            blockLightNibbles[chunkPosY] = readBytes(SUB_CHUNK_NIBBLE_COUNT);
+            skyLightNibbles[chunkPosY] = hasSky ? readBytes(SUB_CHUNK_NIBBLE_COUNT) : new byte[SUB_CHUNK_NIBBLE_COUNT];
+        }
+
+        val skyLightHeightMap = new int[COLUMN_COUNT];
+        for (var index = 0; index < COLUMN_COUNT; index++)
+            skyLightHeightMap[index] = readVarInt(input);
+        val minSkyLightHeight = readVarInt(input);
+
+        val outdatedHeightFlags = new boolean[COLUMN_COUNT];
+        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+            val rowFlags = input.readUnsignedShort();
+            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++)
+                outdatedHeightFlags[columnIndex(subChunkPosX, subChunkPosZ)] = (rowFlags & (1 << subChunkPosX)) != 0;
+        }
+        val isLightingInitialized = input.readBoolean();
+
+        val lightCheckFlags = new short[readVarInt(input)];
+        for (var index = 0; index < lightCheckFlags.length; index++)
+            lightCheckFlags[index] = input.readShort();
+
+        return new LightingTraceChunkSnapshot(chunkPosX,
+                                              chunkPosZ,
+                                              blockOpacities,
+                                              blockBrightnessNibbles,
+                                              blockLightNibbles,
+                                              skyLightNibbles,
+                                              skyLightHeightMap,
+                                              minSkyLightHeight,
+                                              outdatedHeightFlags,
+                                              isLightingInitialized,
+                                              lightCheckFlags);
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        val bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    private LightType readLightType() throws IOException {
+        val ordinal = readVarInt(input);
+        if (ordinal < 0 || ordinal >= LIGHT_TYPES.length)
+            throw new IOException("Unknown light type " + ordinal);
+        return LIGHT_TYPES[ordinal];
+    }
+
+    private FlushTrigger readFlushTrigger() throws IOException {
+        val ordinal = readVarInt(input);
+        if (ordinal < 0 || ordinal >= FLUSH_TRIGGERS.length)
+            throw new IOException("Unknown flush trigger " + ordinal);
+        return FLUSH_TRIGGERS[ordinal];
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import com.falsepattern.lumi.internal.lighting.phosphor.PhosphorChunk;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import lombok.val;
+import lombok.var;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.COLUMN_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_BLOCK_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.SUB_CHUNK_NIBBLE_COUNT;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.TRACE_MAGIC;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.TRACE_VERSION;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.writeVarInt;
+import static com.falsepattern.lumi.internal.lighting.trace.LightingTraceFormat.writeVarLong;
+
+/**
+ * Writes the lighting engine calls of a single LUMI world to a trace file, see {@link LightingTraceFormat}.
+ * <p>
+ * Every chunk is written as a {@link LightingTraceOp#CHUNK_SNAPSHOT} right before the first record touching it or one of its
+ * neighbours, so the trace can be replayed without the rest of the world. Updates of single blocks also record the light
+ * properties of the block, which covers the block edits made since the snapshot.
+ * <p>
+ * Calls may come from multiple threads, they are written in the order they were recorded in.
+ * Write errors stop the recording instead of being thrown back into the lighting engine.
+ */
+public final class LightingTraceRecorder {
+    private static final Logger LOG = createLogger("Lighting Trace Recorder");
+
+    private final LumiWorld world;
+    private final File file;
+    private final boolean hasSky;
+    private final DataOutputStream output;
+    private final LongSet snapshotChunks;
+
+    private final byte[] blockOpacities;
+    private final byte[] blockBrightnessNibbles;
+    private final byte[] blockLightNibbles;
+    private final byte[] skyLightNibbles;
+
+    private long recordCount;
+    private boolean isStopped;
+
+    private LightingTraceRecorder(LumiWorld world, File file, DataOutputStream output) {
+        this.world = world;
+        this.file = file;
+        this.hasSky = world.lumi$root().lumi$hasSky();
+        this.output = output;
+        this.snapshotChunks = new LongOpenHashSet();
+
+        this.blockOpacities = new byte[SUB_CHUNK_BLOCK_COUNT];
+        this.blockBrightnessNibbles = new byte[SUB_CHUNK_NIBBLE_COUNT];
+        this.blockLightNibbles = new byte[SUB_CHUNK_NIBBLE_COUNT];
+        this.skyLightNibbles = new byte[SUB_CHUNK_NIBBLE_COUNT];
+
+        this.recordCount = 0;
+        this.isStopped = false;
+    }
+
+    public static LightingTraceRecorder startRecording(LumiWorld world,
+                                                       String lightingEngineID,
+                                                       File file) throws IOException {
+        val parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Failed to create directory " + parent);
+
+        val output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+        try {
+            output.writeInt(TRACE_MAGIC);
+            output.writeShort(TRACE_VERSION);
+            output.writeUTF(lightingEngineID);
+            output.writeUTF(world.lumi$worldID());
+            output.writeBoolean(world.lumi$root().lumi$hasSky());
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+        LOG.info("Started recording lighting trace of world [{}] to [{}]", world.lumi$worldID(), file);
+        return new LightingTraceRecorder(world, file, output);
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public synchronized long recordCount() {
+        return recordCount;
+    }
+
+    public synchronized boolean isStopped() {
+        return isStopped;
+    }
+
+    public synchronized void stopRecording() {
+        if (isStopped)
+            return;
+        isStopped = true;
+        try {
+            output.writeByte(LightingTraceOp.END.ordinal());
+            output.close();
+            LOG.info("Stopped recording lighting trace of world [{}] after {} records, written to [{}]",
+                     world.lumi$worldID(),
+                     recordCount,
+                     file);
+        } catch (IOException e) {
+            LOG.error("Failed to finish lighting trace [{}]", file, e);
+        }
+    }
+
+    synchronized void recordChunk(LightingTraceOp op, LumiChunk chunk) {
+        if (isStopped)
+            return;
+        try {
+            val chunkPosX = chunk.lumi$chunkPosX();
+            val chunkPosZ = chunk.lumi$chunkPosZ();
+            snapshotChunk(chunk);
+            snapshotChunksAround(chunkPosX, chunkPosZ, chunkPosX, chunkPosZ);
+            writeOp(op);
+            writeVarInt(output, chunkPosX);
+            writeVarInt(output, chunkPosZ);
+
+            // An unloaded chunk may be loaded again with different contents
+            if (op == LightingTraceOp.CHUNK_UNLOAD)
+                snapshotChunks.remove(chunkPosLong(chunkPosX, chunkPosZ));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordSubChunkInit(LumiChunk chunk, int chunkPosY) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunk(chunk);
+            writeOp(LightingTraceOp.SUB_CHUNK_INIT);
+            writeVarInt(output, chunk.lumi$chunkPosX());
+            writeVarInt(output, chunk.lumi$chunkPosZ());
+            writeVarInt(output, chunkPosY);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordUpdateForBlock(int posX, int posY, int posZ) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunksAround(posX >> 4, posZ >> 4, posX >> 4, posZ >> 4);
+            writeBlock(posX, posY, posZ);
+            writeOp(LightingTraceOp.UPDATE_FOR_BLOCK);
+            writePos(posX, posY, posZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordSchedule(LightType lightType, int posX, int posY, int posZ) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunksAround(posX >> 4, posZ >> 4, posX >> 4, posZ >> 4);
+            writeBlock(posX, posY, posZ);
+            writeOp(LightingTraceOp.SCHEDULE);
+            writeVarInt(output, lightType.ordinal());
+            writePos(posX, posY, posZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordScheduleColumn(LightType lightType, int posX, int posZ) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunksAround(posX >> 4, posZ >> 4, posX >> 4, posZ >> 4);
+            writeOp(LightingTraceOp.SCHEDULE_COLUMN);
+            writeVarInt(output, lightType.ordinal());
+            writeVarInt(output, posX);
+            writeVarInt(output, posZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordScheduleColumnRange(LightType lightType, int posX, int posZ, int startPosY, int endPosY) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunksAround(posX >> 4, posZ >> 4, posX >> 4, posZ >> 4);
+            writeOp(LightingTraceOp.SCHEDULE_COLUMN_RANGE);
+            writeVarInt(output, lightType.ordinal());
+            writeVarInt(output, posX);
+            writeVarInt(output, posZ);
+            writeVarInt(output, startPosY);
+            writeVarInt(output, endPosY);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordScheduleRange(LightType lightType,
+                                          int startPosX,
+                                          int startPosY,
+                                          int startPosZ,
+                                          int endPosX,
+                                          int endPosY,
+                                          int endPosZ) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunksAround(Math.min(startPosX, endPosX) >> 4,
+                                 Math.min(startPosZ, endPosZ) >> 4,
+                                 Math.max(startPosX, endPosX) >> 4,
+                                 Math.max(startPosZ, endPosZ) >> 4);
+            writeOp(LightingTraceOp.SCHEDULE_RANGE);
+            writeVarInt(output, lightType.ordinal());
+            writePos(startPosX, startPosY, startPosZ);
+            writePos(endPosX, endPosY, endPosZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordGetLight(LightType lightType, int posX, int posY, int posZ) {
+        if (isStopped)
+            return;
+        try {
+            snapshotChunksAround(posX >> 4, posZ >> 4, posX >> 4, posZ >> 4);
+            writeOp(LightingTraceOp.GET_LIGHT);
+            writeVarInt(output, lightType.ordinal());
+            writePos(posX, posY, posZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordProcessType(LightType lightType, FlushTrigger trigger) {
+        if (isStopped)
+            return;
+        try {
+            writeOp(LightingTraceOp.PROCESS_TYPE);
+            writeVarInt(output, lightType.ordinal());
+            writeVarInt(output, trigger.ordinal());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordProcessAllTypes(FlushTrigger trigger) {
+        if (isStopped)
+            return;
+        try {
+            writeOp(LightingTraceOp.PROCESS_ALL_TYPES);
+            writeVarInt(output, trigger.ordinal());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordProcessWithinBudget(long maxNanos) {
+        if (isStopped)
+            return;
+        try {
+            writeOp(LightingTraceOp.PROCESS_WITHIN_BUDGET);
+            writeVarLong(output, maxNanos);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordBeginBulkEdit(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+        if (isStopped)
+            return;
+        try {
+            // Taken before any block within the box has changed
+            snapshotChunksAround(minPosX >> 4, minPosZ >> 4, maxPosX >> 4, maxPosZ >> 4);
+            writeOp(LightingTraceOp.BEGIN_BULK_EDIT);
+            writePos(minPosX, minPosY, minPosZ);
+            writePos(maxPosX, maxPosY, maxPosZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordEndBulkEdit() {
+        if (isStopped)
+            return;
+        try {
+            writeOp(LightingTraceOp.END_BULK_EDIT);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordWhenChunkLit(int chunkPosX, int chunkPosZ) {
+        if (isStopped)
+            return;
+        try {
+            // Checking the chunk may initialize its lighting, or process the updates near it
+            snapshotChunksAround(chunkPosX, chunkPosZ, chunkPosX, chunkPosZ);
+            writeOp(LightingTraceOp.WHEN_CHUNK_LIT);
+            writeVarInt(output, chunkPosX);
+            writeVarInt(output, chunkPosZ);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void recordCompleteChunkLitFutures() {
+        if (isStopped)
+            return;
+        try {
+            writeOp(LightingTraceOp.COMPLETE_CHUNK_LIT_FUTURES);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeOp(LightingTraceOp op) throws IOException {
+        output.writeByte(op.ordinal());
+        recordCount++;
+    }
+
+    private void writePos(int posX, int posY, int posZ) throws IOException {
+        writeVarInt(output, posX);
+        writeVarInt(output, posY);
+        writeVarInt(output, posZ);
+    }
+
+    private void writeBlock(int posX, int posY, int posZ) throws IOException {
+        writeOp(LightingTraceOp.BLOCK);
+        writePos(posX, posY, posZ);
+        writeVarInt(output, world.lumi$getBlockOpacity(posX, posY, posZ));
+        writeVarInt(output, world.lumi$getBlockBrightness(posX, posY, posZ));
+    }
+
+    private void snapshotChunksAround(int minChunkPosX, int minChunkPosZ, int maxChunkPosX, int maxChunkPosZ)
+            throws IOException {
+        for (var chunkPosX = minChunkPosX - 1; chunkPosX <= maxChunkPosX + 1; chunkPosX++) {
+            for (var chunkPosZ = minChunkPosZ - 1; chunkPosZ <= maxChunkPosZ + 1; chunkPosZ++) {
+                if (snapshotChunks.contains(chunkPosLong(chunkPosX, chunkPosZ)))
+                    continue;
+                val chunk = world.lumi$getChunkFromChunkPosIfExists(chunkPosX, chunkPosZ);
+                if (chunk != null)
+                    snapshotChunk(chunk);
+            }
+        }
+    }
+
+    private void snapshotChunk(LumiChunk chunk) throws IOException {
+        val chunkPosX = chunk.lumi$chunkPosX();
+        val chunkPosZ = chunk.lumi$chunkPosZ();
+        if (!snapshotChunks.add(chunkPosLong(chunkPosX, chunkPosZ)))
+            return;
+
+        output.writeByte(LightingTraceOp.CHUNK_SNAPSHOT.ordinal());
+        writeVarInt(output, chunkPosX);
+        writeVarInt(output, chunkPosZ);
+
+        var preparedSubChunkMask = 0;
+        for (var chunkPosY = 0; chunkPosY < SUB_CHUNK_COUNT; chunkPosY++)
+            if (chunk.lumi$getSubChunkIfPrepared(chunkPosY) != null)
+                preparedSubChunkMask |= 1 << chunkPosY;
+        output.writeShort(preparedSubChunkMask);
+
+        for (var chunkPosY = 0; chunkPosY < SUB_CHUNK_COUNT; chunkPosY++) {
+            if ((preparedSubChunkMask & (1 << chunkPosY)) == 0)
+                continue;
+            writeSubChunkSnapshot(chunk, chunkPosY);
+        }
+
+        val skyLightHeightMap = chunk.lumi$skyLightHeightMap();
+        for (var index = 0; index < COLUMN_COUNT; index++)
+            writeVarInt(output, skyLightHeightMap[index]);
+        writeVarInt(output, chunk.lumi$minSkyLightHeight());
+
+        for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+            var outdatedHeightFlags = 0;
+            for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++)
+                if (chunk.lumi$isHeightOutdated(subChunkPosX, subChunkPosZ))
+                    outdatedHeightFlags |= 1 << subChunkPosX;
+            output.writeShort(outdatedHeightFlags);
+        }
+        output.writeBoolean(chunk.lumi$isLightingInitialized());
+
+        if (chunk instanceof PhosphorChunk) {
+            val lightCheckFlags = ((PhosphorChunk) chunk).phosphor$lightCheckFlags();
+            writeVarInt(output, lightCheckFlags.length);
+            for (val lightCheckFlag : lightCheckFlags)
+                output.writeShort(lightCheckFlag);
+        } else {
+            writeVarInt(output, 0);
+        }
+    }
+
+    private void writeSubChunkSnapshot(LumiChunk chunk, int chunkPosY) throws IOException {
+        val subChunk = chunk.lumi$getSubChunk(chunkPosY);
+        val basePosY = chunkPosY << 4;
+        for (var subChunkPosY = 0; subChunkPosY < 16; subChunkPosY++) {
+            for (var subChunkPosZ = 0; subChunkPosZ < 16; subChunkPosZ++) {
+                for (var subChunkPosX = 0; subChunkPosX < 16; subChunkPosX++) {
+                    val index = LightingTraceFormat.subChunkBlockIndex(subChunkPosX, subChunkPosY, subChunkPosZ);
+                    val posY = basePosY + subChunkPosY;
+                    val opacity = chunk.lumi$getBlockOpacity(subChunkPosX, posY, subChunkPosZ);
+                    blockOpacities[index] = (byte) Math.max(0, Math.min(255, opacity));
+                    setNibble(blockBrightnessNibbles,
+                              index,
+                              chunk.lumi$getBlockBrightness(subChunkPosX, posY, subChunkPosZ));
+                    setNibble(blockLightNibbles,
+                              index,
+                              subChunk.lumi$getBlockLightValue(subChunkPosX, subChunkPosY, subChunkPosZ));
+                    if (hasSky) {
+                        setNibble(skyLightNibbles,
+                                  index,
+                                  subChunk.lumi$getSkyLightValue(subChunkPosX, subChunkPosY, subChunkPosZ));
+                    }
+                }
+            }
+        }
+        output.write(blockOpacities);
+        output.write(blockBrightnessNibbles);
+        output.write(blockLightNibbles);
+        if (hasSky)
+            output.write(skyLightNibbles);
+    }
+
+    private void fail(IOException e) {
+        LOG.error("Failed to write lighting trace [{}], recording has been stopped", file, e);
+        isStopped = true;
+        try {
+            output.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void setNibble(byte[] nibbles, int index, int value) {
+        val byteIndex = index >> 1;
+        val shift = (index & 1) << 2;
+        nibbles[byteIndex] = (byte) ((nibbles[byteIndex] & ~(15 << shift)) | ((value & 15) << shift));
+    }
+
+    private static long chunkPosLong(int chunkPosX, int chunkPosZ) {
+        return ((long) chunkPosX << 32) | (chunkPosZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.lighting.trace;
+
+import com.falsepattern.lib.compat.BlockPos;
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.chunk.LumiSubChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.internal.config.LumiConfig;
+import lombok.val;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.chunk.Chunk;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.callerFlushTrigger;
+
+/**
+ * Forwards every call to the wrapped lighting engine, recording them to a {@link LightingTraceRecorder} while one is active.
+ * <p>
+ * Only wraps the engines of new worlds while {@link LumiConfig#ENABLE_LIGHTING_TRACE_RECORDER} is enabled,
+ * as the extra call and check would otherwise be paid on every light read.
+ * Storage and networking calls are not recorded, their effects are part of the chunk snapshots instead.
+ */
+public final class TracingLightingEngine implements LumiLightingEngine {
+    private final LumiWorld world;
+    private final LumiLightingEngine delegate;
+
+    private volatile @Nullable LightingTraceRecorder recorder;
+
+    public TracingLightingEngine(LumiWorld world, LumiLightingEngine delegate) {
+        this.world = world;
+        this.delegate = delegate;
+        this.recorder = null;
+    }
+
+    public LumiLightingEngine delegate() {
+        return delegate;
+    }
+
+    public @Nullable LightingTraceRecorder recorder() {
+        return recorder;
+    }
+
+    /**
+     * Stops the active recording first, if any.
+     */
+    public synchronized LightingTraceRecorder startRecording(File file) throws IOException {
+        stopRecording();
+        val recorder = LightingTraceRecorder.startRecording(world, delegate.lightingEngineID(), file);
+        this.recorder = recorder;
+        return recorder;
+    }
+
+    public synchronized @Nullable LightingTraceRecorder stopRecording() {
+        val recorder = this.recorder;
+        if (recorder == null)
+            return null;
+        this.recorder = null;
+        recorder.stopRecording();
+        return recorder;
+    }
+
+    @Override
+    public @NotNull String lightingEngineID() {
+        return delegate.lightingEngineID();
+    }
+
+    // region Storage
+    @Override
+    public void writeChunkToNBT(@NotNull LumiChunk chunk, @NotNull NBTTagCompound output) {
+        delegate.writeChunkToNBT(chunk, output);
+    }
+
+    @Override
+    public void readChunkFromNBT(@NotNull LumiChunk chunk, @NotNull NBTTagCompound input) {
+        delegate.readChunkFromNBT(chunk, input);
+    }
+
+    @Override
+    public void cloneChunk(@NotNull LumiChunk from, @NotNull LumiChunk to) {
+        delegate.cloneChunk(from, to);
+    }
+
+    @Override
+    public void writeSubChunkToNBT(@NotNull LumiChunk chunk,
+                                   @NotNull LumiSubChunk subChunk,
+                                   @NotNull NBTTagCompound output) {
+        delegate.writeSubChunkToNBT(chunk, subChunk, output);
+    }
+
+    @Override
+    public void readSubChunkFromNBT(@NotNull LumiChunk chunk,
+                                    @NotNull LumiSubChunk subChunk,
+                                    @NotNull NBTTagCompound input) {
+        delegate.readSubChunkFromNBT(chunk, subChunk, input);
+    }
+
+    @Override
+    public void cloneSubChunk(@NotNull LumiChunk fromChunk, @NotNull LumiSubChunk from, @NotNull LumiSubChunk to) {
+        delegate.cloneSubChunk(fromChunk, from, to);
+    }
+
+    @Override
+    public void writeChunkToPacket(@NotNull LumiChunk chunk, @NotNull ByteBuffer output) {
+        delegate.writeChunkToPacket(chunk, output);
+    }
+
+    @Override
+    public void readChunkFromPacket(@NotNull LumiChunk chunk, @NotNull ByteBuffer input) {
+        delegate.readChunkFromPacket(chunk, input);
+    }
+
+    @Override
+    public void writeSubChunkToPacket(@NotNull LumiChunk chunk,
+                                      @NotNull LumiSubChunk subChunk,
+                                      @NotNull ByteBuffer input) {
+        delegate.writeSubChunkToPacket(chunk, subChunk, input);
+    }
+
+    @Override
+    public void readSubChunkFromPacket(@NotNull LumiChunk chunk,
+                                       @NotNull LumiSubChunk subChunk,
+                                       @NotNull ByteBuffer output) {
+        delegate.readSubChunkFromPacket(chunk, subChunk, output);
+    }
+    // endregion
+
+    // region Light Values
+    @Override
+    public int getCurrentLightValue(@NotNull LightType lightType, @NotNull BlockPos blockPos) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordGetLight(lightType, blockPos.getX(), blockPos.getY(), blockPos.getZ());
+        return delegate.getCurrentLightValue(lightType, blockPos);
+    }
+
+    @Override
+    public int getCurrentLightValue(@NotNull LightType lightType, int posX, int posY, int posZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordGetLight(lightType, posX, posY, posZ);
+        return delegate.getCurrentLightValue(lightType, posX, posY, posZ);
+    }
+
+    @Override
+    public int getCurrentLightValueChunk(@NotNull Chunk chunk,
+                                         @NotNull LightType lightType,
+                                         int chunkPosX,
+                                         int posY,
+                                         int chunkPosZ) {
+        val recorder = this.recorder;
+        if (recorder != null) {
+            recorder.recordGetLight(lightType,
+                                    (chunk.xPosition << 4) + chunkPosX,
+                                    posY,
+                                    (chunk.zPosition << 4) + chunkPosZ);
+        }
+        return delegate.getCurrentLightValueChunk(chunk, lightType, chunkPosX, posY, chunkPosZ);
+    }
+
+    @Override
+    public boolean isChunkFullyLit(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.IS_CHUNK_FULLY_LIT, chunk);
+        return delegate.isChunkFullyLit(chunk);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> whenChunkLit(int chunkPosX, int chunkPosZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordWhenChunkLit(chunkPosX, chunkPosZ);
+        return delegate.whenChunkLit(chunkPosX, chunkPosZ);
+    }
+
+    @Override
+    public void completeChunkLitFutures() {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordCompleteChunkLitFutures();
+        delegate.completeChunkLitFutures();
+    }
+
+    @Override
+    public void handleWorldUnload() {
+        delegate.handleWorldUnload();
+    }
+    // endregion
+
+    // region Chunks
+    @Override
+    public void handleChunkInit(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.CHUNK_INIT, chunk);
+        delegate.handleChunkInit(chunk);
+    }
+
+    @Override
+    public void prepareChunkInit(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.PREPARE_CHUNK_INIT, chunk);
+        delegate.prepareChunkInit(chunk);
+    }
+
+    @Override
+    public void handleClientChunkInit(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.CLIENT_CHUNK_INIT, chunk);
+        delegate.handleClientChunkInit(chunk);
+    }
+
+    @Override
+    public void handleSubChunkInit(@NotNull LumiChunk chunk, @NotNull LumiSubChunk subChunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordSubChunkInit(chunk, subChunk.lumi$root().lumi$posY() >> 4);
+        delegate.handleSubChunkInit(chunk, subChunk);
+    }
+
+    @Override
+    public void handleChunkLoad(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.CHUNK_LOAD, chunk);
+        delegate.handleChunkLoad(chunk);
+    }
+
+    @Override
+    public void handleChunkUnload(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.CHUNK_UNLOAD, chunk);
+        delegate.handleChunkUnload(chunk);
+    }
+
+    @Override
+    public void doRandomChunkLightingUpdates(@NotNull LumiChunk chunk) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordChunk(LightingTraceOp.RANDOM_CHUNK_UPDATES, chunk);
+        delegate.doRandomChunkLightingUpdates(chunk);
+    }
+    // endregion
+
+    // region Updates
+    @Override
+    public void updateLightingForBlock(@NotNull BlockPos blockPos) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordUpdateForBlock(blockPos.getX(), blockPos.getY(), blockPos.getZ());
+        delegate.updateLightingForBlock(blockPos);
+    }
+
+    @Override
+    public void updateLightingForBlock(int posX, int posY, int posZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordUpdateForBlock(posX, posY, posZ);
+        delegate.updateLightingForBlock(posX, posY, posZ);
+    }
+
+    @Override
+    public void scheduleLightingUpdateForRange(@NotNull LightType lightType,
+                                               @NotNull BlockPos startBlockPos,
+                                               @NotNull BlockPos endBlockPos) {
+        val recorder = this.recorder;
+        if (recorder != null) {
+            recorder.recordScheduleRange(lightType,
+                                         startBlockPos.getX(),
+                                         startBlockPos.getY(),
+                                         startBlockPos.getZ(),
+                                         endBlockPos.getX(),
+                                         endBlockPos.getY(),
+                                         endBlockPos.getZ());
+        }
+        delegate.scheduleLightingUpdateForRange(lightType, startBlockPos, endBlockPos);
+    }
+
+    @Override
+    public void scheduleLightingUpdateForRange(@NotNull LightType lightType,
+                                               int startPosX,
+                                               int startPosY,
+                                               int startPosZ,
+                                               int endPosX,
+                                               int endPosY,
+                                               int endPosZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordScheduleRange(lightType, startPosX, startPosY, startPosZ, endPosX, endPosY, endPosZ);
+        delegate.scheduleLightingUpdateForRange(lightType, startPosX, startPosY, startPosZ, endPosX, endPosY, endPosZ);
+    }
+
+    @Override
+    public void scheduleLightingUpdateForColumn(@NotNull LightType lightType, int posX, int posZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordScheduleColumn(lightType, posX, posZ);
+        delegate.scheduleLightingUpdateForColumn(lightType, posX, posZ);
+    }
+
+    @Override
+    public void scheduleLightingUpdateForColumn(@NotNull LightType lightType,
+                                                int posX,
+                                                int posZ,
+                                                int startPosY,
+                                                int endPosY) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordScheduleColumnRange(lightType, posX, posZ, startPosY, endPosY);
+        delegate.scheduleLightingUpdateForColumn(lightType, posX, posZ, startPosY, endPosY);
+    }
+
+    @Override
+    public void scheduleLightingUpdate(@NotNull LightType lightType, @NotNull BlockPos blockPos) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordSchedule(lightType, blockPos.getX(), blockPos.getY(), blockPos.getZ());
+        delegate.scheduleLightingUpdate(lightType, blockPos);
+    }
+
+    @Override
+    public void scheduleLightingUpdate(@NotNull LightType lightType, int posX, int posY, int posZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordSchedule(lightType, posX, posY, posZ);
+        delegate.scheduleLightingUpdate(lightType, posX, posY, posZ);
+    }
+
+    @Override
+    public void processLightingUpdatesForType(@NotNull LightType lightType) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordProcessType(lightType, callerFlushTrigger());
+        delegate.processLightingUpdatesForType(lightType);
+    }
+
+    @Override
+    public void processLightingUpdatesForAllTypes() {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordProcessAllTypes(callerFlushTrigger());
+        delegate.processLightingUpdatesForAllTypes();
+    }
+
+    @Override
+    public void processLightingUpdatesWithinBudget(long maxNanos) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordProcessWithinBudget(maxNanos);
+        delegate.processLightingUpdatesWithinBudget(maxNanos);
+    }
+
+    @Override
+    public void beginBulkEdit(int minPosX, int minPosY, int minPosZ, int maxPosX, int maxPosY, int maxPosZ) {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordBeginBulkEdit(minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+        delegate.beginBulkEdit(minPosX, minPosY, minPosZ, maxPosX, maxPosY, maxPosZ);
+    }
+
+    @Override
+    public void endBulkEdit() {
+        val recorder = this.recorder;
+        if (recorder != null)
+            recorder.recordEndBulkEdit();
+        delegate.endBulkEdit();
+    }
+    // endregion
+}
@@ -28,17 +28,26 @@ import com.falsepattern.lumi.api.LumiChunkAPI;
 import com.falsepattern.lumi.api.lighting.LightType;
 import com.falsepattern.lumi.api.world.LumiWorld;
 import com.falsepattern.lumi.internal.config.LumiConfig;
+import com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger;
+import com.falsepattern.lumi.internal.lighting.oracle.LightingAuditor;
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightDeltaTracking;
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightingAuditing;
+import com.falsepattern.lumi.internal.network.LightDeltaTracker;
 import cpw.mods.fml.relauncher.SideOnly;
 import lombok.experimental.UtilityClass;
 import lombok.val;
 import lombok.var;
 import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import java.util.Arrays;
 
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.enterCallerFlushTrigger;
+import static com.falsepattern.lumi.internal.lighting.metrics.CallerFlushTrigger.exitCallerFlushTrigger;
+import static com.falsepattern.lumi.internal.network.LumiNetworkManager.lumiNetworkManager;
 import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
 import static cpw.mods.fml.relauncher.Side.CLIENT;
 
@@ -131,6 +140,21 @@ public final class LightingHooks {
         }
     }
 
+    /**
+     * Called from the chunk loader thread once a chunk has been read, before it is loaded into the world.
+     */
+    public static void prepareChunkInit(Chunk chunkBase) {
+        val worldBase = chunkBase.worldObj;
+
+        val lumiWorldsFromBaseWorld = lumiWorldsFromBaseWorld(worldBase);
+        for (var i = 0; i < lumiWorldsFromBaseWorld.length; i++) {
+            val world = lumiWorldsFromBaseWorld[i];
+            val lightingEngine = world.lumi$lightingEngine();
+            val chunk = world.lumi$wrap(chunkBase);
+            lightingEngine.prepareChunkInit(chunk);
+        }
+    }
+
     @SideOnly(CLIENT)
     public static void handleClientChunkInit(Chunk chunkBase) {
         val worldBase = chunkBase.worldObj;
@@ -183,14 +207,34 @@ public final class LightingHooks {
         }
     }
 
+    public static void handleChunkUnload(Chunk chunkBase) {
+        val worldBase = chunkBase.worldObj;
+
+        val lumiWorldsFromBaseWorld = lumiWorldsFromBaseWorld(worldBase);
+        for (var i = 0; i < lumiWorldsFromBaseWorld.length; i++) {
+            val world = lumiWorldsFromBaseWorld[i];
+            val lightingEngine = world.lumi$lightingEngine();
+            val chunk = world.lumi$wrap(chunkBase);
+            lightingEngine.handleChunkUnload(chunk);
+        }
+    }
+
     public static void doRandomChunkLightingUpdates(Chunk chunkBase) {
+        val worldBase = chunkBase.worldObj;
+        if (!worldBase.isRemote && LumiConfig.ENABLE_LIGHTING_AUDITOR) {
+            val lightingAuditor = ((LumiLightingAuditing) worldBase).lumi$getLightingAuditor();
+            // Created on the first tick of the world
+            if (lightingAuditor != null)
+                lightingAuditor.offerChunk(chunkBase);
+            return;
+        }
+
         if (!LumiConfig.DO_RANDOM_LIGHT_UPDATES)
             return;
 
-        if (!chunkBase.worldObj.isRemote && chunkBase.inhabitedTime < 10 * 20)
+        if (!worldBase.isRemote && chunkBase.inhabitedTime < 10 * 20)
             return;
 
-        val worldBase = chunkBase.worldObj;
         val lumiWorldsFromBaseWorld = lumiWorldsFromBaseWorld(worldBase);
         for (var i = 0; i < lumiWorldsFromBaseWorld.length; i++) {
             val world = lumiWorldsFromBaseWorld[i];
@@ -249,9 +293,21 @@ public final class LightingHooks {
         }
     }
 
-    public static void processLightingUpdatesForAllTypes(Chunk chunkBase) {
+    public static void processLightingUpdatesForAllTypes(Chunk chunkBase, FlushTrigger trigger) {
         val worldBase = chunkBase.worldObj;
-        processLightingUpdatesForAllTypes(worldBase);
+        processLightingUpdatesForAllTypes(worldBase, trigger);
+    }
+
+    /**
+     * Records the flushes with the given trigger, see {@link FlushTrigger}.
+     */
+    public static void processLightingUpdatesForAllTypes(World worldBase, FlushTrigger trigger) {
+        val previousTrigger = enterCallerFlushTrigger(trigger);
+        try {
+            processLightingUpdatesForAllTypes(worldBase);
+        } finally {
+            exitCallerFlushTrigger(previousTrigger);
+        }
     }
 
     public static void processLightingUpdatesForAllTypes(World worldBase) {
@@ -263,6 +319,64 @@ public final class LightingHooks {
         }
     }
 
+    public static void processLightingUpdatesForTick(World worldBase) {
+        val budgetMicros = LumiConfig.LIGHTING_TICK_BUDGET_MICROS;
+        if (budgetMicros <= 0)
+            return;
+
+        // The budget is shared by all LUMI worlds on top of the same base world
+        val deadlineNanos = System.nanoTime() + budgetMicros * 1_000L;
+        val lumiWorldsFromBaseWorld = lumiWorldsFromBaseWorld(worldBase);
+        for (var i = 0; i < lumiWorldsFromBaseWorld.length; i++) {
+            val world = lumiWorldsFromBaseWorld[i];
+            val lightingEngine = world.lumi$lightingEngine();
+            lightingEngine.processLightingUpdatesWithinBudget(Math.max(deadlineNanos - System.nanoTime(), 0));
+        }
+    }
+
+    public static void completeChunkLitFutures(World worldBase) {
+        val lumiWorldsFromBaseWorld = lumiWorldsFromBaseWorld(worldBase);
+        for (var i = 0; i < lumiWorldsFromBaseWorld.length; i++) {
+            val world = lumiWorldsFromBaseWorld[i];
+            val lightingEngine = world.lumi$lightingEngine();
+            lightingEngine.completeChunkLitFutures();
+        }
+    }
+
+    public static void auditLighting(WorldServer worldBase) {
+        val lightingAuditing = (LumiLightingAuditing) worldBase;
+        if (!LumiConfig.ENABLE_LIGHTING_AUDITOR) {
+            lightingAuditing.lumi$setLightingAuditor(null);
+            return;
+        }
+
+        var lightingAuditor = lightingAuditing.lumi$getLightingAuditor();
+        if (lightingAuditor == null) {
+            lightingAuditor = new LightingAuditor();
+            lightingAuditing.lumi$setLightingAuditor(lightingAuditor);
+        }
+        lightingAuditor.tick(worldBase);
+    }
+
+    public static void sendLightDeltas(WorldServer worldBase) {
+        if (!LumiConfig.ENABLE_LIGHT_DELTA_PACKETS)
+            return;
+
+        val lightDeltaTracking = (LumiLightDeltaTracking) worldBase;
+        val lightDeltaTracker = lightDeltaTracking.lumi$getLightDeltaTracker();
+        if (lightDeltaTracker == null) {
+            // Players can't be watching any chunks before the first tick
+            lightDeltaTracking.lumi$setLightDeltaTracker(new LightDeltaTracker());
+            return;
+        }
+        lightDeltaTracker.sendLightChanges(worldBase);
+    }
+
+    @SideOnly(CLIENT)
+    public static void applyReceivedLightDeltas(World worldBase) {
+        lumiNetworkManager().applyReceivedLightDeltas(worldBase);
+    }
+
     private static LumiWorld[] lumiWorldsFromBaseWorld(World worldBase) {
         return worldProviderManager().lumiWorldsFromBaseWorld(worldBase);
     }
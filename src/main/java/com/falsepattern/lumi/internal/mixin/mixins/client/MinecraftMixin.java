@@ -35,6 +35,8 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.CLIENT_TICK;
+
 @Mixin(Minecraft.class)
 public abstract class MinecraftMixin {
     @Shadow
@@ -46,7 +48,10 @@ public abstract class MinecraftMixin {
                      shift = At.Shift.AFTER),
             require = 1)
     private void updateClientLighting(CallbackInfo ci) {
-        if (theWorld != null)
-            LightingHooks.processLightingUpdatesForAllTypes(theWorld);
+        if (theWorld == null)
+            return;
+        LightingHooks.processLightingUpdatesForAllTypes(theWorld, CLIENT_TICK);
+        // Applied last, as the server light values take priority
+        LightingHooks.applyReceivedLightDeltas(theWorld);
     }
 }
@@ -25,6 +25,8 @@
 package com.falsepattern.lumi.internal.mixin.mixins.common;
 
 import com.falsepattern.lumi.internal.mixin.hook.LightingHooks;
+import lombok.val;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.AnvilChunkLoader;
@@ -32,6 +34,9 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.CHUNK_SAVE;
 
 @Mixin(AnvilChunkLoader.class)
 public abstract class AnvilChunkLoaderMixin {
@@ -39,6 +44,21 @@ public abstract class AnvilChunkLoaderMixin {
             at = @At("HEAD"),
             require = 1)
     private void processLightUpdatesOnSave(World worldBase, Chunk chunkBase, CallbackInfo callbackInfo) {
-        LightingHooks.processLightingUpdatesForAllTypes(worldBase);
+        LightingHooks.processLightingUpdatesForAllTypes(worldBase, CHUNK_SAVE);
+    }
+
+    @Inject(method = "checkedReadChunkFromNBT__Async",
+            at = @At("RETURN"),
+            remap = false,
+            require = 1)
+    private void prepareChunkInitOnRead(World worldBase,
+                                        int chunkPosX,
+                                        int chunkPosZ,
+                                        NBTTagCompound input,
+                                        CallbackInfoReturnable<Object[]> cir) {
+        val result = cir.getReturnValue();
+        if (result == null)
+            return;
+        LightingHooks.prepareChunkInit((Chunk) result[0]);
     }
 }
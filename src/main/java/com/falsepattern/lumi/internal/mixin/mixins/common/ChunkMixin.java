@@ -54,6 +54,13 @@ public abstract class ChunkMixin {
         LightingHooks.handleChunkLoad(thiz());
     }
 
+    @Inject(method = "onChunkUnload",
+            at = @At("HEAD"),
+            require = 1)
+    private void handleChunkUnload(CallbackInfo ci) {
+        LightingHooks.handleChunkUnload(thiz());
+    }
+
     @Redirect(method = "setLightValue",
               at = @At(value = "INVOKE",
                        target = "Lnet/minecraft/world/chunk/Chunk;generateSkylightMap()V"),
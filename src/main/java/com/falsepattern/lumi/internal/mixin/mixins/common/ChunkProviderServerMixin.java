@@ -36,6 +36,9 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.util.Set;
 
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.CHUNK_UNLOAD;
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.WORLD_SAVE;
+
 @Mixin(ChunkProviderServer.class)
 public abstract class ChunkProviderServerMixin {
     @Shadow
@@ -48,7 +51,7 @@ public abstract class ChunkProviderServerMixin {
             at = @At("HEAD"),
             require = 1)
     private void processLightUpdatesOnSave(boolean saveAll, IProgressUpdate progressUpdate, CallbackInfoReturnable<Boolean> cir) {
-        LightingHooks.processLightingUpdatesForAllTypes(worldObj);
+        LightingHooks.processLightingUpdatesForAllTypes(worldObj, WORLD_SAVE);
     }
 
     @Inject(method = "unloadQueuedChunks",
@@ -60,6 +63,6 @@ public abstract class ChunkProviderServerMixin {
         if (chunksToUnload.isEmpty())
             return;
 
-        LightingHooks.processLightingUpdatesForAllTypes(worldObj);
+        LightingHooks.processLightingUpdatesForAllTypes(worldObj, CHUNK_UNLOAD);
     }
 }
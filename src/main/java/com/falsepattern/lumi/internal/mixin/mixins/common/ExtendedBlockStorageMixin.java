@@ -24,7 +24,9 @@
 
 package com.falsepattern.lumi.internal.mixin.mixins.common;
 
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightPropertyCache;
 import lombok.val;
+import net.minecraft.block.Block;
 import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.chunk.NibbleArray;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
@@ -42,7 +44,7 @@ import static com.falsepattern.lumi.internal.util.LazyUtil.lazyGet;
 import static com.falsepattern.lumi.internal.util.LazyUtil.lazySet;
 
 @Mixin(ExtendedBlockStorage.class)
-public abstract class ExtendedBlockStorageMixin {
+public abstract class ExtendedBlockStorageMixin implements LumiLightPropertyCache {
     @Shadow
     private int blockRefCount;
     @Shadow
@@ -54,6 +56,8 @@ public abstract class ExtendedBlockStorageMixin {
     private boolean lumi$isDirty;
     @Unique
     private boolean lumi$isTrivial;
+    @Unique
+    private byte[] lumi$lightProperties;
 
     private static final NibbleArray DUMMY = new NibbleArray(new byte[0], 4);
 
@@ -198,6 +202,60 @@ public abstract class ExtendedBlockStorageMixin {
         return lumi$isTrivial;
     }
 
+    @Inject(method = "func_150818_a",
+            at = @At("HEAD"),
+            require = 1)
+    private void invalidateLightPropertiesOnBlockChange(int subChunkPosX,
+                                                        int subChunkPosY,
+                                                        int subChunkPosZ,
+                                                        Block block,
+                                                        CallbackInfo ci) {
+        lumi$invalidateLightProperties(subChunkPosX, subChunkPosY, subChunkPosZ);
+    }
+
+    @Inject(method = "setExtBlockMetadata",
+            at = @At("HEAD"),
+            require = 1)
+    private void invalidateLightPropertiesOnMetaChange(int subChunkPosX,
+                                                       int subChunkPosY,
+                                                       int subChunkPosZ,
+                                                       int blockMeta,
+                                                       CallbackInfo ci) {
+        lumi$invalidateLightProperties(subChunkPosX, subChunkPosY, subChunkPosZ);
+    }
+
+    @Inject(method = {"setBlockLSBArray", "setBlockMSBArray", "setBlockMetadataArray"},
+            at = @At("HEAD"),
+            require = 3)
+    private void invalidateLightPropertiesOnArrayChange(CallbackInfo ci) {
+        lumi$lightProperties = null;
+    }
+
+    @Override
+    public int lumi$getLightProperties(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        if (lumi$lightProperties == null)
+            return 0;
+        return lumi$lightProperties[lumi$lightPropertyIndex(subChunkPosX, subChunkPosY, subChunkPosZ)] & 0xFF;
+    }
+
+    @Override
+    public void lumi$setLightProperties(int subChunkPosX, int subChunkPosY, int subChunkPosZ, int lightProperties) {
+        if (lumi$lightProperties == null)
+            lumi$lightProperties = new byte[4096];
+        lumi$lightProperties[lumi$lightPropertyIndex(subChunkPosX, subChunkPosY, subChunkPosZ)] = (byte) lightProperties;
+    }
+
+    @Unique
+    private void lumi$invalidateLightProperties(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        if (lumi$lightProperties != null)
+            lumi$lightProperties[lumi$lightPropertyIndex(subChunkPosX, subChunkPosY, subChunkPosZ)] = 0;
+    }
+
+    @Unique
+    private static int lumi$lightPropertyIndex(int subChunkPosX, int subChunkPosY, int subChunkPosZ) {
+        return subChunkPosY << 8 | subChunkPosZ << 4 | subChunkPosX;
+    }
+
     @Unique
     private boolean lumi$checkLightArrayEqual(NibbleArray storage, EnumSkyBlock baseLightType) {
         if (storage == null)
@@ -32,6 +32,7 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import static com.falsepattern.lumi.internal.lighting.metrics.FlushTrigger.CHUNK_PACKET;
 import static com.falsepattern.lumi.internal.mixin.plugin.MixinPlugin.POST_CHUNK_API_MIXIN_PRIORITY;
 
 @Mixin(value = S21PacketChunkData.class, priority = POST_CHUNK_API_MIXIN_PRIORITY)
@@ -43,6 +44,6 @@ public abstract class S21PacketChunkDataMixin {
                                                      boolean hasSky,
                                                      int subChunkMask,
                                                      CallbackInfoReturnable<S21PacketChunkData.Extracted> cir) {
-        LightingHooks.processLightingUpdatesForAllTypes(chunkBase);
+        LightingHooks.processLightingUpdatesForAllTypes(chunkBase, CHUNK_PACKET);
     }
 }
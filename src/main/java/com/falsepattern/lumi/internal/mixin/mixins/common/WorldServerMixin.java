@@ -0,0 +1,50 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package com.falsepattern.lumi.internal.mixin.mixins.common;
+
+import com.falsepattern.lumi.internal.mixin.hook.LightingHooks;
+import net.minecraft.world.WorldServer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(WorldServer.class)
+public abstract class WorldServerMixin {
+    @Inject(method = "tick",
+            at = @At("RETURN"),
+            require = 1)
+    private void processLightUpdatesOnTick(CallbackInfo ci) {
+        LightingHooks.processLightingUpdatesForTick(thiz());
+        LightingHooks.completeChunkLitFutures(thiz());
+        LightingHooks.auditLighting(thiz());
+        LightingHooks.sendLightDeltas(thiz());
+    }
+
+    private WorldServer thiz() {
+        return (WorldServer) (Object) this;
+    }
+}
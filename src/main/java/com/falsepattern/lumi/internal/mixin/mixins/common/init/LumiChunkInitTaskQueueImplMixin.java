@@ -27,6 +27,7 @@ package com.falsepattern.lumi.internal.mixin.mixins.common.init;
 import com.falsepattern.lumi.api.init.LumiChunkInitTaskQueue;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
+import lombok.val;
 import net.minecraft.world.chunk.Chunk;
 import org.jetbrains.annotations.NotNull;
 import org.spongepowered.asm.mixin.Mixin;
@@ -38,6 +39,10 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 @Unique
 @Mixin(Chunk.class)
 public abstract class LumiChunkInitTaskQueueImplMixin implements LumiChunkInitTaskQueue {
+    /**
+     * Most chunks only ever get a single task, the list is only created for the ones after it.
+     */
+    private Runnable lumi$firstTask;
     private ObjectList<Runnable> lumi$taskQueue;
 
     @Inject(method = "onChunkLoad",
@@ -51,6 +56,10 @@ public abstract class LumiChunkInitTaskQueueImplMixin implements LumiChunkInitTa
 
     @Override
     public void lumi$addInitTask(@NotNull Runnable task) {
+        if (lumi$firstTask == null) {
+            lumi$firstTask = task;
+            return;
+        }
         if (lumi$taskQueue == null)
             lumi$taskQueue = new ObjectArrayList<>();
         lumi$taskQueue.add(task);
@@ -58,9 +67,17 @@ public abstract class LumiChunkInitTaskQueueImplMixin implements LumiChunkInitTa
 
     @Override
     public void lumi$executeInitTasks() {
+        if (lumi$firstTask == null)
+            return;
+        // Cleared first, so tasks scheduled while running are kept for the next call
+        val firstTask = lumi$firstTask;
+        lumi$firstTask = null;
+        firstTask.run();
+
         if (lumi$taskQueue == null)
             return;
-        lumi$taskQueue.forEach(Runnable::run);
-        lumi$taskQueue.clear();
+        val taskQueue = lumi$taskQueue;
+        lumi$taskQueue = null;
+        taskQueue.forEach(Runnable::run);
     }
 }
@@ -28,7 +28,7 @@ import com.falsepattern.chunk.api.ArrayUtil;
 import com.falsepattern.lumi.api.chunk.LumiSubChunk;
 import com.falsepattern.lumi.api.chunk.LumiSubChunkRoot;
 import com.falsepattern.lumi.api.lighting.LightType;
-import com.falsepattern.lumi.internal.ArrayHelper;
+import com.falsepattern.lumi.internal.util.UniformNibbleArray;
 import lombok.val;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.chunk.NibbleArray;
@@ -49,6 +49,13 @@ import java.nio.ByteBuffer;
 
 import static com.falsepattern.lumi.api.init.LumiExtendedBlockStorageInitHook.LUMI_EXTENDED_BLOCK_STORAGE_INIT_HOOK_INFO;
 import static com.falsepattern.lumi.api.init.LumiExtendedBlockStorageInitHook.LUMI_EXTENDED_BLOCK_STORAGE_INIT_HOOK_METHOD;
+import static com.falsepattern.lumi.internal.storage.LightArrayCodec.readLightArray;
+import static com.falsepattern.lumi.internal.storage.LightArrayCodec.writeLightArray;
+import static com.falsepattern.lumi.internal.util.LazyUtil.lazySet;
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.compactNibbleArray;
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.isUniformNibbleArray;
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.uniformNibbleArray;
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.uniformValueOf;
 
 @Unique
 @Mixin(ExtendedBlockStorage.class)
@@ -85,84 +92,44 @@ public abstract class LumiSubChunkImplMixin implements LumiSubChunk {
 
     @Override
     public void lumi$writeToNBT(@NotNull NBTTagCompound output) {
-        if (blocklightArray != null)
-            output.setByteArray(BLOCK_LIGHT_NBT_TAG_NAME, blocklightArray.data);
-        if (skylightArray != null)
-            output.setByteArray(SKY_LIGHT_NBT_TAG_NAME, skylightArray.data);
+        blocklightArray = compactNibbleArray(blocklightArray);
+        skylightArray = compactNibbleArray(skylightArray);
+
+        lumi$writeArrayToNBT(output, blocklightArray, BLOCK_LIGHT_NBT_TAG_NAME, BLOCK_LIGHT_UNIFORM_NBT_TAG_NAME);
+        lumi$writeArrayToNBT(output, skylightArray, SKY_LIGHT_NBT_TAG_NAME, SKY_LIGHT_UNIFORM_NBT_TAG_NAME);
     }
 
     @Override
     public void lumi$readFromNBT(@NotNull NBTTagCompound input) {
-        if (input.hasKey(BLOCK_LIGHT_NBT_TAG_NAME, Constants.NBT.TAG_BYTE_ARRAY)) {
-            val blockLightBytes = input.getByteArray(BLOCK_LIGHT_NBT_TAG_NAME);
-            if (ArrayHelper.isZero(blockLightBytes)) {
-                blocklightArray = null;
-            } else if (blocklightArray == null) {
-                blocklightArray = new NibbleArray(blockLightBytes, 4);
-            } else {
-                System.arraycopy(blockLightBytes, 0, blocklightArray.data, 0, 2048);
-            }
-        } else {
-            blocklightArray = null;
-        }
-
-        if (input.hasKey(SKY_LIGHT_NBT_TAG_NAME, Constants.NBT.TAG_BYTE_ARRAY)) {
-            val skyLightBytes = input.getByteArray(SKY_LIGHT_NBT_TAG_NAME);
-            if (ArrayHelper.isZero(skyLightBytes)) {
-                skylightArray = null;
-            } else if (skylightArray == null) {
-                skylightArray = new NibbleArray(skyLightBytes, 4);
-            } else {
-                System.arraycopy(skyLightBytes, 0, skylightArray.data, 0, 2048);
-            }
-        } else {
-            skylightArray = null;
-        }
+        blocklightArray = lumi$readArrayFromNBT(input,
+                                                blocklightArray,
+                                                BLOCK_LIGHT_NBT_TAG_NAME,
+                                                BLOCK_LIGHT_UNIFORM_NBT_TAG_NAME);
+        skylightArray = lumi$readArrayFromNBT(input,
+                                              skylightArray,
+                                              SKY_LIGHT_NBT_TAG_NAME,
+                                              SKY_LIGHT_UNIFORM_NBT_TAG_NAME);
     }
 
     @Override
     public void lumi$cloneFrom(LumiSubChunk from) {
-        blocklightArray = ArrayUtil.copyArray(from.lumi$getBlockLightArray(), lumi$getBlockLightArray());
-        skylightArray = ArrayUtil.copyArray(from.lumi$getSkyLightArray(), lumi$getSkyLightArray());
+        blocklightArray = lumi$cloneArray(from.lumi$getBlockLightArray(), blocklightArray);
+        skylightArray = lumi$cloneArray(from.lumi$getSkyLightArray(), skylightArray);
     }
 
     @Override
     public void lumi$writeToPacket(@NotNull ByteBuffer output) {
-        if (blocklightArray != null && ArrayHelper.isZero(blocklightArray.data))
-            blocklightArray = null;
-        if (skylightArray != null && ArrayHelper.isZero(skylightArray.data))
-            skylightArray = null;
+        blocklightArray = compactNibbleArray(blocklightArray);
+        skylightArray = compactNibbleArray(skylightArray);
 
-        byte flag = (byte) ((blocklightArray != null ? 1 : 0) | (skylightArray != null ? 2 : 0));
-        output.put(flag);
-        if (blocklightArray != null)
-            output.put(blocklightArray.data);
-        if (skylightArray != null)
-            output.put(skylightArray.data);
+        writeLightArray(output, blocklightArray);
+        writeLightArray(output, skylightArray);
     }
 
     @Override
     public void lumi$readFromPacket(@NotNull ByteBuffer input) {
-        byte flag = input.get();
-        boolean doBlock = (flag & 1) != 0;
-        boolean doSky = (flag & 2) != 0;
-
-        if (doBlock) {
-            if (blocklightArray == null) {
-                blocklightArray = new NibbleArray(4096, 4);
-            }
-            input.get(blocklightArray.data);
-        } else {
-            blocklightArray = null;
-        }
-        if (doSky) {
-            if (skylightArray == null) {
-                skylightArray = new NibbleArray(4096, 4);
-            }
-            input.get(skylightArray.data);
-        } else {
-            skylightArray = null;
-        }
+        blocklightArray = readLightArray(input, blocklightArray);
+        skylightArray = readLightArray(input, skylightArray);
     }
 
     @Override
@@ -200,14 +167,7 @@ public abstract class LumiSubChunkImplMixin implements LumiSubChunk {
 
     @Override
     public void lumi$setBlockLightValue(int subChunkPosX, int subChunkPosY, int subChunkPosZ, int lightValue) {
-        if (blocklightArray == null) {
-            if (lightValue == 0)
-                return;
-
-            blocklightArray = new NibbleArray(4096, 4);
-        }
-
-        blocklightArray.set(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+        blocklightArray = lazySet(blocklightArray, subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
     }
 
     @Override
@@ -220,13 +180,7 @@ public abstract class LumiSubChunkImplMixin implements LumiSubChunk {
 
     @Override
     public void lumi$setSkyLightValue(int subChunkPosX, int subChunkPosY, int subChunkPosZ, int lightValue) {
-        if (skylightArray == null) {
-            if (lightValue == 0)
-                return;
-            skylightArray = new NibbleArray(4096, 4);
-        }
-
-        skylightArray.set(subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
+        skylightArray = lazySet(skylightArray, subChunkPosX, subChunkPosY, subChunkPosZ, lightValue);
     }
 
     @Override
@@ -246,4 +200,45 @@ public abstract class LumiSubChunkImplMixin implements LumiSubChunk {
     public NibbleArray lumi$getSkyLightArray() {
         return skylightArray;
     }
+
+    @Unique
+    private static void lumi$writeArrayToNBT(NBTTagCompound output,
+                                             @Nullable NibbleArray array,
+                                             String arrayTagName,
+                                             String uniformTagName) {
+        if (array instanceof UniformNibbleArray) {
+            output.setByte(uniformTagName, (byte) ((UniformNibbleArray) array).value());
+        } else if (array != null) {
+            output.setByteArray(arrayTagName, array.data);
+        }
+    }
+
+    @Unique
+    private static @Nullable NibbleArray lumi$readArrayFromNBT(NBTTagCompound input,
+                                                               @Nullable NibbleArray array,
+                                                               String arrayTagName,
+                                                               String uniformTagName) {
+        if (input.hasKey(arrayTagName, Constants.NBT.TAG_BYTE_ARRAY)) {
+            val bytes = input.getByteArray(arrayTagName);
+            val uniformValue = uniformValueOf(bytes);
+            if (uniformValue >= 0)
+                return uniformNibbleArray(uniformValue);
+            if (array == null || isUniformNibbleArray(array))
+                return new NibbleArray(bytes, 4);
+            System.arraycopy(bytes, 0, array.data, 0, 2048);
+            return array;
+        }
+        if (input.hasKey(uniformTagName, Constants.NBT.TAG_BYTE))
+            return uniformNibbleArray(input.getByte(uniformTagName));
+        return null;
+    }
+
+    @Unique
+    private static @Nullable NibbleArray lumi$cloneArray(@Nullable NibbleArray from, @Nullable NibbleArray to) {
+        if (from == null || isUniformNibbleArray(from))
+            return from;
+        if (isUniformNibbleArray(to))
+            to = null;
+        return ArrayUtil.copyArray(from, to);
+    }
 }
@@ -27,7 +27,11 @@ package com.falsepattern.lumi.internal.mixin.mixins.common.lumi;
 import com.falsepattern.lumi.api.chunk.LumiChunkRoot;
 import com.falsepattern.lumi.api.world.LumiWorld;
 import com.falsepattern.lumi.api.world.LumiWorldRoot;
+import com.falsepattern.lumi.internal.lighting.oracle.LightingAuditor;
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightDeltaTracking;
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightingAuditing;
 import com.falsepattern.lumi.internal.mixin.interfaces.LumiWorldRootCache;
+import com.falsepattern.lumi.internal.network.LightDeltaTracker;
 import lombok.val;
 import net.minecraft.block.Block;
 import net.minecraft.tileentity.TileEntity;
@@ -51,7 +55,7 @@ import static com.falsepattern.lumi.internal.mixin.plugin.MixinPlugin.LUMI_ROOT_
 
 @Unique
 @Mixin(value = World.class, priority = LUMI_ROOT_IMPL_MIXIN_PRIORITY)
-public abstract class LumiWorldRootImplMixin implements IBlockAccess, LumiWorldRoot, LumiWorldRootCache {
+public abstract class LumiWorldRootImplMixin implements IBlockAccess, LumiWorldRoot, LumiWorldRootCache, LumiLightDeltaTracking, LumiLightingAuditing {
     // region Shadow
     @Final
     @Shadow
@@ -81,6 +85,14 @@ public abstract class LumiWorldRootImplMixin implements IBlockAccess, LumiWorldR
     @Shadow
     public abstract void func_147479_m(int posX, int posY, int posZ);
 
+    @Shadow
+    public abstract void markBlockRangeForRenderUpdate(int minPosX,
+                                                       int minPosY,
+                                                       int minPosZ,
+                                                       int maxPosX,
+                                                       int maxPosY,
+                                                       int maxPosZ);
+
     @Shadow
     public abstract TileEntity getTileEntity(int posX, int posY, int posZ);
 
@@ -89,6 +101,9 @@ public abstract class LumiWorldRootImplMixin implements IBlockAccess, LumiWorldR
     // endregion
 
     private LumiWorld[] lumi$lumiWorlds;
+    // Set on the server thread, read by the lighting worker thread
+    private volatile LightDeltaTracker lumi$lightDeltaTracker;
+    private LightingAuditor lumi$lightingAuditor;
 
     @Override
     public LumiWorld[] lumi$getLumiWorlds() {
@@ -100,6 +115,26 @@ public abstract class LumiWorldRootImplMixin implements IBlockAccess, LumiWorldR
         lumi$lumiWorlds = lumiWorlds;
     }
 
+    @Override
+    public LightDeltaTracker lumi$getLightDeltaTracker() {
+        return lumi$lightDeltaTracker;
+    }
+
+    @Override
+    public void lumi$setLightDeltaTracker(LightDeltaTracker lightDeltaTracker) {
+        lumi$lightDeltaTracker = lightDeltaTracker;
+    }
+
+    @Override
+    public LightingAuditor lumi$getLightingAuditor() {
+        return lumi$lightingAuditor;
+    }
+
+    @Override
+    public void lumi$setLightingAuditor(LightingAuditor lightingAuditor) {
+        lumi$lightingAuditor = lightingAuditor;
+    }
+
     @Inject(method = LUMI_WORLD_INIT_HOOK_METHOD,
             at = @At("RETURN"),
             remap = false,
@@ -115,8 +150,29 @@ public abstract class LumiWorldRootImplMixin implements IBlockAccess, LumiWorldR
 
     @Override
     public void lumi$markBlockForRenderUpdate(int posX, int posY, int posZ) {
-        if (isRemote)
+        if (isRemote) {
             func_147479_m(posX, posY, posZ);
+            return;
+        }
+
+        val lightDeltaTracker = lumi$lightDeltaTracker;
+        if (lightDeltaTracker != null)
+            lightDeltaTracker.recordLightChange(posX, posY, posZ);
+    }
+
+    @Override
+    public void lumi$markSubChunkForRenderUpdate(int chunkPosX, int chunkPosY, int chunkPosZ) {
+        if (isRemote) {
+            val basePosX = chunkPosX << 4;
+            val basePosY = chunkPosY << 4;
+            val basePosZ = chunkPosZ << 4;
+            markBlockRangeForRenderUpdate(basePosX, basePosY, basePosZ, basePosX + 15, basePosY + 15, basePosZ + 15);
+            return;
+        }
+
+        val lightDeltaTracker = lumi$lightDeltaTracker;
+        if (lightDeltaTracker != null)
+            lightDeltaTracker.recordSubChunkChange(chunkPosX, chunkPosY, chunkPosZ);
     }
 
     @Override
@@ -47,6 +47,7 @@ public enum Mixin implements IMixin {
     common_ChunkProviderServerMixin(COMMON, always(), "ChunkProviderServerMixin"),
     common_S21PacketChunkDataMixin(COMMON, always(), "S21PacketChunkDataMixin"),
     common_WorldMixin(COMMON, always(), "WorldMixin"),
+    common_WorldServerMixin(COMMON, always(), "WorldServerMixin"),
 
     client_MinecraftMixin(CLIENT, always(), "MinecraftMixin"),
     client_ChunkMixin(CLIENT, always(), "ChunkMixin"),
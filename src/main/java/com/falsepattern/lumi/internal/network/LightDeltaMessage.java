@@ -0,0 +1,261 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.network;
+
+import com.falsepattern.lumi.api.chunk.LumiChunk;
+import com.falsepattern.lumi.api.lighting.LightType;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import lombok.var;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+import java.util.BitSet;
+
+import static com.falsepattern.lumi.api.lighting.LightType.BLOCK_LIGHT_TYPE;
+import static com.falsepattern.lumi.api.lighting.LightType.SKY_LIGHT_TYPE;
+import static com.falsepattern.lumi.internal.network.LumiNetworkManager.lumiNetworkManager;
+import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
+
+/**
+ * Light values of the positions in a chunk which were changed by the server-side lighting engine.
+ * <p>
+ * Payload layout:
+ * <ul>
+ *     <li>Mask of the subchunks with changes</li>
+ *     <li>For each of those subchunks, the changed positions as runs of consecutive positions,
+ *     each stored as the gap since the end of the previous run and the run length</li>
+ *     <li>For each world provider, its ID, the payload length, whether it has sky light,
+ *     and the packed block and sky light nibbles of every changed position</li>
+ * </ul>
+ */
+@NoArgsConstructor
+public final class LightDeltaMessage implements IMessage {
+    private static final int SUB_CHUNK_POS_BITS = 12;
+    private static final int BLOCKS_PER_SUB_CHUNK = 1 << SUB_CHUNK_POS_BITS;
+    // Gaps and run lengths are at most 4096, which always fits in two bytes
+    private static final int MAX_VAR_INT_BYTES = 2;
+
+    private int dimensionID;
+    private int chunkPosX;
+    private int chunkPosZ;
+    private byte[] payload;
+
+    static LightDeltaMessage encode(Chunk chunkBase, BitSet changes) {
+        val positions = new IntArrayList(changes.cardinality());
+        for (var index = changes.nextSetBit(0); index >= 0; index = changes.nextSetBit(index + 1))
+            positions.add(index);
+
+        val buffer = Unpooled.buffer();
+        val subChunkMask = subChunkMaskOf(positions);
+        buffer.writeShort(subChunkMask);
+        writePositionRuns(buffer, positions);
+
+        val worldBase = chunkBase.worldObj;
+        val worldProviderManager = worldProviderManager();
+        val worldProviderCount = worldProviderManager.worldProviderCount();
+        for (var providerInternalID = 0; providerInternalID < worldProviderCount; providerInternalID++) {
+            val worldProvider = worldProviderManager.getWorldProviderByInternalID(providerInternalID);
+            if (worldProvider == null)
+                continue;
+            val world = worldProvider.provideWorld(worldBase);
+            if (world == null)
+                continue;
+            val chunk = world.lumi$wrap(chunkBase);
+            val hasSky = world.lumi$root().lumi$hasSky();
+
+            buffer.writeInt(providerInternalID);
+            val lengthPosition = buffer.writerIndex();
+            buffer.writeInt(0);
+            buffer.writeBoolean(hasSky);
+            writeLightValues(buffer, chunk, BLOCK_LIGHT_TYPE, positions);
+            if (hasSky)
+                writeLightValues(buffer, chunk, SKY_LIGHT_TYPE, positions);
+            buffer.setInt(lengthPosition, buffer.writerIndex() - lengthPosition - Integer.BYTES);
+        }
+
+        val message = new LightDeltaMessage();
+        message.dimensionID = worldBase.provider.dimensionId;
+        message.chunkPosX = chunkBase.xPosition;
+        message.chunkPosZ = chunkBase.zPosition;
+        message.payload = new byte[buffer.readableBytes()];
+        buffer.readBytes(message.payload);
+        return message;
+    }
+
+    void apply(World worldBase) {
+        if (worldBase.provider.dimensionId != dimensionID)
+            return;
+        if (!worldBase.getChunkProvider().chunkExists(chunkPosX, chunkPosZ))
+            return;
+        val chunkBase = worldBase.getChunkFromChunkCoords(chunkPosX, chunkPosZ);
+
+        val buffer = Unpooled.wrappedBuffer(payload);
+        val subChunkMask = buffer.readUnsignedShort();
+        val positions = readPositionRuns(buffer, subChunkMask);
+
+        val worldProviderManager = worldProviderManager();
+        while (buffer.isReadable()) {
+            val providerInternalID = buffer.readInt();
+            val length = buffer.readInt();
+            val startPosition = buffer.readerIndex();
+
+            val worldProvider = worldProviderManager.getWorldProviderByInternalID(providerInternalID);
+            val world = worldProvider == null ? null : worldProvider.provideWorld(worldBase);
+            if (world != null) {
+                val chunk = world.lumi$wrap(chunkBase);
+                val hasSky = buffer.readBoolean();
+                readLightValues(buffer, chunk, BLOCK_LIGHT_TYPE, positions);
+                if (hasSky)
+                    readLightValues(buffer, chunk, SKY_LIGHT_TYPE, positions);
+            }
+            buffer.readerIndex(startPosition + length);
+        }
+
+        val basePosX = chunkPosX << 4;
+        val basePosZ = chunkPosZ << 4;
+        for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+            if ((subChunkMask & (1 << chunkPosY)) == 0)
+                continue;
+            val basePosY = chunkPosY << 4;
+            worldBase.markBlockRangeForRenderUpdate(basePosX, basePosY, basePosZ, basePosX + 15, basePosY + 15, basePosZ + 15);
+        }
+    }
+
+    private static int subChunkMaskOf(IntArrayList positions) {
+        var subChunkMask = 0;
+        for (var i = 0; i < positions.size(); i++)
+            subChunkMask |= 1 << (positions.getInt(i) >> SUB_CHUNK_POS_BITS);
+        return subChunkMask;
+    }
+
+    private static void writePositionRuns(ByteBuf buffer, IntArrayList positions) {
+        val count = positions.size();
+        var start = 0;
+        while (start < count) {
+            val subChunkBase = positions.getInt(start) & ~(BLOCKS_PER_SUB_CHUNK - 1);
+            var end = start;
+            while (end < count && (positions.getInt(end) & ~(BLOCKS_PER_SUB_CHUNK - 1)) == subChunkBase)
+                end++;
+
+            var runCount = 0;
+            for (var i = start; i < end; i++) {
+                if (i == start || positions.getInt(i) != positions.getInt(i - 1) + 1)
+                    runCount++;
+            }
+            ByteBufUtils.writeVarInt(buffer, runCount, MAX_VAR_INT_BYTES);
+
+            var previousRunEnd = subChunkBase;
+            var i = start;
+            while (i < end) {
+                val runStart = positions.getInt(i);
+                var runLength = 1;
+                while (i + runLength < end && positions.getInt(i + runLength) == runStart + runLength)
+                    runLength++;
+                ByteBufUtils.writeVarInt(buffer, runStart - previousRunEnd, MAX_VAR_INT_BYTES);
+                ByteBufUtils.writeVarInt(buffer, runLength, MAX_VAR_INT_BYTES);
+                previousRunEnd = runStart + runLength;
+                i += runLength;
+            }
+            start = end;
+        }
+    }
+
+    private static IntArrayList readPositionRuns(ByteBuf buffer, int subChunkMask) {
+        val positions = new IntArrayList();
+        for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+            if ((subChunkMask & (1 << chunkPosY)) == 0)
+                continue;
+            val runCount = ByteBufUtils.readVarInt(buffer, MAX_VAR_INT_BYTES);
+            var position = chunkPosY << SUB_CHUNK_POS_BITS;
+            for (var i = 0; i < runCount; i++) {
+                position += ByteBufUtils.readVarInt(buffer, MAX_VAR_INT_BYTES);
+                val runLength = ByteBufUtils.readVarInt(buffer, MAX_VAR_INT_BYTES);
+                for (var j = 0; j < runLength; j++)
+                    positions.add(position++);
+            }
+        }
+        return positions;
+    }
+
+    private static void writeLightValues(ByteBuf buffer, LumiChunk chunk, LightType lightType, IntArrayList positions) {
+        val count = positions.size();
+        for (var i = 0; i < count; i += 2) {
+            val lowNibble = getLightValue(chunk, lightType, positions.getInt(i));
+            val highNibble = i + 1 < count ? getLightValue(chunk, lightType, positions.getInt(i + 1)) : 0;
+            buffer.writeByte(highNibble << 4 | lowNibble);
+        }
+    }
+
+    private static void readLightValues(ByteBuf buffer, LumiChunk chunk, LightType lightType, IntArrayList positions) {
+        val count = positions.size();
+        for (var i = 0; i < count; i += 2) {
+            val packedNibbles = buffer.readUnsignedByte();
+            setLightValue(chunk, lightType, positions.getInt(i), packedNibbles & 15);
+            if (i + 1 < count)
+                setLightValue(chunk, lightType, positions.getInt(i + 1), packedNibbles >>> 4);
+        }
+    }
+
+    private static int getLightValue(LumiChunk chunk, LightType lightType, int position) {
+        return chunk.lumi$getLightValue(lightType, position & 15, position >> 8, (position >> 4) & 15);
+    }
+
+    private static void setLightValue(LumiChunk chunk, LightType lightType, int position, int lightValue) {
+        chunk.lumi$setLightValue(lightType, position & 15, position >> 8, (position >> 4) & 15, lightValue);
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        dimensionID = buf.readInt();
+        chunkPosX = buf.readInt();
+        chunkPosZ = buf.readInt();
+        payload = new byte[buf.readableBytes()];
+        buf.readBytes(payload);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeInt(dimensionID);
+        buf.writeInt(chunkPosX);
+        buf.writeInt(chunkPosZ);
+        buf.writeBytes(payload);
+    }
+
+    public static final class Handler implements IMessageHandler<LightDeltaMessage, IMessage> {
+        @Override
+        public IMessage onMessage(LightDeltaMessage message, MessageContext ctx) {
+            lumiNetworkManager().enqueueReceivedLightDelta(message);
+            return null;
+        }
+    }
+}
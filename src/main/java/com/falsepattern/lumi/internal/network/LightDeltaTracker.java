@@ -0,0 +1,115 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.network;
+
+import lombok.val;
+import lombok.var;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.WorldServer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.falsepattern.lumi.internal.network.LumiNetworkManager.lumiNetworkManager;
+
+/**
+ * Collects the positions where the server-side lighting engine changed light values,
+ * and sends them to the players watching each chunk as light delta packets.
+ * <p>
+ * Positions are stored per chunk, indexed as {@code posY << 8 | subChunkPosZ << 4 | subChunkPosX}.
+ */
+public final class LightDeltaTracker {
+    private static final int MIN_POS_Y = 0;
+    private static final int MAX_POS_Y = 255;
+
+    private final ArrayList<EntityPlayerMP> watchingPlayers = new ArrayList<>();
+
+    // Light changes may be recorded by the lighting worker thread and by the parallel lighting passes at the same time,
+    // so each chunk is only locked by the map while its positions are being modified
+    private final ConcurrentHashMap<Long, BitSet> changedPositions = new ConcurrentHashMap<>();
+
+    public void recordLightChange(int posX, int posY, int posZ) {
+        if (posY < MIN_POS_Y || posY > MAX_POS_Y)
+            return;
+
+        val chunkPosLong = ChunkCoordIntPair.chunkXZ2Int(posX >> 4, posZ >> 4);
+        val index = posY << 8 | (posZ & 15) << 4 | (posX & 15);
+        changedPositions.compute(chunkPosLong, (key, changes) -> {
+            if (changes == null)
+                changes = new BitSet();
+            changes.set(index);
+            return changes;
+        });
+    }
+
+    public void recordSubChunkChange(int chunkPosX, int chunkPosY, int chunkPosZ) {
+        if (chunkPosY < MIN_POS_Y >> 4 || chunkPosY > MAX_POS_Y >> 4)
+            return;
+
+        val chunkPosLong = ChunkCoordIntPair.chunkXZ2Int(chunkPosX, chunkPosZ);
+        val fromIndex = chunkPosY << 12;
+        changedPositions.compute(chunkPosLong, (key, changes) -> {
+            if (changes == null)
+                changes = new BitSet();
+            changes.set(fromIndex, fromIndex + 4096);
+            return changes;
+        });
+    }
+
+    public void sendLightChanges(WorldServer worldBase) {
+        if (changedPositions.isEmpty())
+            return;
+
+        val chunkProvider = worldBase.getChunkProvider();
+        val playerManager = worldBase.getPlayerManager();
+        val players = worldBase.playerEntities;
+        for (final long chunkPosLong : changedPositions.keySet()) {
+            // Once removed, the positions can no longer be modified by a concurrent recording
+            val changes = changedPositions.remove(chunkPosLong);
+            if (changes == null)
+                continue;
+            val chunkPosX = (int) chunkPosLong;
+            val chunkPosZ = (int) (chunkPosLong >>> 32);
+            if (!chunkProvider.chunkExists(chunkPosX, chunkPosZ))
+                continue;
+
+            watchingPlayers.clear();
+            for (var i = 0; i < players.size(); i++) {
+                val player = players.get(i);
+                if (player instanceof EntityPlayerMP && playerManager.isPlayerWatchingChunk((EntityPlayerMP) player, chunkPosX, chunkPosZ))
+                    watchingPlayers.add((EntityPlayerMP) player);
+            }
+            if (watchingPlayers.isEmpty())
+                continue;
+
+            val chunkBase = worldBase.getChunkFromChunkCoords(chunkPosX, chunkPosZ);
+            val message = LightDeltaMessage.encode(chunkBase, changes);
+            lumiNetworkManager().sendLightDelta(message, watchingPlayers);
+        }
+        watchingPlayers.clear();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.network;
+
+import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.simpleimpl.SimpleNetworkWrapper;
+import cpw.mods.fml.relauncher.Side;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import lombok.var;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.World;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.Tags.MOD_ID;
+import static lombok.AccessLevel.PRIVATE;
+
+@NoArgsConstructor(access = PRIVATE)
+public final class LumiNetworkManager {
+    private static final Logger LOG = createLogger("Network Manager");
+
+    private static final LumiNetworkManager INSTANCE = new LumiNetworkManager();
+
+    private static final int LIGHT_DELTA_MESSAGE_ID = 0;
+
+    // Messages are received on the network thread, and applied on the client thread
+    private final Queue<LightDeltaMessage> receivedLightDeltas = new ConcurrentLinkedQueue<>();
+
+    private SimpleNetworkWrapper channel;
+    private boolean isRegistered = false;
+
+    public static LumiNetworkManager lumiNetworkManager() {
+        return INSTANCE;
+    }
+
+    public void registerNetworkChannel() {
+        if (isRegistered)
+            return;
+
+        channel = NetworkRegistry.INSTANCE.newSimpleChannel(MOD_ID);
+        channel.registerMessage(LightDeltaMessage.Handler.class, LightDeltaMessage.class, LIGHT_DELTA_MESSAGE_ID, Side.CLIENT);
+        isRegistered = true;
+        LOG.info("Registered network channel");
+    }
+
+    void sendLightDelta(LightDeltaMessage message, List<EntityPlayerMP> players) {
+        if (!isRegistered)
+            return;
+
+        // Encoded once and shared by every player watching the chunk
+        val packet = channel.getPacketFrom(message);
+        for (var i = 0; i < players.size(); i++)
+            players.get(i).playerNetServerHandler.sendPacket(packet);
+    }
+
+    void enqueueReceivedLightDelta(LightDeltaMessage message) {
+        receivedLightDeltas.add(message);
+    }
+
+    public void applyReceivedLightDeltas(World worldBase) {
+        while (true) {
+            val message = receivedLightDeltas.poll();
+            if (message == null)
+                return;
+            message.apply(worldBase);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.falsepattern.lumi.api.chunk.LumiChunk;
 import com.falsepattern.lumi.api.init.LumiChunkInitHook;
 import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
 import com.falsepattern.lumi.internal.Tags;
+import com.falsepattern.lumi.internal.config.LumiConfig;
 import lombok.NoArgsConstructor;
 import lombok.val;
 import lombok.var;
@@ -44,6 +45,8 @@ import java.util.Arrays;
 
 import static com.falsepattern.lumi.internal.Lumi.createLogger;
 import static com.falsepattern.lumi.internal.Tags.MOD_ID;
+import static com.falsepattern.lumi.internal.storage.PackedWorldData.findEntry;
+import static com.falsepattern.lumi.internal.storage.PackedWorldData.readPackedWorldData;
 import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
 import static lombok.AccessLevel.PRIVATE;
 
@@ -89,6 +92,8 @@ public final class ChunkNBTManager implements DataManager.ChunkDataManager {
         val worldBase = chunkBase.worldObj;
         val worldProviderManager = worldProviderManager();
         val worldProviderCount = worldProviderManager.worldProviderCount();
+        val packedWorldData = LumiConfig.ENABLE_PACKED_NBT_FORMAT ? new PackedWorldData() : null;
+        val writeVanillaData = LumiConfig.WRITE_VANILLA_LIGHT_DATA;
         boolean populated = true;
         int[] heightMap = null;
         for (var providerInternalID = 0; providerInternalID < worldProviderCount; providerInternalID++) {
@@ -101,11 +106,20 @@ public final class ChunkNBTManager implements DataManager.ChunkDataManager {
             val chunk = world.lumi$wrap(chunkBase);
             val lightingEngine = world.lumi$lightingEngine();
 
-            val worldTag = Utils.writeWorldTag(output, world, worldProvider);
+            if (packedWorldData != null) {
+                packedWorldData.writeWorld(world,
+                                           worldProvider,
+                                           chunkDataTag(chunk),
+                                           lightingEngineDataTag(chunk, lightingEngine));
+            } else {
+                val worldTag = Utils.writeWorldTag(output, world, worldProvider);
 
-            writeChunkData(chunk, worldTag);
-            writeLightingEngineData(chunk, lightingEngine, worldTag);
+                writeChunkData(chunk, worldTag);
+                writeLightingEngineData(chunk, lightingEngine, worldTag);
+            }
 
+            if (!writeVanillaData)
+                continue;
             populated &= chunk.lumi$isLightingInitialized();
             var currentHeightMap = chunk.lumi$skyLightHeightMap();
             if (currentHeightMap == null)
@@ -120,6 +134,10 @@ public final class ChunkNBTManager implements DataManager.ChunkDataManager {
                 heightMap[i] = Math.min(heightMap[i], currentHeightMap[i]);
             }
         }
+        if (packedWorldData != null)
+            packedWorldData.writeTo(output);
+        if (!writeVanillaData)
+            return;
         output.setIntArray(LumiChunk.SKY_LIGHT_HEIGHT_MAP_NBT_TAG_NAME_VANILLA, heightMap);
         output.setBoolean(LumiChunk.IS_LIGHT_INITIALIZED_NBT_TAG_NAME_VANILLA, populated);
     }
@@ -178,6 +196,7 @@ public final class ChunkNBTManager implements DataManager.ChunkDataManager {
         val worldBase = chunkBase.worldObj;
         val worldProviderManager = worldProviderManager();
         val worldProviderCount = worldProviderManager.worldProviderCount();
+        val packedWorldData = legacy ? null : readPackedWorldData(input);
         for (var providerInternalID = 0; providerInternalID < worldProviderCount; providerInternalID++) {
             val worldProvider = worldProviderManager.getWorldProviderByInternalID(providerInternalID);
             if (worldProvider == null)
@@ -188,6 +207,18 @@ public final class ChunkNBTManager implements DataManager.ChunkDataManager {
             val chunk = world.lumi$wrap(chunkBase);
             val lightingEngine = world.lumi$lightingEngine();
 
+            if (packedWorldData != null) {
+                val entry = findEntry(packedWorldData, world, worldProvider);
+                if (entry == null) {
+                    initChunkData(chunk);
+                    initLightingEngineData(chunk, lightingEngine);
+                } else {
+                    chunk.lumi$readFromNBT(entry.dataTag);
+                    lightingEngine.readChunkFromNBT(chunk, entry.lightingEngineTag);
+                }
+                continue;
+            }
+
             val worldTag = Utils.readWorldTag(input, world, worldProvider, legacy);
             if (worldTag == null) {
                 initChunkData(chunk);
@@ -211,18 +242,26 @@ public final class ChunkNBTManager implements DataManager.ChunkDataManager {
 
     private static void writeChunkData(LumiChunk chunk, NBTTagCompound output) {
         val chunkTagName = chunk.lumi$chunkID();
-        val chunkTag = new NBTTagCompound();
-        chunk.lumi$writeToNBT(chunkTag);
-        output.setTag(chunkTagName, chunkTag);
+        output.setTag(chunkTagName, chunkDataTag(chunk));
     }
 
     private static void writeLightingEngineData(LumiChunk chunk,
                                                 LumiLightingEngine lightingEngine,
                                                 NBTTagCompound output) {
         val lightingEngineTagName = lightingEngine.lightingEngineID();
+        output.setTag(lightingEngineTagName, lightingEngineDataTag(chunk, lightingEngine));
+    }
+
+    private static NBTTagCompound chunkDataTag(LumiChunk chunk) {
+        val chunkTag = new NBTTagCompound();
+        chunk.lumi$writeToNBT(chunkTag);
+        return chunkTag;
+    }
+
+    private static NBTTagCompound lightingEngineDataTag(LumiChunk chunk, LumiLightingEngine lightingEngine) {
         val lightingEngineTag = new NBTTagCompound();
         lightingEngine.writeChunkToNBT(chunk, lightingEngineTag);
-        output.setTag(lightingEngineTagName, lightingEngineTag);
+        return lightingEngineTag;
     }
 
     private static void readChunkData(LumiChunk chunk, NBTTagCompound input) {
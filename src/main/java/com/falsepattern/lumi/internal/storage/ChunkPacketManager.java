@@ -29,11 +29,13 @@ import com.falsepattern.chunk.api.DataRegistry;
 import com.falsepattern.lumi.api.chunk.LumiChunk;
 import com.falsepattern.lumi.api.chunk.LumiSubChunk;
 import com.falsepattern.lumi.internal.event.EventPoster;
+import com.falsepattern.lumi.internal.mixin.interfaces.LumiLightDeltaTracking;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 import lombok.val;
 import lombok.var;
+import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -52,13 +54,13 @@ public final class ChunkPacketManager implements DataManager.PacketDataManager {
 
     private static final ChunkPacketManager INSTANCE = new ChunkPacketManager();
 
-    private static final int BLOCKS_PER_SUB_CHUNK = 16 * 16 * 16;
-    private static final int BITS_PER_BLOCK = 4 + 4;
-    private static final int BYTES_PER_BLOCK = BITS_PER_BLOCK / 8;
-    private static final int MAX_PACKET_SIZE_BYTES_PER_WORLD_PROVIDER = 1 + BLOCKS_PER_SUB_CHUNK * BYTES_PER_BLOCK;
+    // Block and sky light arrays
+    private static final int LIGHT_ARRAYS_PER_SUB_CHUNK = 2;
+    private static final int MAX_PACKET_SIZE_BYTES_PER_WORLD_PROVIDER = LIGHT_ARRAYS_PER_SUB_CHUNK * LightArrayCodec.MAX_ENCODED_SIZE_BYTES;
     private static final int PROVIDER_ID_SIZE_BYTES = Integer.BYTES;
     private static final int PROVIDER_WRITTEN_BYTES_SIZE_BYTES = Integer.BYTES;
-    private static final int HEADER_SIZE_BYTES = PROVIDER_ID_SIZE_BYTES + PROVIDER_WRITTEN_BYTES_SIZE_BYTES;
+    private static final int HAS_SUB_CHUNK_LIGHT_SIZE_BYTES = Byte.BYTES;
+    private static final int HEADER_SIZE_BYTES = PROVIDER_ID_SIZE_BYTES + PROVIDER_WRITTEN_BYTES_SIZE_BYTES + HAS_SUB_CHUNK_LIGHT_SIZE_BYTES;
 
     @Getter
     private int maxPacketSize = 0;
@@ -99,9 +101,11 @@ public final class ChunkPacketManager implements DataManager.PacketDataManager {
     // What provider is the world from? (Providers have IDs assigned to them on registration)
     // What world has been provided?
     // How much data has been written? (Counting the written data is trivial)
+    // Are the subchunk light arrays included? (Partial resends leave them out while light delta packets are sent)
     @Override
     public void writeToBuffer(Chunk chunkBase, int subChunkMask, boolean forceUpdate, ByteBuffer output) {
         val worldBase = chunkBase.worldObj;
+        val hasSubChunkLight = forceUpdate || !isLightSentAsDeltas(worldBase);
         val worldProviderManager = worldProviderManager();
         val worldProviderCount = worldProviderManager.worldProviderCount();
         for (var providerInternalID = 0; providerInternalID < worldProviderCount; providerInternalID++) {
@@ -114,21 +118,26 @@ public final class ChunkPacketManager implements DataManager.PacketDataManager {
             output.putInt(providerInternalID);
             val lengthPosition = output.position();
             output.position(lengthPosition + PROVIDER_WRITTEN_BYTES_SIZE_BYTES);
+            output.put(hasSubChunkLight ? (byte) 1 : (byte) 0);
 
             val chunk = world.lumi$wrap(chunkBase);
             val lightingEngine = world.lumi$lightingEngine();
 
             chunk.lumi$writeToPacket(output);
-            for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
-                val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
-                if (subChunk != null)
-                    subChunk.lumi$writeToPacket(output);
+            if (hasSubChunkLight) {
+                for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+                    val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
+                    if (subChunk != null)
+                        subChunk.lumi$writeToPacket(output);
+                }
             }
             lightingEngine.writeChunkToPacket(chunk, output);
-            for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
-                val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
-                if (subChunk != null)
-                    lightingEngine.writeSubChunkToPacket(chunk, subChunk, output);
+            if (hasSubChunkLight) {
+                for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+                    val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
+                    if (subChunk != null)
+                        lightingEngine.writeSubChunkToPacket(chunk, subChunk, output);
+                }
             }
 
             val length = output.position() - PROVIDER_WRITTEN_BYTES_SIZE_BYTES - lengthPosition;
@@ -146,6 +155,7 @@ public final class ChunkPacketManager implements DataManager.PacketDataManager {
             if (length == 0)
                 continue;
             val startPosition = input.position();
+            val hasSubChunkLight = input.get() != 0;
 
             val worldProvider = worldProviderManager.getWorldProviderByInternalID(providerInternalID);
             if (worldProvider == null) {
@@ -162,22 +172,35 @@ public final class ChunkPacketManager implements DataManager.PacketDataManager {
             val lightingEngine = world.lumi$lightingEngine();
 
             chunk.lumi$readFromPacket(input);
-            for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
-                val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
-                if (subChunk != null)
-                    subChunk.lumi$readFromPacket(input);
+            if (hasSubChunkLight) {
+                for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+                    val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
+                    if (subChunk != null)
+                        subChunk.lumi$readFromPacket(input);
+                }
             }
             lightingEngine.readChunkFromPacket(chunk, input);
-            for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
-                val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
-                if (subChunk != null)
-                    lightingEngine.readSubChunkFromPacket(chunk, subChunk, input);
+            if (hasSubChunkLight) {
+                for (var chunkPosY = 0; chunkPosY < 16; chunkPosY++) {
+                    val subChunk = getSubChunk(chunk, subChunkMask, chunkPosY);
+                    if (subChunk != null)
+                        lightingEngine.readSubChunkFromPacket(chunk, subChunk, input);
+                }
             }
 
             input.position(startPosition + length);
         }
     }
 
+    /**
+     * Every light change made by the engine after a chunk was first sent is also sent to its watchers as a light delta,
+     * including the initial sky light of subchunks created since,
+     * so once the tracker exists, partial resends of changed blocks can leave out the subchunk light arrays.
+     */
+    private static boolean isLightSentAsDeltas(World worldBase) {
+        return ((LumiLightDeltaTracking) worldBase).lumi$getLightDeltaTracker() != null;
+    }
+
     private static @Nullable LumiSubChunk getSubChunk(LumiChunk chunk, int subChunkMask, int chunkPosY) {
         if ((subChunkMask & (1 << chunkPosY)) == 0)
             return null;
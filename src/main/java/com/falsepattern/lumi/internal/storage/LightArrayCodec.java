@@ -0,0 +1,354 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.storage;
+
+import com.falsepattern.lumi.internal.util.UniformNibbleArray;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+import net.minecraft.world.chunk.NibbleArray;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.uniformNibbleArray;
+
+/**
+ * Packet encoding of subchunk light arrays, using whichever of these modes is the smallest:
+ * <ul>
+ *     <li>Empty or uniform: a single value for the whole array</li>
+ *     <li>Run length: runs of the same value, in nibble order</li>
+ *     <li>Palette: each Y layer stores up to 4 distinct values with 1 or 2 bits per block, or falls back to raw</li>
+ *     <li>Raw: the nibble array as-is</li>
+ * </ul>
+ * Decoding writes straight into the target array.
+ */
+@UtilityClass
+public final class LightArrayCodec {
+    private static final Logger LOG = createLogger("Light Array Codec");
+
+    private static final int NIBBLE_COUNT = 4096;
+    private static final int NIBBLE_ARRAY_SIZE_BYTES = NIBBLE_COUNT / 2;
+    private static final int LAYER_COUNT = 16;
+    private static final int LAYER_SIZE_BYTES = NIBBLE_ARRAY_SIZE_BYTES / LAYER_COUNT;
+    private static final int MAX_PALETTE_SIZE = 4;
+
+    private static final byte EMPTY_MODE = 0;
+    private static final byte UNIFORM_MODE = 1;
+    private static final byte RAW_MODE = 2;
+    private static final byte RUN_LENGTH_MODE = 3;
+    private static final byte PALETTE_MODE = 4;
+
+    private static final int RAW_LAYER = 0;
+
+    // Run lengths store their lowest 3 bits next to the value, and the rest in 7 bit groups
+    private static final int RUN_LENGTH_FIRST_BITS = 3;
+    private static final int RUN_LENGTH_GROUP_BITS = 7;
+    private static final int CONTINUE_BIT = 0x80;
+
+    /**
+     * Raw arrays are always a candidate, so no encoded array is larger than this.
+     */
+    public static final int MAX_ENCODED_SIZE_BYTES = 1 + NIBBLE_ARRAY_SIZE_BYTES;
+
+    public static void writeLightArray(ByteBuffer output, @Nullable NibbleArray array) {
+        if (array == null) {
+            output.put(EMPTY_MODE);
+            return;
+        }
+        if (array instanceof UniformNibbleArray) {
+            output.put(UNIFORM_MODE);
+            output.put((byte) ((UniformNibbleArray) array).value());
+            return;
+        }
+
+        val data = array.data;
+        val runLengthSize = runLengthSize(data);
+        val paletteSize = paletteSize(data);
+        if (runLengthSize <= paletteSize && runLengthSize < NIBBLE_ARRAY_SIZE_BYTES) {
+            output.put(RUN_LENGTH_MODE);
+            writeRunLength(output, data);
+        } else if (paletteSize < NIBBLE_ARRAY_SIZE_BYTES) {
+            output.put(PALETTE_MODE);
+            writePalette(output, data);
+        } else {
+            output.put(RAW_MODE);
+            output.put(data);
+        }
+    }
+
+    /**
+     * @param array the current array, reused as the decoding target unless it is absent or shared
+     *
+     * @return the decoded array, {@code null} if it is all zero
+     */
+    public static @Nullable NibbleArray readLightArray(ByteBuffer input, @Nullable NibbleArray array) {
+        val mode = input.get();
+        switch (mode) {
+            case EMPTY_MODE:
+                return null;
+            case UNIFORM_MODE:
+                return uniformNibbleArray(input.get());
+            case RAW_MODE:
+                array = writableArray(array);
+                input.get(array.data);
+                return array;
+            case RUN_LENGTH_MODE:
+                array = writableArray(array);
+                readRunLength(input, array.data);
+                return array;
+            case PALETTE_MODE:
+                array = writableArray(array);
+                readPalette(input, array.data);
+                return array;
+            default:
+                LOG.error("Unknown light array encoding: {}", mode);
+                return array;
+        }
+    }
+
+    private static NibbleArray writableArray(@Nullable NibbleArray array) {
+        if (array == null || array instanceof UniformNibbleArray)
+            return new NibbleArray(NIBBLE_COUNT, 4);
+        return array;
+    }
+
+    // region Run Length
+    private static int runLengthSize(byte[] data) {
+        var size = 0;
+        var index = 0;
+        while (index < NIBBLE_COUNT) {
+            val runLength = runLengthAt(data, index);
+            size += runLengthBytes(runLength);
+            index += runLength;
+            // Not worth finishing once it is larger than the raw array
+            if (size >= NIBBLE_ARRAY_SIZE_BYTES)
+                return size;
+        }
+        return size;
+    }
+
+    private static void writeRunLength(ByteBuffer output, byte[] data) {
+        var index = 0;
+        while (index < NIBBLE_COUNT) {
+            val value = getNibble(data, index);
+            val runLength = runLengthAt(data, index);
+            var remaining = runLength - 1;
+            var first = value | (remaining & ((1 << RUN_LENGTH_FIRST_BITS) - 1)) << 4;
+            remaining >>>= RUN_LENGTH_FIRST_BITS;
+            if (remaining != 0)
+                first |= CONTINUE_BIT;
+            output.put((byte) first);
+            while (remaining != 0) {
+                var group = remaining & ((1 << RUN_LENGTH_GROUP_BITS) - 1);
+                remaining >>>= RUN_LENGTH_GROUP_BITS;
+                if (remaining != 0)
+                    group |= CONTINUE_BIT;
+                output.put((byte) group);
+            }
+            index += runLength;
+        }
+    }
+
+    private static void readRunLength(ByteBuffer input, byte[] data) {
+        var index = 0;
+        while (index < NIBBLE_COUNT) {
+            var current = input.get() & 0xFF;
+            val value = current & 15;
+            var runLength = (current >>> 4) & ((1 << RUN_LENGTH_FIRST_BITS) - 1);
+            var shift = RUN_LENGTH_FIRST_BITS;
+            while ((current & CONTINUE_BIT) != 0) {
+                current = input.get() & 0xFF;
+                runLength |= (current & ((1 << RUN_LENGTH_GROUP_BITS) - 1)) << shift;
+                shift += RUN_LENGTH_GROUP_BITS;
+            }
+            val end = Math.min(index + runLength + 1, NIBBLE_COUNT);
+            fillNibbles(data, index, end, value);
+            index = end;
+        }
+    }
+
+    private static int runLengthAt(byte[] data, int index) {
+        val value = getNibble(data, index);
+        var end = index + 1;
+        while (end < NIBBLE_COUNT && getNibble(data, end) == value)
+            end++;
+        return end - index;
+    }
+
+    private static int runLengthBytes(int runLength) {
+        var remaining = (runLength - 1) >>> RUN_LENGTH_FIRST_BITS;
+        var bytes = 1;
+        while (remaining != 0) {
+            remaining >>>= RUN_LENGTH_GROUP_BITS;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static void fillNibbles(byte[] data, int from, int to, int value) {
+        if ((from & 1) != 0 && from < to)
+            setNibble(data, from++, value);
+        if ((to & 1) != 0 && from < to)
+            setNibble(data, --to, value);
+        if (from < to)
+            Arrays.fill(data, from >> 1, to >> 1, (byte) (value << 4 | value));
+    }
+    // endregion
+
+    // region Palette
+    private static int paletteSize(byte[] data) {
+        var size = 0;
+        for (var layer = 0; layer < LAYER_COUNT; layer++) {
+            val paletteLength = Integer.bitCount(layerValueMask(data, layer));
+            size += layerSize(paletteLength);
+        }
+        return size;
+    }
+
+    private static void writePalette(ByteBuffer output, byte[] data) {
+        val paletteIndices = new int[16];
+        for (var layer = 0; layer < LAYER_COUNT; layer++) {
+            val layerOffset = layer * LAYER_SIZE_BYTES;
+            val valueMask = layerValueMask(data, layer);
+            val paletteLength = Integer.bitCount(valueMask);
+            if (paletteLength > MAX_PALETTE_SIZE) {
+                output.put((byte) RAW_LAYER);
+                output.put(data, layerOffset, LAYER_SIZE_BYTES);
+                continue;
+            }
+
+            output.put((byte) paletteLength);
+            // Palette values are stored in ascending order, two per byte
+            var paletteIndex = 0;
+            var packedValues = 0;
+            for (var value = 0; value < 16; value++) {
+                if ((valueMask & (1 << value)) == 0)
+                    continue;
+                paletteIndices[value] = paletteIndex;
+                packedValues |= value << ((paletteIndex & 1) << 2);
+                if ((paletteIndex & 1) != 0) {
+                    output.put((byte) packedValues);
+                    packedValues = 0;
+                }
+                paletteIndex++;
+            }
+            if ((paletteIndex & 1) != 0)
+                output.put((byte) packedValues);
+
+            val bitsPerEntry = bitsPerEntry(paletteLength);
+            if (bitsPerEntry == 0)
+                continue;
+            var packedIndices = 0;
+            var packedBits = 0;
+            for (var i = 0; i < LAYER_SIZE_BYTES * 2; i++) {
+                packedIndices |= paletteIndices[getNibble(data, layerOffset * 2 + i)] << packedBits;
+                packedBits += bitsPerEntry;
+                if (packedBits == 8) {
+                    output.put((byte) packedIndices);
+                    packedIndices = 0;
+                    packedBits = 0;
+                }
+            }
+        }
+    }
+
+    private static void readPalette(ByteBuffer input, byte[] data) {
+        val palette = new int[MAX_PALETTE_SIZE];
+        for (var layer = 0; layer < LAYER_COUNT; layer++) {
+            val layerOffset = layer * LAYER_SIZE_BYTES;
+            val paletteLength = input.get();
+            if (paletteLength == RAW_LAYER || paletteLength > MAX_PALETTE_SIZE) {
+                input.get(data, layerOffset, LAYER_SIZE_BYTES);
+                continue;
+            }
+
+            var packedValues = 0;
+            for (var i = 0; i < paletteLength; i++) {
+                if ((i & 1) == 0)
+                    packedValues = input.get();
+                palette[i] = (packedValues >>> ((i & 1) << 2)) & 15;
+            }
+
+            val bitsPerEntry = bitsPerEntry(paletteLength);
+            if (bitsPerEntry == 0) {
+                Arrays.fill(data, layerOffset, layerOffset + LAYER_SIZE_BYTES, (byte) (palette[0] << 4 | palette[0]));
+                continue;
+            }
+            val entryMask = (1 << bitsPerEntry) - 1;
+            var packedIndices = 0;
+            var packedBits = 0;
+            for (var i = 0; i < LAYER_SIZE_BYTES; i++) {
+                var packedNibbles = 0;
+                for (var j = 0; j < 2; j++) {
+                    if (packedBits == 0) {
+                        packedIndices = input.get() & 0xFF;
+                        packedBits = 8;
+                    }
+                    packedNibbles |= palette[packedIndices & entryMask] << (j << 2);
+                    packedIndices >>>= bitsPerEntry;
+                    packedBits -= bitsPerEntry;
+                }
+                data[layerOffset + i] = (byte) packedNibbles;
+            }
+        }
+    }
+
+    private static int layerValueMask(byte[] data, int layer) {
+        val layerOffset = layer * LAYER_SIZE_BYTES;
+        var valueMask = 0;
+        for (var i = 0; i < LAYER_SIZE_BYTES; i++) {
+            val packedNibbles = data[layerOffset + i];
+            valueMask |= 1 << (packedNibbles & 15);
+            valueMask |= 1 << ((packedNibbles >>> 4) & 15);
+        }
+        return valueMask;
+    }
+
+    private static int layerSize(int paletteLength) {
+        if (paletteLength > MAX_PALETTE_SIZE)
+            return 1 + LAYER_SIZE_BYTES;
+        return 1 + (paletteLength + 1) / 2 + LAYER_SIZE_BYTES * 2 * bitsPerEntry(paletteLength) / 8;
+    }
+
+    private static int bitsPerEntry(int paletteLength) {
+        if (paletteLength <= 1)
+            return 0;
+        return paletteLength == 2 ? 1 : 2;
+    }
+    // endregion
+
+    private static int getNibble(byte[] data, int index) {
+        return data[index >> 1] >> ((index & 1) << 2) & 15;
+    }
+
+    private static void setNibble(byte[] data, int index, int value) {
+        val shift = (index & 1) << 2;
+        data[index >> 1] = (byte) (data[index >> 1] & ~(15 << shift) | value << shift);
+    }
+}
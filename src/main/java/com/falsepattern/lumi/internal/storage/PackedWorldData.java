@@ -0,0 +1,164 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.storage;
+
+import com.falsepattern.lumi.api.world.LumiWorld;
+import com.falsepattern.lumi.api.world.LumiWorldProvider;
+import lombok.AllArgsConstructor;
+import lombok.val;
+import lombok.var;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraftforge.common.util.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Packs the data of every world provider into a single byte array,
+ * instead of nesting a compound tag for each world provider, (sub)chunk and lighting engine.
+ * <p>
+ * Layout: the format version, followed by the world ID, world provider version
+ * and the length-prefixed (sub)chunk and lighting engine payloads of each world. Empty payloads have a length of 0.
+ */
+final class PackedWorldData {
+    private static final Logger LOG = createLogger("Packed World Data");
+
+    static final String PACKED_NBT_TAG_NAME = "lumi_packed";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final ByteArrayOutputStream bytes;
+    private final DataOutputStream output;
+
+    PackedWorldData() {
+        this.bytes = new ByteArrayOutputStream();
+        this.output = new DataOutputStream(bytes);
+        try {
+            output.writeByte(FORMAT_VERSION);
+        } catch (IOException e) {
+            LOG.error("Failed to write packed world data header", e);
+        }
+    }
+
+    void writeWorld(LumiWorld world,
+                    LumiWorldProvider worldProvider,
+                    NBTTagCompound dataTag,
+                    NBTTagCompound lightingEngineTag) {
+        try {
+            output.writeUTF(world.lumi$worldID());
+            output.writeUTF(worldProvider.worldProviderVersion());
+            writePayload(dataTag);
+            writePayload(lightingEngineTag);
+        } catch (IOException e) {
+            LOG.error("Failed to write packed world data of world: {}", world.lumi$worldID(), e);
+        }
+    }
+
+    void writeTo(NBTTagCompound output) {
+        output.setByteArray(PACKED_NBT_TAG_NAME, bytes.toByteArray());
+    }
+
+    private void writePayload(NBTTagCompound tag) throws IOException {
+        if (tag.hasNoTags()) {
+            output.writeInt(0);
+            return;
+        }
+        val payload = new ByteArrayOutputStream();
+        CompressedStreamTools.write(tag, new DataOutputStream(payload));
+        output.writeInt(payload.size());
+        payload.writeTo(output);
+    }
+
+    /**
+     * @return the packed entries of the given tag, or {@code null} if it was not saved in the packed format
+     */
+    static @Nullable List<Entry> readPackedWorldData(NBTTagCompound input) {
+        if (!input.hasKey(PACKED_NBT_TAG_NAME, Constants.NBT.TAG_BYTE_ARRAY))
+            return null;
+
+        val entries = new ArrayList<Entry>();
+        val bytes = input.getByteArray(PACKED_NBT_TAG_NAME);
+        try (DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            val formatVersion = dataInput.readUnsignedByte();
+            if (formatVersion != FORMAT_VERSION) {
+                LOG.warn("Unknown packed world data format version: {}, lighting will be recomputed", formatVersion);
+                return entries;
+            }
+            while (dataInput.available() > 0) {
+                val worldID = dataInput.readUTF();
+                val worldProviderVersion = dataInput.readUTF();
+                val dataTag = readPayload(dataInput);
+                val lightingEngineTag = readPayload(dataInput);
+                entries.add(new Entry(worldID, worldProviderVersion, dataTag, lightingEngineTag));
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to read packed world data, lighting will be recomputed", e);
+        }
+        return entries;
+    }
+
+    private static NBTTagCompound readPayload(DataInputStream input) throws IOException {
+        val length = input.readInt();
+        if (length == 0)
+            return new NBTTagCompound();
+        return CompressedStreamTools.read(input);
+    }
+
+    /**
+     * @return the entry of the given world, or {@code null} if it is missing or was saved by a different world provider version
+     */
+    static @Nullable Entry findEntry(List<Entry> entries, LumiWorld world, LumiWorldProvider worldProvider) {
+        val worldID = world.lumi$worldID();
+        for (var i = 0; i < entries.size(); i++) {
+            val entry = entries.get(i);
+            if (!entry.worldID.equals(worldID))
+                continue;
+            if (!entry.worldProviderVersion.equals(worldProvider.worldProviderVersion()))
+                return null;
+            return entry;
+        }
+        return null;
+    }
+
+    @AllArgsConstructor(access = PRIVATE)
+    static final class Entry {
+        final String worldID;
+        final String worldProviderVersion;
+        final NBTTagCompound dataTag;
+        final NBTTagCompound lightingEngineTag;
+    }
+}
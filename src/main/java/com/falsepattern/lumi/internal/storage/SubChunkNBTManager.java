@@ -31,6 +31,7 @@ import com.falsepattern.lumi.api.chunk.LumiSubChunk;
 import com.falsepattern.lumi.api.init.LumiExtendedBlockStorageInitHook;
 import com.falsepattern.lumi.api.lighting.LumiLightingEngine;
 import com.falsepattern.lumi.internal.Tags;
+import com.falsepattern.lumi.internal.config.LumiConfig;
 import lombok.NoArgsConstructor;
 import lombok.val;
 import lombok.var;
@@ -45,6 +46,8 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Arrays;
 
 import static com.falsepattern.lumi.internal.Lumi.createLogger;
+import static com.falsepattern.lumi.internal.storage.PackedWorldData.findEntry;
+import static com.falsepattern.lumi.internal.storage.PackedWorldData.readPackedWorldData;
 import static com.falsepattern.lumi.internal.world.WorldProviderManager.worldProviderManager;
 import static lombok.AccessLevel.PRIVATE;
 
@@ -91,6 +94,8 @@ public final class SubChunkNBTManager implements DataManager.SubChunkDataManager
         val worldBase = chunkBase.worldObj;
         val worldProviderManager = worldProviderManager();
         val worldProviderCount = worldProviderManager.worldProviderCount();
+        val packedWorldData = LumiConfig.ENABLE_PACKED_NBT_FORMAT ? new PackedWorldData() : null;
+        val writeVanillaData = LumiConfig.WRITE_VANILLA_LIGHT_DATA;
         byte[] blockLight = null;
         byte[] skyLight = null;
         for (var providerInternalID = 0; providerInternalID < worldProviderCount; providerInternalID++) {
@@ -104,13 +109,26 @@ public final class SubChunkNBTManager implements DataManager.SubChunkDataManager
             val chunk = world.lumi$wrap(chunkBase);
             val lightingEngine = world.lumi$lightingEngine();
 
-            val worldTag = Utils.writeWorldTag(output, world, worldProvider);
-            writeSubChunkData(subChunk, worldTag);
-            writeLightingEngineData(chunk, subChunk, lightingEngine, worldTag);
+            if (packedWorldData != null) {
+                packedWorldData.writeWorld(world,
+                                           worldProvider,
+                                           subChunkDataTag(subChunk),
+                                           lightingEngineDataTag(chunk, subChunk, lightingEngine));
+            } else {
+                val worldTag = Utils.writeWorldTag(output, world, worldProvider);
+                writeSubChunkData(subChunk, worldTag);
+                writeLightingEngineData(chunk, subChunk, lightingEngine, worldTag);
+            }
 
+            if (!writeVanillaData)
+                continue;
             blockLight = mixLights(blockLight, subChunk.lumi$getBlockLightArray());
             skyLight = mixLights(skyLight, subChunk.lumi$getSkyLightArray());
         }
+        if (packedWorldData != null)
+            packedWorldData.writeTo(output);
+        if (!writeVanillaData)
+            return;
         output.setByteArray(LumiSubChunk.BLOCK_LIGHT_NBT_TAG_NAME_VANILLA, blockLight == null ? EMPTY : blockLight);
         output.setByteArray(LumiSubChunk.SKY_LIGHT_NBT_TAG_NAME_VANILLA, skyLight == null ? EMPTY : skyLight);
     }
@@ -178,6 +196,7 @@ public final class SubChunkNBTManager implements DataManager.SubChunkDataManager
         val worldBase = chunkBase.worldObj;
         val worldProviderManager = worldProviderManager();
         val worldProviderCount = worldProviderManager.worldProviderCount();
+        val packedWorldData = legacy ? null : readPackedWorldData(input);
         for (var providerInternalID = 0; providerInternalID < worldProviderCount; providerInternalID++) {
             val worldProvider = worldProviderManager.getWorldProviderByInternalID(providerInternalID);
             if (worldProvider == null)
@@ -189,6 +208,18 @@ public final class SubChunkNBTManager implements DataManager.SubChunkDataManager
             val subChunk = world.lumi$wrap(subChunkBase);
             val lightingEngine = world.lumi$lightingEngine();
 
+            if (packedWorldData != null) {
+                val entry = findEntry(packedWorldData, world, worldProvider);
+                if (entry == null) {
+                    initSubChunkData(subChunk);
+                    initLightingEngineData(chunk, subChunk, lightingEngine);
+                } else {
+                    subChunk.lumi$readFromNBT(entry.dataTag);
+                    lightingEngine.readSubChunkFromNBT(chunk, subChunk, entry.lightingEngineTag);
+                }
+                continue;
+            }
+
             val worldTag = Utils.readWorldTag(input, world, worldProvider, legacy);
             if (worldTag == null) {
                 initSubChunkData(subChunk);
@@ -214,9 +245,7 @@ public final class SubChunkNBTManager implements DataManager.SubChunkDataManager
 
     private static void writeSubChunkData(LumiSubChunk subChunk, NBTTagCompound output) {
         val subChunkTagName = subChunk.lumi$subChunkID();
-        val subChunkTag = new NBTTagCompound();
-        subChunk.lumi$writeToNBT(subChunkTag);
-        output.setTag(subChunkTagName, subChunkTag);
+        output.setTag(subChunkTagName, subChunkDataTag(subChunk));
     }
 
     private static void writeLightingEngineData(LumiChunk chunk,
@@ -224,9 +253,21 @@ public final class SubChunkNBTManager implements DataManager.SubChunkDataManager
                                                 LumiLightingEngine lightingEngine,
                                                 NBTTagCompound worldTag) {
         val lightingEngineTagName = lightingEngine.lightingEngineID();
+        worldTag.setTag(lightingEngineTagName, lightingEngineDataTag(chunk, subChunk, lightingEngine));
+    }
+
+    private static NBTTagCompound subChunkDataTag(LumiSubChunk subChunk) {
+        val subChunkTag = new NBTTagCompound();
+        subChunk.lumi$writeToNBT(subChunkTag);
+        return subChunkTag;
+    }
+
+    private static NBTTagCompound lightingEngineDataTag(LumiChunk chunk,
+                                                        LumiSubChunk subChunk,
+                                                        LumiLightingEngine lightingEngine) {
         val lightingEngineTag = new NBTTagCompound();
         lightingEngine.writeSubChunkToNBT(chunk, subChunk, lightingEngineTag);
-        worldTag.setTag(lightingEngineTagName, lightingEngineTag);
+        return lightingEngineTag;
     }
 
     private static void readSubChunkData(LumiSubChunk subChunk, NBTTagCompound input) {
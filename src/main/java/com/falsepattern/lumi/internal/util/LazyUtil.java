@@ -28,13 +28,15 @@ import lombok.experimental.UtilityClass;
 
 import net.minecraft.world.chunk.NibbleArray;
 
+import static com.falsepattern.lumi.internal.util.UniformNibbleArray.expandNibbleArray;
+
 @UtilityClass
 public final class LazyUtil {
     public static NibbleArray ensurePresent(NibbleArray arr) {
         if (arr == null) {
-            arr = new NibbleArray(4096, 4);
+            return new NibbleArray(4096, 4);
         }
-        return arr;
+        return expandNibbleArray(arr);
     }
 
     public static int lazyGet(NibbleArray arr, int x, int y, int z) {
@@ -50,6 +52,11 @@ public final class LazyUtil {
                 return null;
             }
             arr = new NibbleArray(4096, 4);
+        } else if (arr instanceof UniformNibbleArray) {
+            if (((UniformNibbleArray) arr).value() == (val & 15)) {
+                return arr;
+            }
+            arr = expandNibbleArray(arr);
         }
         arr.set(x, y, z, val);
         return arr;
@@ -0,0 +1,123 @@
+/*
+ * Lumi
+ *
+ * Copyright (C) 2023-2024 FalsePattern, Ven
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.falsepattern.lumi.internal.util;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import lombok.val;
+import lombok.var;
+import net.minecraft.world.chunk.NibbleArray;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Shared, read-only light array holding the same value in every position.
+ * <p>
+ * Reads go through the backing data like any other nibble array, writes must expand it into a copy first.
+ * A value of zero is represented by a {@code null} array instead.
+ */
+@Accessors(fluent = true, chain = false)
+public final class UniformNibbleArray extends NibbleArray {
+    private static final int NIBBLE_ARRAY_SIZE_BYTES = 2048;
+
+    private static final UniformNibbleArray[] INSTANCES = new UniformNibbleArray[16];
+
+    static {
+        for (var value = 1; value < INSTANCES.length; value++)
+            INSTANCES[value] = new UniformNibbleArray(value);
+    }
+
+    @Getter
+    private final int value;
+
+    private UniformNibbleArray(int value) {
+        super(filledData(value), 4);
+        this.value = value;
+    }
+
+    /**
+     * @return the shared array for the given value, or {@code null} if the value is zero
+     */
+    public static @Nullable UniformNibbleArray uniformNibbleArray(int value) {
+        return INSTANCES[value & 15];
+    }
+
+    @Contract("null -> false")
+    public static boolean isUniformNibbleArray(@Nullable NibbleArray array) {
+        return array instanceof UniformNibbleArray;
+    }
+
+    /**
+     * @return the value stored in every nibble of the data, or -1 if it is not uniform
+     */
+    public static int uniformValueOf(byte[] data) {
+        if (data.length != NIBBLE_ARRAY_SIZE_BYTES)
+            return -1;
+        val first = data[0];
+        if (((first >>> 4) & 15) != (first & 15))
+            return -1;
+        for (var i = 1; i < data.length; i++) {
+            if (data[i] != first)
+                return -1;
+        }
+        return first & 15;
+    }
+
+    /**
+     * Swaps arrays holding a single value for their shared counterpart.
+     */
+    public static @Nullable NibbleArray compactNibbleArray(@Nullable NibbleArray array) {
+        if (array == null || array instanceof UniformNibbleArray)
+            return array;
+        val uniformValue = uniformValueOf(array.data);
+        if (uniformValue < 0)
+            return array;
+        return uniformNibbleArray(uniformValue);
+    }
+
+    /**
+     * @return a writable copy of the given array, if it is a shared one
+     */
+    public static NibbleArray expandNibbleArray(NibbleArray array) {
+        if (!(array instanceof UniformNibbleArray))
+            return array;
+        return new NibbleArray(Arrays.copyOf(array.data, array.data.length), 4);
+    }
+
+    @Override
+    public void set(int subChunkPosX, int subChunkPosY, int subChunkPosZ, int value) {
+        if ((value & 15) == this.value)
+            return;
+        throw new UnsupportedOperationException("Uniform nibble arrays are shared and must be expanded before writing");
+    }
+
+    private static byte[] filledData(int value) {
+        val data = new byte[NIBBLE_ARRAY_SIZE_BYTES];
+        Arrays.fill(data, (byte) (value << 4 | value));
+        return data;
+    }
+}